@@ -0,0 +1,48 @@
+package com.github.nanoyou.akariyumetabackend.benchmark;
+
+import com.github.nanoyou.akariyumetabackend.common.config.JacksonConfig;
+import com.github.nanoyou.akariyumetabackend.service.DynamicService;
+import com.github.nanoyou.akariyumetabackend.service.LikeService;
+import com.github.nanoyou.akariyumetabackend.service.SubscriptionService;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.redis.RedisRepositoriesAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+/**
+ * 基准使用的最小 Spring 上下文
+ * 只加载 JPA、被测的服务和 Jackson 配置，不依赖 MySQL 和 Redis。
+ */
+@SpringBootConfiguration
+@EnableAutoConfiguration(exclude = {RedisAutoConfiguration.class, RedisRepositoriesAutoConfiguration.class})
+@EntityScan("com.github.nanoyou.akariyumetabackend.entity")
+@EnableJpaRepositories("com.github.nanoyou.akariyumetabackend.dao")
+@Import({DynamicService.class, LikeService.class, SubscriptionService.class, JacksonConfig.class})
+public class BenchmarkApplication {
+
+    /**
+     * LikeService 的对账需要 Redis 租约，基准中没有启用定时任务，这个模板不会真正连接
+     */
+    @Bean
+    public StringRedisTemplate stringRedisTemplate() {
+        return new StringRedisTemplate(new LettuceConnectionFactory());
+    }
+
+    /**
+     * 启动上下文，每个基准在自己的 @Setup 中调用，并在 @TearDown 中关闭
+     */
+    public static ConfigurableApplicationContext start() {
+        return new SpringApplicationBuilder(BenchmarkApplication.class)
+                .web(WebApplicationType.NONE)
+                .run();
+    }
+}
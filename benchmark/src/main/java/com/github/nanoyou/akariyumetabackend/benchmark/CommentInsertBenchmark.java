@@ -0,0 +1,62 @@
+package com.github.nanoyou.akariyumetabackend.benchmark;
+
+import com.github.nanoyou.akariyumetabackend.common.id.UuidV7;
+import com.github.nanoyou.akariyumetabackend.entity.dynamic.Comment;
+import lombok.val;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 向 comment 表批量插入评论的耗时，对比随机 UUID 和时间有序的 UUIDv7 作为主键
+ * 表在整个试验期间不断增大，随机主键的插入位置分散在整棵索引树上。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CommentInsertBenchmark {
+
+    /**
+     * 主键生成方式：random 为 UUIDv4，v7 为 UuidV7
+     */
+    @Param({"random", "v7"})
+    public String idKind;
+
+    /**
+     * 每批插入的条数
+     */
+    @Param({"500"})
+    public int batchSize;
+
+    private ConfigurableApplicationContext context;
+    private JdbcTemplate jdbcTemplate;
+    private int seq;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void insertBatch() {
+        val comments = new ArrayList<Comment>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            val id = "v7".equals(idKind) ? UuidV7.nextString() : UUID.randomUUID().toString();
+            comments.add(Fixtures.comment(id, "user-" + seq % 97, null, seq++));
+        }
+        Fixtures.insertComments(jdbcTemplate, comments);
+    }
+}
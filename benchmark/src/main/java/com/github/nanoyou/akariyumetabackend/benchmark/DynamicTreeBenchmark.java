@@ -0,0 +1,65 @@
+package com.github.nanoyou.akariyumetabackend.benchmark;
+
+import com.github.nanoyou.akariyumetabackend.common.id.CompactUuid;
+import com.github.nanoyou.akariyumetabackend.dto.dynamic.DynamicTreeDTO;
+import com.github.nanoyou.akariyumetabackend.service.DynamicService;
+import lombok.val;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DynamicService.getDynamicTree 在不同深度和分叉数的评论树上的耗时
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DynamicTreeBenchmark {
+
+    /**
+     * 根以下的层数
+     */
+    @Param({"2", "4", "6"})
+    public int depth;
+
+    /**
+     * 每条评论的回复数
+     */
+    @Param({"2", "4"})
+    public int fanOut;
+
+    private ConfigurableApplicationContext context;
+    private DynamicService dynamicService;
+    private String root;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        dynamicService = context.getBean(DynamicService.class);
+
+        val comments = Fixtures.commentTree(depth, fanOut);
+        root = comments.get(0).getId();
+        val jdbcTemplate = context.getBean(JdbcTemplate.class);
+        Fixtures.insertComments(jdbcTemplate, comments);
+        val random = Fixtures.random();
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO like_count (commentid, like_count) VALUES (?, ?)",
+                comments.stream().map(c -> new Object[]{CompactUuid.toBytes(c.getId()), (long) random.nextInt(1000)}).toList()
+        );
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public DynamicTreeDTO getDynamicTree() {
+        return dynamicService.getDynamicTree(root);
+    }
+}
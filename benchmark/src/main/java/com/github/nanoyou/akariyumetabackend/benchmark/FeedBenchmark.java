@@ -0,0 +1,74 @@
+package com.github.nanoyou.akariyumetabackend.benchmark;
+
+import com.github.nanoyou.akariyumetabackend.common.id.UuidV7;
+import com.github.nanoyou.akariyumetabackend.entity.dynamic.Comment;
+import com.github.nanoyou.akariyumetabackend.service.DynamicService;
+import lombok.val;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DynamicService.getDynamicsByFollowerID 组装关注流的耗时
+ * 每个被关注者发表若干条动态，另有同样数量的回复作为不应返回的干扰数据。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FeedBenchmark {
+
+    private static final String FOLLOWER = "follower";
+
+    /**
+     * 关注的人数
+     */
+    @Param({"10", "100", "500"})
+    public int followees;
+
+    /**
+     * 每人发表的动态数
+     */
+    @Param({"20"})
+    public int dynamicsPerFollowee;
+
+    private ConfigurableApplicationContext context;
+    private DynamicService dynamicService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        dynamicService = context.getBean(DynamicService.class);
+
+        val jdbcTemplate = context.getBean(JdbcTemplate.class);
+        val subscriptions = new ArrayList<Object[]>(followees);
+        val comments = new ArrayList<Comment>();
+        for (int f = 0; f < followees; f++) {
+            val followee = "followee-" + f;
+            subscriptions.add(new Object[]{followee, FOLLOWER});
+            for (int i = 0; i < dynamicsPerFollowee; i++) {
+                val id = UuidV7.nextString();
+                comments.add(Fixtures.comment(id, followee, null, comments.size()));
+                comments.add(Fixtures.comment(UuidV7.nextString(), followee, id, comments.size()));
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO subscription (followeeid, followerid) VALUES (?, ?)", subscriptions);
+        Fixtures.insertComments(jdbcTemplate, comments);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Comment> getDynamicsByFollowerID() {
+        return dynamicService.getDynamicsByFollowerID(FOLLOWER);
+    }
+}
@@ -0,0 +1,127 @@
+package com.github.nanoyou.akariyumetabackend.benchmark;
+
+import com.github.nanoyou.akariyumetabackend.common.enumeration.TaskCategory;
+import com.github.nanoyou.akariyumetabackend.common.enumeration.TaskStatus;
+import com.github.nanoyou.akariyumetabackend.common.id.CompactUuid;
+import com.github.nanoyou.akariyumetabackend.common.id.UuidV7;
+import com.github.nanoyou.akariyumetabackend.entity.dynamic.Comment;
+import com.github.nanoyou.akariyumetabackend.entity.task.Course;
+import com.github.nanoyou.akariyumetabackend.entity.task.Task;
+import lombok.val;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 合成的测试数据，固定随机种子，保证每次运行的数据一致
+ */
+public final class Fixtures {
+
+    public static final LocalDateTime EPOCH = LocalDateTime.of(2023, 11, 1, 0, 0);
+
+    private Fixtures() {
+    }
+
+    public static Random random() {
+        return new Random(20231101L);
+    }
+
+    /**
+     * 生成一棵满 fanOut 叉的评论树
+     *
+     * @param depth  根以下的层数
+     * @param fanOut 每个节点的回复数
+     * @return 按层序排列的评论，第一个为根
+     */
+    public static List<Comment> commentTree(int depth, int fanOut) {
+        val comments = new ArrayList<Comment>();
+        val root = UuidV7.nextString();
+        comments.add(comment(root, "user-0", null, 0));
+        var level = List.of(root);
+        for (int d = 0; d < depth; d++) {
+            val next = new ArrayList<String>(level.size() * fanOut);
+            for (val parent : level) {
+                for (int i = 0; i < fanOut; i++) {
+                    val id = UuidV7.nextString();
+                    comments.add(comment(id, "user-" + comments.size() % 97, parent, comments.size()));
+                    next.add(id);
+                }
+            }
+            level = next;
+        }
+        return comments;
+    }
+
+    public static Comment comment(String id, String commenterID, String replyTo, int seq) {
+        return Comment.builder()
+                .id(id)
+                .commenterID(commenterID)
+                .content("评论内容 " + seq + "，用于基准测试的一段中等长度的文本")
+                .replyTo(replyTo)
+                .createTime(EPOCH.plusSeconds(seq))
+                .build();
+    }
+
+    public static List<Comment> comments(int n) {
+        val comments = new ArrayList<Comment>(n);
+        for (int i = 0; i < n; i++) {
+            comments.add(comment(UuidV7.nextString(), "user-" + i % 13, null, i));
+        }
+        return comments;
+    }
+
+    /**
+     * 用 JDBC 批量写入评论，ID 按 BINARY(16) 绑定
+     */
+    public static void insertComments(JdbcTemplate jdbcTemplate, List<Comment> comments) {
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO comment (id, commenterid, content, create_time, reply_to) VALUES (?, ?, ?, ?, ?)",
+                comments.stream().map(c -> new Object[]{
+                        CompactUuid.toBytes(c.getId()),
+                        c.getCommenterID(),
+                        c.getContent(),
+                        Timestamp.valueOf(c.getCreateTime()),
+                        CompactUuid.toBytes(c.getReplyTo())
+                }).toList()
+        );
+    }
+
+    public static List<Integer> likes(int n) {
+        val random = random();
+        val likes = new ArrayList<Integer>(n);
+        for (int i = 0; i < n; i++) {
+            likes.add(random.nextInt(1000));
+        }
+        return likes;
+    }
+
+    public static Task task(int i) {
+        val categories = TaskCategory.values();
+        val statuses = TaskStatus.values();
+        return Task.builder()
+                .id("task-" + i)
+                .taskName("学习任务 " + i)
+                .taskUploaderID("volunteer-" + i % 7)
+                .createdTime(EPOCH.plusMinutes(i))
+                .startTime(EPOCH.plusDays(1))
+                .endTime(EPOCH.plusDays(30))
+                .status(statuses[i % statuses.length])
+                .description("任务描述 " + i)
+                .category(categories[i % categories.length])
+                .bonus(10 + i % 50)
+                .build();
+    }
+
+    public static Course course(int i) {
+        return Course.builder()
+                .taskID("task-" + i)
+                .watchedCount(i * 3)
+                .videoURL("https://example.com/video/" + i + ".mp4")
+                .videoDuration(600 + i)
+                .build();
+    }
+}
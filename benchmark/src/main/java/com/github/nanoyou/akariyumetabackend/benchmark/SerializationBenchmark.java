@@ -0,0 +1,92 @@
+package com.github.nanoyou.akariyumetabackend.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.nanoyou.akariyumetabackend.common.config.JacksonConfig;
+import com.github.nanoyou.akariyumetabackend.common.enumeration.ResponseCode;
+import com.github.nanoyou.akariyumetabackend.dto.dynamic.DynamicDTO;
+import com.github.nanoyou.akariyumetabackend.dto.page.Cursor;
+import com.github.nanoyou.akariyumetabackend.dto.page.CursorPageDTO;
+import com.github.nanoyou.akariyumetabackend.dto.task.TaskCourseDTO;
+import com.github.nanoyou.akariyumetabackend.entity.Result;
+import lombok.val;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 使用 JacksonConfig 配置的 ObjectMapper 序列化接口返回的 Result
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    /**
+     * 每页条数
+     */
+    @Param({"20", "100"})
+    public int size;
+
+    private ObjectMapper objectMapper;
+    private Result dynamicPage;
+    private Result taskCourses;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        try (val context = new AnnotationConfigApplicationContext(JacksonConfig.class)) {
+            objectMapper = context.getBean(ObjectMapper.class);
+        }
+
+        val comments = Fixtures.comments(size + 1);
+        val likes = Fixtures.likes(size + 1);
+        val page = CursorPageDTO.of(comments, size, c -> new Cursor(c.getCreateTime(), c.getId()))
+                .map(items -> {
+                    val dtos = new ArrayList<DynamicDTO>(items.size());
+                    for (int i = 0; i < items.size(); i++) {
+                        val c = items.get(i);
+                        dtos.add(DynamicDTO.builder()
+                                .id(c.getId())
+                                .commenterID(c.getCommenterID())
+                                .content(c.getContent())
+                                .replyTo(c.getReplyTo())
+                                .createTime(c.getCreateTime())
+                                .likes(likes.get(i))
+                                .build());
+                    }
+                    return dtos;
+                });
+        dynamicPage = Result.builder()
+                .ok(true)
+                .code(ResponseCode.SUCCESS.value)
+                .message("查询到 " + size + " 条动态")
+                .data(page)
+                .build();
+
+        val tasks = new ArrayList<TaskCourseDTO>(size);
+        for (int i = 0; i < size; i++) {
+            tasks.add(new TaskCourseDTO(Fixtures.task(i), Fixtures.course(i)));
+        }
+        taskCourses = Result.builder()
+                .ok(true)
+                .code(ResponseCode.SUCCESS.value)
+                .message("查询成功")
+                .data(tasks)
+                .build();
+    }
+
+    @Benchmark
+    public byte[] dynamicPage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(dynamicPage);
+    }
+
+    @Benchmark
+    public byte[] taskCourses() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(taskCourses);
+    }
+}
@@ -0,0 +1,67 @@
+package com.github.nanoyou.akariyumetabackend.controller;
+
+import com.github.nanoyou.akariyumetabackend.benchmark.Fixtures;
+import com.github.nanoyou.akariyumetabackend.dto.dynamic.DynamicDTO;
+import com.github.nanoyou.akariyumetabackend.dto.task.TaskCourseDTO;
+import com.github.nanoyou.akariyumetabackend.entity.dynamic.Comment;
+import com.github.nanoyou.akariyumetabackend.entity.task.Course;
+import com.github.nanoyou.akariyumetabackend.entity.task.Task;
+import lombok.val;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 控制器中实体到 DTO 的映射
+ * 放在 controller 包中以便调用包内可见的 DynamicController.concat。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappingBenchmark {
+
+    /**
+     * 映射的条数
+     */
+    @Param({"20", "100", "1000"})
+    public int size;
+
+    private List<Comment> comments;
+    private List<Integer> likes;
+    private List<Task> tasks;
+    private List<Course> courses;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        comments = Fixtures.comments(size);
+        likes = Fixtures.likes(size);
+        tasks = new ArrayList<>(size);
+        courses = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            tasks.add(Fixtures.task(i));
+            courses.add(Fixtures.course(i));
+        }
+    }
+
+    @Benchmark
+    public List<DynamicDTO> dynamicConcat() {
+        return DynamicController.concat(comments, likes);
+    }
+
+    /**
+     * TaskController 通过 JPQL 构造表达式调用的 TaskCourseDTO(Task, Course)
+     */
+    @Benchmark
+    public List<TaskCourseDTO> taskCourseMapping() {
+        val dtos = new ArrayList<TaskCourseDTO>(size);
+        for (int i = 0; i < size; i++) {
+            dtos.add(new TaskCourseDTO(tasks.get(i), courses.get(i)));
+        }
+        return dtos;
+    }
+}
@@ -0,0 +1,223 @@
+package com.github.nanoyou.akariyumetabackend.common.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.Nonnull;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * 两级缓存
+ * 第一级为进程内的 Caffeine 缓存（W-TinyLFU 淘汰），第二级为 Redis，都未命中时回源加载。
+ * 数据被修改时通过 Redis 发布订阅通知所有节点清除本地缓存。
+ * 本地缓存中的对象不交给调用者，放入和取出时都经过 copy，调用者修改拿到的对象不影响其他调用者。
+ * 读取期间发生过失效时不回填，避免失效前读到的旧值在失效之后放回缓存。
+ *
+ * @param <V> 缓存的值类型
+ */
+@Slf4j
+public class TwoLevelCache<V> {
+
+    /**
+     * 失效通知的频道，消息格式为 "缓存名:键"
+     */
+    public static final String INVALIDATION_CHANNEL = "cache:invalidate";
+
+    @Getter
+    private final String name;
+    private final Class<V> type;
+    private final UnaryOperator<V> copy;
+    private final Cache<String, V> local;
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final Duration redisTtl;
+
+    /**
+     * 每次失效加一，读取前后不同说明读取期间发生过失效
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder redisHits = new LongAdder();
+    private final LongAdder redisMisses = new LongAdder();
+    private final LongAdder redisErrors = new LongAdder();
+
+    public TwoLevelCache(@Nonnull String name,
+                         @Nonnull Class<V> type,
+                         @Nonnull UnaryOperator<V> copy,
+                         long localMaxSize,
+                         @Nonnull Duration localTtl,
+                         @Nonnull Duration redisTtl,
+                         @Nonnull StringRedisTemplate redisTemplate,
+                         @Nonnull ObjectMapper objectMapper) {
+        this.name = name;
+        this.type = type;
+        this.copy = copy;
+        this.local = Caffeine.newBuilder()
+                .maximumSize(localMaxSize)
+                .expireAfterWrite(localTtl)
+                .recordStats()
+                .build();
+        this.redisTtl = redisTtl;
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 依次查询本地缓存、Redis，都未命中时调用 loader 回源，并回填两级缓存
+     * 回源结果为空时不缓存
+     *
+     * @param key    键
+     * @param loader 回源加载
+     * @return 值，每次调用都是新的对象
+     */
+    public Optional<V> get(@Nonnull String key, @Nonnull Function<String, Optional<V>> loader) {
+        val cached = local.getIfPresent(key);
+        if (cached != null) {
+            return Optional.of(copy.apply(cached));
+        }
+
+        val readGeneration = generation.get();
+        val remote = getRemote(key);
+        if (remote.isPresent()) {
+            if (generation.get() == readGeneration) {
+                local.put(key, remote.get());
+            }
+            return remote.map(copy);
+        }
+
+        val loaded = loader.apply(key);
+        loaded.ifPresent(value -> {
+            if (generation.get() == readGeneration) {
+                local.put(key, copy.apply(value));
+                putRemote(key, value);
+            }
+        });
+        return loaded;
+    }
+
+    /**
+     * 只查询本地缓存，不访问 Redis 和数据库
+     *
+     * @param key 键
+     * @return 值，每次调用都是新的对象
+     */
+    public Optional<V> getLocal(@Nonnull String key) {
+        return Optional.ofNullable(local.getIfPresent(key)).map(copy);
+    }
+
+    /**
+     * 使所有节点上的缓存失效，在数据写入数据库之后调用
+     *
+     * @param key 键
+     */
+    public void invalidate(@Nonnull String key) {
+        try {
+            redisTemplate.delete(redisKey(key));
+            evictLocal(key);
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, name + ":" + key);
+        } catch (Exception e) {
+            redisErrors.increment();
+            evictLocal(key);
+            log.warn("缓存失效通知失败: cache={}, key={}", name, key, e);
+        }
+    }
+
+    /**
+     * 批量使所有节点上的缓存失效，Redis 中的键一次删除，失效通知在一个管道中发出
+     *
+     * @param keys 键
+     */
+    public void invalidateAll(@Nonnull Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        try {
+            redisTemplate.delete(keys.stream().map(this::redisKey).toList());
+            generation.incrementAndGet();
+            local.invalidateAll(keys);
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                val stringConnection = (StringRedisConnection) connection;
+                for (val key : keys) {
+                    stringConnection.publish(INVALIDATION_CHANNEL, name + ":" + key);
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            redisErrors.increment();
+            generation.incrementAndGet();
+            local.invalidateAll(keys);
+            log.warn("缓存失效通知失败: cache={}, keys={}", name, keys.size(), e);
+        }
+    }
+
+    /**
+     * 收到其他节点的失效通知时清除本地缓存
+     *
+     * @param key 键
+     */
+    public void evictLocal(@Nonnull String key) {
+        generation.incrementAndGet();
+        local.invalidate(key);
+    }
+
+    /**
+     * 缓存命中统计
+     */
+    public Map<String, Object> stats() {
+        val localStats = local.stats();
+        val stats = new LinkedHashMap<String, Object>();
+        stats.put("localSize", local.estimatedSize());
+        stats.put("localHits", localStats.hitCount());
+        stats.put("localMisses", localStats.missCount());
+        stats.put("localHitRate", localStats.hitRate());
+        stats.put("localEvictions", localStats.evictionCount());
+        stats.put("redisHits", redisHits.sum());
+        stats.put("redisMisses", redisMisses.sum());
+        stats.put("redisErrors", redisErrors.sum());
+        return stats;
+    }
+
+    private Optional<V> getRemote(@Nonnull String key) {
+        try {
+            val json = redisTemplate.opsForValue().get(redisKey(key));
+            if (json == null) {
+                redisMisses.increment();
+                return Optional.empty();
+            }
+            redisHits.increment();
+            return Optional.of(objectMapper.readValue(json, type));
+        } catch (Exception e) {
+            redisErrors.increment();
+            log.warn("读取 Redis 缓存失败: cache={}, key={}", name, key, e);
+            return Optional.empty();
+        }
+    }
+
+    private void putRemote(@Nonnull String key, @Nonnull V value) {
+        try {
+            redisTemplate.opsForValue().set(redisKey(key), objectMapper.writeValueAsString(value), redisTtl);
+        } catch (Exception e) {
+            redisErrors.increment();
+            log.warn("写入 Redis 缓存失败: cache={}, key={}", name, key, e);
+        }
+    }
+
+    private String redisKey(@Nonnull String key) {
+        return "cache:" + name + ":" + key;
+    }
+}
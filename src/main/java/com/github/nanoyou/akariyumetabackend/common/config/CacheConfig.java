@@ -0,0 +1,75 @@
+package com.github.nanoyou.akariyumetabackend.common.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.github.nanoyou.akariyumetabackend.common.cache.TwoLevelCache;
+import com.github.nanoyou.akariyumetabackend.entity.task.Course;
+import com.github.nanoyou.akariyumetabackend.entity.task.Task;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Configuration
+public class CacheConfig {
+    //配置文件里属性
+    @Value("${akari.cache.local-max-size:10000}")
+    long localMaxSize;
+    //配置文件里属性
+    @Value("${akari.cache.local-ttl:10m}")
+    Duration localTtl;
+    //配置文件里属性
+    @Value("${akari.cache.redis-ttl:1h}")
+    Duration redisTtl;
+
+    /**
+     * 缓存专用的 ObjectMapper，时间按 ISO 格式完整保存，不受接口日期格式影响
+     */
+    private final ObjectMapper cacheObjectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @Bean
+    public TwoLevelCache<Task> taskCache(StringRedisTemplate redisTemplate) {
+        return new TwoLevelCache<>("task", Task.class, task -> task.toBuilder().build(),
+                localMaxSize, localTtl, redisTtl, redisTemplate, cacheObjectMapper);
+    }
+
+    @Bean
+    public TwoLevelCache<Course> courseCache(StringRedisTemplate redisTemplate) {
+        return new TwoLevelCache<>("course", Course.class, course -> course.toBuilder().build(),
+                localMaxSize, localTtl, redisTtl, redisTemplate, cacheObjectMapper);
+    }
+
+    /**
+     * 订阅失效通知，清除本节点对应缓存中的键
+     */
+    @Bean
+    public RedisMessageListenerContainer cacheInvalidationListener(RedisConnectionFactory connectionFactory,
+                                                                   List<TwoLevelCache<?>> caches) {
+        val cachesByName = caches.stream()
+                .collect(Collectors.toMap(TwoLevelCache::getName, Function.identity()));
+        val container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener((message, pattern) -> {
+            val body = new String(message.getBody(), StandardCharsets.UTF_8);
+            val separator = body.indexOf(':');
+            if (separator < 0) {
+                return;
+            }
+            val cache = cachesByName.get(body.substring(0, separator));
+            if (cache != null) {
+                cache.evictLocal(body.substring(separator + 1));
+            }
+        }, new ChannelTopic(TwoLevelCache.INVALIDATION_CHANNEL));
+        return container;
+    }
+}
@@ -0,0 +1,75 @@
+package com.github.nanoyou.akariyumetabackend.common.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.nanoyou.akariyumetabackend.middleware.ChatHandshakeInterceptor;
+import jakarta.annotation.Nonnull;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
+import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
+import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
+
+import java.security.Principal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 聊天的 WebSocket / STOMP 配置
+ * 客户端连接 /ws/chat，向 /app/chat/send 发送消息，订阅 /user/queue/chat 接收消息。
+ * 本地只使用简单代理，跨节点投递由 ChatRelayService 通过 Redis 频道完成。
+ * 握手只接受同源和 akari.chat.allowed-origin-patterns 中的前端来源，其他站点的页面不能借用户的会话连接。
+ */
+@Configuration
+@EnableWebSocketMessageBroker
+public class ChatConfig implements WebSocketMessageBrokerConfigurer {
+
+    private final ObjectMapper objectMapper;
+    private final String[] allowedOriginPatterns;
+
+    // @Configuration 需要 CGLIB 代理，构造器不能是 private
+    @Autowired
+    ChatConfig(ObjectMapper objectMapper,
+               @Value("${akari.chat.allowed-origin-patterns:}") String[] allowedOriginPatterns) {
+        this.objectMapper = objectMapper;
+        this.allowedOriginPatterns = allowedOriginPatterns;
+    }
+
+    @Override
+    public void registerStompEndpoints(StompEndpointRegistry registry) {
+        registry.addEndpoint("/ws/chat")
+                .setAllowedOriginPatterns(allowedOriginPatterns)
+                .addInterceptors(new ChatHandshakeInterceptor())
+                .setHandshakeHandler(new DefaultHandshakeHandler() {
+                    @Override
+                    protected Principal determineUser(@Nonnull ServerHttpRequest request, @Nonnull WebSocketHandler wsHandler,
+                                                      @Nonnull Map<String, Object> attributes) {
+                        // 以用户ID作为 STOMP 用户名，/user 目的地按它路由
+                        val userID = (String) attributes.get(ChatHandshakeInterceptor.USER_ID_ATTR);
+                        return () -> userID;
+                    }
+                });
+    }
+
+    @Override
+    public void configureMessageBroker(MessageBrokerRegistry registry) {
+        registry.setApplicationDestinationPrefixes("/app");
+        registry.enableSimpleBroker("/queue");
+    }
+
+    @Override
+    public boolean configureMessageConverters(List<MessageConverter> messageConverters) {
+        // 与 HTTP 接口使用相同的日期格式
+        val converter = new MappingJackson2MessageConverter();
+        converter.setObjectMapper(objectMapper);
+        messageConverters.add(converter);
+        return true;
+    }
+}
@@ -0,0 +1,43 @@
+package com.github.nanoyou.akariyumetabackend.common.config;
+
+import com.github.nanoyou.akariyumetabackend.common.execution.ExecutionMode;
+import com.github.nanoyou.akariyumetabackend.common.execution.VirtualThreads;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Locale;
+
+@Slf4j
+@Configuration
+public class ExecutionConfig {
+
+    /**
+     * 实际生效的执行方式，运行时不支持虚拟线程时退回平台线程
+     */
+    @Bean
+    public ExecutionMode executionMode(@Value("${akari.execution.mode:platform}") String mode) {
+        val requested = ExecutionMode.valueOf(mode.trim().toUpperCase(Locale.ROOT));
+        if (requested == ExecutionMode.VIRTUAL && !VirtualThreads.isSupported()) {
+            log.warn("当前运行时 {} 不支持虚拟线程，使用平台线程处理请求", Runtime.version());
+            return ExecutionMode.PLATFORM;
+        }
+        log.info("请求执行方式 {}", requested);
+        return requested;
+    }
+
+    /**
+     * 虚拟线程模式下由 Tomcat 为每个请求创建一个虚拟线程，代替固定大小的工作线程池
+     */
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer(ExecutionMode executionMode) {
+        return protocolHandler -> {
+            if (executionMode == ExecutionMode.VIRTUAL) {
+                protocolHandler.setExecutor(VirtualThreads.newThreadPerTaskExecutor("tomcat-handler-"));
+            }
+        };
+    }
+}
@@ -0,0 +1,36 @@
+package com.github.nanoyou.akariyumetabackend.common.config;
+
+import jakarta.annotation.Nonnull;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+
+/**
+ * 定时任务的线程池
+ * 启用 STOMP 之后容器中有消息代理的 TaskScheduler，@Scheduled 方法会默认共用它，
+ * 一个任务（如观看次数写回）卡住时，任务状态切换的租约续期和其他任务都要排队。
+ * 这里给 @Scheduled 方法单独一个线程池，线程数不少于定时任务数时每个任务都有自己的线程。
+ */
+@Configuration
+public class SchedulingConfig implements SchedulingConfigurer {
+
+    @Value("${akari.scheduling.pool-size:8}")
+    private int poolSize;
+
+    @Bean
+    public ThreadPoolTaskScheduler scheduledTaskScheduler() {
+        val scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(poolSize);
+        scheduler.setThreadNamePrefix("scheduled-");
+        return scheduler;
+    }
+
+    @Override
+    public void configureTasks(@Nonnull ScheduledTaskRegistrar registrar) {
+        registrar.setTaskScheduler(scheduledTaskScheduler());
+    }
+}
@@ -0,0 +1,22 @@
+package com.github.nanoyou.akariyumetabackend.common.config;
+
+import com.github.nanoyou.akariyumetabackend.common.session.SessionStore;
+import com.github.nanoyou.akariyumetabackend.middleware.RedisSessionFilter;
+import lombok.val;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+@Configuration
+public class SessionConfig {
+
+    @Bean
+    public FilterRegistrationBean<RedisSessionFilter> redisSessionFilter(SessionStore sessionStore) {
+        val registration = new FilterRegistrationBean<>(new RedisSessionFilter(sessionStore));
+        registration.addUrlPatterns("/*");
+        // 在其他过滤器之前替换会话
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 50);
+        return registration;
+    }
+}
@@ -0,0 +1,19 @@
+package com.github.nanoyou.akariyumetabackend.common.enumeration;
+
+/**
+ * 捐助汇总的维度
+ */
+public enum DonationTotalKind {
+    /**
+     * 按受赠人汇总捐款
+     */
+    DONEE,
+    /**
+     * 按捐助人汇总捐款和捐物折合的钱数
+     */
+    DONOR,
+    /**
+     * 按物品汇总捐物
+     */
+    GOODS
+}
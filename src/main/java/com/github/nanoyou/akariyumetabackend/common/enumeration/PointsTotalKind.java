@@ -0,0 +1,19 @@
+package com.github.nanoyou.akariyumetabackend.common.enumeration;
+
+/**
+ * 积分汇总和排行榜的维度
+ */
+public enum PointsTotalKind {
+    /**
+     * 总积分，即余额
+     */
+    ALL,
+    /**
+     * 按任务类别汇总，周期为类别名称
+     */
+    CATEGORY,
+    /**
+     * 按周汇总，周期为 ISO 周，如 2026-W42
+     */
+    WEEK
+}
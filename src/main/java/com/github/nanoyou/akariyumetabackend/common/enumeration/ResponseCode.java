@@ -31,6 +31,10 @@ public enum ResponseCode {
      * 用户名不能为空
      */
     EMPTY_USERNAME(5),
+    /**
+     * 查询超时
+     */
+    LOOKUP_TIMEOUT(6),
 
     // *********** 登录 / 注册
     /**
@@ -57,6 +61,14 @@ public enum ResponseCode {
      * 必须选择一名角色
      */
     EMPTY_ROLE(105),
+    /**
+     * 登录尝试过于频繁
+     */
+    LOGIN_THROTTLED(106),
+    /**
+     * 登录繁忙，请稍后再试
+     */
+    LOGIN_BUSY(107),
 
     // ********************* 学习任务
     /**
@@ -75,6 +87,10 @@ public enum ResponseCode {
      * 查询我的任务失败
      */
     MY_TASK_FAILED(203),
+    /**
+     * 批量导入时部分行失败
+     */
+    TASK_IMPORT_PARTIAL(204),
 
     // ***************** 动态
     /**
@@ -88,7 +104,79 @@ public enum ResponseCode {
     /**
      * 评论或动态创建失败
      */
-    CREATE_COMMENT_OR_DYNAMIC_FAILED(302);
+    CREATE_COMMENT_OR_DYNAMIC_FAILED(302),
+    /**
+     * 已经点过赞
+     */
+    ALREADY_LIKED(303),
+    /**
+     * 还没有点赞
+     */
+    NOT_LIKED(304),
+
+    // ***************** 聊天
+    /**
+     * 消息内容不能为空
+     */
+    EMPTY_CHAT_CONTENT(400),
+    /**
+     * 消息内容过长
+     */
+    CHAT_CONTENT_TOO_LONG(401),
+    /**
+     * 接收者不存在
+     */
+    NO_SUCH_CHAT_RECEIVER(402),
+
+    // ***************** 文件
+    /**
+     * 上传的文件为空
+     */
+    EMPTY_FILE(500),
+    /**
+     * 文件超过大小上限
+     */
+    FILE_TOO_LARGE(501),
+    /**
+     * 不支持的文件类型
+     */
+    UNSUPPORTED_FILE_TYPE(502),
+    /**
+     * 文件不存在
+     */
+    NO_SUCH_FILE(503),
+    /**
+     * 图片处理繁忙，稍后重试
+     */
+    FILE_PROCESSING_BUSY(504),
+
+    // ***************** 捐助
+    /**
+     * 捐助金额或数量必须为正数
+     */
+    INVALID_DONATE_AMOUNT(600),
+    /**
+     * 受赠人不存在
+     */
+    NO_SUCH_DONEE(601),
+    /**
+     * 物品不存在
+     */
+    NO_SUCH_GOODS(602),
+    /**
+     * 捐助人数过多，稍后重试
+     */
+    DONATE_BUSY(603),
+    /**
+     * 捐助记账失败
+     */
+    DONATE_FAILED(604),
+
+    // ***************** 积分
+    /**
+     * 排行榜暂时不可用
+     */
+    LEADERBOARD_UNAVAILABLE(700);
 
 
     public final int value;
@@ -0,0 +1,11 @@
+package com.github.nanoyou.akariyumetabackend.common.exception;
+
+/**
+ * 上传的文件超过大小上限
+ */
+public class FileTooLargeException extends RuntimeException {
+
+    public FileTooLargeException(long maxSize) {
+        super("文件不能超过 " + maxSize + " 字节");
+    }
+}
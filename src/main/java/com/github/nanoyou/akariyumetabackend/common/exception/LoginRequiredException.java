@@ -0,0 +1,13 @@
+package com.github.nanoyou.akariyumetabackend.common.exception;
+
+import jakarta.annotation.Nonnull;
+
+/**
+ * 操作需要先登录
+ */
+public class LoginRequiredException extends RuntimeException {
+
+    public LoginRequiredException(@Nonnull String message) {
+        super(message);
+    }
+}
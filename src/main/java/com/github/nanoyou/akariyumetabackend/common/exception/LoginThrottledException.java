@@ -0,0 +1,13 @@
+package com.github.nanoyou.akariyumetabackend.common.exception;
+
+import jakarta.annotation.Nonnull;
+
+/**
+ * 同一用户名的登录尝试过于频繁
+ */
+public class LoginThrottledException extends RuntimeException {
+
+    public LoginThrottledException(@Nonnull String username) {
+        super("用户 " + username + " 登录尝试过于频繁");
+    }
+}
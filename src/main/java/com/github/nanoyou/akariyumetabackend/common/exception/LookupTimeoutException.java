@@ -0,0 +1,15 @@
+package com.github.nanoyou.akariyumetabackend.common.exception;
+
+import jakarta.annotation.Nonnull;
+
+import java.time.Duration;
+
+/**
+ * 并行查询没有在截止时间前全部完成
+ */
+public class LookupTimeoutException extends RuntimeException {
+
+    public LookupTimeoutException(@Nonnull Duration timeout) {
+        super("查询没有在 " + timeout.toMillis() + " ms 内完成");
+    }
+}
@@ -0,0 +1,13 @@
+package com.github.nanoyou.akariyumetabackend.common.exception;
+
+import jakarta.annotation.Nonnull;
+
+/**
+ * 捐助的受赠人或物品不存在
+ */
+public class NoSuchDonationTargetException extends RuntimeException {
+
+    public NoSuchDonationTargetException(@Nonnull String targetID) {
+        super("捐助对象 " + targetID + " 不存在");
+    }
+}
@@ -0,0 +1,11 @@
+package com.github.nanoyou.akariyumetabackend.common.exception;
+
+/**
+ * 上传的文件不是支持的类型
+ */
+public class UnsupportedFileTypeException extends RuntimeException {
+
+    public UnsupportedFileTypeException() {
+        super("只支持 PNG、JPEG、GIF 和 WebP 图片");
+    }
+}
@@ -0,0 +1,118 @@
+package com.github.nanoyou.akariyumetabackend.common.execution;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 执行 JPA / JDBC 调用的平台线程池
+ * 线程数与 Hikari 连接池大小一致：多出来的线程只会阻塞在取连接上。
+ * 大量虚拟线程同时访问数据库时，在这里排队而不是占满载体线程。
+ */
+@Slf4j
+@Component
+public class DatabaseExecutor {
+
+    private static final String THREAD_PREFIX = "database-";
+
+    private final ThreadPoolExecutor executor;
+
+    @Autowired
+    private DatabaseExecutor(DataSource dataSource,
+                             @Value("${akari.execution.database-threads:0}") int threads,
+                             @Value("${akari.execution.database-queue-size:10000}") int queueSize) {
+        val poolSize = threads > 0 ? threads : connectionPoolSize(dataSource);
+        val threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                runnable -> {
+                    val thread = new Thread(runnable, THREAD_PREFIX + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        log.info("数据库线程池大小 {}", poolSize);
+    }
+
+    /**
+     * 在数据库线程池中异步执行
+     * 取消返回的 future 时，尚未开始的任务不再执行，正在执行的任务所在线程被中断，
+     * 等待连接池连接的调用立即返回，不再占着线程排队。
+     *
+     * @param task 访问数据库的任务
+     * @return 任务结果；队列已满时以 RejectedExecutionException 失败
+     */
+    public <T> CompletableFuture<T> submit(@Nonnull Callable<T> task) {
+        val future = new CompletableFuture<T>();
+        // 正在执行任务的线程，只在持有它的锁时设置和中断，任务结束后不会再被中断
+        val running = new AtomicReference<Thread>();
+        future.whenComplete((result, e) -> {
+            if (e instanceof CancellationException) {
+                synchronized (running) {
+                    val thread = running.get();
+                    if (thread != null) {
+                        thread.interrupt();
+                    }
+                }
+            }
+        });
+        try {
+            executor.execute(() -> {
+                synchronized (running) {
+                    if (future.isDone()) {
+                        return;
+                    }
+                    running.set(Thread.currentThread());
+                }
+                try {
+                    future.complete(task.call());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    synchronized (running) {
+                        running.set(null);
+                    }
+                    // 清除取消时留下的中断标记，不影响线程池中的下一个任务
+                    Thread.interrupted();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * 当前线程是否为数据库线程池中的线程
+     */
+    public static boolean isDatabaseThread() {
+        return Thread.currentThread().getName().startsWith(THREAD_PREFIX);
+    }
+
+    private static int connectionPoolSize(DataSource dataSource) {
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                return dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize();
+            }
+        } catch (SQLException e) {
+            log.warn("无法读取连接池大小", e);
+        }
+        return Runtime.getRuntime().availableProcessors() * 2;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
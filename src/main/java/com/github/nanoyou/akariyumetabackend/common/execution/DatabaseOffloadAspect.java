@@ -0,0 +1,63 @@
+package com.github.nanoyou.akariyumetabackend.common.execution;
+
+import lombok.val;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * 虚拟线程模式下，把 dao 调用和 @Transactional 方法转交给 {@link DatabaseExecutor}
+ * JDBC 驱动和 Hibernate 内部有 synchronized，直接在虚拟线程上执行会把载体线程固定住；
+ * 转交后虚拟线程只在等待结果时挂起，不占用载体线程。
+ * 已经在事务中的调用留在当前线程，保证同一事务使用同一个连接。
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class DatabaseOffloadAspect {
+
+    private final ExecutionMode executionMode;
+    private final DatabaseExecutor databaseExecutor;
+
+    @Autowired
+    private DatabaseOffloadAspect(ExecutionMode executionMode, DatabaseExecutor databaseExecutor) {
+        this.executionMode = executionMode;
+        this.databaseExecutor = databaseExecutor;
+    }
+
+    @Around("execution(* org.springframework.data.repository.Repository+.*(..))"
+            + " || @annotation(org.springframework.transaction.annotation.Transactional)")
+    public Object offload(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (executionMode != ExecutionMode.VIRTUAL
+                || !VirtualThreads.isVirtual(Thread.currentThread())
+                || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return joinPoint.proceed();
+        }
+        val future = databaseExecutor.submit(() -> {
+            try {
+                return joinPoint.proceed();
+            } catch (Exception | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new UndeclaredThrowableException(e);
+            }
+        });
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw e.getCause();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.github.nanoyou.akariyumetabackend.common.execution;
+
+/**
+ * 请求的执行方式
+ */
+public enum ExecutionMode {
+    /**
+     * Tomcat 默认的平台线程池
+     */
+    PLATFORM,
+    /**
+     * 每个请求一个虚拟线程，需要 Java 21 及以上的运行时
+     */
+    VIRTUAL
+}
@@ -0,0 +1,93 @@
+package com.github.nanoyou.akariyumetabackend.common.execution;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * 虚拟线程固定（pinning）监控
+ * 通过 JFR 的 jdk.VirtualThreadPinned 事件发现在 synchronized 块或本地方法中阻塞、
+ * 把载体线程一起固定住的调用，按调用栈顶部去重后输出警告。
+ */
+@Slf4j
+@Component
+public class PinningMonitor {
+
+    private static final String EVENT = "jdk.VirtualThreadPinned";
+    private static final int SIGNATURE_FRAMES = 3;
+    private static final int LOG_FRAMES = 12;
+    private static final int LOG_EVERY = 100;
+
+    private final ExecutionMode executionMode;
+    private final Duration threshold;
+
+    private final AtomicLong pinnedCount = new AtomicLong();
+    /**
+     * 调用栈顶部 -> 出现次数
+     */
+    private final ConcurrentHashMap<String, Long> occurrences = new ConcurrentHashMap<>();
+    private RecordingStream stream;
+
+    @Autowired
+    private PinningMonitor(ExecutionMode executionMode,
+                           @Value("${akari.execution.pinning-threshold:20ms}") Duration threshold) {
+        this.executionMode = executionMode;
+        this.threshold = threshold;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (executionMode != ExecutionMode.VIRTUAL) {
+            return;
+        }
+        stream = new RecordingStream();
+        stream.enable(EVENT).withThreshold(threshold).withStackTrace();
+        stream.onEvent(EVENT, this::onPinned);
+        stream.startAsync();
+        log.info("已开启虚拟线程固定监控，阈值 {}", threshold);
+    }
+
+    /**
+     * 启动以来超过阈值的固定次数
+     */
+    public long getPinnedCount() {
+        return pinnedCount.get();
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinnedCount.incrementAndGet();
+        val stackTrace = event.getStackTrace();
+        if (stackTrace == null) {
+            return;
+        }
+        val frames = stackTrace.getFrames().stream()
+                .map(frame -> frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                        + ":" + frame.getLineNumber())
+                .toList();
+        val signature = frames.stream().limit(SIGNATURE_FRAMES).collect(Collectors.joining("|"));
+        val count = occurrences.merge(signature, 1L, Long::sum);
+        if (count == 1 || count % LOG_EVERY == 0) {
+            log.warn("虚拟线程被固定在载体线程上 {} ms（该位置第 {} 次）：\n\tat {}",
+                    event.getDuration().toMillis(), count,
+                    frames.stream().limit(LOG_FRAMES).collect(Collectors.joining("\n\tat ")));
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+}
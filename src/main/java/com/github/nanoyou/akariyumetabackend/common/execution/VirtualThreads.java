@@ -0,0 +1,88 @@
+package com.github.nanoyou.akariyumetabackend.common.execution;
+
+import jakarta.annotation.Nonnull;
+import lombok.val;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 虚拟线程相关的反射调用
+ * 工程以 Java 17 编译，运行在 Java 21 及以上时才能使用虚拟线程，因此不直接引用新 API。
+ */
+public final class VirtualThreads {
+
+    private static final Method IS_VIRTUAL;
+    private static final Method OF_VIRTUAL;
+    private static final Method BUILDER_NAME;
+    private static final Method BUILDER_FACTORY;
+    private static final Method NEW_THREAD_PER_TASK_EXECUTOR;
+
+    static {
+        Method isVirtual = null;
+        Method ofVirtual = null;
+        Method builderName = null;
+        Method builderFactory = null;
+        Method newThreadPerTaskExecutor = null;
+        try {
+            val builder = Class.forName("java.lang.Thread$Builder");
+            isVirtual = Thread.class.getMethod("isVirtual");
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            builderName = builder.getMethod("name", String.class, long.class);
+            builderFactory = builder.getMethod("factory");
+            newThreadPerTaskExecutor = java.util.concurrent.Executors.class
+                    .getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+        } catch (ReflectiveOperationException e) {
+            // 运行时不支持虚拟线程
+        }
+        IS_VIRTUAL = isVirtual;
+        OF_VIRTUAL = ofVirtual;
+        BUILDER_NAME = builderName;
+        BUILDER_FACTORY = builderFactory;
+        NEW_THREAD_PER_TASK_EXECUTOR = newThreadPerTaskExecutor;
+    }
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * 当前运行时是否支持虚拟线程
+     */
+    public static boolean isSupported() {
+        return NEW_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * 线程是否为虚拟线程，运行时不支持时总是 false
+     */
+    public static boolean isVirtual(@Nonnull Thread thread) {
+        if (IS_VIRTUAL == null) {
+            return false;
+        }
+        try {
+            return (boolean) IS_VIRTUAL.invoke(thread);
+        } catch (ReflectiveOperationException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 创建每个任务一个虚拟线程的执行器
+     *
+     * @param namePrefix 线程名前缀，后接递增的序号
+     * @throws UnsupportedOperationException 运行时不支持虚拟线程
+     */
+    public static ExecutorService newThreadPerTaskExecutor(@Nonnull String namePrefix) {
+        if (!isSupported()) {
+            throw new UnsupportedOperationException("虚拟线程需要 Java 21 及以上，当前为 " + Runtime.version());
+        }
+        try {
+            val builder = BUILDER_NAME.invoke(OF_VIRTUAL.invoke(null), namePrefix, 0L);
+            val factory = (ThreadFactory) BUILDER_FACTORY.invoke(builder);
+            return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, factory);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("创建虚拟线程执行器失败", e);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.github.nanoyou.akariyumetabackend.common.id;
+
+import jakarta.annotation.Nullable;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * UUID 的规范字符串与 16 字节二进制之间的转换
+ * 接口层一直使用 36 个字符的字符串，数据库中以 BINARY(16) 存储。
+ */
+public final class CompactUuid {
+
+    public static final int BYTES = 16;
+
+    private CompactUuid() {
+    }
+
+    /**
+     * @param id UUID 字符串
+     * @return 16 字节的二进制形式，id 为空或不是合法的 UUID 时返回 null
+     */
+    @Nullable
+    public static byte[] toBytes(@Nullable String id) {
+        if (id == null || id.length() != 36) {
+            return null;
+        }
+        final UUID uuid;
+        try {
+            uuid = UUID.fromString(id);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        return ByteBuffer.allocate(BYTES)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+    }
+
+    /**
+     * @param bytes 16 字节的二进制形式
+     * @return 小写的 UUID 规范字符串，bytes 为 null 时返回 null
+     */
+    @Nullable
+    public static String toString(@Nullable byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+        if (bytes.length != BYTES) {
+            throw new IllegalArgumentException("UUID 必须是 16 字节，实际为 " + bytes.length);
+        }
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong()).toString();
+    }
+}
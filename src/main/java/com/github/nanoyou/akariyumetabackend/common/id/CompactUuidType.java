@@ -0,0 +1,83 @@
+package com.github.nanoyou.akariyumetabackend.common.id;
+
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.type.SqlTypes;
+import org.hibernate.type.descriptor.jdbc.JdbcType;
+import org.hibernate.usertype.UserType;
+
+import java.io.Serializable;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Objects;
+
+/**
+ * 把 String 类型的 UUID 属性映射到 BINARY(16) 列
+ * 用法：在属性上标注 {@code @Type(CompactUuidType.class)}，实体和接口仍然使用字符串。
+ * <p>
+ * 查询参数不是合法的 UUID 时按 NULL 绑定，等值查询查不到任何行，
+ * 调用方原有的“不存在”分支照常生效。
+ */
+public class CompactUuidType implements UserType<String> {
+
+    @Override
+    public int getSqlType() {
+        return SqlTypes.BINARY;
+    }
+
+    @Override
+    public Class<String> returnedClass() {
+        return String.class;
+    }
+
+    @Override
+    public boolean equals(String x, String y) {
+        return Objects.equals(x, y);
+    }
+
+    @Override
+    public int hashCode(String x) {
+        return Objects.hashCode(x);
+    }
+
+    @Override
+    public String nullSafeGet(ResultSet rs, int position, SharedSessionContractImplementor session, Object owner) throws SQLException {
+        return CompactUuid.toString(rs.getBytes(position));
+    }
+
+    @Override
+    public void nullSafeSet(PreparedStatement st, String value, int index, SharedSessionContractImplementor session) throws SQLException {
+        final byte[] bytes = CompactUuid.toBytes(value);
+        if (bytes == null) {
+            st.setNull(index, SqlTypes.BINARY);
+        } else {
+            st.setBytes(index, bytes);
+        }
+    }
+
+    @Override
+    public String deepCopy(String value) {
+        return value;
+    }
+
+    @Override
+    public boolean isMutable() {
+        return false;
+    }
+
+    @Override
+    public Serializable disassemble(String value) {
+        return value;
+    }
+
+    @Override
+    public String assemble(Serializable cached, Object owner) {
+        return (String) cached;
+    }
+
+    @Override
+    public long getDefaultSqlLength(Dialect dialect, JdbcType jdbcType) {
+        return CompactUuid.BYTES;
+    }
+}
@@ -0,0 +1,18 @@
+package com.github.nanoyou.akariyumetabackend.common.id;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标记在 String 类型的 @Id 上，插入前由 {@link TimeOrderedIdGenerator} 生成 UUIDv7
+ * 取代 GenerationType.UUID 生成的随机 UUID
+ */
+@IdGeneratorType(TimeOrderedIdGenerator.class)
+@Target({ElementType.FIELD, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface TimeOrderedId {
+}
@@ -0,0 +1,46 @@
+package com.github.nanoyou.akariyumetabackend.common.id;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * UUIDv7（RFC 9562）生成器
+ * 高 48 位是毫秒时间戳，随后 12 位在同一毫秒内作为计数器递增，其余 62 位随机。
+ * 同一进程内生成的 ID 严格递增，按字节序和按规范字符串排序的结果都与生成顺序一致，
+ * 新行总是追加在主键索引的末尾，不会像随机 UUID 那样到处分裂页。
+ */
+public final class UuidV7 {
+
+    private static final long COUNTER_BITS = 12;
+
+    /**
+     * 上一次使用的 (毫秒时间戳 << 12 | 计数器)
+     */
+    private static final AtomicLong LAST = new AtomicLong();
+
+    private UuidV7() {
+    }
+
+    /**
+     * @return 新的 UUIDv7
+     */
+    public static UUID next() {
+        final long now = System.currentTimeMillis() << COUNTER_BITS;
+        // 无锁：同一毫秒内计数器加一，计数器用完或时钟回拨时借用下一毫秒，保证单调
+        final long stamp = LAST.updateAndGet(last -> now > last ? now : last + 1);
+
+        final long msb = (stamp >>> COUNTER_BITS) << 16
+                | 0x7000L
+                | (stamp & ((1L << COUNTER_BITS) - 1));
+        final long lsb = ThreadLocalRandom.current().nextLong() >>> 2 | 0x8000000000000000L;
+        return new UUID(msb, lsb);
+    }
+
+    /**
+     * @return 新的 UUIDv7 的规范字符串形式
+     */
+    public static String nextString() {
+        return next().toString();
+    }
+}
@@ -0,0 +1,142 @@
+package com.github.nanoyou.akariyumetabackend.common.schedule;
+
+import jakarta.annotation.Nonnull;
+import lombok.val;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 分层时间轮
+ * 第 0 层每格 tick 毫秒，每层 wheelSize 格；上一层每格的时长是下一层转一圈的时长，层数按需增加。
+ * 条目放在能容纳其到期时间的最低一层；上层的格开始时，其中的条目降到下层，最终在第 0 层的格结束时到期。
+ * 加入是 O(1)，每个条目最多降级层数次，与条目总数和到期时间的远近无关。
+ * 条目不会早于到期时间取出，最多晚一格。
+ * 不是线程安全的。
+ *
+ * @param <T> 条目类型
+ */
+public class TimingWheel<T> {
+
+    private record Entry<T>(long deadline, T item) {
+    }
+
+    private final long tick;
+    private final int wheelSize;
+    /**
+     * 每层一格的时长
+     */
+    private final List<Long> spans = new ArrayList<>();
+    /**
+     * 每层的格，没有条目的格为 null
+     */
+    private final List<List<Entry<T>>[]> levels = new ArrayList<>();
+    /**
+     * 到期时间早于当前时间的条目，下次推进时取出
+     */
+    private final List<T> overdue = new ArrayList<>();
+    /**
+     * 早于这个时间到期的条目都已取出，总是 tick 的整数倍
+     */
+    private long currentTime;
+    private int size;
+
+    /**
+     * @param tick      第 0 层每格的毫秒数
+     * @param wheelSize 每层的格数
+     * @param now       当前时间（毫秒）
+     */
+    public TimingWheel(long tick, int wheelSize, long now) {
+        if (tick <= 0 || wheelSize < 2) {
+            throw new IllegalArgumentException("tick 必须为正数，wheelSize 至少为 2");
+        }
+        this.tick = tick;
+        this.wheelSize = wheelSize;
+        this.currentTime = now - now % tick;
+    }
+
+    /**
+     * @param deadline 到期时间（毫秒），早于当前时间时下次推进就取出
+     */
+    public void add(long deadline, @Nonnull T item) {
+        size++;
+        if (deadline < currentTime) {
+            overdue.add(item);
+            return;
+        }
+        place(new Entry<>(deadline, item));
+    }
+
+    /**
+     * 推进到 now，取出所有已到期的条目，同一格中的条目没有先后顺序
+     *
+     * @param now  当前时间（毫秒）
+     * @param sink 接收到期的条目
+     */
+    public void advance(long now, @Nonnull Consumer<T> sink) {
+        overdue.forEach(sink);
+        size -= overdue.size();
+        overdue.clear();
+        if (size == 0) {
+            // 空轮直接跳到当前时间，不必逐格推进
+            currentTime = Math.max(currentTime, now - now % tick);
+            return;
+        }
+        while (currentTime + tick <= now) {
+            val index = (int) (currentTime / tick % wheelSize);
+            val bucket = levels.isEmpty() ? null : levels.get(0)[index];
+            currentTime += tick;
+            if (bucket != null) {
+                levels.get(0)[index] = null;
+                size -= bucket.size();
+                bucket.forEach(entry -> sink.accept(entry.item()));
+            }
+            // 从上往下降级，上层降下来的条目可能还要继续降到更低的层
+            for (int level = levels.size() - 1; level > 0; level--) {
+                val span = spans.get(level);
+                if (currentTime % span == 0) {
+                    val slot = (int) (currentTime / span % wheelSize);
+                    val entries = levels.get(level)[slot];
+                    if (entries != null) {
+                        levels.get(level)[slot] = null;
+                        entries.forEach(this::place);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return 尚未取出的条目数
+     */
+    public int size() {
+        return size;
+    }
+
+    private void place(Entry<T> entry) {
+        for (int level = 0; ; level++) {
+            if (level == levels.size()) {
+                addLevel();
+            }
+            val span = spans.get(level);
+            // 这一层覆盖从当前时间所在的格开始的一整圈
+            val start = currentTime - currentTime % span;
+            if (entry.deadline() - start < span * wheelSize) {
+                val slot = (int) (entry.deadline() / span % wheelSize);
+                val buckets = levels.get(level);
+                if (buckets[slot] == null) {
+                    buckets[slot] = new ArrayList<>();
+                }
+                buckets[slot].add(entry);
+                return;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void addLevel() {
+        spans.add(spans.isEmpty() ? tick : Math.multiplyExact(spans.get(spans.size() - 1), (long) wheelSize));
+        levels.add(new List[wheelSize]);
+    }
+}
@@ -0,0 +1,169 @@
+package com.github.nanoyou.akariyumetabackend.common.schema;
+
+import jakarta.persistence.Table;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.ApplicationContext;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.parser.Part;
+import org.springframework.data.repository.query.parser.PartTree;
+import org.springframework.data.repository.support.Repositories;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Modifier;
+import java.sql.SQLException;
+import java.util.*;
+
+/**
+ * 启动时检查 dao 包中每个查询方法都有索引支撑，缺索引时拒绝启动
+ * <ul>
+ *     <li>方法名派生的查询：第一个条件列必须是某个索引（含主键）的最左列</li>
+ *     <li>@Query 查询：必须用 {@link UsesIndex} 声明依赖的索引，且索引在库中存在</li>
+ * </ul>
+ * 从 JpaRepository 继承或重写的方法按主键访问，自定义实现（*Impl）中的方法自行负责，都不做检查。
+ */
+@Slf4j
+@Component
+public class IndexVerifier implements ApplicationRunner {
+
+    private final ApplicationContext applicationContext;
+    private final DataSource dataSource;
+    private final boolean enabled;
+
+    @Autowired
+    private IndexVerifier(ApplicationContext applicationContext,
+                          DataSource dataSource,
+                          @Value("${akari.schema.verify-indexes:true}") boolean enabled) {
+        this.applicationContext = applicationContext;
+        this.dataSource = dataSource;
+        this.enabled = enabled;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws SQLException {
+        if (!enabled) {
+            return;
+        }
+        val repositories = new Repositories(applicationContext);
+        val indexCache = new HashMap<String, Map<String, List<String>>>();
+        val problems = new ArrayList<String>();
+
+        try (val connection = dataSource.getConnection()) {
+            val metaData = connection.getMetaData();
+            for (val domainClass : repositories) {
+                val info = repositories.getRepositoryInformationFor(domainClass).orElseThrow();
+                val daoInterface = info.getRepositoryInterface();
+                val table = tableName(domainClass);
+
+                for (val method : daoInterface.getDeclaredMethods()) {
+                    if (method.isDefault() || Modifier.isStatic(method.getModifiers())
+                            || info.isBaseClassMethod(method) || info.isCustomMethod(method)) {
+                        continue;
+                    }
+                    val where = daoInterface.getSimpleName() + "." + method.getName();
+                    val declared = method.getAnnotationsByType(UsesIndex.class);
+
+                    if (method.isAnnotationPresent(Query.class) || declared.length > 0) {
+                        if (declared.length == 0) {
+                            problems.add(where + "：@Query 查询没有用 @UsesIndex 声明索引");
+                        }
+                        for (val usesIndex : declared) {
+                            val indexes = indexCache.computeIfAbsent(usesIndex.table(), t -> readIndexes(metaData, t));
+                            if (!indexes.containsKey(usesIndex.index().toUpperCase(Locale.ROOT))) {
+                                problems.add(where + "：表 " + usesIndex.table() + " 上不存在索引 " + usesIndex.index());
+                            }
+                        }
+                        continue;
+                    }
+
+                    val tree = new PartTree(method.getName(), domainClass);
+                    val indexes = indexCache.computeIfAbsent(table, t -> readIndexes(metaData, t));
+                    for (val orPart : tree) {
+                        val first = orPart.stream().findFirst();
+                        if (first.isEmpty()) {
+                            continue;
+                        }
+                        val column = columnName(first.get());
+                        val covered = indexes.values().stream().anyMatch(columns -> columns.get(0).equals(column));
+                        if (!covered) {
+                            problems.add(where + "：表 " + table + " 上没有以 " + column + " 开头的索引");
+                        }
+                    }
+                }
+            }
+        }
+
+        if (!problems.isEmpty()) {
+            throw new IllegalStateException("以下查询缺少索引：\n" + String.join("\n", problems));
+        }
+        log.info("索引检查通过，共检查 {} 张表", indexCache.size());
+    }
+
+    /**
+     * 读取表上的所有索引，索引名大写，列按在索引中的顺序排列
+     */
+    private static Map<String, List<String>> readIndexes(java.sql.DatabaseMetaData metaData, String table) {
+        val indexes = new HashMap<String, TreeMap<Short, String>>();
+        try (val rs = metaData.getIndexInfo(metaData.getConnection().getCatalog(), null, table, false, true)) {
+            while (rs.next()) {
+                val name = rs.getString("INDEX_NAME");
+                val column = rs.getString("COLUMN_NAME");
+                if (name == null || column == null) {
+                    continue;
+                }
+                indexes.computeIfAbsent(name.toUpperCase(Locale.ROOT), k -> new TreeMap<>())
+                        .put(rs.getShort("ORDINAL_POSITION"), column.toLowerCase(Locale.ROOT));
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("读取表 " + table + " 的索引失败", e);
+        }
+        // 主键统一记为 PRIMARY，MySQL 之外的数据库给主键索引起的名字各不相同
+        try (val rs = metaData.getPrimaryKeys(metaData.getConnection().getCatalog(), null, table)) {
+            val primaryKey = new TreeMap<Short, String>();
+            while (rs.next()) {
+                primaryKey.put(rs.getShort("KEY_SEQ"), rs.getString("COLUMN_NAME").toLowerCase(Locale.ROOT));
+            }
+            if (!primaryKey.isEmpty()) {
+                indexes.put("PRIMARY", primaryKey);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("读取表 " + table + " 的主键失败", e);
+        }
+        val result = new HashMap<String, List<String>>();
+        indexes.forEach((name, columns) -> result.put(name, List.copyOf(columns.values())));
+        return result;
+    }
+
+    private static String tableName(Class<?> domainClass) {
+        val table = domainClass.getAnnotation(Table.class);
+        if (table != null && !table.name().isEmpty()) {
+            return table.name().replace("`", "");
+        }
+        return physicalName(domainClass.getSimpleName());
+    }
+
+    private static String columnName(Part part) {
+        return physicalName(part.getProperty().getLeafProperty().getSegment());
+    }
+
+    /**
+     * 与 CamelCaseToUnderscoresNamingStrategy 相同的命名规则：
+     * 只在“小写-大写-小写”处插入下划线，例如 replyTo -> reply_to，commenterID -> commenterid
+     */
+    private static String physicalName(String name) {
+        val builder = new StringBuilder(name);
+        for (int i = 1; i < builder.length() - 1; i++) {
+            if (Character.isLowerCase(builder.charAt(i - 1))
+                    && Character.isUpperCase(builder.charAt(i))
+                    && Character.isLowerCase(builder.charAt(i + 1))) {
+                builder.insert(i++, '_');
+            }
+        }
+        return builder.toString().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,31 @@
+package com.github.nanoyou.akariyumetabackend.common.schema;
+
+import java.lang.annotation.*;
+
+/**
+ * 声明一个手写查询（@Query）依赖的索引
+ * 方法名派生的查询由 {@link IndexVerifier} 自动推断，不需要此注解。
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Repeatable(UsesIndex.List.class)
+public @interface UsesIndex {
+
+    /**
+     * 表名
+     */
+    String table();
+
+    /**
+     * 索引名，主键为 PRIMARY
+     */
+    String index();
+
+    @Documented
+    @Target(ElementType.METHOD)
+    @Retention(RetentionPolicy.RUNTIME)
+    @interface List {
+        UsesIndex[] value();
+    }
+}
@@ -0,0 +1,265 @@
+package com.github.nanoyou.akariyumetabackend.common.search;
+
+import jakarta.annotation.Nonnull;
+import lombok.val;
+
+import java.util.*;
+
+/**
+ * 内存中的倒排索引，按 BM25 打分
+ * 文档用调用方分配的从 0 开始的连续整数编号，倒排表按编号有序，求交集时可以跳跃查找。
+ * 通常按编号递增的顺序加入，直接追加到倒排表末尾；编号较小的文档也可以后加入，插入到倒排表中间。
+ * 不是线程安全的，由调用方加锁。
+ */
+public class InvertedIndex {
+
+    /**
+     * BM25 的词频饱和参数
+     */
+    private static final float K1 = 1.2f;
+    /**
+     * BM25 的文档长度归一化参数
+     */
+    private static final float B = 0.75f;
+    /**
+     * 倒排表比候选集长这么多倍以内时顺序查找
+     */
+    private static final int MERGE_RATIO = 8;
+
+    /**
+     * 一个词的倒排表：包含它的文档编号（递增）和词频
+     */
+    private static class Postings {
+        private int[] docs = new int[2];
+        private int[] tfs = new int[2];
+        private int size;
+
+        private void add(int doc, int tf) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                tfs = Arrays.copyOf(tfs, size * 2);
+            }
+            int position = size;
+            if (size > 0 && docs[size - 1] > doc) {
+                position = seek(0, doc, false);
+                System.arraycopy(docs, position, docs, position + 1, size - position);
+                System.arraycopy(tfs, position, tfs, position + 1, size - position);
+            }
+            docs[position] = doc;
+            tfs[position] = tf;
+            size++;
+        }
+
+        /**
+         * 从 from 开始查找第一个不小于 doc 的位置
+         *
+         * @param merge 倒排表不比候选集长太多时顺序查找，否则先倍增步长再二分
+         */
+        private int seek(int from, int doc, boolean merge) {
+            if (merge) {
+                while (from < size && docs[from] < doc) {
+                    from++;
+                }
+                return from;
+            }
+            int step = 1;
+            int high = from;
+            while (high < size && docs[high] < doc) {
+                from = high + 1;
+                high += step;
+                step <<= 1;
+            }
+            high = Math.min(high + 1, size);
+            while (from < high) {
+                val mid = (from + high) >>> 1;
+                if (docs[mid] < doc) {
+                    from = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return from;
+        }
+    }
+
+    private final HashMap<String, Postings> terms = new HashMap<>();
+    private final RoaringBitmap live = new RoaringBitmap();
+    /**
+     * 文档编号 -> 文档长度（词数）
+     */
+    private int[] lengths = new int[1024];
+    private int liveCount;
+    private long totalLength;
+
+    /**
+     * 加入一篇文档
+     *
+     * @param doc    文档编号，不能已经加入过
+     * @param tfs    词 -> 词频
+     * @param length 文档长度
+     */
+    public void add(int doc, @Nonnull Map<String, Integer> tfs, int length) {
+        if (live.contains(doc)) {
+            throw new IllegalArgumentException("文档已存在: " + doc);
+        }
+        for (val entry : tfs.entrySet()) {
+            terms.computeIfAbsent(entry.getKey(), term -> new Postings()).add(doc, entry.getValue());
+        }
+        if (doc >= lengths.length) {
+            lengths = Arrays.copyOf(lengths, Math.max(doc + 1, lengths.length * 2));
+        }
+        lengths[doc] = length;
+        live.add(doc);
+        liveCount++;
+        totalLength += length;
+    }
+
+    /**
+     * @return 已加入的文档，调用方不能修改
+     */
+    public RoaringBitmap live() {
+        return live;
+    }
+
+    /**
+     * 查找包含所有词的文档，按 BM25 得分从高到低返回
+     *
+     * @param queryTerms 查询词，为空时没有结果
+     * @param filter     只返回这些文档，为 null 时不过滤
+     * @param limit      最多返回的条数
+     * @return 文档编号；得分相同时编号大（加入得晚）的在前
+     */
+    public int[] search(@Nonnull Collection<String> queryTerms, RoaringBitmap filter, int limit) {
+        if (queryTerms.isEmpty() || liveCount == 0 || limit <= 0) {
+            return new int[0];
+        }
+        val lists = new ArrayList<Postings>(queryTerms.size());
+        for (val term : queryTerms) {
+            val postings = terms.get(term);
+            if (postings == null) {
+                return new int[0];
+            }
+            lists.add(postings);
+        }
+        // 从最短的倒排表开始求交集，候选集只会越来越小
+        lists.sort(Comparator.comparingInt(postings -> postings.size));
+        // 长度归一化项 k1 * (1 - b + b * 文档长度 / 平均长度) 拆成常数加斜率乘长度，循环中不做除法
+        val normBase = K1 * (1 - B);
+        val normSlope = K1 * B * liveCount / Math.max(1, totalLength);
+
+        val rarest = lists.get(0);
+        val candidates = new int[rarest.size];
+        val scores = new float[rarest.size];
+        // 每个候选的长度归一化项只算一次，各个词共用
+        val norms = new float[rarest.size];
+        int count = 0;
+        var idf = idf(rarest.size);
+        for (int i = 0; i < rarest.size; i++) {
+            val doc = rarest.docs[i];
+            if (filter == null || filter.contains(doc)) {
+                candidates[count] = doc;
+                norms[count] = normBase + normSlope * lengths[doc];
+                scores[count] = score(idf, rarest.tfs[i], norms[count]);
+                count++;
+            }
+        }
+        // 依次与其余倒排表求交集，留下的候选原地前移并累加得分
+        for (int l = 1; l < lists.size() && count > 0; l++) {
+            val postings = lists.get(l);
+            idf = idf(postings.size);
+            val merge = postings.size <= (long) count * MERGE_RATIO;
+            int position = 0;
+            int kept = 0;
+            for (int c = 0; c < count && position < postings.size; c++) {
+                val doc = candidates[c];
+                position = postings.seek(position, doc, merge);
+                if (position < postings.size && postings.docs[position] == doc) {
+                    candidates[kept] = doc;
+                    norms[kept] = norms[c];
+                    scores[kept] = scores[c] + score(idf, postings.tfs[position], norms[c]);
+                    kept++;
+                }
+            }
+            count = kept;
+        }
+        return top(candidates, scores, count, limit);
+    }
+
+    private float idf(int documentFrequency) {
+        return (float) Math.log(1 + (liveCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+    }
+
+    /**
+     * @param norm 文档的长度归一化项 k1 * (1 - b + b * 文档长度 / 平均长度)
+     */
+    private static float score(float idf, int tf, float norm) {
+        return idf * tf * (K1 + 1) / (tf + norm);
+    }
+
+    /**
+     * 用大小为 limit 的小顶堆选出得分最高的文档，堆中存候选的下标，堆顶是当前最差的一个
+     * 候选可能有几万个，堆用 int 数组实现，避免装箱
+     */
+    private static int[] top(int[] candidates, float[] scores, int count, int limit) {
+        val heap = new int[Math.min(count, limit)];
+        int size = 0;
+        // 从编号大的往前看，得分相同的候选不会挤掉堆中已有的，常见词的大量同分文档不会反复调整堆
+        for (int c = count - 1; c >= 0; c--) {
+            if (size < heap.length) {
+                heap[size] = c;
+                siftUp(heap, size++, candidates, scores);
+            } else if (better(c, heap[0], candidates, scores)) {
+                heap[0] = c;
+                siftDown(heap, size, candidates, scores);
+            }
+        }
+        val result = new int[size];
+        while (size > 0) {
+            result[size - 1] = candidates[heap[0]];
+            heap[0] = heap[--size];
+            siftDown(heap, size, candidates, scores);
+        }
+        return result;
+    }
+
+    /**
+     * 得分高的更好，得分相同时编号大的更好
+     */
+    private static boolean better(int a, int b, int[] candidates, float[] scores) {
+        return scores[a] != scores[b] ? scores[a] > scores[b] : candidates[a] > candidates[b];
+    }
+
+    private static void siftUp(int[] heap, int i, int[] candidates, float[] scores) {
+        while (i > 0) {
+            val parent = (i - 1) >>> 1;
+            if (!better(heap[parent], heap[i], candidates, scores)) {
+                break;
+            }
+            swap(heap, parent, i);
+            i = parent;
+        }
+    }
+
+    private static void siftDown(int[] heap, int size, int[] candidates, float[] scores) {
+        int i = 0;
+        while (true) {
+            val left = 2 * i + 1;
+            if (left >= size) {
+                break;
+            }
+            val right = left + 1;
+            val worse = right < size && better(heap[left], heap[right], candidates, scores) ? right : left;
+            if (!better(heap[i], heap[worse], candidates, scores)) {
+                break;
+            }
+            swap(heap, i, worse);
+            i = worse;
+        }
+    }
+
+    private static void swap(int[] heap, int a, int b) {
+        val tmp = heap[a];
+        heap[a] = heap[b];
+        heap[b] = tmp;
+    }
+}
@@ -0,0 +1,108 @@
+package com.github.nanoyou.akariyumetabackend.common.search;
+
+import jakarta.annotation.Nonnull;
+import lombok.val;
+
+import java.text.Normalizer;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * 中文友好的分词器
+ * 文本先做 NFKC 规范化并转小写，然后切成两类片段：
+ * 连续的汉字（以及假名、谚文）切成单字和相邻两字的二元组，连续的字母数字作为一个词，其余字符是分隔符。
+ * 建索引时单字和二元组都收录；查询时两个字以上的中文片段只用二元组，所有二元组都命中即近似于子串匹配。
+ */
+public final class NgramTokenizer {
+
+    /**
+     * 过长的字母数字串（如链接、哈希）截断到这个长度
+     */
+    private static final int MAX_WORD_LENGTH = 32;
+
+    private NgramTokenizer() {
+    }
+
+    /**
+     * 切分待索引的文本
+     *
+     * @param text 文本，可以为 null
+     * @param sink 接收每个词，同一个词出现几次就接收几次
+     * @return 词的个数
+     */
+    public static int tokenize(String text, @Nonnull Consumer<String> sink) {
+        return scan(text, false, sink);
+    }
+
+    /**
+     * 切分查询
+     *
+     * @param query 查询，可以为 null
+     * @return 去重后的词，顺序与在查询中出现的顺序一致
+     */
+    public static Set<String> queryTerms(String query) {
+        val terms = new LinkedHashSet<String>();
+        scan(query, true, terms::add);
+        return terms;
+    }
+
+    private static int scan(String text, boolean query, Consumer<String> sink) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        val normalized = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        val word = new StringBuilder();
+        int count = 0;
+        // 当前汉字片段的起点和片段中的上一个字，-1 表示不在汉字片段中
+        int runStart = -1;
+        int previous = -1;
+        int i = 0;
+        while (i <= normalized.length()) {
+            val codePoint = i < normalized.length() ? normalized.codePointAt(i) : ' ';
+            val cjk = isCjk(codePoint);
+            if (cjk) {
+                if (runStart < 0) {
+                    runStart = i;
+                } else {
+                    sink.accept(new StringBuilder(4).appendCodePoint(previous).appendCodePoint(codePoint).toString());
+                    count++;
+                }
+                if (!query) {
+                    sink.accept(Character.toString(codePoint));
+                    count++;
+                }
+                previous = codePoint;
+            } else if (runStart >= 0) {
+                // 查询中只有一个字的片段没有二元组，用单字
+                if (query && normalized.offsetByCodePoints(runStart, 1) == i) {
+                    sink.accept(Character.toString(previous));
+                    count++;
+                }
+                runStart = -1;
+                previous = -1;
+            }
+
+            if (!cjk && Character.isLetterOrDigit(codePoint)) {
+                if (word.length() < MAX_WORD_LENGTH) {
+                    word.appendCodePoint(codePoint);
+                }
+            } else if (!word.isEmpty()) {
+                sink.accept(word.toString());
+                count++;
+                word.setLength(0);
+            }
+            i += Character.charCount(codePoint);
+        }
+        return count;
+    }
+
+    private static boolean isCjk(int codePoint) {
+        val script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+}
@@ -0,0 +1,512 @@
+package com.github.nanoyou.akariyumetabackend.common.search;
+
+import jakarta.annotation.Nonnull;
+import lombok.val;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Roaring 格式的压缩位图，元素为非负 int
+ * 元素按高 16 位分桶，每个桶一个容器：不超过 4096 个元素时是有序的 char 数组，更多时是 1024 个 long 的位图。
+ * 稀疏的集合（如一个儿童完成的任务）每个元素占 2 字节，稠密的集合（如某个状态的所有任务）每个元素约 1 位，
+ * 与、或运算按桶逐个进行，只有两边都有的桶才需要计算。
+ * 不是线程安全的。
+ */
+public class RoaringBitmap {
+
+    /**
+     * 数组容器的元素上限，超过后转为位图容器，两者此时大小相同
+     */
+    private static final int ARRAY_MAX = 4096;
+    private static final int BITMAP_WORDS = (1 << 16) / Long.SIZE;
+
+    /**
+     * 桶号（高 16 位），递增
+     */
+    private char[] keys = new char[4];
+    private Container[] containers = new Container[4];
+    private int size;
+
+    /**
+     * @return 新位图，包含两个位图共有的元素
+     */
+    public static RoaringBitmap and(@Nonnull RoaringBitmap a, @Nonnull RoaringBitmap b) {
+        val result = new RoaringBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < a.size && j < b.size) {
+            if (a.keys[i] < b.keys[j]) {
+                i++;
+            } else if (a.keys[i] > b.keys[j]) {
+                j++;
+            } else {
+                val container = a.containers[i].and(b.containers[j]);
+                if (container.cardinality() > 0) {
+                    result.append(a.keys[i], container);
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return 新位图，包含两个位图的所有元素
+     */
+    public static RoaringBitmap or(@Nonnull RoaringBitmap a, @Nonnull RoaringBitmap b) {
+        val result = new RoaringBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < a.size || j < b.size) {
+            if (j == b.size || (i < a.size && a.keys[i] < b.keys[j])) {
+                result.append(a.keys[i], a.containers[i].copy());
+                i++;
+            } else if (i == a.size || a.keys[i] > b.keys[j]) {
+                result.append(b.keys[j], b.containers[j].copy());
+                j++;
+            } else {
+                result.append(a.keys[i], a.containers[i].or(b.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    public void add(int value) {
+        val key = (char) (value >>> 16);
+        val index = indexOf(key);
+        if (index >= 0) {
+            containers[index] = containers[index].add((char) value);
+        } else {
+            insert(-index - 1, key, new ArrayContainer().add((char) value));
+        }
+    }
+
+    public void remove(int value) {
+        val index = indexOf((char) (value >>> 16));
+        if (index < 0) {
+            return;
+        }
+        val container = containers[index].remove((char) value);
+        if (container.cardinality() == 0) {
+            System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+            System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+            containers[--size] = null;
+        } else {
+            containers[index] = container;
+        }
+    }
+
+    public boolean contains(int value) {
+        val index = indexOf((char) (value >>> 16));
+        return index >= 0 && containers[index].contains((char) value);
+    }
+
+    public int cardinality() {
+        int cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            cardinality += containers[i].cardinality();
+        }
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @param from 从这个值开始向前查找，包含自身
+     * @return 不大于 from 的最大元素，没有时为 -1
+     */
+    public int previousValue(int from) {
+        if (from < 0) {
+            return -1;
+        }
+        val key = (char) (from >>> 16);
+        int index = indexOf(key);
+        if (index >= 0) {
+            val low = containers[index].previous((char) from);
+            if (low >= 0) {
+                return key << 16 | low;
+            }
+            index--;
+        } else {
+            index = -index - 2;
+        }
+        // 前面的桶都比 from 小，取其中最大的元素
+        return index >= 0 ? keys[index] << 16 | containers[index].previous(Character.MAX_VALUE) : -1;
+    }
+
+    public RoaringBitmap copy() {
+        val result = new RoaringBitmap();
+        result.keys = Arrays.copyOf(keys, Math.max(size, 4));
+        result.containers = new Container[result.keys.length];
+        for (int i = 0; i < size; i++) {
+            result.containers[i] = containers[i].copy();
+        }
+        result.size = size;
+        return result;
+    }
+
+    /**
+     * @return {@link #serialize(ByteBuffer)} 写入的字节数
+     */
+    public int serializedSize() {
+        int bytes = Integer.BYTES;
+        for (int i = 0; i < size; i++) {
+            bytes += Character.BYTES + Integer.BYTES + containers[i].serializedSize();
+        }
+        return bytes;
+    }
+
+    /**
+     * 格式：桶数，然后每个桶依次为桶号、元素个数、容器内容；元素个数不超过 4096 时内容是有序的低 16 位，否则是位图
+     */
+    public void serialize(@Nonnull ByteBuffer out) {
+        out.putInt(size);
+        for (int i = 0; i < size; i++) {
+            out.putChar(keys[i]);
+            out.putInt(containers[i].cardinality());
+            containers[i].serialize(out);
+        }
+    }
+
+    public static RoaringBitmap deserialize(@Nonnull ByteBuffer in) {
+        val result = new RoaringBitmap();
+        val count = in.getInt();
+        for (int i = 0; i < count; i++) {
+            val key = in.getChar();
+            val cardinality = in.getInt();
+            final Container container;
+            if (cardinality <= ARRAY_MAX) {
+                val values = new char[Math.max(cardinality, 4)];
+                in.asCharBuffer().get(values, 0, cardinality);
+                in.position(in.position() + cardinality * Character.BYTES);
+                container = new ArrayContainer(values, cardinality);
+            } else {
+                val words = new long[BITMAP_WORDS];
+                in.asLongBuffer().get(words);
+                in.position(in.position() + BITMAP_WORDS * Long.BYTES);
+                container = new BitmapContainer(words, cardinality);
+            }
+            result.append(key, container);
+        }
+        return result;
+    }
+
+    private int indexOf(char key) {
+        // 任务序号从 0 开始连续分配，最后一个桶最常用
+        if (size > 0 && keys[size - 1] == key) {
+            return size - 1;
+        }
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    private void insert(int index, char key, Container container) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = key;
+        containers[index] = container;
+        size++;
+    }
+
+    private void append(char key, Container container) {
+        insert(size, key, container);
+    }
+
+    /**
+     * 一个桶中的低 16 位
+     * 修改操作返回修改后的容器，可能是转换了类型的新容器
+     */
+    private abstract static class Container {
+        abstract Container add(char value);
+
+        abstract Container remove(char value);
+
+        abstract boolean contains(char value);
+
+        abstract int cardinality();
+
+        /**
+         * @return 不大于 from 的最大元素，没有时为 -1
+         */
+        abstract int previous(char from);
+
+        abstract Container and(Container other);
+
+        abstract Container or(Container other);
+
+        abstract Container copy();
+
+        abstract int serializedSize();
+
+        abstract void serialize(ByteBuffer out);
+    }
+
+    private static class ArrayContainer extends Container {
+        private char[] values;
+        private int cardinality;
+
+        ArrayContainer() {
+            this(new char[4], 0);
+        }
+
+        ArrayContainer(char[] values, int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        Container add(char value) {
+            // 序号递增分配，新元素通常追加在末尾
+            if (cardinality > 0 && values[cardinality - 1] < value) {
+                return insertAt(cardinality, value);
+            }
+            val index = Arrays.binarySearch(values, 0, cardinality, value);
+            return index >= 0 ? this : insertAt(-index - 1, value);
+        }
+
+        private Container insertAt(int index, char value) {
+            if (cardinality == ARRAY_MAX) {
+                return toBitmap().add(value);
+            }
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(cardinality * 2, ARRAY_MAX));
+            }
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = value;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            val index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index >= 0) {
+                System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+                cardinality--;
+            }
+            return this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        int previous(char from) {
+            val index = Arrays.binarySearch(values, 0, cardinality, from);
+            val previous = index >= 0 ? index : -index - 2;
+            return previous >= 0 ? values[previous] : -1;
+        }
+
+        @Override
+        Container and(Container other) {
+            val result = new char[Math.max(Math.min(cardinality, other.cardinality()), 4)];
+            int count = 0;
+            if (other instanceof ArrayContainer array) {
+                int i = 0;
+                int j = 0;
+                while (i < cardinality && j < array.cardinality) {
+                    if (values[i] < array.values[j]) {
+                        i++;
+                    } else if (values[i] > array.values[j]) {
+                        j++;
+                    } else {
+                        result[count++] = values[i];
+                        i++;
+                        j++;
+                    }
+                }
+            } else {
+                for (int i = 0; i < cardinality; i++) {
+                    if (other.contains(values[i])) {
+                        result[count++] = values[i];
+                    }
+                }
+            }
+            return new ArrayContainer(result, count);
+        }
+
+        @Override
+        Container or(Container other) {
+            if (!(other instanceof ArrayContainer array)) {
+                return other.or(this);
+            }
+            val merged = new char[cardinality + array.cardinality];
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < cardinality || j < array.cardinality) {
+                if (j == array.cardinality || (i < cardinality && values[i] < array.values[j])) {
+                    merged[count++] = values[i++];
+                } else if (i == cardinality || values[i] > array.values[j]) {
+                    merged[count++] = array.values[j++];
+                } else {
+                    merged[count++] = values[i];
+                    i++;
+                    j++;
+                }
+            }
+            val result = new ArrayContainer(merged, count);
+            return count > ARRAY_MAX ? result.toBitmap() : result;
+        }
+
+        @Override
+        Container copy() {
+            return new ArrayContainer(Arrays.copyOf(values, Math.max(cardinality, 4)), cardinality);
+        }
+
+        @Override
+        int serializedSize() {
+            return cardinality * Character.BYTES;
+        }
+
+        @Override
+        void serialize(ByteBuffer out) {
+            out.asCharBuffer().put(values, 0, cardinality);
+            out.position(out.position() + cardinality * Character.BYTES);
+        }
+
+        private BitmapContainer toBitmap() {
+            val words = new long[BITMAP_WORDS];
+            for (int i = 0; i < cardinality; i++) {
+                words[values[i] >>> 6] |= 1L << values[i];
+            }
+            return new BitmapContainer(words, cardinality);
+        }
+    }
+
+    private static class BitmapContainer extends Container {
+        private final long[] words;
+        private int cardinality;
+
+        BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        Container add(char value) {
+            val before = words[value >>> 6];
+            words[value >>> 6] = before | 1L << value;
+            if (before != words[value >>> 6]) {
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            val before = words[value >>> 6];
+            words[value >>> 6] = before & ~(1L << value);
+            if (before != words[value >>> 6]) {
+                cardinality--;
+            }
+            return cardinality <= ARRAY_MAX ? toArray() : this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return (words[value >>> 6] & 1L << value) != 0;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        int previous(char from) {
+            int index = from >>> 6;
+            // 去掉 from 之后的位
+            long word = words[index] & (-1L >>> (63 - (from & 63)));
+            while (true) {
+                if (word != 0) {
+                    return index << 6 | (63 - Long.numberOfLeadingZeros(word));
+                }
+                if (--index < 0) {
+                    return -1;
+                }
+                word = words[index];
+            }
+        }
+
+        @Override
+        Container and(Container other) {
+            if (other instanceof ArrayContainer) {
+                return other.and(this);
+            }
+            val otherWords = ((BitmapContainer) other).words;
+            val result = new long[BITMAP_WORDS];
+            int count = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                result[i] = words[i] & otherWords[i];
+                count += Long.bitCount(result[i]);
+            }
+            val container = new BitmapContainer(result, count);
+            return count <= ARRAY_MAX ? container.toArray() : container;
+        }
+
+        @Override
+        Container or(Container other) {
+            val result = new BitmapContainer(words.clone(), cardinality);
+            if (other instanceof ArrayContainer array) {
+                for (int i = 0; i < array.cardinality; i++) {
+                    result.add(array.values[i]);
+                }
+                return result;
+            }
+            val otherWords = ((BitmapContainer) other).words;
+            int count = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                result.words[i] |= otherWords[i];
+                count += Long.bitCount(result.words[i]);
+            }
+            result.cardinality = count;
+            return result;
+        }
+
+        @Override
+        Container copy() {
+            return new BitmapContainer(words.clone(), cardinality);
+        }
+
+        @Override
+        int serializedSize() {
+            return BITMAP_WORDS * Long.BYTES;
+        }
+
+        @Override
+        void serialize(ByteBuffer out) {
+            out.asLongBuffer().put(words);
+            out.position(out.position() + BITMAP_WORDS * Long.BYTES);
+        }
+
+        private ArrayContainer toArray() {
+            val values = new char[Math.max(cardinality, 4)];
+            int count = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    values[count++] = (char) (i << 6 | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return new ArrayContainer(values, count);
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package com.github.nanoyou.akariyumetabackend.common.search;
+
+import com.github.nanoyou.akariyumetabackend.common.enumeration.TaskCategory;
+import com.github.nanoyou.akariyumetabackend.common.enumeration.TaskRecordStatus;
+import com.github.nanoyou.akariyumetabackend.common.enumeration.TaskStatus;
+import jakarta.annotation.Nonnull;
+import lombok.val;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * 学习任务的筛选位图
+ * 每个任务有一个从 0 开始连续分配、不再改变的序号；每个任务状态、每个任务类别各一个位图，
+ * 每个儿童的每种任务记录状态各一个位图，多个条件的筛选就是这些位图的与、或运算，不需要联表查询。
+ * 序号表和所有位图可以整体写入快照文件，重启时映射到内存读回。
+ * 不是线程安全的，由调用方加锁。
+ */
+public class TaskFacets {
+
+    /**
+     * 快照文件开头的标记 "AKTF"
+     */
+    private static final int MAGIC = 0x414b5446;
+    private static final int VERSION = 1;
+
+    /**
+     * 序号 -> 任务ID
+     */
+    private final ArrayList<String> taskIDs = new ArrayList<>();
+    /**
+     * 任务ID -> 序号
+     */
+    private final HashMap<String, Integer> ordinals = new HashMap<>();
+    private final EnumMap<TaskStatus, RoaringBitmap> statuses = new EnumMap<>(TaskStatus.class);
+    private final EnumMap<TaskCategory, RoaringBitmap> categories = new EnumMap<>(TaskCategory.class);
+    /**
+     * 儿童ID -> 任务记录状态 -> 任务序号
+     */
+    private final HashMap<String, EnumMap<TaskRecordStatus, RoaringBitmap>> records = new HashMap<>();
+    /**
+     * 上次写入或读入快照之后是否有修改
+     */
+    private boolean dirty;
+
+    public TaskFacets() {
+        for (val status : TaskStatus.values()) {
+            statuses.put(status, new RoaringBitmap());
+        }
+        for (val category : TaskCategory.values()) {
+            categories.put(category, new RoaringBitmap());
+        }
+    }
+
+    /**
+     * @return 任务的序号，没有分配过时为 null
+     */
+    public Integer ordinalOf(@Nonnull String taskID) {
+        return ordinals.get(taskID);
+    }
+
+    /**
+     * @return 任务的序号，没有分配过时分配下一个
+     */
+    public int assign(@Nonnull String taskID) {
+        val existing = ordinals.get(taskID);
+        if (existing != null) {
+            return existing;
+        }
+        val ordinal = taskIDs.size();
+        taskIDs.add(taskID);
+        ordinals.put(taskID, ordinal);
+        dirty = true;
+        return ordinal;
+    }
+
+    public String taskID(int ordinal) {
+        return taskIDs.get(ordinal);
+    }
+
+    /**
+     * @return 已分配的序号数
+     */
+    public int size() {
+        return taskIDs.size();
+    }
+
+    /**
+     * 设置任务的状态和类别，清除原来的
+     *
+     * @param status   为 null 时不属于任何状态
+     * @param category 为 null 时不属于任何类别
+     */
+    public void setTask(int ordinal, TaskStatus status, TaskCategory category) {
+        statuses.forEach((candidate, bitmap) -> set(bitmap, ordinal, candidate == status));
+        categories.forEach((candidate, bitmap) -> set(bitmap, ordinal, candidate == category));
+    }
+
+    /**
+     * 设置儿童在任务上的记录状态，清除原来的
+     *
+     * @param status 为 null 时表示没有记录
+     */
+    public void setRecord(@Nonnull String childID, int ordinal, TaskRecordStatus status) {
+        var bitmaps = records.get(childID);
+        if (bitmaps == null) {
+            if (status == null) {
+                return;
+            }
+            bitmaps = new EnumMap<>(TaskRecordStatus.class);
+            records.put(childID, bitmaps);
+        }
+        for (val candidate : TaskRecordStatus.values()) {
+            var bitmap = bitmaps.get(candidate);
+            if (candidate == status && bitmap == null) {
+                bitmap = new RoaringBitmap();
+                bitmaps.put(candidate, bitmap);
+            }
+            if (bitmap != null) {
+                set(bitmap, ordinal, candidate == status);
+                if (bitmap.isEmpty()) {
+                    bitmaps.remove(candidate);
+                }
+            }
+        }
+        if (bitmaps.isEmpty()) {
+            records.remove(childID);
+        }
+    }
+
+    /**
+     * 计算筛选条件选中的任务：同一组条件之间是或，不同组之间是与，为空的组不限
+     *
+     * @param category       任务类别，为 null 表示不限
+     * @param wantedStatuses 任务状态
+     * @param childID        儿童ID，wantedRecords 不为空时必须提供
+     * @param wantedRecords  儿童在任务上的记录状态
+     * @return 新位图，没有任何条件时为 null
+     */
+    public RoaringBitmap filter(TaskCategory category, @Nonnull Set<TaskStatus> wantedStatuses,
+                                String childID, @Nonnull Set<TaskRecordStatus> wantedRecords) {
+        RoaringBitmap result = null;
+        if (category != null) {
+            result = categories.get(category).copy();
+        }
+        if (!wantedStatuses.isEmpty()) {
+            result = intersect(result, union(wantedStatuses.stream().map(statuses::get).toList()));
+        }
+        if (!wantedRecords.isEmpty()) {
+            val bitmaps = records.getOrDefault(Objects.requireNonNull(childID), new EnumMap<>(TaskRecordStatus.class));
+            result = intersect(result, union(wantedRecords.stream().map(bitmaps::get).filter(Objects::nonNull).toList()));
+        }
+        return result;
+    }
+
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * 写入快照：先写到同目录的临时文件，刷盘后原子替换
+     * 格式：标记、版本、序号数、按序号排列的任务ID、每个任务状态和类别的名称与位图、每个儿童的ID和各记录状态的位图
+     */
+    public void writeSnapshot(@Nonnull Path file) throws IOException {
+        val names = new ArrayList<byte[]>(taskIDs.size());
+        long size = Integer.BYTES * 3L;
+        for (val taskID : taskIDs) {
+            val name = taskID.getBytes(StandardCharsets.UTF_8);
+            names.add(name);
+            size += Short.BYTES + name.length;
+        }
+        size += sectionSize(statuses) + sectionSize(categories) + Integer.BYTES;
+        val childNames = new ArrayList<byte[]>(records.size());
+        for (val entry : records.entrySet()) {
+            val name = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            childNames.add(name);
+            size += Short.BYTES + name.length + sectionSize(entry.getValue());
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("快照过大: " + size + " 字节");
+        }
+
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        val tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (val channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            val out = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            out.putInt(MAGIC);
+            out.putInt(VERSION);
+            out.putInt(names.size());
+            names.forEach(name -> putName(out, name));
+            writeSection(out, statuses);
+            writeSection(out, categories);
+            out.putInt(records.size());
+            int i = 0;
+            for (val bitmaps : records.values()) {
+                putName(out, childNames.get(i++));
+                writeSection(out, bitmaps);
+            }
+            out.force();
+        }
+        Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        dirty = false;
+    }
+
+    /**
+     * 读入 {@link #writeSnapshot(Path)} 写入的快照
+     *
+     * @throws IOException 文件无法读取，或者不是可识别的快照
+     */
+    public static TaskFacets readSnapshot(@Nonnull Path file) throws IOException {
+        try (val channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            val in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (in.remaining() < Integer.BYTES * 2 || in.getInt() != MAGIC || in.getInt() != VERSION) {
+                throw new IOException("无法识别的快照文件: " + file);
+            }
+            val facets = new TaskFacets();
+            val count = in.getInt();
+            for (int i = 0; i < count; i++) {
+                facets.assign(getName(in));
+            }
+            readSection(in, facets.statuses, TaskStatus.class);
+            readSection(in, facets.categories, TaskCategory.class);
+            val children = in.getInt();
+            for (int i = 0; i < children; i++) {
+                val bitmaps = new EnumMap<TaskRecordStatus, RoaringBitmap>(TaskRecordStatus.class);
+                facets.records.put(getName(in), bitmaps);
+                readSection(in, bitmaps, TaskRecordStatus.class);
+            }
+            facets.dirty = false;
+            return facets;
+        } catch (RuntimeException e) {
+            // 截断或损坏的文件在读取时越界
+            throw new IOException("快照文件已损坏: " + file, e);
+        }
+    }
+
+    private void set(RoaringBitmap bitmap, int ordinal, boolean value) {
+        if (bitmap.contains(ordinal) == value) {
+            return;
+        }
+        if (value) {
+            bitmap.add(ordinal);
+        } else {
+            bitmap.remove(ordinal);
+        }
+        dirty = true;
+    }
+
+    private static RoaringBitmap union(List<RoaringBitmap> bitmaps) {
+        var result = new RoaringBitmap();
+        for (val bitmap : bitmaps) {
+            result = RoaringBitmap.or(result, bitmap);
+        }
+        return result;
+    }
+
+    private static RoaringBitmap intersect(RoaringBitmap a, RoaringBitmap b) {
+        return a == null ? b : RoaringBitmap.and(a, b);
+    }
+
+    private static long sectionSize(Map<? extends Enum<?>, RoaringBitmap> bitmaps) {
+        long size = Integer.BYTES;
+        for (val entry : bitmaps.entrySet()) {
+            size += Short.BYTES + entry.getKey().name().length() + entry.getValue().serializedSize();
+        }
+        return size;
+    }
+
+    /**
+     * 枚举按名称保存，增删枚举值后旧快照仍然可读，已删除的值读入时丢弃
+     */
+    private static void writeSection(ByteBuffer out, Map<? extends Enum<?>, RoaringBitmap> bitmaps) {
+        out.putInt(bitmaps.size());
+        bitmaps.forEach((key, bitmap) -> {
+            putName(out, key.name().getBytes(StandardCharsets.US_ASCII));
+            bitmap.serialize(out);
+        });
+    }
+
+    private static <E extends Enum<E>> void readSection(ByteBuffer in, Map<E, RoaringBitmap> bitmaps, Class<E> type) {
+        val count = in.getInt();
+        for (int i = 0; i < count; i++) {
+            val name = getName(in);
+            val bitmap = RoaringBitmap.deserialize(in);
+            Arrays.stream(type.getEnumConstants())
+                    .filter(candidate -> candidate.name().equals(name))
+                    .findFirst()
+                    .ifPresent(key -> bitmaps.put(key, bitmap));
+        }
+    }
+
+    private static void putName(ByteBuffer out, byte[] name) {
+        out.putShort((short) name.length);
+        out.put(name);
+    }
+
+    private static String getName(ByteBuffer in) {
+        val name = new byte[Short.toUnsignedInt(in.getShort())];
+        in.get(name);
+        return new String(name, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,148 @@
+package com.github.nanoyou.akariyumetabackend.common.session;
+
+import jakarta.annotation.Nonnull;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.http.HttpSession;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 保存在 Redis 中的会话
+ * 只支持 String、Long、Integer、Boolean 类型的属性，以便使用紧凑的二进制格式序列化。
+ */
+public class CompactSession implements HttpSession {
+
+    private final String id;
+    private final long creationTime;
+    private final Map<String, Object> attributes;
+
+    @Getter
+    private long lastAccessedTime;
+    /**
+     * 上次刷新 Redis 过期时间的时刻
+     */
+    @Getter
+    @Setter
+    private long refreshedTime;
+    private int maxInactiveInterval;
+
+    @Setter
+    private ServletContext servletContext;
+    /**
+     * 新会话第一次写入属性时的回调，用于下发 Cookie
+     */
+    @Setter
+    private Runnable onFirstWrite;
+
+    private volatile boolean isNew;
+    @Getter
+    private volatile boolean dirty;
+    @Getter
+    private volatile boolean invalidated;
+
+    CompactSession(@Nonnull String id, long creationTime, long refreshedTime, int maxInactiveInterval,
+                   @Nonnull Map<String, Object> attributes, boolean isNew) {
+        this.id = id;
+        this.creationTime = creationTime;
+        this.lastAccessedTime = System.currentTimeMillis();
+        this.refreshedTime = refreshedTime;
+        this.maxInactiveInterval = maxInactiveInterval;
+        this.attributes = new ConcurrentHashMap<>(attributes);
+        this.isNew = isNew;
+    }
+
+    /**
+     * 所有属性的只读视图，用于序列化
+     */
+    Map<String, Object> attributes() {
+        return Collections.unmodifiableMap(attributes);
+    }
+
+    /**
+     * 已经写入 Redis 后调用
+     */
+    void markSaved(long now) {
+        this.dirty = false;
+        this.isNew = false;
+        this.refreshedTime = now;
+        this.onFirstWrite = null;
+    }
+
+    void touch(long now) {
+        this.lastAccessedTime = now;
+    }
+
+    @Override
+    public long getCreationTime() {
+        return creationTime;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public ServletContext getServletContext() {
+        return servletContext;
+    }
+
+    @Override
+    public void setMaxInactiveInterval(int interval) {
+        this.maxInactiveInterval = interval;
+        this.dirty = true;
+    }
+
+    @Override
+    public int getMaxInactiveInterval() {
+        return maxInactiveInterval;
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        return attributes.get(name);
+    }
+
+    @Override
+    public Enumeration<String> getAttributeNames() {
+        return Collections.enumeration(attributes.keySet());
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+        if (value == null) {
+            removeAttribute(name);
+            return;
+        }
+        CompactSessionCodec.checkSupported(name, value);
+        attributes.put(name, value);
+        dirty = true;
+        if (onFirstWrite != null) {
+            onFirstWrite.run();
+            onFirstWrite = null;
+        }
+    }
+
+    @Override
+    public void removeAttribute(String name) {
+        if (attributes.remove(name) != null) {
+            dirty = true;
+        }
+    }
+
+    @Override
+    public void invalidate() {
+        attributes.clear();
+        invalidated = true;
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+}
@@ -0,0 +1,96 @@
+package com.github.nanoyou.akariyumetabackend.common.session;
+
+import jakarta.annotation.Nonnull;
+import lombok.val;
+
+import java.io.*;
+import java.util.HashMap;
+
+/**
+ * 会话的二进制编解码
+ * 格式：版本号(1B) 创建时间(8B) 刷新时间(8B) 超时秒数(4B) 属性数(2B)，
+ * 每个属性为 名称(UTF) 类型(1B) 值。相比 JDK 序列化没有类描述信息，一个登录会话只有几十个字节。
+ */
+public final class CompactSessionCodec {
+
+    private static final byte VERSION = 1;
+
+    private static final byte TYPE_STRING = 1;
+    private static final byte TYPE_LONG = 2;
+    private static final byte TYPE_INTEGER = 3;
+    private static final byte TYPE_BOOLEAN = 4;
+
+    private CompactSessionCodec() {
+    }
+
+    /**
+     * 检查属性值是否可以被序列化
+     *
+     * @throws IllegalArgumentException 不支持的类型
+     */
+    static void checkSupported(@Nonnull String name, @Nonnull Object value) {
+        if (!(value instanceof String || value instanceof Long || value instanceof Integer || value instanceof Boolean)) {
+            throw new IllegalArgumentException("会话属性 " + name + " 的类型 " + value.getClass().getName() + " 不受支持");
+        }
+    }
+
+    public static byte[] encode(@Nonnull CompactSession session) {
+        val bytes = new ByteArrayOutputStream(64);
+        try (val out = new DataOutputStream(bytes)) {
+            val attributes = session.attributes();
+            out.writeByte(VERSION);
+            out.writeLong(session.getCreationTime());
+            out.writeLong(session.getRefreshedTime());
+            out.writeInt(session.getMaxInactiveInterval());
+            out.writeShort(attributes.size());
+            for (val entry : attributes.entrySet()) {
+                out.writeUTF(entry.getKey());
+                val value = entry.getValue();
+                if (value instanceof String s) {
+                    out.writeByte(TYPE_STRING);
+                    out.writeUTF(s);
+                } else if (value instanceof Long l) {
+                    out.writeByte(TYPE_LONG);
+                    out.writeLong(l);
+                } else if (value instanceof Integer i) {
+                    out.writeByte(TYPE_INTEGER);
+                    out.writeInt(i);
+                } else if (value instanceof Boolean b) {
+                    out.writeByte(TYPE_BOOLEAN);
+                    out.writeBoolean(b);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static CompactSession decode(@Nonnull String id, @Nonnull byte[] data) {
+        try (val in = new DataInputStream(new ByteArrayInputStream(data))) {
+            val version = in.readByte();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("未知的会话格式版本: " + version);
+            }
+            val creationTime = in.readLong();
+            val refreshedTime = in.readLong();
+            val maxInactiveInterval = in.readInt();
+            val size = in.readUnsignedShort();
+            val attributes = new HashMap<String, Object>(size * 2);
+            for (int i = 0; i < size; i++) {
+                val name = in.readUTF();
+                val type = in.readByte();
+                attributes.put(name, switch (type) {
+                    case TYPE_STRING -> in.readUTF();
+                    case TYPE_LONG -> in.readLong();
+                    case TYPE_INTEGER -> in.readInt();
+                    case TYPE_BOOLEAN -> in.readBoolean();
+                    default -> throw new IllegalArgumentException("未知的会话属性类型: " + type);
+                });
+            }
+            return new CompactSession(id, creationTime, refreshedTime, maxInactiveInterval, attributes, false);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
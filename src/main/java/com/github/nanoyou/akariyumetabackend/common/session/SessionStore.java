@@ -0,0 +1,160 @@
+package com.github.nanoyou.akariyumetabackend.common.session;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * 会话存储
+ * 会话以紧凑的二进制格式保存在 Redis，本节点再用一个短时间的本地缓存减少每次请求对 Redis 的读取。
+ * 会话被修改或注销时通过 Redis 发布订阅通知其他节点清除本地缓存，登出后不会在其他节点上继续有效。
+ * 过期时间只在剩余不足一半时才刷新，普通请求不产生写操作。
+ */
+@Slf4j
+@Component
+public class SessionStore implements MessageListener {
+
+    private static final String KEY_PREFIX = "session:";
+    /**
+     * 会话失效通知的频道，消息为 "{来源节点}:{会话ID}"
+     */
+    public static final String INVALIDATION_CHANNEL = "session:invalidate";
+
+    private final RedisTemplate<String, byte[]> redisTemplate;
+    private final Cache<String, CompactSession> local;
+    private final Duration timeout;
+    private final RedisMessageListenerContainer listenerContainer;
+    /**
+     * 本节点的标识，用于忽略自己发出的通知
+     */
+    private final String origin = UUID.randomUUID().toString();
+
+    @Autowired
+    private SessionStore(RedisConnectionFactory connectionFactory,
+                         RedisMessageListenerContainer listenerContainer,
+                         @Value("${server.servlet.session.timeout:3600s}") Duration timeout,
+                         @Value("${akari.session.local-ttl:30s}") Duration localTtl,
+                         @Value("${akari.session.local-max-size:100000}") long localMaxSize) {
+        val template = new RedisTemplate<String, byte[]>();
+        template.setConnectionFactory(connectionFactory);
+        template.setKeySerializer(RedisSerializer.string());
+        template.setValueSerializer(RedisSerializer.byteArray());
+        template.afterPropertiesSet();
+        this.redisTemplate = template;
+        this.timeout = timeout;
+        this.listenerContainer = listenerContainer;
+        this.local = Caffeine.newBuilder()
+                .maximumSize(localMaxSize)
+                .expireAfterWrite(localTtl)
+                .build();
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(INVALIDATION_CHANNEL));
+    }
+
+    /**
+     * 其他节点修改或注销了会话，清除本地缓存
+     */
+    @Override
+    public void onMessage(@Nonnull Message message, byte[] pattern) {
+        val body = new String(message.getBody(), StandardCharsets.UTF_8);
+        val colon = body.indexOf(':');
+        if (colon < 0 || body.substring(0, colon).equals(origin)) {
+            return;
+        }
+        local.invalidate(body.substring(colon + 1));
+    }
+
+    /**
+     * 创建一个新会话，在第一次写入属性之前不会保存
+     */
+    public CompactSession create() {
+        val now = System.currentTimeMillis();
+        return new CompactSession(UUID.randomUUID().toString(), now, now, (int) timeout.toSeconds(), Map.of(), true);
+    }
+
+    /**
+     * 按ID查找会话，先查本地缓存再查 Redis
+     *
+     * @param id 会话ID
+     * @return 会话
+     */
+    public Optional<CompactSession> find(@Nonnull String id) {
+        val cached = local.getIfPresent(id);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        try {
+            val data = redisTemplate.opsForValue().get(KEY_PREFIX + id);
+            if (data == null) {
+                return Optional.empty();
+            }
+            val session = CompactSessionCodec.decode(id, data);
+            local.put(id, session);
+            return Optional.of(session);
+        } catch (Exception e) {
+            log.warn("读取会话失败: id={}", id, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * 请求结束时调用：属性有修改时写回，过期时间剩余不足一半时刷新，被注销时删除
+     *
+     * @param session 会话
+     */
+    public void commit(@Nonnull CompactSession session) {
+        val key = KEY_PREFIX + session.getId();
+        val now = System.currentTimeMillis();
+        val ttl = Duration.ofSeconds(session.getMaxInactiveInterval());
+        try {
+            if (session.isInvalidated()) {
+                local.invalidate(session.getId());
+                redisTemplate.delete(key);
+                publishInvalidation(session);
+                return;
+            }
+            session.touch(now);
+            if (session.isDirty()) {
+                val created = session.isNew();
+                session.setRefreshedTime(now);
+                redisTemplate.opsForValue().set(key, CompactSessionCodec.encode(session), ttl);
+                session.markSaved(now);
+                local.put(session.getId(), session);
+                if (!created) {
+                    publishInvalidation(session);
+                }
+            } else if (!session.isNew() && now - session.getRefreshedTime() > ttl.toMillis() / 2) {
+                session.setRefreshedTime(now);
+                redisTemplate.expire(key, ttl);
+            }
+        } catch (Exception e) {
+            log.warn("保存会话失败: id={}", session.getId(), e);
+        }
+    }
+
+    private void publishInvalidation(@Nonnull CompactSession session) {
+        redisTemplate.convertAndSend(INVALIDATION_CHANNEL, (origin + ":" + session.getId()).getBytes(StandardCharsets.UTF_8));
+    }
+}
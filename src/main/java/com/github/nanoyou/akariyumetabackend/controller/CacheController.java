@@ -0,0 +1,63 @@
+package com.github.nanoyou.akariyumetabackend.controller;
+
+import com.github.nanoyou.akariyumetabackend.common.cache.TwoLevelCache;
+import com.github.nanoyou.akariyumetabackend.common.enumeration.ResponseCode;
+import com.github.nanoyou.akariyumetabackend.common.enumeration.Role;
+import com.github.nanoyou.akariyumetabackend.common.enumeration.SessionAttr;
+import com.github.nanoyou.akariyumetabackend.entity.Result;
+import com.github.nanoyou.akariyumetabackend.service.UserService;
+import jakarta.servlet.http.HttpSession;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+public class CacheController {
+
+    private final List<TwoLevelCache<?>> caches;
+    private final UserService userService;
+
+    @Autowired
+    private CacheController(List<TwoLevelCache<?>> caches, UserService userService) {
+        this.caches = caches;
+        this.userService = userService;
+    }
+
+    /**
+     * 查询本节点各个缓存的命中统计，只有管理者可以查询
+     *
+     * @return 缓存名到统计信息的映射
+     */
+    @RequestMapping(path = "/cache/stats", method = RequestMethod.GET, headers = "Accept=application/json")
+    public Result stats(HttpSession httpSession) {
+        val loginUserID = (String) httpSession.getAttribute(SessionAttr.LOGIN_USER_ID.attr);
+        if (loginUserID == null) {
+            return Result.builder()
+                    .ok(false)
+                    .message("请先登录")
+                    .code(ResponseCode.LOGIN_REQUIRE.value)
+                    .build();
+        }
+        if (!userService.hasRole(loginUserID, Role.ADMIN)) {
+            return Result.builder()
+                    .ok(false)
+                    .message("只有管理者可以查看缓存统计")
+                    .code(ResponseCode.UNAUTHORIZED.value)
+                    .build();
+        }
+        val stats = new LinkedHashMap<String, Map<String, Object>>();
+        caches.forEach(cache -> stats.put(cache.getName(), cache.stats()));
+        return Result.builder()
+                .ok(true)
+                .code(ResponseCode.SUCCESS.value)
+                .message("缓存统计")
+                .data(stats)
+                .build();
+    }
+}
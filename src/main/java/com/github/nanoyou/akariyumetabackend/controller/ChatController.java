@@ -0,0 +1,180 @@
+package com.github.nanoyou.akariyumetabackend.controller;
+
+import com.github.nanoyou.akariyumetabackend.common.enumeration.MessageType;
+import com.github.nanoyou.akariyumetabackend.common.enumeration.ResponseCode;
+import com.github.nanoyou.akariyumetabackend.common.enumeration.SessionAttr;
+import com.github.nanoyou.akariyumetabackend.dto.chat.ChatSendDTO;
+import com.github.nanoyou.akariyumetabackend.dto.page.Cursor;
+import com.github.nanoyou.akariyumetabackend.entity.Result;
+import com.github.nanoyou.akariyumetabackend.service.ChatService;
+import jakarta.servlet.http.HttpSession;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.simp.annotation.SendToUser;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.*;
+
+import java.security.Principal;
+import java.util.UUID;
+
+/**
+ * 聊天
+ * 消息既可以通过 STOMP 发送到 /app/chat/send（结果推送到 /user/queue/chat-result），也可以 POST /chat/message
+ */
+@RestController
+public class ChatController {
+
+    private final ChatService chatService;
+
+    /**
+     * 单条消息的最大长度
+     */
+    @Value("${akari.chat.max-content-length:1000}")
+    private int maxContentLength;
+
+    @Autowired
+    private ChatController(ChatService chatService) {
+        this.chatService = chatService;
+    }
+
+    @MessageMapping("/chat/send")
+    @SendToUser(destinations = "/queue/chat-result", broadcast = false)
+    public Result sendOverStomp(@Payload ChatSendDTO chatSendDTO, Principal principal) {
+        return send(principal.getName(), chatSendDTO);
+    }
+
+    @RequestMapping(path = "/chat/message", method = RequestMethod.POST, headers = "Accept=application/json")
+    public Result sendMessage(@RequestBody ChatSendDTO chatSendDTO, HttpSession httpSession) {
+        if (httpSession.getAttribute(SessionAttr.LOGIN_USER_ID.attr) == null) {
+            return loginRequired();
+        }
+        return send((String) httpSession.getAttribute(SessionAttr.LOGIN_USER_ID.attr), chatSendDTO);
+    }
+
+    @RequestMapping(path = "/chat/{peerID}", method = RequestMethod.GET, headers = "Accept=application/json")
+    public Result conversation(@PathVariable String peerID,
+                               @RequestParam(required = false) String cursor,
+                               @RequestParam(defaultValue = "" + Cursor.DEFAULT_LIMIT) int limit,
+                               HttpSession httpSession) {
+        if (httpSession.getAttribute(SessionAttr.LOGIN_USER_ID.attr) == null) {
+            return loginRequired();
+        }
+        val userID = (String) httpSession.getAttribute(SessionAttr.LOGIN_USER_ID.attr);
+
+        final Cursor pageCursor;
+        try {
+            pageCursor = Cursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return Result.builder()
+                    .ok(false)
+                    .message("分页游标错误")
+                    .code(ResponseCode.PARAM_ERR.value)
+                    .build();
+        }
+
+        val page = chatService.getConversation(userID, peerID, pageCursor, Cursor.clampLimit(limit));
+        return Result.builder()
+                .ok(true)
+                .message("查询到 " + page.getItems().size() + " 条消息")
+                .code(ResponseCode.SUCCESS.value)
+                .data(page)
+                .build();
+    }
+
+    /**
+     * 标记已读
+     *
+     * @param peerID 对方ID
+     * @param upTo   客户端实际显示过的最新一条消息的ID，之后到达的消息仍然是未读
+     * @return 该会话剩余的未读数
+     */
+    @RequestMapping(path = "/chat/{peerID}/read", method = RequestMethod.POST, headers = "Accept=application/json")
+    public Result markRead(@PathVariable String peerID, @RequestParam String upTo, HttpSession httpSession) {
+        if (httpSession.getAttribute(SessionAttr.LOGIN_USER_ID.attr) == null) {
+            return loginRequired();
+        }
+        if (!isMessageID(upTo)) {
+            return Result.builder()
+                    .ok(false)
+                    .message("消息ID错误")
+                    .code(ResponseCode.PARAM_ERR.value)
+                    .build();
+        }
+        val unread = chatService.markRead((String) httpSession.getAttribute(SessionAttr.LOGIN_USER_ID.attr), peerID, upTo);
+        return Result.builder()
+                .ok(true)
+                .message("已读")
+                .code(ResponseCode.SUCCESS.value)
+                .data(unread)
+                .build();
+    }
+
+    @RequestMapping(path = "/chat/unread", method = RequestMethod.GET, headers = "Accept=application/json")
+    public Result unread(HttpSession httpSession) {
+        if (httpSession.getAttribute(SessionAttr.LOGIN_USER_ID.attr) == null) {
+            return loginRequired();
+        }
+        val counts = chatService.getUnreadCounts((String) httpSession.getAttribute(SessionAttr.LOGIN_USER_ID.attr));
+        return Result.builder()
+                .ok(true)
+                .message("查询未读消息数成功")
+                .code(ResponseCode.SUCCESS.value)
+                .data(counts)
+                .build();
+    }
+
+    private Result send(String senderID, ChatSendDTO chatSendDTO) {
+        if (!StringUtils.hasText(chatSendDTO.getContent())) {
+            return Result.builder()
+                    .ok(false)
+                    .message("消息内容不能为空")
+                    .code(ResponseCode.EMPTY_CHAT_CONTENT.value)
+                    .build();
+        }
+        if (chatSendDTO.getContent().length() > maxContentLength) {
+            return Result.builder()
+                    .ok(false)
+                    .message("消息内容不能超过 " + maxContentLength + " 个字符")
+                    .code(ResponseCode.CHAT_CONTENT_TOO_LONG.value)
+                    .build();
+        }
+        if (!StringUtils.hasText(chatSendDTO.getReceiverID()) || !chatService.existUser(chatSendDTO.getReceiverID())) {
+            return Result.builder()
+                    .ok(false)
+                    .message("接收者不存在")
+                    .code(ResponseCode.NO_SUCH_CHAT_RECEIVER.value)
+                    .build();
+        }
+
+        val type = chatSendDTO.getType() == null ? MessageType.TEXT : chatSendDTO.getType();
+        val message = chatService.send(senderID, chatSendDTO.getReceiverID(), chatSendDTO.getContent(), type);
+        return Result.builder()
+                .ok(true)
+                .message("发送成功")
+                .code(ResponseCode.SUCCESS.value)
+                .data(message)
+                .build();
+    }
+
+    private static Result loginRequired() {
+        return Result.builder()
+                .ok(false)
+                .message("您需要登录后才能使用聊天")
+                .code(ResponseCode.LOGIN_REQUIRE.value)
+                .build();
+    }
+
+    /**
+     * 消息ID必须是规范形式的 UUID，已读位置按字符串比较
+     */
+    private static boolean isMessageID(String id) {
+        try {
+            return UUID.fromString(id).toString().equals(id);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package com.github.nanoyou.akariyumetabackend.controller;
+
+import com.github.nanoyou.akariyumetabackend.common.enumeration.DonationTotalKind;
+import com.github.nanoyou.akariyumetabackend.common.enumeration.ResponseCode;
+import com.github.nanoyou.akariyumetabackend.common.enumeration.Role;
+import com.github.nanoyou.akariyumetabackend.common.enumeration.SessionAttr;
+import com.github.nanoyou.akariyumetabackend.common.exception.NoSuchDonationTargetException;
+import com.github.nanoyou.akariyumetabackend.dto.donate.DonateGoodsDTO;
+import com.github.nanoyou.akariyumetabackend.dto.donate.DonateMoneyDTO;
+import com.github.nanoyou.akariyumetabackend.dto.donate.GoodsUploadDTO;
+import com.github.nanoyou.akariyumetabackend.dto.page.Cursor;
+import com.github.nanoyou.akariyumetabackend.entity.Result;
+import com.github.nanoyou.akariyumetabackend.entity.donate.GoodsInfo;
+import com.github.nanoyou.akariyumetabackend.service.DonateService;
+import com.github.nanoyou.akariyumetabackend.service.UserService;
+import jakarta.servlet.http.HttpSession;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 捐助
+ * 捐款和捐物接口接受 Idempotency-Key 请求头，网络重试时带上相同的值，只会记一次账。
+ */
+@RestController
+public class DonateController {
+
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 64;
+    /**
+     * 留言祝福的最大字符数，与 wishes 列的 VARCHAR(255) 一致；超长的一笔会使同一批的捐助一起回滚
+     */
+    private static final int MAX_WISHES_LENGTH = 255;
+
+    private final DonateService donateService;
+    private final UserService userService;
+
+    @Autowired
+    private DonateController(DonateService donateService, UserService userService) {
+        this.donateService = donateService;
+        this.userService = userService;
+    }
+
+    @RequestMapping(path = "/donate/money", method = RequestMethod.POST, headers = "Accept=application/json")
+    public CompletableFuture<Result> donateMoney(@RequestBody DonateMoneyDTO donateMoneyDTO,
+                                                 @RequestHeader(name = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+                                                 HttpSession httpSession) {
+        if (httpSession.getAttribute(SessionAttr.LOGIN_USER_ID.attr) == null) {
+            return CompletableFuture.completedFuture(loginRequired());
+        }
+        if (donateMoneyDTO.getAmount() == null || donateMoneyDTO.getAmount() <= 0) {
+            return CompletableFuture.completedFuture(invalidAmount());
+        }
+        if (idempotencyKey != null && idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            return CompletableFuture.completedFuture(invalidIdempotencyKey());
+        }
+        if (tooLong(donateMoneyDTO.getWishes())) {
+            return CompletableFuture.completedFuture(invalidWishes());
+        }
+        if (!StringUtils.hasText(donateMoneyDTO.getDoneeID())) {
+            return CompletableFuture.completedFuture(noSuchDonee());
+        }
+
+        val donatorID = (String) httpSession.getAttribute(SessionAttr.LOGIN_USER_ID.attr);
+        return donateService.donateMoney(donatorID, donateMoneyDTO.getDoneeID(), donateMoneyDTO.getAmount(),
+                        donateMoneyDTO.getWishes(), idempotencyKey)
+                .thenApply(donateMoney -> Result.builder()
+                        .ok(true)
+                        .message("捐款成功")
+                        .code(ResponseCode.SUCCESS.value)
+                        .data(donateMoney)
+                        .build())
+                .exceptionally(e -> unwrap(e) instanceof NoSuchDonationTargetException ? noSuchDonee() : donateFailed(e));
+    }
+
+    @RequestMapping(path = "/donate/goods", method = RequestMethod.POST, headers = "Accept=application/json")
+    public CompletableFuture<Result> donateGoods(@RequestBody DonateGoodsDTO donateGoodsDTO,
+                                                 @RequestHeader(name = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+                                                 HttpSession httpSession) {
+        if (httpSession.getAttribute(SessionAttr.LOGIN_USER_ID.attr) == null) {
+            return CompletableFuture.completedFuture(loginRequired());
+        }
+        if (donateGoodsDTO.getAmount() == null || donateGoodsDTO.getAmount() <= 0) {
+            return CompletableFuture.completedFuture(invalidAmount());
+        }
+        if (idempotencyKey != null && idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            return CompletableFuture.completedFuture(invalidIdempotencyKey());
+        }
+        if (tooLong(donateGoodsDTO.getWishes())) {
+            return CompletableFuture.completedFuture(invalidWishes());
+        }
+        if (!StringUtils.hasText(donateGoodsDTO.getGoodsID())) {
+            return CompletableFuture.completedFuture(noSuchGoods());
+        }
+
+        val donatorID = (String) httpSession.getAttribute(SessionAttr.LOGIN_USER_ID.attr);
+        return donateService.donateGoods(donatorID, donateGoodsDTO.getGoodsID(), donateGoodsDTO.getAmount(),
+                        donateGoodsDTO.getWishes(), idempotencyKey)
+                .thenApply(donateGoods -> Result.builder()
+                        .ok(true)
+                        .message("捐物成功")
+                        .code(ResponseCode.SUCCESS.value)
+                        .data(donateGoods)
+                        .build())
+                .exceptionally(e -> {
+                    val cause = unwrap(e);
+                    if (cause instanceof NoSuchDonationTargetException) {
+                        return noSuchGoods();
+                    }
+                    return cause instanceof ArithmeticException ? invalidAmount() : donateFailed(e);
+                });
+    }
+
+    @RequestMapping(path = "/donate/goods-info", method = RequestMethod.GET, headers = "Accept=application/json")
+    public Result allGoods() {
+        val goods = donateService.getAllGoods();
+        return Result.builder()
+                .ok(true)
+                .message("查询到 " + goods.size() + " 种物品")
+                .code(ResponseCode.SUCCESS.value)
+                .data(goods)
+                .build();
+    }
+
+    @RequestMapping(path = "/donate/goods-info", method = RequestMethod.POST, headers = "Accept=application/json")
+    public Result addGoods(@RequestBody GoodsUploadDTO goodsUploadDTO, HttpSession httpSession) {
+        val loginUserID = (String) httpSession.getAttribute(SessionAttr.LOGIN_USER_ID.attr);
+        if (loginUserID == null) {
+            return loginRequired();
+        }
+        if (!userService.hasRole(loginUserID, Role.ADMIN)) {
+            return Result.builder()
+                    .ok(false)
+                    .message("只有管理者可以添加物品")
+                    .code(ResponseCode.UNAUTHORIZED.value)
+                    .build();
+        }
+        if (!StringUtils.hasText(goodsUploadDTO.getName())
+                || goodsUploadDTO.getUnitPrice() == null || goodsUploadDTO.getUnitPrice() <= 0) {
+            return Result.builder()
+                    .ok(false)
+                    .message("物品名称不能为空，单价必须为正数")
+                    .code(ResponseCode.PARAM_ERR.value)
+                    .build();
+        }
+        val goods = donateService.addGoods(GoodsInfo.builder()
+                .name(goodsUploadDTO.getName())
+                .description(goodsUploadDTO.getDescription())
+                .imageURL(goodsUploadDTO.getImageURL())
+                .unitPrice(goodsUploadDTO.getUnitPrice())
+                .build());
+        return Result.builder()
+                .ok(true)
+                .message("添加物品成功")
+                .code(ResponseCode.SUCCESS.value)
+                .data(goods)
+                .build();
+    }
+
+    @RequestMapping(path = "/donate/total/{kind}/{ownerID}", method = RequestMethod.GET, headers = "Accept=application/json")
+    public Result total(@PathVariable String kind, @PathVariable String ownerID) {
+        val totalKind = parseKind(kind);
+        if (totalKind == null) {
+            return invalidKind();
+        }
+        return Result.builder()
+                .ok(true)
+                .message("查询累计捐助成功")
+                .code(ResponseCode.SUCCESS.value)
+                .data(donateService.getTotal(totalKind, ownerID).orElse(null))
+                .build();
+    }
+
+    @RequestMapping(path = "/donate/leaderboard/{kind}", method = RequestMethod.GET, headers = "Accept=application/json")
+    public Result leaderboard(@PathVariable String kind,
+                              @RequestParam(defaultValue = "" + Cursor.DEFAULT_LIMIT) int limit) {
+        val totalKind = parseKind(kind);
+        if (totalKind == null) {
+            return invalidKind();
+        }
+        return Result.builder()
+                .ok(true)
+                .message("查询排行榜成功")
+                .code(ResponseCode.SUCCESS.value)
+                .data(donateService.getLeaderboard(totalKind, Cursor.clampLimit(limit)))
+                .build();
+    }
+
+    /**
+     * @param kind donee、donor 或 goods
+     * @return 汇总维度，无法识别时为 null
+     */
+    private static DonationTotalKind parseKind(String kind) {
+        try {
+            return DonationTotalKind.valueOf(kind.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+
+    private static Result donateFailed(Throwable e) {
+        if (unwrap(e) instanceof RejectedExecutionException) {
+            return Result.builder()
+                    .ok(false)
+                    .message("捐助人数过多，请稍后再试")
+                    .code(ResponseCode.DONATE_BUSY.value)
+                    .build();
+        }
+        return Result.builder()
+                .ok(false)
+                .message("捐助失败，请使用相同的 " + IDEMPOTENCY_KEY + " 重试")
+                .code(ResponseCode.DONATE_FAILED.value)
+                .build();
+    }
+
+    private static Result noSuchDonee() {
+        return Result.builder()
+                .ok(false)
+                .message("受赠人不存在")
+                .code(ResponseCode.NO_SUCH_DONEE.value)
+                .build();
+    }
+
+    private static Result noSuchGoods() {
+        return Result.builder()
+                .ok(false)
+                .message("物品不存在")
+                .code(ResponseCode.NO_SUCH_GOODS.value)
+                .build();
+    }
+
+    private static Result invalidAmount() {
+        return Result.builder()
+                .ok(false)
+                .message("捐助金额或数量必须为正数")
+                .code(ResponseCode.INVALID_DONATE_AMOUNT.value)
+                .build();
+    }
+
+    private static Result invalidIdempotencyKey() {
+        return Result.builder()
+                .ok(false)
+                .message(IDEMPOTENCY_KEY + " 不能超过 " + MAX_IDEMPOTENCY_KEY_LENGTH + " 个字符")
+                .code(ResponseCode.PARAM_ERR.value)
+                .build();
+    }
+
+    private static boolean tooLong(String wishes) {
+        return wishes != null && wishes.codePointCount(0, wishes.length()) > MAX_WISHES_LENGTH;
+    }
+
+    private static Result invalidWishes() {
+        return Result.builder()
+                .ok(false)
+                .message("留言祝福不能超过 " + MAX_WISHES_LENGTH + " 个字符")
+                .code(ResponseCode.PARAM_ERR.value)
+                .build();
+    }
+
+    private static Result invalidKind() {
+        return Result.builder()
+                .ok(false)
+                .message("汇总维度只能是 donee、donor 或 goods")
+                .code(ResponseCode.PARAM_ERR.value)
+                .build();
+    }
+
+    private static Result loginRequired() {
+        return Result.builder()
+                .ok(false)
+                .message("您需要登录后才能捐助")
+                .code(ResponseCode.LOGIN_REQUIRE.value)
+                .build();
+    }
+}
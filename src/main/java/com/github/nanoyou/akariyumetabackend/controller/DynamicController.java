@@ -3,15 +3,19 @@ package com.github.nanoyou.akariyumetabackend.controller;
 import cn.hutool.core.date.LocalDateTimeUtil;
 import com.github.nanoyou.akariyumetabackend.common.enumeration.ResponseCode;
 import com.github.nanoyou.akariyumetabackend.common.enumeration.SessionAttr;
+import com.github.nanoyou.akariyumetabackend.common.exception.LookupTimeoutException;
 import com.github.nanoyou.akariyumetabackend.dto.dynamic.CommentDTO;
 import com.github.nanoyou.akariyumetabackend.dto.dynamic.DynamicDTO;
 import com.github.nanoyou.akariyumetabackend.dto.dynamic.ReplyDTO;
+import com.github.nanoyou.akariyumetabackend.dto.page.Cursor;
+import com.github.nanoyou.akariyumetabackend.dto.page.CursorPageDTO;
 import com.github.nanoyou.akariyumetabackend.entity.Result;
 import com.github.nanoyou.akariyumetabackend.entity.dynamic.Comment;
 import com.github.nanoyou.akariyumetabackend.entity.task.TaskDynamic;
 import com.github.nanoyou.akariyumetabackend.service.DynamicService;
 import com.github.nanoyou.akariyumetabackend.service.LikeService;
 import com.github.nanoyou.akariyumetabackend.service.TaskService;
+import com.github.nanoyou.akariyumetabackend.service.TimelineService;
 import jakarta.servlet.http.HttpSession;
 import lombok.val;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -28,12 +32,14 @@ public class DynamicController {
     private final DynamicService dynamicService;
     private final TaskService taskService;
     private final LikeService likeService;
+    private final TimelineService timelineService;
 
     @Autowired
-    private DynamicController(DynamicService dynamicService, TaskService taskService, LikeService likeService) {
+    private DynamicController(DynamicService dynamicService, TaskService taskService, LikeService likeService, TimelineService timelineService) {
         this.dynamicService = dynamicService;
         this.taskService = taskService;
         this.likeService = likeService;
+        this.timelineService = timelineService;
     }
 
     @RequestMapping(path = "/dynamic", method = RequestMethod.POST, headers = "Accept=application/json")
@@ -87,6 +93,9 @@ public class DynamicController {
 
         taskDynamic.orElseThrow(NullPointerException::new);
 
+        // 推送到粉丝的时间线
+        timelineService.push(comment);
+
         return Result.builder()
                 .ok(true)
                 .message("成功评论")
@@ -97,7 +106,9 @@ public class DynamicController {
     }
 
     @RequestMapping(path = "/my/dynamic", method = RequestMethod.GET, headers = "Accept=application/json")
-    public Result myDynamic(HttpSession httpSession) {
+    public Result myDynamic(@RequestParam(required = false) String cursor,
+                            @RequestParam(defaultValue = "" + Cursor.DEFAULT_LIMIT) int limit,
+                            HttpSession httpSession) {
         // 获取用户信息
         if (httpSession.getAttribute(SessionAttr.LOGIN_USER_ID.attr) == null) {
             return Result.builder()
@@ -109,24 +120,42 @@ public class DynamicController {
 
         val userID = ((String) httpSession.getAttribute(SessionAttr.LOGIN_USER_ID.attr));
 
-        // 关注人的动态
-        val dynamics = dynamicService.getDynamicsByFollowerID(userID);
-        // 我的动态
-        val myDynamics = dynamicService.getDynamicsByCommenterID(userID);
-        // 将自己和他人的动态列表合并
-        dynamics.addAll(myDynamics);
+        final Cursor pageCursor;
+        try {
+            pageCursor = Cursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return Result.builder()
+                    .ok(false)
+                    .message("分页游标错误")
+                    .code(ResponseCode.PARAM_ERR.value)
+                    .build();
+        }
 
+        // 自己和关注人的动态
+        final CursorPageDTO<Comment> page;
+        try {
+            page = timelineService.getTimeline(userID, pageCursor, Cursor.clampLimit(limit));
+        } catch (LookupTimeoutException e) {
+            return Result.builder()
+                    .ok(false)
+                    .message("查询超时，请稍后再试")
+                    .code(ResponseCode.LOOKUP_TIMEOUT.value)
+                    .build();
+        }
+        val dynamics = page.getItems();
+
+        val likeCounts = likeService.getLikeCounts(dynamics.stream().map(Comment::getId).toList());
         val likes = dynamics.stream().map(
-                dynamic -> likeService.getLikeCountByCommentID(dynamic.getCommenterID())
+                dynamic -> likeCounts.getOrDefault(dynamic.getId(), 0)
         ).toList();
 
-        val dynamicDTOs = concat(dynamics, likes);
+        val dynamicPage = page.map(items -> concat(items, likes));
 
         return Result.builder()
                 .ok(true)
                 .message("查询到 " + dynamics.size() + " 条动态")
                 .code(ResponseCode.SUCCESS.value)
-                .data(dynamicDTOs)
+                .data(dynamicPage)
                 .build();
 
     }
@@ -202,7 +231,75 @@ public class DynamicController {
 
     }
 
-    private List<DynamicDTO> concat(List<Comment> dynamics, List<Integer> likes) {
+    @RequestMapping(path = "/comment/{commentID}/like", method = RequestMethod.POST, headers = "Accept=application/json")
+    public Result like(@PathVariable String commentID, HttpSession httpSession) {
+        if (httpSession.getAttribute(SessionAttr.LOGIN_USER_ID.attr) == null) {
+            return Result.builder()
+                    .ok(false)
+                    .code(ResponseCode.LOGIN_REQUIRE.value)
+                    .message("登录后才能点赞")
+                    .data(null)
+                    .build();
+        }
+        val loginUserID = ((String) httpSession.getAttribute(SessionAttr.LOGIN_USER_ID.attr));
+
+        val comment = dynamicService.getComment(commentID);
+        if (comment.isEmpty()) {
+            return Result.builder()
+                    .ok(false)
+                    .code(ResponseCode.NO_SUCH_COMMENT_OR_DYNAMIC.value)
+                    .message("动态或评论不存在")
+                    .data(null)
+                    .build();
+        }
+
+        if (!likeService.like(commentID, loginUserID, comment.get().getCommenterID())) {
+            return Result.builder()
+                    .ok(false)
+                    .code(ResponseCode.ALREADY_LIKED.value)
+                    .message("已经点过赞了")
+                    .data(null)
+                    .build();
+        }
+
+        return Result.builder()
+                .ok(true)
+                .code(ResponseCode.SUCCESS.value)
+                .message("点赞成功")
+                .data(likeService.getLikeCountByCommentID(commentID))
+                .build();
+    }
+
+    @RequestMapping(path = "/comment/{commentID}/like", method = RequestMethod.DELETE, headers = "Accept=application/json")
+    public Result unlike(@PathVariable String commentID, HttpSession httpSession) {
+        if (httpSession.getAttribute(SessionAttr.LOGIN_USER_ID.attr) == null) {
+            return Result.builder()
+                    .ok(false)
+                    .code(ResponseCode.LOGIN_REQUIRE.value)
+                    .message("登录后才能取消点赞")
+                    .data(null)
+                    .build();
+        }
+        val loginUserID = ((String) httpSession.getAttribute(SessionAttr.LOGIN_USER_ID.attr));
+
+        if (!likeService.unlike(commentID, loginUserID)) {
+            return Result.builder()
+                    .ok(false)
+                    .code(ResponseCode.NOT_LIKED.value)
+                    .message("还没有点赞")
+                    .data(null)
+                    .build();
+        }
+
+        return Result.builder()
+                .ok(true)
+                .code(ResponseCode.SUCCESS.value)
+                .message("取消点赞成功")
+                .data(likeService.getLikeCountByCommentID(commentID))
+                .build();
+    }
+
+    static List<DynamicDTO> concat(List<Comment> dynamics, List<Integer> likes) {
         return IntStream.range(0, dynamics.size())
                 .mapToObj(i -> {
                             val dynamic = dynamics.get(i);
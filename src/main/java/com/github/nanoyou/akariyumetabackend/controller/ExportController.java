@@ -0,0 +1,98 @@
+package com.github.nanoyou.akariyumetabackend.controller;
+
+import com.github.nanoyou.akariyumetabackend.common.enumeration.ResponseCode;
+import com.github.nanoyou.akariyumetabackend.common.enumeration.Role;
+import com.github.nanoyou.akariyumetabackend.common.enumeration.SessionAttr;
+import com.github.nanoyou.akariyumetabackend.entity.Result;
+import com.github.nanoyou.akariyumetabackend.service.ExportService;
+import com.github.nanoyou.akariyumetabackend.service.UserService;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 数据导出，响应为 NDJSON（application/x-ndjson），每行一个 JSON 对象
+ * 导出成功时直接写入响应，不返回 Result
+ * 学习记录和动态包含其他用户的数据，只有管理者可以导出
+ */
+@RestController
+public class ExportController {
+
+    private static final String NDJSON = "application/x-ndjson";
+
+    private final ExportService exportService;
+    private final UserService userService;
+
+    @Autowired
+    private ExportController(ExportService exportService, UserService userService) {
+        this.exportService = exportService;
+        this.userService = userService;
+    }
+
+    @RequestMapping(path = "/export/task", method = RequestMethod.GET)
+    public Result exportTasks(HttpSession httpSession, HttpServletResponse response) throws IOException {
+        if (httpSession.getAttribute(SessionAttr.LOGIN_USER_ID.attr) == null) {
+            return loginRequired();
+        }
+        prepare(response, "task");
+        exportService.exportTaskCourses(response.getOutputStream());
+        return null;
+    }
+
+    @RequestMapping(path = "/export/task-record", method = RequestMethod.GET)
+    public Result exportTaskRecords(HttpSession httpSession, HttpServletResponse response) throws IOException {
+        val loginUserID = (String) httpSession.getAttribute(SessionAttr.LOGIN_USER_ID.attr);
+        if (loginUserID == null) {
+            return loginRequired();
+        }
+        if (!userService.hasRole(loginUserID, Role.ADMIN)) {
+            return adminRequired("学习记录");
+        }
+        prepare(response, "task-record");
+        exportService.exportTaskRecords(response.getOutputStream());
+        return null;
+    }
+
+    @RequestMapping(path = "/export/comment", method = RequestMethod.GET)
+    public Result exportComments(HttpSession httpSession, HttpServletResponse response) throws IOException {
+        val loginUserID = (String) httpSession.getAttribute(SessionAttr.LOGIN_USER_ID.attr);
+        if (loginUserID == null) {
+            return loginRequired();
+        }
+        if (!userService.hasRole(loginUserID, Role.ADMIN)) {
+            return adminRequired("动态");
+        }
+        prepare(response, "comment");
+        exportService.exportComments(response.getOutputStream());
+        return null;
+    }
+
+    private static void prepare(HttpServletResponse response, String name) {
+        response.setContentType(NDJSON);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader("Content-Disposition", "attachment; filename=\"" + name + ".ndjson\"");
+    }
+
+    private static Result loginRequired() {
+        return Result.builder()
+                .ok(false)
+                .message("您需要登录后才能导出数据")
+                .code(ResponseCode.LOGIN_REQUIRE.value)
+                .build();
+    }
+
+    private static Result adminRequired(String what) {
+        return Result.builder()
+                .ok(false)
+                .message("只有管理者可以导出" + what)
+                .code(ResponseCode.UNAUTHORIZED.value)
+                .build();
+    }
+}
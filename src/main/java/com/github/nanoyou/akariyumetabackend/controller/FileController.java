@@ -0,0 +1,309 @@
+package com.github.nanoyou.akariyumetabackend.controller;
+
+import com.github.nanoyou.akariyumetabackend.common.enumeration.ResponseCode;
+import com.github.nanoyou.akariyumetabackend.common.enumeration.SessionAttr;
+import com.github.nanoyou.akariyumetabackend.common.exception.FileTooLargeException;
+import com.github.nanoyou.akariyumetabackend.common.exception.UnsupportedFileTypeException;
+import com.github.nanoyou.akariyumetabackend.entity.Result;
+import com.github.nanoyou.akariyumetabackend.entity.filestore.FileItem;
+import com.github.nanoyou.akariyumetabackend.service.FileStoreService;
+import com.github.nanoyou.akariyumetabackend.service.ImageVariantService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 文件上传与下载
+ * 上传既可以是 multipart/form-data 的 file 字段，也可以直接把文件作为请求体；下载支持 ETag 和单个 Range。
+ * 文件以内容哈希为ID，内容不会变化，因此下载可以永久缓存。
+ * 下载时可以用 w 参数请求缩略图，返回不窄于 w 的最小缩略图；缩略图还没生成时先返回原图，且只短时间缓存。
+ */
+@RestController
+public class FileController {
+
+    /**
+     * Tomcat 的 sendfile 请求属性，设置后由连接器在请求结束时直接从文件发送到 socket
+     */
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    /**
+     * 缩略图还没生成时返回原图的缓存时间（秒）
+     */
+    private static final int PENDING_MAX_AGE = 60;
+
+    private final FileStoreService fileStoreService;
+    private final ImageVariantService imageVariantService;
+
+    @Autowired
+    private FileController(FileStoreService fileStoreService, ImageVariantService imageVariantService) {
+        this.fileStoreService = fileStoreService;
+        this.imageVariantService = imageVariantService;
+    }
+
+    @RequestMapping(path = "/file", method = RequestMethod.POST, consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public Result uploadMultipart(@RequestPart("file") MultipartFile file, HttpSession httpSession,
+                                  HttpServletResponse response) throws IOException {
+        if (httpSession.getAttribute(SessionAttr.LOGIN_USER_ID.attr) == null) {
+            return loginRequired();
+        }
+        if (file.isEmpty()) {
+            return emptyFile();
+        }
+        if (imageVariantService.isSaturated()) {
+            return busy(response);
+        }
+        try (val in = file.getInputStream()) {
+            return store(in);
+        }
+    }
+
+    @RequestMapping(path = "/file", method = RequestMethod.POST)
+    public Result uploadRaw(HttpServletRequest request, HttpSession httpSession,
+                            HttpServletResponse response) throws IOException {
+        if (httpSession.getAttribute(SessionAttr.LOGIN_USER_ID.attr) == null) {
+            return loginRequired();
+        }
+        if (request.getContentLengthLong() == 0) {
+            return emptyFile();
+        }
+        // 声明了长度时不用读请求体就能拒绝
+        if (request.getContentLengthLong() > fileStoreService.getMaxSize()) {
+            return fileTooLarge(new FileTooLargeException(fileStoreService.getMaxSize()));
+        }
+        // 缩略图队列已满时在读取请求体之前拒绝，让客户端稍后重试
+        if (imageVariantService.isSaturated()) {
+            return busy(response);
+        }
+        return store(request.getInputStream());
+    }
+
+    @RequestMapping(path = "/file/{id}", method = RequestMethod.GET)
+    public Result download(@PathVariable String id, @RequestParam(required = false) Integer w,
+                           HttpServletRequest request, HttpServletResponse response) throws IOException {
+        val fileItem = fileStoreService.find(id);
+        if (fileItem.isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return Result.builder()
+                    .ok(false)
+                    .message("文件不存在")
+                    .code(ResponseCode.NO_SUCH_FILE.value)
+                    .build();
+        }
+        val file = fileItem.get();
+        if (w == null || w <= 0) {
+            serve(fileStoreService.blobPath(file.getId()), "\"" + file.getId() + "\"", file.getMimeType(), file.getSize(),
+                    true, request, response);
+            return null;
+        }
+
+        val variant = imageVariantService.find(file, w);
+        if (variant.isPresent()) {
+            val path = variant.get().getPath();
+            serve(path, "\"" + file.getId() + "-w" + variant.get().getWidth() + "\"", variant.get().getMimeType(),
+                    Files.size(path), true, request, response);
+            return null;
+        }
+        // 已处理完但没有合适的缩略图时原图就是结果，否则先给原图并在后台补生成
+        val processed = imageVariantService.isProcessed(file);
+        if (!processed) {
+            imageVariantService.submit(file);
+        }
+        serve(fileStoreService.blobPath(file.getId()), "\"" + file.getId() + "\"", file.getMimeType(), file.getSize(),
+                processed, request, response);
+        return null;
+    }
+
+    /**
+     * 发送一个内容不变的文件，处理条件请求和 Range
+     *
+     * @param immutable 是否可以永久缓存
+     */
+    private static void serve(Path path, String etag, String mimeType, long size, boolean immutable,
+                              HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, immutable
+                ? "public, max-age=31536000, immutable"
+                : "public, max-age=" + PENDING_MAX_AGE);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader("X-Content-Type-Options", "nosniff");
+
+        if (matchesEtag(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long start = 0;
+        long end = size;
+        val rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        val ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        // If-Range 与当前版本不一致时忽略 Range，返回整个文件
+        if (rangeHeader != null && (ifRange == null || ifRange.equals(etag))) {
+            val range = parseRange(rangeHeader, size);
+            if (range == null) {
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                return;
+            }
+            if (range.length == 2) {
+                start = range[0];
+                end = range[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + (end - 1) + "/" + size);
+            }
+        }
+
+        response.setContentType(mimeType);
+        response.setContentLengthLong(end - start);
+        if ("HEAD".equals(request.getMethod())) {
+            return;
+        }
+        send(path, start, end, request, response);
+    }
+
+    private Result store(InputStream in) throws IOException {
+        final FileItem fileItem;
+        try {
+            fileItem = fileStoreService.store(in);
+        } catch (FileTooLargeException e) {
+            return fileTooLarge(e);
+        } catch (UnsupportedFileTypeException e) {
+            return Result.builder()
+                    .ok(false)
+                    .message(e.getMessage())
+                    .code(ResponseCode.UNSUPPORTED_FILE_TYPE.value)
+                    .build();
+        }
+        // 检查和提交之间队列可能被占满，此时缩略图在第一次按宽度下载时补生成
+        imageVariantService.submit(fileItem);
+        return Result.builder()
+                .ok(true)
+                .message("上传成功")
+                .code(ResponseCode.SUCCESS.value)
+                .data(fileItem)
+                .build();
+    }
+
+    /**
+     * 把文件的 [start, end) 部分写入响应，不经过用户态缓冲
+     * 连接器支持 sendfile 时交给 Tomcat 发送，否则用 transferTo 写入响应流
+     */
+    private static void send(Path path, long start, long end,
+                             HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, path.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end);
+            return;
+        }
+        try (val channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            val out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            while (position < end) {
+                position += channel.transferTo(position, end - position, out);
+            }
+        }
+    }
+
+    /**
+     * 解析 Range 请求头，只支持单个字节范围
+     *
+     * @return {start, end}（end 不含）；多个范围时返回空数组表示发送整个文件；范围无法满足时返回 null
+     */
+    static long[] parseRange(String header, long size) {
+        if (!header.startsWith("bytes=")) {
+            return new long[0];
+        }
+        val spec = header.substring("bytes=".length()).trim();
+        if (spec.contains(",")) {
+            return new long[0];
+        }
+        val dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            val first = spec.substring(0, dash).trim();
+            val last = spec.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                // bytes=-n：最后 n 个字节
+                val suffix = Long.parseLong(last);
+                if (suffix <= 0 || size == 0) {
+                    return null;
+                }
+                return new long[]{Math.max(0, size - suffix), size};
+            }
+            val start = Long.parseLong(first);
+            val end = last.isEmpty() ? size : Math.min(Long.parseLong(last) + 1, size);
+            if (start >= size || end <= start) {
+                return null;
+            }
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static boolean matchesEtag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (val candidate : ifNoneMatch.split(",")) {
+            val trimmed = candidate.trim();
+            if (trimmed.equals("*") || trimmed.equals(etag) || trimmed.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Result emptyFile() {
+        return Result.builder()
+                .ok(false)
+                .message("上传的文件为空")
+                .code(ResponseCode.EMPTY_FILE.value)
+                .build();
+    }
+
+    private static Result fileTooLarge(FileTooLargeException e) {
+        return Result.builder()
+                .ok(false)
+                .message(e.getMessage())
+                .code(ResponseCode.FILE_TOO_LARGE.value)
+                .build();
+    }
+
+    private static Result busy(HttpServletResponse response) {
+        response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+        return Result.builder()
+                .ok(false)
+                .message("图片处理繁忙，请稍后重试")
+                .code(ResponseCode.FILE_PROCESSING_BUSY.value)
+                .build();
+    }
+
+    private static Result loginRequired() {
+        return Result.builder()
+                .ok(false)
+                .message("您需要登录后才能上传文件")
+                .code(ResponseCode.LOGIN_REQUIRE.value)
+                .build();
+    }
+}
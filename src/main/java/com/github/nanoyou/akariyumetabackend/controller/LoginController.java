@@ -2,7 +2,9 @@ package com.github.nanoyou.akariyumetabackend.controller;
 
 import com.github.nanoyou.akariyumetabackend.common.enumeration.ResponseCode;
 import com.github.nanoyou.akariyumetabackend.common.enumeration.SessionAttr;
+import com.github.nanoyou.akariyumetabackend.common.exception.LoginThrottledException;
 import com.github.nanoyou.akariyumetabackend.dto.user.LoginDTO;
+import com.github.nanoyou.akariyumetabackend.dto.user.UserDTO;
 import com.github.nanoyou.akariyumetabackend.entity.Result;
 import com.github.nanoyou.akariyumetabackend.service.LoginService;
 import jakarta.servlet.http.HttpSession;
@@ -12,6 +14,11 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
 @RestController
 public class LoginController {
     private final LoginService loginService;
@@ -21,35 +28,60 @@ public class LoginController {
         this.loginService = loginService;
     }
 
+    /**
+     * 登录，密码校验完成前请求线程即被释放
+     */
     @RequestMapping(path = "/login", method = RequestMethod.POST, headers = "Accept=application/json")
-    public Result login(@RequestBody LoginDTO loginParam, HttpSession httpSession) {
+    public CompletableFuture<Result> login(@RequestBody LoginDTO loginParam, HttpSession httpSession) {
+        CompletableFuture<Optional<UserDTO>> login;
         try {
-            return loginService.login(loginParam).map(
-                    userDTO -> {
-                        // 保存 Session
-                        httpSession.setAttribute(SessionAttr.LOGIN_USER_ID.attr, userDTO.getId());
-                        return Result.builder()
-                                .ok(true)
-                                .code(ResponseCode.LOGIN_SUCCESS.value)
-                                .message("登录成功")
-                                .data(userDTO)
-                                .build();
-                    }
-            ).orElse(
-                    Result.builder()
-                            .ok(false)
-                            .code(ResponseCode.LOGIN_FAIL.value)
-                            .message("账户不存在或密码错误")
-                            .data(null)
-                            .build()
-            );
+            login = loginService.login(loginParam);
         } catch (Exception e) {
+            login = CompletableFuture.failedFuture(e);
+        }
+
+        return login.thenApply(
+                loginUser -> loginUser.map(
+                        userDTO -> {
+                            // 保存 Session
+                            httpSession.setAttribute(SessionAttr.LOGIN_USER_ID.attr, userDTO.getId());
+                            return Result.builder()
+                                    .ok(true)
+                                    .code(ResponseCode.LOGIN_SUCCESS.value)
+                                    .message("登录成功")
+                                    .data(userDTO)
+                                    .build();
+                        }
+                ).orElse(
+                        Result.builder()
+                                .ok(false)
+                                .code(ResponseCode.LOGIN_FAIL.value)
+                                .message("账户不存在或密码错误")
+                                .data(null)
+                                .build()
+                )
+        ).exceptionally(e -> {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof LoginThrottledException) {
+                return Result.builder()
+                        .ok(false)
+                        .code(ResponseCode.LOGIN_THROTTLED.value)
+                        .message("登录尝试过于频繁，请稍后再试")
+                        .build();
+            }
+            if (cause instanceof RejectedExecutionException) {
+                return Result.builder()
+                        .ok(false)
+                        .code(ResponseCode.LOGIN_BUSY.value)
+                        .message("登录人数过多，请稍后再试")
+                        .build();
+            }
             return Result.builder()
                     .ok(false)
                     .code(ResponseCode.LOGIN_FAIL.value)
                     .message("内部服务器错误")
                     .build();
-        }
+        });
 
     }
 
@@ -0,0 +1,179 @@
+package com.github.nanoyou.akariyumetabackend.controller;
+
+import com.github.nanoyou.akariyumetabackend.common.enumeration.PointsTotalKind;
+import com.github.nanoyou.akariyumetabackend.common.enumeration.ResponseCode;
+import com.github.nanoyou.akariyumetabackend.common.enumeration.Role;
+import com.github.nanoyou.akariyumetabackend.common.enumeration.SessionAttr;
+import com.github.nanoyou.akariyumetabackend.dto.page.Cursor;
+import com.github.nanoyou.akariyumetabackend.entity.Result;
+import com.github.nanoyou.akariyumetabackend.service.PointsService;
+import com.github.nanoyou.akariyumetabackend.service.UserService;
+import jakarta.servlet.http.HttpSession;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Locale;
+
+/**
+ * 积分
+ * 排行榜的维度为 all（总积分）、category（按任务类别，period 为类别名称）或 week（按周，period 为 ISO 周，默认本周）
+ */
+@RestController
+public class PointsController {
+
+    private final PointsService pointsService;
+    private final UserService userService;
+
+    @Autowired
+    private PointsController(PointsService pointsService, UserService userService) {
+        this.pointsService = pointsService;
+        this.userService = userService;
+    }
+
+    /**
+     * @return 当前登录儿童的总积分
+     */
+    @RequestMapping(path = "/points/balance", method = RequestMethod.GET, headers = "Accept=application/json")
+    public Result balance(HttpSession httpSession) {
+        val loginUserID = (String) httpSession.getAttribute(SessionAttr.LOGIN_USER_ID.attr);
+        if (loginUserID == null) {
+            return loginRequired();
+        }
+        return Result.builder()
+                .ok(true)
+                .message("查询积分成功")
+                .code(ResponseCode.SUCCESS.value)
+                .data(pointsService.getBalance(loginUserID))
+                .build();
+    }
+
+    @RequestMapping(path = "/points/leaderboard/{kind}", method = RequestMethod.GET, headers = "Accept=application/json")
+    public Result leaderboard(@PathVariable String kind,
+                              @RequestParam(required = false) String period,
+                              @RequestParam(defaultValue = "" + Cursor.DEFAULT_LIMIT) int limit) {
+        val totalKind = parseKind(kind);
+        if (totalKind == null) {
+            return invalidKind();
+        }
+        try {
+            val ranks = pointsService.getLeaderboard(totalKind, pointsService.normalizePeriod(totalKind, period), Cursor.clampLimit(limit));
+            return Result.builder()
+                    .ok(true)
+                    .message("查询排行榜成功")
+                    .code(ResponseCode.SUCCESS.value)
+                    .data(ranks)
+                    .build();
+        } catch (IllegalArgumentException e) {
+            return invalidPeriod(e);
+        } catch (DataAccessException e) {
+            return leaderboardUnavailable();
+        }
+    }
+
+    /**
+     * @return 当前登录儿童在排行榜上的名次，不在榜上时为 null
+     */
+    @RequestMapping(path = "/points/rank/{kind}", method = RequestMethod.GET, headers = "Accept=application/json")
+    public Result rank(@PathVariable String kind,
+                       @RequestParam(required = false) String period,
+                       HttpSession httpSession) {
+        val loginUserID = (String) httpSession.getAttribute(SessionAttr.LOGIN_USER_ID.attr);
+        if (loginUserID == null) {
+            return loginRequired();
+        }
+        val totalKind = parseKind(kind);
+        if (totalKind == null) {
+            return invalidKind();
+        }
+        try {
+            val rank = pointsService.getRank(totalKind, pointsService.normalizePeriod(totalKind, period), loginUserID);
+            return Result.builder()
+                    .ok(true)
+                    .message("查询名次成功")
+                    .code(ResponseCode.SUCCESS.value)
+                    .data(rank.orElse(null))
+                    .build();
+        } catch (IllegalArgumentException e) {
+            return invalidPeriod(e);
+        } catch (DataAccessException e) {
+            return leaderboardUnavailable();
+        }
+    }
+
+    /**
+     * 从积分流水重建所有排行榜，只有管理者可以调用
+     *
+     * @return 重建的儿童数
+     */
+    @RequestMapping(path = "/points/leaderboard/rebuild", method = RequestMethod.POST, headers = "Accept=application/json")
+    public Result rebuild(HttpSession httpSession) {
+        val loginUserID = (String) httpSession.getAttribute(SessionAttr.LOGIN_USER_ID.attr);
+        if (loginUserID == null) {
+            return loginRequired();
+        }
+        if (!userService.hasRole(loginUserID, Role.ADMIN)) {
+            return Result.builder()
+                    .ok(false)
+                    .message("只有管理者可以重建排行榜")
+                    .code(ResponseCode.UNAUTHORIZED.value)
+                    .build();
+        }
+        try {
+            val children = pointsService.rebuildLeaderboards();
+            return Result.builder()
+                    .ok(true)
+                    .message("排行榜重建完成")
+                    .code(ResponseCode.SUCCESS.value)
+                    .data(children)
+                    .build();
+        } catch (DataAccessException e) {
+            return leaderboardUnavailable();
+        }
+    }
+
+    /**
+     * @param kind all、category 或 week
+     * @return 排行榜维度，无法识别时为 null
+     */
+    private static PointsTotalKind parseKind(String kind) {
+        try {
+            return PointsTotalKind.valueOf(kind.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static Result invalidKind() {
+        return Result.builder()
+                .ok(false)
+                .message("排行榜维度只能是 all、category 或 week")
+                .code(ResponseCode.PARAM_ERR.value)
+                .build();
+    }
+
+    private static Result invalidPeriod(IllegalArgumentException e) {
+        return Result.builder()
+                .ok(false)
+                .message(e.getMessage())
+                .code(ResponseCode.PARAM_ERR.value)
+                .build();
+    }
+
+    private static Result leaderboardUnavailable() {
+        return Result.builder()
+                .ok(false)
+                .message("排行榜暂时不可用，请稍后再试")
+                .code(ResponseCode.LEADERBOARD_UNAVAILABLE.value)
+                .build();
+    }
+
+    private static Result loginRequired() {
+        return Result.builder()
+                .ok(false)
+                .message("请先登录")
+                .code(ResponseCode.LOGIN_REQUIRE.value)
+                .build();
+    }
+}
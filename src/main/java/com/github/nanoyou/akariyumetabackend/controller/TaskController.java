@@ -1,26 +1,41 @@
 package com.github.nanoyou.akariyumetabackend.controller;
 
 import com.github.nanoyou.akariyumetabackend.common.enumeration.ResponseCode;
+import com.github.nanoyou.akariyumetabackend.common.enumeration.Role;
 import com.github.nanoyou.akariyumetabackend.common.enumeration.SessionAttr;
 import com.github.nanoyou.akariyumetabackend.common.enumeration.TaskStatus;
+import com.github.nanoyou.akariyumetabackend.common.exception.LoginRequiredException;
+import com.github.nanoyou.akariyumetabackend.common.exception.LookupTimeoutException;
+import com.github.nanoyou.akariyumetabackend.dto.page.Cursor;
 import com.github.nanoyou.akariyumetabackend.dto.task.TaskCourseDTO;
+import com.github.nanoyou.akariyumetabackend.dto.task.TaskCourseSearchDTO;
 import com.github.nanoyou.akariyumetabackend.dto.task.TaskCourseUploadDTO;
 import com.github.nanoyou.akariyumetabackend.dto.task.TaskDTO;
+import com.github.nanoyou.akariyumetabackend.dto.task.TaskProgressDTO;
 import com.github.nanoyou.akariyumetabackend.entity.Result;
 import com.github.nanoyou.akariyumetabackend.entity.task.Course;
 import com.github.nanoyou.akariyumetabackend.entity.task.Task;
+import com.github.nanoyou.akariyumetabackend.entity.task.TaskRecord;
 import com.github.nanoyou.akariyumetabackend.service.CourseService;
+import com.github.nanoyou.akariyumetabackend.service.LookupService;
+import com.github.nanoyou.akariyumetabackend.service.TaskImportService;
+import com.github.nanoyou.akariyumetabackend.service.TaskProgressService;
+import com.github.nanoyou.akariyumetabackend.service.TaskSearchService;
 import com.github.nanoyou.akariyumetabackend.service.TaskService;
-import jakarta.annotation.Nonnull;
+import com.github.nanoyou.akariyumetabackend.service.UserService;
+import com.github.nanoyou.akariyumetabackend.service.WatchCountService;
 import jakarta.servlet.http.HttpSession;
 import lombok.val;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.stream.IntStream;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static com.github.nanoyou.akariyumetabackend.common.enumeration.TaskStatus.*;
 
@@ -28,11 +43,32 @@ import static com.github.nanoyou.akariyumetabackend.common.enumeration.TaskStatu
 public class TaskController {
     private final TaskService taskService;
     private final CourseService courseService;
+    private final WatchCountService watchCountService;
+    private final LookupService lookupService;
+    private final TaskImportService taskImportService;
+    private final TaskSearchService taskSearchService;
+    private final TaskProgressService taskProgressService;
+    private final UserService userService;
+
+    /**
+     * 一次批量导入的最大行数
+     */
+    @Value("${akari.task.import-max-rows:5000}")
+    private int importMaxRows;
 
     @Autowired
-    private TaskController(TaskService taskService, CourseService courseService) {
+    private TaskController(TaskService taskService, CourseService courseService, WatchCountService watchCountService,
+                           LookupService lookupService, TaskImportService taskImportService,
+                           TaskSearchService taskSearchService, TaskProgressService taskProgressService,
+                           UserService userService) {
         this.taskService = taskService;
         this.courseService = courseService;
+        this.watchCountService = watchCountService;
+        this.lookupService = lookupService;
+        this.taskImportService = taskImportService;
+        this.taskSearchService = taskSearchService;
+        this.taskProgressService = taskProgressService;
+        this.userService = userService;
     }
 
     @RequestMapping(path = "/task", method = RequestMethod.POST, headers = "Accept=application/json")
@@ -52,6 +88,14 @@ public class TaskController {
                         .data(null)
                         .build();
             }
+            if (taskCourseUploadDTO.getVideoDuration() == null || taskCourseUploadDTO.getVideoDuration() <= 0) {
+                return Result.builder()
+                        .ok(false)
+                        .code(ResponseCode.PARAM_ERR.value)
+                        .message("视频时长必须为正数")
+                        .data(null)
+                        .build();
+            }
 
             TaskStatus status = NOT_STARTED;
             if (time.isAfter(taskCourseUploadDTO.getStartTime()))
@@ -88,14 +132,13 @@ public class TaskController {
             ).orElseThrow(NullPointerException::new);
 
             // course同步task UUID
-            //TODO：COURSE观看次数&视频时长
+            // 观看次数由 POST /task/{taskID}/watch 累加
             Integer watchedCount = 0;
-            Integer videoDuration = 0;
             var uploadCourse = Course.builder()
                     .taskID(taskDTO.getId())
                     .watchedCount(watchedCount)
                     .videoURL(taskCourseUploadDTO.getVideoURL())
-                    .videoDuration(videoDuration)
+                    .videoDuration(taskCourseUploadDTO.getVideoDuration())
                     .build();
 
             // TODO: 怎么处理courseDTO？（返回响应里看起来不需要course的信息）
@@ -117,6 +160,43 @@ public class TaskController {
 
     }
 
+    /**
+     * 批量导入学习任务，出错的行单独报告，不影响其他行
+     * 任务发布人为当前登录的用户，忽略行中的 taskUploaderID
+     *
+     * @param rows 学习任务列表
+     * @return 每一行的任务ID或失败原因
+     */
+    @RequestMapping(path = "/task/import", method = RequestMethod.POST, headers = "Accept=application/json")
+    public Result importTasks(@RequestBody List<TaskCourseUploadDTO> rows, HttpSession httpSession) {
+        val loginUserID = (String) httpSession.getAttribute(SessionAttr.LOGIN_USER_ID.attr);
+        if (loginUserID == null) {
+            return Result.builder()
+                    .ok(false)
+                    .code(ResponseCode.LOGIN_REQUIRE.value)
+                    .message("请先登录")
+                    .data(null)
+                    .build();
+        }
+        if (rows == null || rows.isEmpty() || rows.size() > importMaxRows) {
+            return Result.builder()
+                    .ok(false)
+                    .code(ResponseCode.PARAM_ERR.value)
+                    .message("一次最多导入 " + importMaxRows + " 条学习任务")
+                    .data(null)
+                    .build();
+        }
+
+        val result = taskImportService.importTaskCourses(loginUserID, rows);
+        val allSucceeded = result.getFailures().isEmpty();
+        return Result.builder()
+                .ok(allSucceeded)
+                .code(allSucceeded ? ResponseCode.TASK_UPLOAD_SUCCESS.value : ResponseCode.TASK_IMPORT_PARTIAL.value)
+                .message("成功导入 " + result.getSucceeded() + " 条，失败 " + result.getFailures().size() + " 条")
+                .data(result)
+                .build();
+    }
+
     /**
      * 根据任务ID获取该任务所属课程的相关信息以及任务的详细信息。
      *
@@ -126,9 +206,14 @@ public class TaskController {
     @RequestMapping(path = "/task/{taskID}", method = RequestMethod.GET, headers = "Accept=application/json")
     public Result task(@PathVariable String taskID) {
 
-        try {
-            val course = courseService.getCourse(taskID).orElseThrow(NullPointerException::new);
-            val taskCourseDTO = taskService.getTask(taskID).map(
+        try (val scope = lookupService.open()) {
+            // 课程和任务互不依赖，本地缓存未命中的同时查询
+            val courseLookup = scope.forkUnlessCached(courseService.getCachedCourse(taskID), () -> courseService.getCourse(taskID));
+            val taskLookup = scope.forkUnlessCached(taskService.getCachedTask(taskID), () -> taskService.getTask(taskID));
+            scope.join();
+
+            val course = courseLookup.get().orElseThrow(NullPointerException::new);
+            val taskCourseDTO = taskLookup.get().map(
                     task -> TaskCourseDTO.builder()
                             .id(task.getId())
                             .taskName(task.getTaskName())
@@ -140,7 +225,7 @@ public class TaskController {
                             .description(task.getDescription())
                             .category(task.getCategory().value)
                             .bonus(task.getBonus())
-                            .watchedCount(course.getWatchedCount())
+                            .watchedCount((int) (Optional.ofNullable(course.getWatchedCount()).orElse(0) + watchCountService.getPendingCount(taskID)))
                             .videoURL(course.getVideoURL())
                             .videoDuration(course.getVideoDuration())
                             .build()
@@ -159,26 +244,162 @@ public class TaskController {
                     .message("课程任务不存在")
                     .data(null)
                     .build();
+        } catch (LookupTimeoutException e) {
+            return Result.builder()
+                    .ok(false)
+                    .code(ResponseCode.LOOKUP_TIMEOUT.value)
+                    .message("查询超时，请稍后再试")
+                    .data(null)
+                    .build();
         }
     }
 
     /**
-     * 获取当前用户的课程任务列表
+     * 记录一次课程观看，观看次数异步批量写回数据库
+     * 同一用户在去重窗口内重复观看同一课程只计一次
      *
+     * @param taskID      任务ID
+     * @param httpSession HTTP会话对象，用于获取登录用户信息
+     * @return 是否记录成功
+     */
+    @RequestMapping(path = "/task/{taskID}/watch", method = RequestMethod.POST, headers = "Accept=application/json")
+    public Result watch(@PathVariable String taskID, HttpSession httpSession) {
+        val loginUserID = (String) httpSession.getAttribute(SessionAttr.LOGIN_USER_ID.attr);
+        if (loginUserID == null) {
+            return Result.builder()
+                    .ok(false)
+                    .code(ResponseCode.LOGIN_REQUIRE.value)
+                    .message("请先登录")
+                    .data(null)
+                    .build();
+        }
+        if (courseService.getCourse(taskID).isEmpty()) {
+            return Result.builder()
+                    .ok(false)
+                    .code(ResponseCode.NO_SUCH_TASK_COURSE.value)
+                    .message("课程任务不存在")
+                    .data(null)
+                    .build();
+        }
+
+        val counted = watchCountService.watch(loginUserID, taskID);
+
+        return Result.builder()
+                .ok(true)
+                .code(ResponseCode.SUCCESS.value)
+                .message(counted ? "观看已记录" : "近期已记录过观看")
+                .data(null)
+                .build();
+    }
+
+    /**
+     * 上报当前登录儿童的播放进度，第一次上报即开启任务，进度达到完成线时任务完成
+     * 进度在内存中合并，定期批量写入数据库
+     *
+     * @param taskID          任务ID
+     * @param taskProgressDTO 播放位置，视频时长以课程中的为准
+     * @param httpSession     HTTP会话对象，用于获取登录用户信息
+     * @return 合并后的任务记录
+     */
+    @RequestMapping(path = "/task/{taskID}/progress", method = RequestMethod.POST, headers = "Accept=application/json")
+    public Result progress(@PathVariable String taskID, @RequestBody TaskProgressDTO taskProgressDTO, HttpSession httpSession) {
+        val loginUserID = (String) httpSession.getAttribute(SessionAttr.LOGIN_USER_ID.attr);
+        if (loginUserID == null) {
+            return Result.builder()
+                    .ok(false)
+                    .code(ResponseCode.LOGIN_REQUIRE.value)
+                    .message("请先登录")
+                    .data(null)
+                    .build();
+        }
+        if (!userService.hasRole(loginUserID, Role.CHILD)) {
+            return Result.builder()
+                    .ok(false)
+                    .code(ResponseCode.UNAUTHORIZED.value)
+                    .message("只有儿童可以上报观看进度")
+                    .data(null)
+                    .build();
+        }
+        if (taskProgressDTO.getPosition() == null) {
+            return Result.builder()
+                    .ok(false)
+                    .code(ResponseCode.PARAM_ERR.value)
+                    .message("播放位置不能为空")
+                    .data(null)
+                    .build();
+        }
+        if (!taskService.existTask(taskID)) {
+            return Result.builder()
+                    .ok(false)
+                    .code(ResponseCode.NO_SUCH_TASK_COURSE.value)
+                    .message("课程任务不存在")
+                    .data(null)
+                    .build();
+        }
+
+        final TaskRecord taskRecord;
+        try {
+            taskRecord = taskProgressService.heartbeat(loginUserID, taskID, taskProgressDTO.getPosition());
+        } catch (IllegalArgumentException e) {
+            return Result.builder()
+                    .ok(false)
+                    .code(ResponseCode.PARAM_ERR.value)
+                    .message(e.getMessage())
+                    .data(null)
+                    .build();
+        }
+
+        return Result.builder()
+                .ok(true)
+                .code(ResponseCode.SUCCESS.value)
+                .message("进度已记录")
+                .data(taskRecord)
+                .build();
+    }
+
+    /**
+     * 获取当前登录儿童在任务上的记录
+     *
+     * @param taskID      任务ID
+     * @param httpSession HTTP会话对象，用于获取登录用户信息
+     * @return 任务记录，没有开启过时为 null
+     */
+    @RequestMapping(path = "/task/{taskID}/progress", method = RequestMethod.GET, headers = "Accept=application/json")
+    public Result progress(@PathVariable String taskID, HttpSession httpSession) {
+        val loginUserID = (String) httpSession.getAttribute(SessionAttr.LOGIN_USER_ID.attr);
+        if (loginUserID == null) {
+            return Result.builder()
+                    .ok(false)
+                    .code(ResponseCode.LOGIN_REQUIRE.value)
+                    .message("请先登录")
+                    .data(null)
+                    .build();
+        }
+
+        return Result.builder()
+                .ok(true)
+                .code(ResponseCode.SUCCESS.value)
+                .message("查询任务进度成功")
+                .data(taskProgressService.getProgress(loginUserID, taskID))
+                .build();
+    }
+
+    /**
+     * 分页获取当前用户的课程任务列表
+     *
+     * @param cursor      分页游标，为空时查询第一页
+     * @param limit       每页条数
      * @param httpSession HTTP会话对象，用于获取登录用户信息
      * @return 返回Result对象，包含查询结果信息
      */
     @RequestMapping(path = "/my/task", method = RequestMethod.GET, headers = "Accept=application/json")
-    public Result myTask(HttpSession httpSession) {
+    public Result myTask(@RequestParam(required = false) String cursor,
+                         @RequestParam(defaultValue = "" + Cursor.DEFAULT_LIMIT) int limit,
+                         HttpSession httpSession) {
         try {
             val loginUserID =
                     Optional.ofNullable((String) httpSession.getAttribute(SessionAttr.LOGIN_USER_ID.attr)).orElseThrow(NullPointerException::new);
-            val tasks = taskService.getMyTasks(loginUserID);
-            val courses = tasks.stream().map(
-                    task -> courseService.getCourse(task.getId()).orElseThrow(NullPointerException::new)
-            ).toList();
-
-            val taskCourseDTOs = this.concat(tasks, courses);
+            val taskCourseDTOs = taskService.getMyTaskCoursePage(loginUserID, Cursor.decode(cursor), Cursor.clampLimit(limit));
 
             return Result.builder()
                     .ok(true)
@@ -186,6 +407,13 @@ public class TaskController {
                     .message("查询我的课程任务成功")
                     .data(taskCourseDTOs)
                     .build();
+        } catch (IllegalArgumentException e) {
+            return Result.builder()
+                    .ok(false)
+                    .code(ResponseCode.PARAM_ERR.value)
+                    .message("分页游标错误")
+                    .data(null)
+                    .build();
         } catch (NullPointerException e) {
             return Result.builder()
                     .ok(false)
@@ -197,45 +425,84 @@ public class TaskController {
     }
 
     /**
-     * 查询所有学习任务列表
-     * @return 包含所有课程学习任务的Result对象
+     * 分页查询学习任务列表
+     *
+     * @param cursor 分页游标，为空时查询第一页
+     * @param limit  每页条数
+     * @return 包含一页课程学习任务的Result对象
      */
     @RequestMapping(path = "/task", method = RequestMethod.GET, headers = "Accept=application/json")
-    public Result task() {
+    public Result task(@RequestParam(required = false) String cursor,
+                       @RequestParam(defaultValue = "" + Cursor.DEFAULT_LIMIT) int limit) {
+        final Cursor pageCursor;
+        try {
+            pageCursor = Cursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return Result.builder()
+                    .ok(false)
+                    .code(ResponseCode.PARAM_ERR.value)
+                    .message("分页游标错误")
+                    .data(null)
+                    .build();
+        }
 
-        val allTasks = taskService.getAllTasks();
-        val allCourses = courseService.getAllCourses();
-        val taskCourseDTOs = this.concat(allTasks, allCourses);
+        val taskCourseDTOs = taskService.getTaskCoursePage(pageCursor, Cursor.clampLimit(limit));
 
         return Result.builder()
                 .ok(true)
                 .code(ResponseCode.SUCCESS.value)
-                .message("总共有 " + taskCourseDTOs.size() + " 个课程任务")
+                .message("本页有 " + taskCourseDTOs.getItems().size() + " 个课程任务")
                 .data(taskCourseDTOs)
                 .build();
     }
 
-    private List<TaskCourseDTO> concat(@Nonnull List<Task> tasks, @Nonnull List<Course> courses) {
-        return IntStream.range(0, tasks.size())
-                .mapToObj(i -> {
-                    val task = tasks.get(i);
-                    val course = courses.get(i);
-                    return TaskCourseDTO.builder()
-                            .id(task.getId())
-                            .taskName(task.getTaskName())
-                            .taskUploaderID(task.getTaskUploaderID())
-                            .createdTime(task.getCreatedTime())
-                            .startTime(task.getStartTime())
-                            .endTime(task.getEndTime())
-                            .status(task.getStatus().value)
-                            .description(task.getDescription())
-                            .category(task.getCategory().value)
-                            .bonus(task.getBonus())
-                            .watchedCount(course.getWatchedCount())
-                            .videoURL(course.getVideoURL())
-                            .videoDuration(course.getVideoDuration())
-                            .build();
-                }).toList();
+    /**
+     * 按名称、描述、类别、状态和完成情况搜索学习任务
+     * 搜索在内存索引中完成，只按主键查询命中的任务及其课程
+     *
+     * @param searchDTO   搜索条件，标签中的已完成、未完成指登录儿童的任务记录
+     * @param limit       最多返回的条数
+     * @param httpSession HTTP会话对象，用于获取登录用户信息
+     * @return 按相关度排序的课程任务列表
+     */
+    @RequestMapping(path = "/task/search", method = RequestMethod.POST, headers = "Accept=application/json")
+    public Result search(@RequestBody TaskCourseSearchDTO searchDTO,
+                         @RequestParam(defaultValue = "" + Cursor.DEFAULT_LIMIT) int limit,
+                         HttpSession httpSession) {
+        val loginUserID = (String) httpSession.getAttribute(SessionAttr.LOGIN_USER_ID.attr);
+        final List<String> taskIDs;
+        try {
+            taskIDs = taskSearchService.search(searchDTO, loginUserID, Cursor.clampLimit(limit));
+        } catch (IllegalArgumentException e) {
+            return Result.builder()
+                    .ok(false)
+                    .code(ResponseCode.PARAM_ERR.value)
+                    .message(e.getMessage())
+                    .data(null)
+                    .build();
+        } catch (LoginRequiredException e) {
+            return Result.builder()
+                    .ok(false)
+                    .code(ResponseCode.LOGIN_REQUIRE.value)
+                    .message(e.getMessage())
+                    .data(null)
+                    .build();
+        }
+
+        // 数据库返回的顺序不确定，按搜索结果的顺序重排
+        val taskCourses = taskService.getTaskCourses(taskIDs).stream()
+                .collect(Collectors.toMap(TaskCourseDTO::getId, Function.identity()));
+        val taskCourseDTOs = taskIDs.stream()
+                .map(taskCourses::get)
+                .filter(Objects::nonNull)
+                .toList();
+
+        return Result.builder()
+                .ok(true)
+                .code(ResponseCode.SUCCESS.value)
+                .message("搜索到 " + taskCourseDTOs.size() + " 个课程任务")
+                .data(taskCourseDTOs)
+                .build();
     }
 
 }
@@ -1,11 +1,21 @@
 package com.github.nanoyou.akariyumetabackend.dao;
 
+import com.github.nanoyou.akariyumetabackend.common.schema.UsesIndex;
 import com.github.nanoyou.akariyumetabackend.entity.dynamic.Comment;
 import jakarta.annotation.Nonnull;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 
 public interface CommentDao extends JpaRepository<Comment, String> {
@@ -13,9 +23,70 @@ public interface CommentDao extends JpaRepository<Comment, String> {
     @Override
     Comment saveAndFlush(Comment comment);
 
-    List<Comment> findByCommenterID(@Nonnull String commenterID);
-
     Optional<Comment> findById(@Nonnull String id);
 
     List<Comment> findByReplyTo(@Nonnull String replyTo);
+
+    /**
+     * 查询一批用户发表的动态（根评论）
+     *
+     * @param commenterIDs 发表者ID集合
+     * @param pageable     排序和条数限制
+     * @return 动态列表
+     */
+    List<Comment> findByCommenterIDInAndReplyToIsNull(@Nonnull Collection<String> commenterIDs, @Nonnull Pageable pageable);
+
+    /**
+     * 按 (createTime, id) 倒序查询一批用户发表的、位于游标之后的动态（根评论）
+     *
+     * @param commenterIDs 发表者ID集合
+     * @param createTime   游标的发表时间
+     * @param id           游标的评论ID
+     * @param pageable     条数限制
+     * @return 动态列表
+     */
+    @UsesIndex(table = "comment", index = "idx_comment_commenter_root_time")
+    @Query("""
+            SELECT c FROM Comment c
+            WHERE c.commenterID IN :commenterIDs AND c.replyTo IS NULL
+            AND (c.createTime < :createTime OR (c.createTime = :createTime AND c.id < :id))
+            ORDER BY c.createTime DESC, c.id DESC
+            """)
+    List<Comment> findDynamicPageByCommenterIDs(@Nonnull @Param("commenterIDs") Collection<String> commenterIDs,
+                                                @Nonnull @Param("createTime") LocalDateTime createTime,
+                                                @Nonnull @Param("id") String id,
+                                                @Nonnull Pageable pageable);
+
+    /**
+     * 通过递归 CTE 一次性查出以 rootID 为根的整棵评论树（包含根节点本身）
+     * H2 推断递归 CTE 的列类型时会把 tree.id 当作字符串，连接条件中显式转换回 BINARY(16)
+     *
+     * @param rootID 根评论ID 的二进制形式，见 {@link com.github.nanoyou.akariyumetabackend.common.id.CompactUuid}
+     * @return 子树中的所有评论，按发表时间升序
+     */
+    @UsesIndex(table = "comment", index = "PRIMARY")
+    @UsesIndex(table = "comment", index = "idx_comment_reply_to")
+    @Query(value = """
+            WITH RECURSIVE tree (id, commenterid, content, create_time, reply_to) AS (
+                SELECT c.id, c.commenterid, c.content, c.create_time, c.reply_to FROM comment c WHERE c.id = :rootID
+                UNION ALL
+                SELECT c.id, c.commenterid, c.content, c.create_time, c.reply_to FROM comment c INNER JOIN tree t ON c.reply_to = CAST(t.id AS BINARY(16))
+            )
+            SELECT * FROM tree ORDER BY create_time
+            """, nativeQuery = true)
+    List<Comment> findSubtree(@Nonnull @Param("rootID") byte[] rootID);
+
+    /**
+     * 按ID顺序流式读取所有评论，用于导出
+     * 需要在只读事务中使用，读取完毕后关闭流
+     *
+     * @return 评论流
+     */
+    @UsesIndex(table = "comment", index = "PRIMARY")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT c FROM Comment c ORDER BY c.id")
+    Stream<Comment> streamAll();
 }
@@ -4,7 +4,7 @@ import com.github.nanoyou.akariyumetabackend.entity.task.Course;
 import jakarta.annotation.Nonnull;
 import org.springframework.data.jpa.repository.JpaRepository;
 
-public interface CourseDao extends JpaRepository<Course, String> {
+public interface CourseDao extends JpaRepository<Course, String>, CourseDaoCustom {
     @Override
     Course saveAndFlush(@Nonnull Course course);
 }
@@ -0,0 +1,15 @@
+package com.github.nanoyou.akariyumetabackend.dao;
+
+import jakarta.annotation.Nonnull;
+
+import java.util.Map;
+
+public interface CourseDaoCustom {
+
+    /**
+     * 批量累加课程的观看次数，所有课程在一次 JDBC 批处理中更新
+     *
+     * @param deltas 课程ID到观看次数增量的映射
+     */
+    void increaseWatchedCounts(@Nonnull Map<String, Long> deltas);
+}
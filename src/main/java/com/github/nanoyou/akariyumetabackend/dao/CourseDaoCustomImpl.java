@@ -0,0 +1,32 @@
+package com.github.nanoyou.akariyumetabackend.dao;
+
+import jakarta.annotation.Nonnull;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Map;
+
+public class CourseDaoCustomImpl implements CourseDaoCustom {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CourseDaoCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void increaseWatchedCounts(@Nonnull Map<String, Long> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        val args = new ArrayList<Object[]>(deltas.size());
+        deltas.forEach((taskID, delta) -> args.add(new Object[]{delta, taskID}));
+        jdbcTemplate.batchUpdate(
+                "UPDATE course SET watched_count = COALESCE(watched_count, 0) + ? WHERE taskid = ?",
+                args
+        );
+    }
+}
@@ -0,0 +1,25 @@
+package com.github.nanoyou.akariyumetabackend.dao;
+
+import com.github.nanoyou.akariyumetabackend.entity.donate.DonateGoods;
+import jakarta.annotation.Nonnull;
+
+import java.util.List;
+
+public interface DonateGoodsDaoCustom {
+
+    /**
+     * 批量追加捐物流水，一次往返写入所有行
+     * 幂等键与已有流水冲突时整批失败（DuplicateKeyException），由调用方重新去重后重试
+     *
+     * @param donations 捐物
+     */
+    void appendAll(@Nonnull List<DonateGoods> donations);
+
+    /**
+     * 查找与给定捐物有相同捐助人和幂等键的已有流水
+     *
+     * @param donations 捐物，只使用 donatorID 和 idempotencyKey
+     * @return 已经记过账的流水
+     */
+    List<DonateGoods> findExisting(@Nonnull List<DonateGoods> donations);
+}
@@ -0,0 +1,71 @@
+package com.github.nanoyou.akariyumetabackend.dao;
+
+import com.github.nanoyou.akariyumetabackend.common.id.CompactUuid;
+import com.github.nanoyou.akariyumetabackend.entity.donate.DonateGoods;
+import jakarta.annotation.Nonnull;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class DonateGoodsDaoCustomImpl implements DonateGoodsDaoCustom {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DonateGoodsDaoCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void appendAll(@Nonnull List<DonateGoods> donations) {
+        if (donations.isEmpty()) {
+            return;
+        }
+        val args = donations.stream().map(donation -> new Object[]{
+                CompactUuid.toBytes(donation.getId()),
+                donation.getAmount(),
+                Timestamp.valueOf(donation.getCreatedTime()),
+                donation.getDonatorID(),
+                CompactUuid.toBytes(donation.getGoodsID()),
+                donation.getTotalMoney(),
+                donation.getWishes(),
+                donation.getIdempotencyKey()
+        }).toList();
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO donate_goods (id, amount, created_time, donatorid, goodsid, total_money, wishes, idempotency_key) VALUES (?, ?, ?, ?, ?, ?, ?, ?)",
+                args
+        );
+    }
+
+    @Override
+    public List<DonateGoods> findExisting(@Nonnull List<DonateGoods> donations) {
+        if (donations.isEmpty()) {
+            return List.of();
+        }
+        val args = new ArrayList<Object>(donations.size() * 2);
+        donations.forEach(donation -> {
+            args.add(donation.getDonatorID());
+            args.add(donation.getIdempotencyKey());
+        });
+        return jdbcTemplate.query(
+                "SELECT id, amount, created_time, donatorid, goodsid, total_money, wishes, idempotency_key FROM donate_goods WHERE (donatorid, idempotency_key) IN ("
+                        + String.join(", ", Collections.nCopies(donations.size(), "(?, ?)")) + ")",
+                (rs, rowNum) -> DonateGoods.builder()
+                        .id(CompactUuid.toString(rs.getBytes("id")))
+                        .amount(rs.getLong("amount"))
+                        .createdTime(rs.getTimestamp("created_time").toLocalDateTime())
+                        .donatorID(rs.getString("donatorid"))
+                        .goodsID(CompactUuid.toString(rs.getBytes("goodsid")))
+                        .totalMoney(rs.getLong("total_money"))
+                        .wishes(rs.getString("wishes"))
+                        .idempotencyKey(rs.getString("idempotency_key"))
+                        .build(),
+                args.toArray()
+        );
+    }
+}
@@ -0,0 +1,7 @@
+package com.github.nanoyou.akariyumetabackend.dao;
+
+import com.github.nanoyou.akariyumetabackend.entity.donate.DonateMoney;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface DonateMoneyDao extends JpaRepository<DonateMoney, String>, DonateMoneyDaoCustom {
+}
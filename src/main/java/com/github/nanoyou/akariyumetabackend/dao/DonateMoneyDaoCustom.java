@@ -0,0 +1,25 @@
+package com.github.nanoyou.akariyumetabackend.dao;
+
+import com.github.nanoyou.akariyumetabackend.entity.donate.DonateMoney;
+import jakarta.annotation.Nonnull;
+
+import java.util.List;
+
+public interface DonateMoneyDaoCustom {
+
+    /**
+     * 批量追加捐款流水，一次往返写入所有行
+     * 幂等键与已有流水冲突时整批失败（DuplicateKeyException），由调用方重新去重后重试
+     *
+     * @param donations 捐款
+     */
+    void appendAll(@Nonnull List<DonateMoney> donations);
+
+    /**
+     * 查找与给定捐款有相同捐助人和幂等键的已有流水
+     *
+     * @param donations 捐款，只使用 donatorID 和 idempotencyKey
+     * @return 已经记过账的流水
+     */
+    List<DonateMoney> findExisting(@Nonnull List<DonateMoney> donations);
+}
@@ -0,0 +1,69 @@
+package com.github.nanoyou.akariyumetabackend.dao;
+
+import com.github.nanoyou.akariyumetabackend.common.id.CompactUuid;
+import com.github.nanoyou.akariyumetabackend.entity.donate.DonateMoney;
+import jakarta.annotation.Nonnull;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class DonateMoneyDaoCustomImpl implements DonateMoneyDaoCustom {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DonateMoneyDaoCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void appendAll(@Nonnull List<DonateMoney> donations) {
+        if (donations.isEmpty()) {
+            return;
+        }
+        val args = donations.stream().map(donation -> new Object[]{
+                CompactUuid.toBytes(donation.getId()),
+                donation.getAmount(),
+                Timestamp.valueOf(donation.getCreatedTime()),
+                donation.getDonatorID(),
+                donation.getDoneeID(),
+                donation.getWishes(),
+                donation.getIdempotencyKey()
+        }).toList();
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO donate_money (id, amount, created_time, donatorid, doneeid, wishes, idempotency_key) VALUES (?, ?, ?, ?, ?, ?, ?)",
+                args
+        );
+    }
+
+    @Override
+    public List<DonateMoney> findExisting(@Nonnull List<DonateMoney> donations) {
+        if (donations.isEmpty()) {
+            return List.of();
+        }
+        val args = new ArrayList<Object>(donations.size() * 2);
+        donations.forEach(donation -> {
+            args.add(donation.getDonatorID());
+            args.add(donation.getIdempotencyKey());
+        });
+        return jdbcTemplate.query(
+                "SELECT id, amount, created_time, donatorid, doneeid, wishes, idempotency_key FROM donate_money WHERE (donatorid, idempotency_key) IN ("
+                        + String.join(", ", Collections.nCopies(donations.size(), "(?, ?)")) + ")",
+                (rs, rowNum) -> DonateMoney.builder()
+                        .id(CompactUuid.toString(rs.getBytes("id")))
+                        .amount(rs.getLong("amount"))
+                        .createdTime(rs.getTimestamp("created_time").toLocalDateTime())
+                        .donatorID(rs.getString("donatorid"))
+                        .doneeID(rs.getString("doneeid"))
+                        .wishes(rs.getString("wishes"))
+                        .idempotencyKey(rs.getString("idempotency_key"))
+                        .build(),
+                args.toArray()
+        );
+    }
+}
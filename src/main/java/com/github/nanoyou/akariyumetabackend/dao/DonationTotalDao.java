@@ -0,0 +1,22 @@
+package com.github.nanoyou.akariyumetabackend.dao;
+
+import com.github.nanoyou.akariyumetabackend.common.enumeration.DonationTotalKind;
+import com.github.nanoyou.akariyumetabackend.entity.donate.DonationTotal;
+import jakarta.annotation.Nonnull;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface DonationTotalDao extends JpaRepository<DonationTotal, DonationTotal.Key>, DonationTotalDaoCustom {
+
+    /**
+     * 排行榜：某一维度下累计钱数最多的若干条
+     * 沿 idx_donation_total_rank 倒序扫描，只读取需要的行
+     *
+     * @param kind     汇总维度
+     * @param pageable 条数
+     * @return 汇总，按累计钱数倒序
+     */
+    List<DonationTotal> findByKindOrderByTotalMoneyDesc(@Nonnull DonationTotalKind kind, @Nonnull Pageable pageable);
+}
@@ -0,0 +1,17 @@
+package com.github.nanoyou.akariyumetabackend.dao;
+
+import com.github.nanoyou.akariyumetabackend.entity.donate.DonationTotal;
+import jakarta.annotation.Nonnull;
+
+import java.util.List;
+
+public interface DonationTotalDaoCustom {
+
+    /**
+     * 批量给汇总行加上增量，汇总行不存在时创建
+     * 按主键顺序写入，多个节点同时记账时加锁顺序一致，不会互相死锁
+     *
+     * @param deltas 增量，totalMoney / totalAmount / donationCount 为要加上的值
+     */
+    void increaseAll(@Nonnull List<DonationTotal> deltas);
+}
@@ -0,0 +1,43 @@
+package com.github.nanoyou.akariyumetabackend.dao;
+
+import com.github.nanoyou.akariyumetabackend.entity.donate.DonationTotal;
+import jakarta.annotation.Nonnull;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Comparator;
+import java.util.List;
+
+public class DonationTotalDaoCustomImpl implements DonationTotalDaoCustom {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DonationTotalDaoCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void increaseAll(@Nonnull List<DonationTotal> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        val args = deltas.stream()
+                .sorted(Comparator.comparing(DonationTotal::getKind).thenComparing(DonationTotal::getOwnerID))
+                .map(delta -> new Object[]{
+                        delta.getKind().ordinal(),
+                        delta.getOwnerID(),
+                        delta.getTotalMoney(),
+                        delta.getTotalAmount(),
+                        delta.getDonationCount(),
+                        delta.getTotalMoney(),
+                        delta.getTotalAmount(),
+                        delta.getDonationCount()
+                }).toList();
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO donation_total (kind, ownerid, total_money, total_amount, donation_count) VALUES (?, ?, ?, ?, ?)
+                ON DUPLICATE KEY UPDATE total_money = total_money + ?, total_amount = total_amount + ?, donation_count = donation_count + ?
+                """, args);
+    }
+}
@@ -0,0 +1,7 @@
+package com.github.nanoyou.akariyumetabackend.dao;
+
+import com.github.nanoyou.akariyumetabackend.entity.donate.GoodsInfo;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface GoodsInfoDao extends JpaRepository<GoodsInfo, String> {
+}
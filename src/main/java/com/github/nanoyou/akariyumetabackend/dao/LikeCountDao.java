@@ -0,0 +1,29 @@
+package com.github.nanoyou.akariyumetabackend.dao;
+
+import com.github.nanoyou.akariyumetabackend.common.schema.UsesIndex;
+import com.github.nanoyou.akariyumetabackend.entity.dynamic.LikeCount;
+import jakarta.annotation.Nonnull;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface LikeCountDao extends JpaRepository<LikeCount, String>, LikeCountDaoCustom {
+
+    /**
+     * 原子地给评论的点赞数加上 delta，计数行不存在时创建，同时记录写回时间供对账使用
+     *
+     * @param commentID 评论ID 的二进制形式，见 {@link com.github.nanoyou.akariyumetabackend.common.id.CompactUuid}
+     * @param delta     增量，可以为负
+     * @return 影响行数
+     */
+    @UsesIndex(table = "like_count", index = "PRIMARY")
+    @Modifying
+    @Transactional
+    @Query(value = """
+            INSERT INTO like_count (commentid, like_count, updated_time) VALUES (:commentID, :delta, CURRENT_TIMESTAMP(6))
+            ON DUPLICATE KEY UPDATE like_count = like_count + :delta, updated_time = CURRENT_TIMESTAMP(6)
+            """, nativeQuery = true)
+    int increase(@Nonnull @Param("commentID") byte[] commentID, @Param("delta") long delta);
+}
@@ -0,0 +1,31 @@
+package com.github.nanoyou.akariyumetabackend.dao;
+
+import jakarta.annotation.Nonnull;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+public interface LikeCountDaoCustom {
+
+    /**
+     * 查找 since 之后有新点赞或写回过增量的评论
+     * 分别走 Like 表和计数表上的时间索引，不扫描整张表
+     *
+     * @param since 起始时间（含）
+     * @return 评论ID集合
+     */
+    @Nonnull
+    Set<String> findTouchedSince(@Nonnull LocalDateTime since);
+
+    /**
+     * 统计给定评论在 Like 表中的点赞数与计数表不一致的部分
+     * 按主键前缀计数，每批一次查询
+     *
+     * @param commentIDs 评论ID集合
+     * @return 评论ID到偏差（Like 表中的点赞数减去计数表中的点赞数）的映射，只包含有偏差的评论
+     */
+    @Nonnull
+    Map<String, Long> findDrifts(@Nonnull Collection<String> commentIDs);
+}
@@ -0,0 +1,62 @@
+package com.github.nanoyou.akariyumetabackend.dao;
+
+import com.github.nanoyou.akariyumetabackend.common.id.CompactUuid;
+import jakarta.annotation.Nonnull;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Stream;
+
+public class LikeCountDaoCustomImpl implements LikeCountDaoCustom {
+
+    /**
+     * 每条统计查询的评论数
+     */
+    private static final int DRIFT_BATCH = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private LikeCountDaoCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Nonnull
+    @Override
+    public Set<String> findTouchedSince(@Nonnull LocalDateTime since) {
+        val touched = new HashSet<String>();
+        jdbcTemplate.query("""
+                SELECT commentid FROM `like` WHERE create_time >= ?
+                UNION
+                SELECT commentid FROM like_count WHERE updated_time >= ?
+                """, rs -> {
+            touched.add(CompactUuid.toString(rs.getBytes("commentid")));
+        }, since, since);
+        return touched;
+    }
+
+    @Nonnull
+    @Override
+    public Map<String, Long> findDrifts(@Nonnull Collection<String> commentIDs) {
+        val keys = commentIDs.stream().map(CompactUuid::toBytes).filter(Objects::nonNull).toList();
+        val drifts = new HashMap<String, Long>();
+        for (int i = 0; i < keys.size(); i += DRIFT_BATCH) {
+            val batch = keys.subList(i, Math.min(i + DRIFT_BATCH, keys.size()));
+            val placeholders = String.join(", ", Collections.nCopies(batch.size(), "?"));
+            jdbcTemplate.query("""
+                    SELECT commentid, SUM(actual) - SUM(stored) AS drift
+                    FROM (SELECT commentid, COUNT(*) AS actual, 0 AS stored FROM `like` WHERE commentid IN (%s) GROUP BY commentid
+                          UNION ALL
+                          SELECT commentid, 0, COALESCE(like_count, 0) FROM like_count WHERE commentid IN (%s)) t
+                    GROUP BY commentid
+                    HAVING SUM(actual) <> SUM(stored)
+                    """.formatted(placeholders, placeholders), rs -> {
+                drifts.put(CompactUuid.toString(rs.getBytes("commentid")), rs.getLong("drift"));
+            }, Stream.concat(batch.stream(), batch.stream()).toArray());
+        }
+        return drifts;
+    }
+}
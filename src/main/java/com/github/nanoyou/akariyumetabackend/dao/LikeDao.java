@@ -1,13 +1,7 @@
 package com.github.nanoyou.akariyumetabackend.dao;
 
 import com.github.nanoyou.akariyumetabackend.entity.dynamic.Like;
-import jakarta.annotation.Nonnull;
 import org.springframework.data.jpa.repository.JpaRepository;
 
-import java.util.List;
-import java.util.Optional;
-
-public interface LikeDao extends JpaRepository<Like, String> {
-    List<Like> findByCommentID(@Nonnull String commentID);
-
+public interface LikeDao extends JpaRepository<Like, Like._LikeCombinedPrimaryKey> {
 }
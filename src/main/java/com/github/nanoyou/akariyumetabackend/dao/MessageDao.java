@@ -0,0 +1,26 @@
+package com.github.nanoyou.akariyumetabackend.dao;
+
+import com.github.nanoyou.akariyumetabackend.entity.chat.Message;
+import jakarta.annotation.Nonnull;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface MessageDao extends JpaRepository<Message, Message.Key>, MessageDaoCustom {
+
+    /**
+     * 按 ID 倒序读取 senderID 发给 receiverID 的、ID 小于 id 的消息
+     * 只扫描主键中该方向会话所在的一段
+     *
+     * @param senderID   发送者ID
+     * @param receiverID 接收者ID
+     * @param id         上一页最后一条消息的ID
+     * @param pageable   条数
+     * @return 消息，按 ID 倒序
+     */
+    List<Message> findBySenderIDAndReceiverIDAndIdLessThanOrderByIdDesc(@Nonnull String senderID,
+                                                                       @Nonnull String receiverID,
+                                                                       @Nonnull String id,
+                                                                       @Nonnull Pageable pageable);
+}
@@ -0,0 +1,17 @@
+package com.github.nanoyou.akariyumetabackend.dao;
+
+import com.github.nanoyou.akariyumetabackend.entity.chat.Message;
+import jakarta.annotation.Nonnull;
+
+import java.util.List;
+
+public interface MessageDaoCustom {
+
+    /**
+     * 批量追加消息，一次往返写入所有行
+     * 已经存在的消息（同一条消息被重复投递）会被忽略
+     *
+     * @param messages 消息
+     */
+    void appendAll(@Nonnull List<Message> messages);
+}
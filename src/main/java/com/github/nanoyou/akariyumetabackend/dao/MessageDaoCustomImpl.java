@@ -0,0 +1,40 @@
+package com.github.nanoyou.akariyumetabackend.dao;
+
+import com.github.nanoyou.akariyumetabackend.common.id.CompactUuid;
+import com.github.nanoyou.akariyumetabackend.entity.chat.Message;
+import jakarta.annotation.Nonnull;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+public class MessageDaoCustomImpl implements MessageDaoCustom {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MessageDaoCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void appendAll(@Nonnull List<Message> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        val args = messages.stream().map(message -> new Object[]{
+                message.getSenderID(),
+                message.getReceiverID(),
+                CompactUuid.toBytes(message.getId()),
+                message.getContent(),
+                Timestamp.valueOf(message.getSendTime()),
+                message.getType() == null ? null : message.getType().ordinal()
+        }).toList();
+        jdbcTemplate.batchUpdate(
+                "INSERT IGNORE INTO message (senderid, receiverid, id, content, send_time, type) VALUES (?, ?, ?, ?, ?, ?)",
+                args
+        );
+    }
+}
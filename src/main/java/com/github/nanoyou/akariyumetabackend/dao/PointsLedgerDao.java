@@ -0,0 +1,43 @@
+package com.github.nanoyou.akariyumetabackend.dao;
+
+import com.github.nanoyou.akariyumetabackend.common.schema.UsesIndex;
+import com.github.nanoyou.akariyumetabackend.entity.points.PointsLedger;
+import jakarta.annotation.Nonnull;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface PointsLedgerDao extends JpaRepository<PointsLedger, PointsLedger.Key>, PointsLedgerDaoCustom {
+
+    /**
+     * 按主键顺序流式读取全部流水，同一儿童的流水相邻，用于重建排行榜
+     * 必须在事务中调用并关闭 Stream
+     *
+     * @return 全部积分流水
+     */
+    @UsesIndex(table = "points_ledger", index = "PRIMARY")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT l FROM PointsLedger l ORDER BY l.childID, l.taskID")
+    Stream<PointsLedger> streamAll();
+
+    /**
+     * @param since 记账时间下限
+     * @return 这个时间之后有新流水的儿童
+     */
+    @UsesIndex(table = "points_ledger", index = "idx_points_ledger_created_time")
+    @Query("SELECT DISTINCT l.childID FROM PointsLedger l WHERE l.createdTime >= :since")
+    List<String> findChildIDsCreatedSince(@Nonnull @Param("since") LocalDateTime since);
+
+    List<PointsLedger> findByChildIDIn(@Nonnull Collection<String> childIDs);
+}
@@ -0,0 +1,25 @@
+package com.github.nanoyou.akariyumetabackend.dao;
+
+import com.github.nanoyou.akariyumetabackend.entity.points.PointsLedger;
+import jakarta.annotation.Nonnull;
+
+import java.util.List;
+
+public interface PointsLedgerDaoCustom {
+
+    /**
+     * 批量追加积分流水，一次往返写入所有行
+     * 与已有流水主键冲突时整批失败（DuplicateKeyException），由调用方重新去重后重试
+     *
+     * @param entries 积分流水
+     */
+    void appendAll(@Nonnull List<PointsLedger> entries);
+
+    /**
+     * 查找与给定流水主键相同的已有流水
+     *
+     * @param entries 积分流水，只使用 childID 和 taskID
+     * @return 已经记过账的流水的主键
+     */
+    List<PointsLedger.Key> findExisting(@Nonnull List<PointsLedger> entries);
+}
@@ -0,0 +1,58 @@
+package com.github.nanoyou.akariyumetabackend.dao;
+
+import com.github.nanoyou.akariyumetabackend.entity.points.PointsLedger;
+import jakarta.annotation.Nonnull;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class PointsLedgerDaoCustomImpl implements PointsLedgerDaoCustom {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PointsLedgerDaoCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void appendAll(@Nonnull List<PointsLedger> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        val args = entries.stream().map(entry -> new Object[]{
+                entry.getChildID(),
+                entry.getTaskID(),
+                entry.getPoints(),
+                entry.getCategory() == null ? null : entry.getCategory().ordinal(),
+                Timestamp.valueOf(entry.getCreatedTime())
+        }).toList();
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO points_ledger (childid, taskid, points, category, created_time) VALUES (?, ?, ?, ?, ?)",
+                args
+        );
+    }
+
+    @Override
+    public List<PointsLedger.Key> findExisting(@Nonnull List<PointsLedger> entries) {
+        if (entries.isEmpty()) {
+            return List.of();
+        }
+        val args = new ArrayList<Object>(entries.size() * 2);
+        entries.forEach(entry -> {
+            args.add(entry.getChildID());
+            args.add(entry.getTaskID());
+        });
+        return jdbcTemplate.query(
+                "SELECT childid, taskid FROM points_ledger WHERE (childid, taskid) IN ("
+                        + String.join(", ", Collections.nCopies(entries.size(), "(?, ?)")) + ")",
+                (rs, rowNum) -> new PointsLedger.Key(rs.getString("childid"), rs.getString("taskid")),
+                args.toArray()
+        );
+    }
+}
@@ -0,0 +1,7 @@
+package com.github.nanoyou.akariyumetabackend.dao;
+
+import com.github.nanoyou.akariyumetabackend.entity.points.PointsTotal;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface PointsTotalDao extends JpaRepository<PointsTotal, PointsTotal.Key>, PointsTotalDaoCustom {
+}
@@ -0,0 +1,25 @@
+package com.github.nanoyou.akariyumetabackend.dao;
+
+import com.github.nanoyou.akariyumetabackend.entity.points.PointsTotal;
+import jakarta.annotation.Nonnull;
+
+import java.util.List;
+
+public interface PointsTotalDaoCustom {
+
+    /**
+     * 批量给汇总行加上增量，汇总行不存在时创建
+     * 按主键顺序写入，多个节点同时记账时加锁顺序一致，不会互相死锁
+     *
+     * @param deltas 增量，points 为要加上的值
+     */
+    void increaseAll(@Nonnull List<PointsTotal> deltas);
+
+    /**
+     * 一次查询读取多个汇总行
+     *
+     * @param keys 主键
+     * @return 存在的汇总行
+     */
+    List<PointsTotal> findAll(@Nonnull List<PointsTotal.Key> keys);
+}
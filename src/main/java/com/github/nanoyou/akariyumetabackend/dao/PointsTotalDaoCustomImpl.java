@@ -0,0 +1,69 @@
+package com.github.nanoyou.akariyumetabackend.dao;
+
+import com.github.nanoyou.akariyumetabackend.common.enumeration.PointsTotalKind;
+import com.github.nanoyou.akariyumetabackend.entity.points.PointsTotal;
+import jakarta.annotation.Nonnull;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+public class PointsTotalDaoCustomImpl implements PointsTotalDaoCustom {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PointsTotalDaoCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void increaseAll(@Nonnull List<PointsTotal> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        val args = deltas.stream()
+                .sorted(Comparator.comparing(PointsTotal::getKind)
+                        .thenComparing(PointsTotal::getPeriod)
+                        .thenComparing(PointsTotal::getChildID))
+                .map(delta -> new Object[]{
+                        delta.getKind().ordinal(),
+                        delta.getPeriod(),
+                        delta.getChildID(),
+                        delta.getPoints(),
+                        delta.getPoints()
+                }).toList();
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO points_total (kind, period, childid, points) VALUES (?, ?, ?, ?)
+                ON DUPLICATE KEY UPDATE points = points + ?
+                """, args);
+    }
+
+    @Override
+    public List<PointsTotal> findAll(@Nonnull List<PointsTotal.Key> keys) {
+        if (keys.isEmpty()) {
+            return List.of();
+        }
+        val args = new ArrayList<Object>(keys.size() * 3);
+        keys.forEach(key -> {
+            args.add(key.getKind().ordinal());
+            args.add(key.getPeriod());
+            args.add(key.getChildID());
+        });
+        return jdbcTemplate.query(
+                "SELECT kind, period, childid, points FROM points_total WHERE (kind, period, childid) IN ("
+                        + String.join(", ", Collections.nCopies(keys.size(), "(?, ?, ?)")) + ")",
+                (rs, rowNum) -> PointsTotal.builder()
+                        .kind(PointsTotalKind.values()[rs.getInt("kind")])
+                        .period(rs.getString("period"))
+                        .childID(rs.getString("childid"))
+                        .points(rs.getLong("points"))
+                        .build(),
+                args.toArray()
+        );
+    }
+}
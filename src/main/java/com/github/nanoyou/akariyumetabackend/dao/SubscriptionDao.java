@@ -9,4 +9,8 @@ import java.util.List;
 
 public interface SubscriptionDao extends JpaRepository<Subscription, Subscription._CombinedPrimaryKey> {
     List<Subscription> findByCombinedPrimaryKeyFollowerID(@Nonnull String followerID);
+
+    List<Subscription> findByCombinedPrimaryKeyFolloweeID(@Nonnull String followeeID);
+
+    long countByCombinedPrimaryKeyFolloweeID(@Nonnull String followeeID);
 }
@@ -1,12 +1,26 @@
 package com.github.nanoyou.akariyumetabackend.dao;
 
+import com.github.nanoyou.akariyumetabackend.common.enumeration.TaskStatus;
+import com.github.nanoyou.akariyumetabackend.common.schema.UsesIndex;
+import com.github.nanoyou.akariyumetabackend.dto.task.TaskCourseDTO;
 import com.github.nanoyou.akariyumetabackend.entity.task.Task;
 import jakarta.annotation.Nonnull;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface TaskDao extends JpaRepository<Task, String> {
     @Override
@@ -17,4 +31,136 @@ public interface TaskDao extends JpaRepository<Task, String> {
 
     @Override
     boolean existsById(String id);
+
+    /**
+     * 一次查询出一批任务及其课程
+     *
+     * @param ids 任务ID集合
+     * @return 任务课程列表，没有课程的任务不包含在内
+     */
+    @UsesIndex(table = "task", index = "PRIMARY")
+    @UsesIndex(table = "course", index = "PRIMARY")
+    @Query("""
+            SELECT new com.github.nanoyou.akariyumetabackend.dto.task.TaskCourseDTO(t, c)
+            FROM Task t JOIN Course c ON c.taskID = t.id
+            WHERE t.id IN :ids
+            """)
+    List<TaskCourseDTO> findTaskCoursesByIDs(@Nonnull @Param("ids") Collection<String> ids);
+
+    /**
+     * 按 (createdTime, id) 倒序查询游标之后的任务及其课程
+     *
+     * @param createdTime 游标的创建时间
+     * @param id          游标的任务ID
+     * @param pageable    条数限制
+     * @return 任务课程列表
+     */
+    @UsesIndex(table = "task", index = "idx_task_created")
+    @UsesIndex(table = "course", index = "PRIMARY")
+    @Query("""
+            SELECT new com.github.nanoyou.akariyumetabackend.dto.task.TaskCourseDTO(t, c)
+            FROM Task t JOIN Course c ON c.taskID = t.id
+            WHERE t.createdTime < :createdTime OR (t.createdTime = :createdTime AND t.id < :id)
+            ORDER BY t.createdTime DESC, t.id DESC
+            """)
+    List<TaskCourseDTO> findTaskCoursePage(@Nonnull @Param("createdTime") LocalDateTime createdTime,
+                                           @Nonnull @Param("id") String id,
+                                           @Nonnull Pageable pageable);
+
+    /**
+     * 按 (createdTime, id) 倒序查询儿童开启过的、位于游标之后的任务及其课程
+     *
+     * @param childID     儿童ID
+     * @param createdTime 游标的创建时间
+     * @param id          游标的任务ID
+     * @param pageable    条数限制
+     * @return 任务课程列表
+     */
+    @UsesIndex(table = "task_record", index = "PRIMARY")
+    @UsesIndex(table = "course", index = "PRIMARY")
+    @Query("""
+            SELECT new com.github.nanoyou.akariyumetabackend.dto.task.TaskCourseDTO(t, c)
+            FROM TaskRecord r
+            JOIN Task t ON t.id = r.taskRecordCombinedPrimaryKey.taskID
+            JOIN Course c ON c.taskID = t.id
+            WHERE r.taskRecordCombinedPrimaryKey.childID = :childID
+            AND (t.createdTime < :createdTime OR (t.createdTime = :createdTime AND t.id < :id))
+            ORDER BY t.createdTime DESC, t.id DESC
+            """)
+    List<TaskCourseDTO> findTaskCoursePageByChildID(@Nonnull @Param("childID") String childID,
+                                                    @Nonnull @Param("createdTime") LocalDateTime createdTime,
+                                                    @Nonnull @Param("id") String id,
+                                                    @Nonnull Pageable pageable);
+
+    /**
+     * 按ID顺序流式读取所有任务及其课程，用于导出
+     * 需要在只读事务中使用，读取完毕后关闭流
+     *
+     * @return 任务课程流
+     */
+    @UsesIndex(table = "task", index = "PRIMARY")
+    @UsesIndex(table = "course", index = "PRIMARY")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+            SELECT new com.github.nanoyou.akariyumetabackend.dto.task.TaskCourseDTO(t, c)
+            FROM Task t JOIN Course c ON c.taskID = t.id
+            ORDER BY t.id
+            """)
+    Stream<TaskCourseDTO> streamTaskCourses();
+
+    /**
+     * 按创建时间顺序流式读取所有任务，用于建立搜索索引
+     * 需要在只读事务中使用，读取完毕后关闭流
+     *
+     * @return 任务流
+     */
+    @UsesIndex(table = "task", index = "idx_task_created")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT t FROM Task t ORDER BY t.createdTime, t.id")
+    Stream<Task> streamAllByCreatedTime();
+
+    /**
+     * 查询开始时间不晚于指定时间、但还未开始的任务，包括早已开始而状态未更新的
+     *
+     * @param until 截止时间
+     * @return 任务列表
+     */
+    @UsesIndex(table = "task", index = "idx_task_status_start")
+    @Query("SELECT t FROM Task t WHERE t.status = :status AND t.startTime <= :until")
+    List<Task> findStartingBefore(@Nonnull @Param("status") TaskStatus status,
+                                  @Nonnull @Param("until") LocalDateTime until);
+
+    /**
+     * 查询结束时间不晚于指定时间、但还未结束的任务，包括早已结束而状态未更新的
+     *
+     * @param statuses 未结束的状态
+     * @param until    截止时间
+     * @return 任务列表
+     */
+    @UsesIndex(table = "task", index = "idx_task_status_end")
+    @Query("SELECT t FROM Task t WHERE t.status IN :statuses AND t.endTime <= :until")
+    List<Task> findEndingBefore(@Nonnull @Param("statuses") Collection<TaskStatus> statuses,
+                                @Nonnull @Param("until") LocalDateTime until);
+
+    /**
+     * 把一批任务从指定状态切换到新状态，已经不在这些状态的任务不变
+     *
+     * @param ids    任务ID
+     * @param from   切换前的状态
+     * @param status 新状态
+     * @return 影响行数
+     */
+    @UsesIndex(table = "task", index = "PRIMARY")
+    @Modifying
+    @Transactional
+    @Query("UPDATE Task t SET t.status = :status WHERE t.id IN :ids AND t.status IN :from")
+    int updateStatus(@Nonnull @Param("ids") Collection<String> ids,
+                     @Nonnull @Param("from") Collection<TaskStatus> from,
+                     @Nonnull @Param("status") TaskStatus status);
 }
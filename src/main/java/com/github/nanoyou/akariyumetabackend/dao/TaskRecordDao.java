@@ -1,11 +1,51 @@
 package com.github.nanoyou.akariyumetabackend.dao;
 
+import com.github.nanoyou.akariyumetabackend.common.schema.UsesIndex;
 import com.github.nanoyou.akariyumetabackend.entity.task.TaskRecord;
 import jakarta.annotation.Nonnull;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
-public interface TaskRecordDao extends JpaRepository<TaskRecord, TaskRecord._TaskRecordCombinedPrimaryKey> {
+public interface TaskRecordDao extends JpaRepository<TaskRecord, TaskRecord._TaskRecordCombinedPrimaryKey>, TaskRecordDaoCustom {
     List<TaskRecord> findByTaskRecordCombinedPrimaryKeyChildID(@Nonnull String childID);
+
+    /**
+     * 按主键顺序流式读取所有任务记录，用于导出
+     * 需要在只读事务中使用，读取完毕后关闭流
+     *
+     * @return 任务记录流
+     */
+    @UsesIndex(table = "task_record", index = "PRIMARY")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+            SELECT r FROM TaskRecord r
+            ORDER BY r.taskRecordCombinedPrimaryKey.childID, r.taskRecordCombinedPrimaryKey.taskID
+            """)
+    Stream<TaskRecord> streamAll();
+
+    /**
+     * 流式读取在指定时间之后修改过的任务记录，用于从快照恢复后补上之后的变化
+     * 需要在只读事务中使用，读取完毕后关闭流
+     *
+     * @param since 起始时间
+     * @return 任务记录流
+     */
+    @UsesIndex(table = "task_record", index = "idx_task_record_updated_time")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT r FROM TaskRecord r WHERE r.updatedTime >= :since")
+    Stream<TaskRecord> streamChangedSince(@Nonnull @Param("since") LocalDateTime since);
 }
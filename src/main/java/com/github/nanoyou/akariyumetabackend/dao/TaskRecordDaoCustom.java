@@ -0,0 +1,18 @@
+package com.github.nanoyou.akariyumetabackend.dao;
+
+import com.github.nanoyou.akariyumetabackend.entity.task.TaskRecord;
+import jakarta.annotation.Nonnull;
+
+import java.util.List;
+
+public interface TaskRecordDaoCustom {
+
+    /**
+     * 批量写入任务记录，所有记录在一次 JDBC 批处理中写入
+     * 记录不存在时插入；已存在时开启、结束时间保留最早写入的，进度只增不减，已完成的不会变回未完成。
+     * 多个节点合并同一条记录的心跳时，无论写入顺序如何结果都一样。
+     *
+     * @param records 任务记录
+     */
+    void mergeAll(@Nonnull List<TaskRecord> records);
+}
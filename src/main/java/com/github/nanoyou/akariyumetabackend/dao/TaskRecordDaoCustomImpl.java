@@ -0,0 +1,56 @@
+package com.github.nanoyou.akariyumetabackend.dao;
+
+import com.github.nanoyou.akariyumetabackend.common.enumeration.TaskRecordStatus;
+import com.github.nanoyou.akariyumetabackend.entity.task.TaskRecord;
+import jakarta.annotation.Nonnull;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+
+public class TaskRecordDaoCustomImpl implements TaskRecordDaoCustom {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TaskRecordDaoCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void mergeAll(@Nonnull List<TaskRecord> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        val completed = TaskRecordStatus.COMPLETED.ordinal();
+        val now = LocalDateTime.now();
+        // 按主键顺序加锁，并发的批次之间不会死锁
+        val args = records.stream()
+                .sorted(Comparator.comparing((TaskRecord record) -> record.getTaskRecordCombinedPrimaryKey().getChildID())
+                        .thenComparing(record -> record.getTaskRecordCombinedPrimaryKey().getTaskID()))
+                .map(record -> new Object[]{
+                        record.getTaskRecordCombinedPrimaryKey().getChildID(),
+                        record.getTaskRecordCombinedPrimaryKey().getTaskID(),
+                        record.getStartTime(),
+                        record.getEndTime(),
+                        record.getStatus().ordinal(),
+                        record.getProgress(),
+                        now,
+                        record.getStartTime(),
+                        record.getEndTime(),
+                        completed,
+                        record.getStatus().ordinal(),
+                        record.getProgress(),
+                        now
+                }).toList();
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO task_record (childid, taskid, start_time, end_time, status, progress, updated_time) VALUES (?, ?, ?, ?, ?, ?, ?)
+                ON DUPLICATE KEY UPDATE start_time = COALESCE(start_time, ?), end_time = COALESCE(end_time, ?),
+                status = CASE WHEN status = ? THEN status ELSE ? END, progress = GREATEST(COALESCE(progress, 0), ?),
+                updated_time = ?
+                """, args);
+    }
+}
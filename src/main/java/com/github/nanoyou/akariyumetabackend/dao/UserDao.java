@@ -9,6 +9,12 @@ import java.util.Optional;
 
 public interface UserDao extends JpaRepository<User, String> {
 
-    Optional<User> findByUsernameAndPassword(@Nonnull String username, @Nonnull String password);
+    /**
+     * 按用户名查找用户，走 username 上的唯一索引
+     *
+     * @param username 用户名
+     * @return 用户
+     */
+    Optional<User> findByUsername(@Nonnull String username);
 
 }
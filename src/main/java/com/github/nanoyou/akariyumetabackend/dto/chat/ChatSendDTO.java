@@ -0,0 +1,26 @@
+package com.github.nanoyou.akariyumetabackend.dto.chat;
+
+import com.github.nanoyou.akariyumetabackend.common.enumeration.MessageType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ChatSendDTO {
+    /**
+     * 接收者 ID
+     */
+    private String receiverID;
+    /**
+     * 消息内容
+     */
+    private String content;
+    /**
+     * 消息类型，为空时为文本
+     */
+    private MessageType type;
+}
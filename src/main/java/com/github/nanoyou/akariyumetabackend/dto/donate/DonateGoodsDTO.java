@@ -0,0 +1,25 @@
+package com.github.nanoyou.akariyumetabackend.dto.donate;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class DonateGoodsDTO {
+    /**
+     * 捐助物品ID
+     */
+    private String goodsID;
+    /**
+     * 捐助数量
+     */
+    private Long amount;
+    /**
+     * 留言祝福
+     */
+    private String wishes;
+}
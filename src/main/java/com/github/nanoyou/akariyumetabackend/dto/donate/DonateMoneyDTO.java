@@ -0,0 +1,25 @@
+package com.github.nanoyou.akariyumetabackend.dto.donate;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class DonateMoneyDTO {
+    /**
+     * 受赠人ID
+     */
+    private String doneeID;
+    /**
+     * 捐助金额，以分为单位
+     */
+    private Long amount;
+    /**
+     * 留言祝福
+     */
+    private String wishes;
+}
@@ -0,0 +1,29 @@
+package com.github.nanoyou.akariyumetabackend.dto.donate;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class GoodsUploadDTO {
+    /**
+     * 商品名称
+     */
+    private String name;
+    /**
+     * 商品描述
+     */
+    private String description;
+    /**
+     * 商品图片URL
+     */
+    private String imageURL;
+    /**
+     * 商品单价，以分为单位
+     */
+    private Long unitPrice;
+}
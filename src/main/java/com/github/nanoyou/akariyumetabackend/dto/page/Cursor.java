@@ -0,0 +1,84 @@
+package com.github.nanoyou.akariyumetabackend.dto.page;
+
+import jakarta.annotation.Nonnull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.val;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * 分页游标
+ * 按 (创建时间, ID) 倒序分页，游标记录上一页最后一条的位置，下一页从它之后开始，不使用 OFFSET。
+ */
+@Data
+@AllArgsConstructor
+public class Cursor {
+    /**
+     * 默认每页条数
+     */
+    public static final int DEFAULT_LIMIT = 20;
+    /**
+     * 每页最大条数
+     */
+    public static final int MAX_LIMIT = 100;
+    /**
+     * 第一页的游标，位于所有数据之前
+     */
+    public static final Cursor FIRST = new Cursor(LocalDateTime.of(9999, 12, 31, 23, 59, 59), "");
+
+    /**
+     * 上一页最后一条的创建时间
+     */
+    private LocalDateTime createTime;
+    /**
+     * 上一页最后一条的ID
+     */
+    private String id;
+
+    /**
+     * 编码为不透明的字符串，供客户端原样传回
+     */
+    public String encode() {
+        val raw = createTime + "," + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析客户端传回的游标
+     *
+     * @param cursor 游标字符串，为空时表示第一页
+     * @return 游标
+     * @throws IllegalArgumentException 游标格式错误
+     */
+    public static Cursor decode(String cursor) {
+        if (!StringUtils.hasText(cursor)) {
+            return FIRST;
+        }
+        try {
+            val raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            val separator = raw.indexOf(',');
+            return new Cursor(LocalDateTime.parse(raw.substring(0, separator)), raw.substring(separator + 1));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("游标格式错误: " + cursor, e);
+        }
+    }
+
+    /**
+     * 把客户端传入的每页条数限制在 [1, MAX_LIMIT] 之间
+     */
+    public static int clampLimit(int limit) {
+        return Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+
+    /**
+     * 判断 (createTime, id) 是否排在游标之后，即属于下一页
+     */
+    public boolean isBefore(@Nonnull LocalDateTime createTime, @Nonnull String id) {
+        val compare = createTime.compareTo(this.createTime);
+        return compare < 0 || (compare == 0 && id.compareTo(this.id) < 0);
+    }
+}
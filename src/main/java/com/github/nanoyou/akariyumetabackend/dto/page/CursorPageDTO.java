@@ -0,0 +1,60 @@
+package com.github.nanoyou.akariyumetabackend.dto.page;
+
+import jakarta.annotation.Nonnull;
+import lombok.Builder;
+import lombok.Data;
+import lombok.val;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 游标分页结果
+ *
+ * @param <T> 数据类型
+ */
+@Data
+@Builder
+public class CursorPageDTO<T> {
+    /**
+     * 本页数据
+     */
+    private List<T> items;
+    /**
+     * 下一页的游标，没有下一页时为空
+     */
+    private String nextCursor;
+    /**
+     * 是否还有下一页
+     */
+    private boolean hasMore;
+
+    /**
+     * 由多查询了一条的结果构建分页
+     *
+     * @param rows     按游标顺序查询到的数据，最多 limit + 1 条
+     * @param limit    每页条数
+     * @param cursorOf 由一条数据得到其游标
+     * @return 分页结果
+     */
+    public static <T> CursorPageDTO<T> of(@Nonnull List<T> rows, int limit, @Nonnull Function<T, Cursor> cursorOf) {
+        val hasMore = rows.size() > limit;
+        val items = hasMore ? rows.subList(0, limit) : rows;
+        return CursorPageDTO.<T>builder()
+                .items(items)
+                .nextCursor(hasMore ? cursorOf.apply(items.get(items.size() - 1)).encode() : null)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    /**
+     * 转换本页数据，保留游标
+     */
+    public <R> CursorPageDTO<R> map(@Nonnull Function<List<T>, List<R>> mapper) {
+        return CursorPageDTO.<R>builder()
+                .items(mapper.apply(items))
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .build();
+    }
+}
@@ -0,0 +1,28 @@
+package com.github.nanoyou.akariyumetabackend.dto.points;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * @apiNote GET: /points/leaderboard/{kind} 排行榜的一项，GET: /points/rank/{kind} 登录儿童的名次
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class PointsRankDTO {
+    /**
+     * 名次，从 1 开始
+     */
+    private Long rank;
+    /**
+     * 儿童ID
+     */
+    private String childID;
+    /**
+     * 积分
+     */
+    private Long points;
+}
@@ -1,5 +1,8 @@
 package com.github.nanoyou.akariyumetabackend.dto.task;
 
+import com.github.nanoyou.akariyumetabackend.entity.task.Course;
+import com.github.nanoyou.akariyumetabackend.entity.task.Task;
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 
@@ -10,6 +13,7 @@ import java.time.LocalDateTime;
  */
 @Data
 @Builder
+@AllArgsConstructor
 public class TaskCourseDTO {
     /**
      * Task 的 ID
@@ -64,4 +68,27 @@ public class TaskCourseDTO {
      * 被观看的次数
      */
     private Integer watchedCount;
+
+    /**
+     * 由任务和对应的课程构建，也用于 JPQL 的构造器表达式
+     * 类别和状态为空的任务对应的字段为 null，不影响同一页的其他任务
+     *
+     * @param task   任务
+     * @param course 与任务ID相同的课程
+     */
+    public TaskCourseDTO(Task task, Course course) {
+        this.id = task.getId();
+        this.bonus = task.getBonus();
+        this.category = task.getCategory() == null ? null : task.getCategory().value;
+        this.createdTime = task.getCreatedTime();
+        this.description = task.getDescription();
+        this.endTime = task.getEndTime();
+        this.startTime = task.getStartTime();
+        this.status = task.getStatus() == null ? null : task.getStatus().value;
+        this.taskName = task.getTaskName();
+        this.taskUploaderID = task.getTaskUploaderID();
+        this.videoDuration = course.getVideoDuration();
+        this.videoURL = course.getVideoURL();
+        this.watchedCount = course.getWatchedCount();
+    }
 }
@@ -1,23 +1,30 @@
 package com.github.nanoyou.akariyumetabackend.dto.task;
 
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 import java.util.List;
 
+/**
+ * @apiNote POST: /task/search 搜索学习任务
+ */
 @Data
 @Builder
+@AllArgsConstructor
+@NoArgsConstructor
 public class TaskCourseSearchDTO {
     /**
-     * 任务类别
+     * 任务类别，英文名或中文名，为空表示不限
      */
     private String category;
     /**
-     * 搜索内容
+     * 搜索内容，匹配任务名称和描述，为空时按创建时间倒序列出
      */
     private String search;
     /**
-     * 已完成、未完成、正在进行、未开始、已结束
+     * 已完成、未完成（登录儿童的任务记录，需要登录）、正在进行、未开始、已结束，同为完成情况或同为任务状态的标签之间是或
      */
     private List<String> tags;
 }
@@ -52,4 +52,9 @@ public class TaskCourseUploadDTO {
      * 视频地址，要给受困儿童显示的视频的地址
      */
     private String videoURL;
+    /**
+     * 视频时长
+     * 单位秒，必须为正数，观看进度按它计算
+     */
+    private Integer videoDuration;
 }
@@ -0,0 +1,44 @@
+package com.github.nanoyou.akariyumetabackend.dto.task;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * @apiNote POST: /task/import 批量导入学习任务的结果
+ */
+@Data
+@Builder
+public class TaskImportResultDTO {
+    /**
+     * 提交的行数
+     */
+    private int total;
+    /**
+     * 成功导入的行数
+     */
+    private int succeeded;
+    /**
+     * 与提交顺序一一对应的任务ID，导入失败的行为 null
+     */
+    private List<String> taskIDs;
+    /**
+     * 导入失败的行
+     */
+    private List<RowFailure> failures;
+
+    @Data
+    @AllArgsConstructor
+    public static class RowFailure {
+        /**
+         * 行号，从 0 开始
+         */
+        private int index;
+        /**
+         * 失败原因
+         */
+        private String reason;
+    }
+}
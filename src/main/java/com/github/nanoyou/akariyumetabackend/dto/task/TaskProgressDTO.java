@@ -0,0 +1,20 @@
+package com.github.nanoyou.akariyumetabackend.dto.task;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * @apiNote POST: /task/{taskID}/progress 播放心跳，播放期间每隔几秒发送一次
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class TaskProgressDTO {
+    /**
+     * 当前播放到的位置，单位: s
+     */
+    private Integer position;
+}
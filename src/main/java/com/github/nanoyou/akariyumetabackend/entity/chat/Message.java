@@ -1,36 +1,56 @@
 package com.github.nanoyou.akariyumetabackend.entity.chat;
 
 import com.github.nanoyou.akariyumetabackend.common.enumeration.MessageType;
+import com.github.nanoyou.akariyumetabackend.common.id.CompactUuidType;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Type;
 
+import java.io.Serializable;
 import java.time.LocalDateTime;
-import java.util.UUID;
 
 /**
  * 消息 Message
  * 所属: 聊天
+ * 只追加不修改，主键 (senderID, receiverID, id) 让同一方向的会话在聚簇索引中连续存放
  */
 @Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@IdClass(Message.Key.class)
 public class Message {
-    /**
-     * Message ID
-     */
-    private UUID id;
     /**
      * 发送者 ID
      */
-    private UUID senderID;
+    @Id
+    private String senderID;
     /**
      * 接收者 ID
      */
-    private UUID receiverID;
+    @Id
+    private String receiverID;
+    /**
+     * Message ID
+     * 发送时生成的 UUIDv7，同一会话内按 ID 排序即按发送时间排序
+     */
+    @Id
+    @Type(CompactUuidType.class)
+    private String id;
     /**
      * 消息内容
      */
+    @Column(length = 1000)
     private String content;
     /**
      * 是否已读
+     * 不存储在表中，查询时由 Redis 中接收者的已读位置计算
      */
+    @Transient
     private boolean isRead;
     /**
      * 发送时间
@@ -40,4 +60,13 @@ public class Message {
      * 消息类型
      */
     private MessageType type;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private String senderID;
+        private String receiverID;
+        private String id;
+    }
 }
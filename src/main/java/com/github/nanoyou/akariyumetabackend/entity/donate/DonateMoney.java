@@ -1,19 +1,37 @@
 package com.github.nanoyou.akariyumetabackend.entity.donate;
 
+import com.github.nanoyou.akariyumetabackend.common.id.CompactUuidType;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Type;
 
 import java.time.LocalDateTime;
-import java.util.UUID;
 
 /**
  * DonateMoney 捐款关系
  * 属于: 捐助
+ * 捐助流水，只追加不修改；同一捐助人的同一幂等键只会记一次
  */
 @Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_donate_money_idempotency", columnNames = {"donatorid", "idempotency_key"}))
 public class DonateMoney {
     /**
      * UUID
+     * 记账时生成的 UUIDv7
      */
+    @Id
+    @Type(CompactUuidType.class)
     private String id;
     /**
      * 捐助金额，以分为单位
@@ -26,13 +44,18 @@ public class DonateMoney {
     /**
      * 捐助人ID
      */
-    private UUID donatorID;
+    private String donatorID;
     /**
      * 受赠人ID
      */
-    private UUID doneeID;
+    private String doneeID;
     /**
      * 留言祝福
      */
     private String wishes;
+    /**
+     * 幂等键，由客户端为每次捐助生成，重试时保持不变
+     */
+    @Column(length = 64)
+    private String idempotencyKey;
 }
@@ -0,0 +1,56 @@
+package com.github.nanoyou.akariyumetabackend.entity.donate;
+
+import com.github.nanoyou.akariyumetabackend.common.enumeration.DonationTotalKind;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * DonationTotal 捐助汇总
+ * 属于: 捐助
+ * 每个受赠人、捐助人、物品的累计捐助，记账时在同一事务中增量维护，读取时不再统计流水表
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@IdClass(DonationTotal.Key.class)
+public class DonationTotal {
+    /**
+     * 汇总维度
+     */
+    @Id
+    private DonationTotalKind kind;
+    /**
+     * 受赠人ID、捐助人ID或物品ID
+     */
+    @Id
+    private String ownerID;
+    /**
+     * 累计钱数，以分为单位
+     */
+    private Long totalMoney;
+    /**
+     * 累计物品数量，只有按物品汇总时有意义
+     */
+    private Long totalAmount;
+    /**
+     * 捐助次数
+     */
+    private Long donationCount;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private DonationTotalKind kind;
+        private String ownerID;
+    }
+}
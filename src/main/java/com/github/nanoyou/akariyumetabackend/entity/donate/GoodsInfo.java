@@ -1,19 +1,32 @@
 package com.github.nanoyou.akariyumetabackend.entity.donate;
 
+import com.github.nanoyou.akariyumetabackend.common.id.CompactUuidType;
+import com.github.nanoyou.akariyumetabackend.common.id.TimeOrderedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
 import lombok.Data;
-
-import java.util.UUID;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Type;
 
 /**
  * GoodsInfo 商品信息
  * 属于: 捐助
  */
 @Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
 public class GoodsInfo {
     /**
      * 商品 ID
      */
-    private UUID id;
+    @Id
+    @TimeOrderedId
+    @Type(CompactUuidType.class)
+    private String id;
     /**
      * 商品描述
      */
@@ -1,16 +1,16 @@
 package com.github.nanoyou.akariyumetabackend.entity.dynamic;
 
+import com.github.nanoyou.akariyumetabackend.common.id.CompactUuidType;
+import com.github.nanoyou.akariyumetabackend.common.id.TimeOrderedId;
 import jakarta.persistence.Entity;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Type;
 
 import java.time.LocalDateTime;
-import java.util.UUID;
 
 /**
  * Comment 评论
@@ -25,9 +25,11 @@ import java.util.UUID;
 public class Comment {
     /**
      * Markdown评论
+     * 时间有序的 UUIDv7，以 BINARY(16) 存储
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @TimeOrderedId
+    @Type(CompactUuidType.class)
     private String id;
     /**
      * 发评论的人的ID
@@ -44,5 +46,6 @@ public class Comment {
     /**
      * 父评论ID，被回复评论的ID，为空则为动态节点（根节点）
      */
+    @Type(CompactUuidType.class)
     private String replyTo;
 }
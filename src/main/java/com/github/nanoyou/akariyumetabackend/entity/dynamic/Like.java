@@ -1,5 +1,7 @@
 package com.github.nanoyou.akariyumetabackend.entity.dynamic;
 
+import com.github.nanoyou.akariyumetabackend.common.id.CompactUuidType;
+import jakarta.persistence.Embeddable;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
@@ -7,13 +9,14 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Type;
 
-import java.util.UUID;
+import java.io.Serializable;
 
 /**
  * Like 点赞
  * 属于：捐助
- * 点赞关系
+ * 点赞关系，同一个人对同一条评论只能点赞一次
  */
 @Data
 @Builder
@@ -22,17 +25,28 @@ import java.util.UUID;
 @Entity
 @Table(name = "`like`")
 public class Like {
-    /**
-     * 被点赞的评论的ID
-     */
+
     @Id
-    private String commentID;
+    private _LikeCombinedPrimaryKey likeCombinedPrimaryKey;
     /**
      * 被点赞的人的ID
      */
     private String likedID;
-    /**
-     * 发起点赞的人的ID
-     */
-    private String likerID;
+
+    @Embeddable
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class _LikeCombinedPrimaryKey implements Serializable {
+        /**
+         * 被点赞的评论的ID
+         */
+        @Type(CompactUuidType.class)
+        private String commentID;
+        /**
+         * 发起点赞的人的ID
+         */
+        private String likerID;
+    }
 }
@@ -0,0 +1,33 @@
+package com.github.nanoyou.akariyumetabackend.entity.dynamic;
+
+import com.github.nanoyou.akariyumetabackend.common.id.CompactUuidType;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Type;
+
+/**
+ * LikeCount 点赞计数
+ * 属于：捐助
+ * 每条评论的点赞数，随点赞和取消点赞增量维护，读取时不再统计 Like 表
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+public class LikeCount {
+    /**
+     * 评论ID
+     */
+    @Id
+    @Type(CompactUuidType.class)
+    private String commentID;
+    /**
+     * 点赞数
+     */
+    private Long likeCount;
+}
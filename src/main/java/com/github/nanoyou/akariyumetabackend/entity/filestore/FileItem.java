@@ -1,18 +1,23 @@
 package com.github.nanoyou.akariyumetabackend.entity.filestore;
 
+import lombok.AllArgsConstructor;
+import lombok.Builder;
 import lombok.Data;
-
-import java.lang.reflect.Array;
-import java.util.List;
+import lombok.NoArgsConstructor;
 
 /**
  * 文件项 FileItem
  * 属于: 文件存储
+ * 文件内容保存在本地磁盘上，以内容的 SHA-256 寻址，这里只描述文件，不持有数据
  */
 @Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
 public class FileItem {
     /**
-     *文件ID(哈希值)
+     * 文件ID(哈希值)
+     * 内容的 SHA-256，64 个小写十六进制字符
      */
     private String id;
     /**
@@ -20,7 +25,7 @@ public class FileItem {
      */
     private String mimeType;
     /**
-     * 文件数据(二进制格式)
+     * 文件大小(字节)
      */
-    private byte[] data;
+    private long size;
 }
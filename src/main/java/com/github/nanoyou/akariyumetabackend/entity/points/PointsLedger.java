@@ -0,0 +1,57 @@
+package com.github.nanoyou.akariyumetabackend.entity.points;
+
+import com.github.nanoyou.akariyumetabackend.common.enumeration.TaskCategory;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * PointsLedger 积分流水
+ * 属于: 积分
+ * 儿童完成任务获得的奖励积分，只追加不修改；同一儿童的同一任务只会记一次
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@IdClass(PointsLedger.Key.class)
+public class PointsLedger {
+    /**
+     * 儿童ID
+     */
+    @Id
+    private String childID;
+    /**
+     * 完成的任务ID
+     */
+    @Id
+    private String taskID;
+    /**
+     * 获得的积分，即任务的奖励积分
+     */
+    private Integer points;
+    /**
+     * 任务类别，记账时从任务复制
+     */
+    private TaskCategory category;
+    /**
+     * 记账时间
+     */
+    private LocalDateTime createdTime;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private String childID;
+        private String taskID;
+    }
+}
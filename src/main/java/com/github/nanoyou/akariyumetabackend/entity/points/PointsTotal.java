@@ -0,0 +1,56 @@
+package com.github.nanoyou.akariyumetabackend.entity.points;
+
+import com.github.nanoyou.akariyumetabackend.common.enumeration.PointsTotalKind;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * PointsTotal 积分汇总
+ * 属于: 积分
+ * 每个儿童的总积分、每个类别和每周的积分，记账时在同一事务中增量维护，读取时不再统计流水表
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@IdClass(PointsTotal.Key.class)
+public class PointsTotal {
+    /**
+     * 汇总维度
+     */
+    @Id
+    private PointsTotalKind kind;
+    /**
+     * 周期：总积分为空字符串，按类别时为类别名称，按周时为 ISO 周
+     */
+    @Id
+    @Column(length = 32)
+    private String period;
+    /**
+     * 儿童ID
+     */
+    @Id
+    private String childID;
+    /**
+     * 累计积分
+     */
+    private Long points;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private PointsTotalKind kind;
+        private String period;
+        private String childID;
+    }
+}
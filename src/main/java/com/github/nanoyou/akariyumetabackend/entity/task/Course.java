@@ -15,7 +15,7 @@ import lombok.NoArgsConstructor;
  * Course是特殊的Task，本系统只有Course作为Task的子类。
  */
 @Data
-@Builder
+@Builder(toBuilder = true)
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
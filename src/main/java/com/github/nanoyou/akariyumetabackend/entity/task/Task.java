@@ -2,9 +2,8 @@ package com.github.nanoyou.akariyumetabackend.entity.task;
 
 import com.github.nanoyou.akariyumetabackend.common.enumeration.TaskCategory;
 import com.github.nanoyou.akariyumetabackend.common.enumeration.TaskStatus;
+import com.github.nanoyou.akariyumetabackend.common.id.TimeOrderedId;
 import jakarta.persistence.Entity;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -19,7 +18,7 @@ import java.time.LocalDateTime;
  * 受困儿童需要完成的任务。
  */
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
@@ -28,7 +27,7 @@ public class Task {
      * Task ID
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @TimeOrderedId
     private String id;
     /**
      * 任务名称
@@ -1,5 +1,6 @@
 package com.github.nanoyou.akariyumetabackend.entity.task;
 
+import com.github.nanoyou.akariyumetabackend.common.id.CompactUuidType;
 import jakarta.persistence.Embeddable;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
@@ -7,6 +8,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Type;
 
 import java.io.Serializable;
 
@@ -39,6 +41,7 @@ public class TaskDynamic {
          * 动态ID
          * 学习任务下方的评论，需要为Comment根节点
          */
+        @Type(CompactUuidType.class)
         private String dynamicID;
     }
 
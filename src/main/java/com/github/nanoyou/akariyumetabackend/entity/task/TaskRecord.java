@@ -1,6 +1,7 @@
 package com.github.nanoyou.akariyumetabackend.entity.task;
 
 import com.github.nanoyou.akariyumetabackend.common.enumeration.TaskRecordStatus;
+import jakarta.persistence.Column;
 import jakarta.persistence.Embeddable;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
@@ -40,6 +41,16 @@ public class TaskRecord {
      * 任务状态，详见枚举
      */
     private TaskRecordStatus status;
+    /**
+     * 观看进度，0 到 100 的百分比
+     * 心跳在内存中合并，数据库中只保存到最近一个里程碑
+     */
+    private Integer progress;
+    /**
+     * 最后修改时间，由 TaskRecordDao.mergeAll 写入，搜索服务从快照恢复时按它补读变化的记录
+     */
+    @Column(insertable = false, updatable = false)
+    private LocalDateTime updatedTime;
 
     @Embeddable
     @Data
@@ -2,10 +2,11 @@ package com.github.nanoyou.akariyumetabackend.entity.user;
 
 import com.github.nanoyou.akariyumetabackend.common.enumeration.Gender;
 import com.github.nanoyou.akariyumetabackend.common.enumeration.Role;
+import com.github.nanoyou.akariyumetabackend.common.id.TimeOrderedId;
 import jakarta.persistence.Entity;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -19,13 +20,14 @@ import lombok.NoArgsConstructor;
 @Builder
 @AllArgsConstructor
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_user_username", columnNames = "username"))
 @NoArgsConstructor
 public class User {
     /**
      * 用户ID
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @TimeOrderedId
     private String id;
     /**
      * 用户名
@@ -40,7 +42,7 @@ public class User {
      */
     private Role role;
     /**
-     * 密码
+     * 密码，BCrypt 哈希
      */
     private String password;
     /**
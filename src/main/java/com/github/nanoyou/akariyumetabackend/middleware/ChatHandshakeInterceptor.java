@@ -0,0 +1,41 @@
+package com.github.nanoyou.akariyumetabackend.middleware;
+
+import com.github.nanoyou.akariyumetabackend.common.enumeration.SessionAttr;
+import jakarta.annotation.Nonnull;
+import lombok.val;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+
+import java.util.Map;
+
+/**
+ * 聊天 WebSocket 握手时检查登录状态，并把登录用户ID放入 WebSocket 会话属性
+ * 握手请求经过 RedisSessionFilter，能读到和普通请求相同的会话
+ */
+public class ChatHandshakeInterceptor implements HandshakeInterceptor {
+
+    public static final String USER_ID_ATTR = "chatUserID";
+
+    @Override
+    public boolean beforeHandshake(@Nonnull ServerHttpRequest request, @Nonnull ServerHttpResponse response,
+                                   @Nonnull WebSocketHandler wsHandler, @Nonnull Map<String, Object> attributes) {
+        if (request instanceof ServletServerHttpRequest servletRequest) {
+            val session = servletRequest.getServletRequest().getSession(false);
+            if (session != null && session.getAttribute(SessionAttr.LOGIN_USER_ID.attr) instanceof String userID) {
+                attributes.put(USER_ID_ATTR, userID);
+                return true;
+            }
+        }
+        response.setStatusCode(HttpStatus.UNAUTHORIZED);
+        return false;
+    }
+
+    @Override
+    public void afterHandshake(@Nonnull ServerHttpRequest request, @Nonnull ServerHttpResponse response,
+                               @Nonnull WebSocketHandler wsHandler, Exception exception) {
+    }
+}
@@ -0,0 +1,133 @@
+package com.github.nanoyou.akariyumetabackend.middleware;
+
+import com.github.nanoyou.akariyumetabackend.common.session.CompactSession;
+import com.github.nanoyou.akariyumetabackend.common.session.SessionStore;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import lombok.val;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * 用保存在 Redis 中的会话替换容器的 HttpSession，控制器中的 httpSession 用法不变
+ */
+public class RedisSessionFilter extends OncePerRequestFilter {
+
+    public static final String COOKIE_NAME = "AKARI_SESSION";
+    /**
+     * 异步请求在两次分派之间通过请求属性传递会话
+     */
+    private static final String SESSION_REQUEST_ATTR = RedisSessionFilter.class.getName() + ".SESSION";
+
+    private final SessionStore sessionStore;
+
+    public RedisSessionFilter(SessionStore sessionStore) {
+        this.sessionStore = sessionStore;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        val wrapped = new SessionRequestWrapper(request, response);
+        try {
+            filterChain.doFilter(wrapped, response);
+        } finally {
+            if (wrapped.session != null) {
+                if (request.isAsyncStarted()) {
+                    // 异步请求在异步分派结束时再保存
+                    request.setAttribute(SESSION_REQUEST_ATTR, wrapped.session);
+                } else {
+                    sessionStore.commit(wrapped.session);
+                }
+            }
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    private class SessionRequestWrapper extends HttpServletRequestWrapper {
+
+        private final HttpServletResponse response;
+        private CompactSession session;
+        private boolean resolved;
+
+        SessionRequestWrapper(HttpServletRequest request, HttpServletResponse response) {
+            super(request);
+            this.response = response;
+            if (request.getAttribute(SESSION_REQUEST_ATTR) instanceof CompactSession dispatched) {
+                this.session = dispatched;
+                this.resolved = true;
+            }
+        }
+
+        @Override
+        public HttpSession getSession() {
+            return getSession(true);
+        }
+
+        @Override
+        public HttpSession getSession(boolean create) {
+            if (session != null && session.isInvalidated()) {
+                session = null;
+            }
+            if (session == null && !resolved) {
+                resolved = true;
+                session = requestedSessionID()
+                        .flatMap(sessionStore::find)
+                        .orElse(null);
+            }
+            if (session == null && create) {
+                val created = sessionStore.create();
+                created.setOnFirstWrite(() -> writeCookie(created.getId()));
+                session = created;
+            }
+            if (session != null) {
+                session.setServletContext(getServletContext());
+            }
+            return session;
+        }
+
+        @Override
+        public String getRequestedSessionId() {
+            return requestedSessionID().orElse(null);
+        }
+
+        @Override
+        public boolean isRequestedSessionIdValid() {
+            val current = getSession(false);
+            return current != null && !current.isNew();
+        }
+
+        private Optional<String> requestedSessionID() {
+            val cookies = getCookies();
+            if (cookies == null) {
+                return Optional.empty();
+            }
+            return Arrays.stream(cookies)
+                    .filter(cookie -> COOKIE_NAME.equals(cookie.getName()))
+                    .map(Cookie::getValue)
+                    .findFirst();
+        }
+
+        /**
+         * 与容器的会话 Cookie 一样不设置 Max-Age，会话的有效期只由 Redis 中滑动的过期时间决定
+         */
+        private void writeCookie(String value) {
+            val cookie = new Cookie(COOKIE_NAME, value);
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            response.addCookie(cookie);
+        }
+    }
+}
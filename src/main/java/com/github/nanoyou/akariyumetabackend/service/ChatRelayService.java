@@ -0,0 +1,99 @@
+package com.github.nanoyou.akariyumetabackend.service;
+
+import jakarta.annotation.Nonnull;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 聊天消息的跨节点投递
+ * 每个用户对应一个 Redis 频道，节点只订阅连接在本节点上的用户的频道，收到后转发给该用户的 STOMP 会话。
+ * 节点上的状态只有本地在线用户的连接数，与会话总数和消息量无关。
+ */
+@Slf4j
+@Service
+public class ChatRelayService implements MessageListener {
+
+    /**
+     * 客户端订阅的目的地，实际地址为 /user/queue/chat
+     */
+    public static final String USER_DESTINATION = "/queue/chat";
+
+    private final RedisMessageListenerContainer listenerContainer;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ChatService chatService;
+
+    /**
+     * 本节点上在线的用户ID -> STOMP 连接数
+     */
+    private final ConcurrentHashMap<String, Integer> localSessions = new ConcurrentHashMap<>();
+
+    @Autowired
+    private ChatRelayService(RedisMessageListenerContainer listenerContainer, SimpMessagingTemplate messagingTemplate,
+                             ChatService chatService) {
+        this.listenerContainer = listenerContainer;
+        this.messagingTemplate = messagingTemplate;
+        this.chatService = chatService;
+    }
+
+    @EventListener
+    public void onConnected(SessionConnectedEvent event) {
+        val user = event.getUser();
+        if (user == null) {
+            return;
+        }
+        localSessions.compute(user.getName(), (userID, count) -> {
+            if (count == null) {
+                listenerContainer.addMessageListener(this, new ChannelTopic(ChatService.channel(userID)));
+                return 1;
+            }
+            return count + 1;
+        });
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        val user = event.getUser();
+        if (user == null) {
+            return;
+        }
+        localSessions.computeIfPresent(user.getName(), (userID, count) -> {
+            if (count > 1) {
+                return count - 1;
+            }
+            listenerContainer.removeMessageListener(this, new ChannelTopic(ChatService.channel(userID)));
+            return null;
+        });
+    }
+
+    /**
+     * @return 本节点上在线的用户数
+     */
+    public int getLocalUserCount() {
+        return localSessions.size();
+    }
+
+    @Override
+    public void onMessage(@Nonnull Message message, byte[] pattern) {
+        val channel = new String(message.getChannel(), StandardCharsets.UTF_8);
+        val userID = channel.substring(ChatService.channel("").length());
+        try {
+            val chatMessage = chatService.fromJson(new String(message.getBody(), StandardCharsets.UTF_8));
+            messagingTemplate.convertAndSendToUser(userID, USER_DESTINATION, chatMessage);
+        } catch (Exception e) {
+            log.warn("聊天消息投递失败: channel={}", channel, e);
+        }
+    }
+}
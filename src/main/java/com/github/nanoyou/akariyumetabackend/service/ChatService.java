@@ -0,0 +1,328 @@
+package com.github.nanoyou.akariyumetabackend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.nanoyou.akariyumetabackend.common.enumeration.MessageType;
+import com.github.nanoyou.akariyumetabackend.common.id.UuidV7;
+import com.github.nanoyou.akariyumetabackend.dao.MessageDao;
+import com.github.nanoyou.akariyumetabackend.dao.UserDao;
+import com.github.nanoyou.akariyumetabackend.dto.page.Cursor;
+import com.github.nanoyou.akariyumetabackend.dto.page.CursorPageDTO;
+import com.github.nanoyou.akariyumetabackend.entity.chat.Message;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.stream.*;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * 聊天服务
+ * 发送消息时只在 Redis 中完成：追加到发件箱流、增加接收者的未读数、发布到双方的频道，随即返回。
+ * 发件箱由各节点以消费组的方式批量写入数据库，写入成功后再确认并删除，节点宕机时未确认的消息由其他节点接管。
+ * 刚发送的消息在写入数据库前不会出现在历史记录中，客户端通过推送已经拿到了它。
+ */
+@Slf4j
+@Service
+public class ChatService {
+
+    private static final String OUTBOX_KEY = "chat:outbox";
+    private static final String OUTBOX_GROUP = "persister";
+    private static final String OUTBOX_FIELD = "m";
+    private static final String UNREAD_KEY_PREFIX = "chat:unread:";
+    private static final String UNREAD_IDS_KEY_PREFIX = "chat:unread-ids:";
+    private static final String READ_KEY_PREFIX = "chat:read:";
+    private static final String CHANNEL_PREFIX = "chat:user:";
+    /**
+     * 比任何消息ID都大，用于读取第一页
+     */
+    private static final String MAX_ID = "ffffffff-ffff-ffff-ffff-ffffffffffff";
+
+    /**
+     * KEYS: 发件箱, 接收者未读数, 接收者在该会话中的未读消息ID
+     * ARGV: 消息JSON, 发送者ID, 接收者频道, 发送者频道, 消息ID
+     */
+    private static final RedisScript<Long> SEND_SCRIPT = new DefaultRedisScript<>("""
+            redis.call('XADD', KEYS[1], '*', 'm', ARGV[1])
+            redis.call('HINCRBY', KEYS[2], ARGV[2], 1)
+            redis.call('ZADD', KEYS[3], 0, ARGV[5])
+            redis.call('PUBLISH', ARGV[3], ARGV[1])
+            if ARGV[4] ~= ARGV[3] then
+                redis.call('PUBLISH', ARGV[4], ARGV[1])
+            end
+            return 1
+            """, Long.class);
+
+    /**
+     * 推进已读位置，只移除不晚于已读位置的未读消息，之后收到的消息仍然计入未读数
+     * 消息ID是 UUIDv7 的规范字符串，字符串顺序即发送顺序；已读位置只前进不后退
+     * KEYS: 未读数, 已读位置, 未读消息ID
+     * ARGV: 对方ID, 已读位置
+     */
+    private static final RedisScript<Long> READ_SCRIPT = new DefaultRedisScript<>("""
+            local current = redis.call('HGET', KEYS[2], ARGV[1])
+            if not current or current < ARGV[2] then
+                redis.call('HSET', KEYS[2], ARGV[1], ARGV[2])
+            end
+            redis.call('ZREMRANGEBYLEX', KEYS[3], '-', '[' .. ARGV[2])
+            local unread = redis.call('ZCARD', KEYS[3])
+            if unread == 0 then
+                redis.call('HDEL', KEYS[1], ARGV[1])
+            else
+                redis.call('HSET', KEYS[1], ARGV[1], unread)
+            end
+            return unread
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final MessageDao messageDao;
+    private final UserDao userDao;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * 每次从发件箱取出并写入数据库的条数
+     */
+    @Value("${akari.chat.persist-batch-size:500}")
+    private int persistBatchSize;
+    /**
+     * 其他节点取走但超过该时间仍未确认的消息，由本节点接管
+     */
+    @Value("${akari.chat.claim-idle:60s}")
+    private Duration claimIdle;
+    /**
+     * 消费者名，为空时使用主机名
+     */
+    @Value("${akari.chat.node-id:}")
+    private String nodeID;
+
+    private Consumer consumer;
+
+    @Autowired
+    private ChatService(StringRedisTemplate redisTemplate, MessageDao messageDao, UserDao userDao, ObjectMapper objectMapper) {
+        this.redisTemplate = redisTemplate;
+        this.messageDao = messageDao;
+        this.userDao = userDao;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!StringUtils.hasText(nodeID)) {
+            try {
+                nodeID = InetAddress.getLocalHost().getHostName();
+            } catch (UnknownHostException e) {
+                nodeID = UUID.randomUUID().toString();
+            }
+        }
+        consumer = Consumer.from(OUTBOX_GROUP, nodeID);
+        try {
+            redisTemplate.opsForStream().createGroup(OUTBOX_KEY, ReadOffset.from("0"), OUTBOX_GROUP);
+        } catch (Exception e) {
+            // 消费组已经存在
+            log.debug("发件箱消费组已存在: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * @param userID 用户ID
+     * @return 用户是否存在
+     */
+    public boolean existUser(@Nonnull String userID) {
+        return userDao.existsById(userID);
+    }
+
+    /**
+     * 发送一条消息，不等待写入数据库
+     *
+     * @param senderID   发送者ID
+     * @param receiverID 接收者ID
+     * @param content    消息内容
+     * @param type       消息类型
+     * @return 已发送的消息
+     */
+    public Message send(@Nonnull String senderID, @Nonnull String receiverID, @Nonnull String content, @Nonnull MessageType type) {
+        val message = Message.builder()
+                .id(UuidV7.nextString())
+                .senderID(senderID)
+                .receiverID(receiverID)
+                .content(content)
+                .sendTime(LocalDateTime.now())
+                .type(type)
+                .isRead(false)
+                .build();
+        redisTemplate.execute(SEND_SCRIPT, List.of(OUTBOX_KEY, UNREAD_KEY_PREFIX + receiverID, unreadIDsKey(receiverID, senderID)),
+                toJson(message), senderID, channel(receiverID), channel(senderID), message.getId());
+        return message;
+    }
+
+    /**
+     * 按消息ID倒序分页获取 userID 与 peerID 之间的会话
+     * 两个方向各自是主键上的一段，分别取 limit + 1 条后归并
+     *
+     * @param userID 当前用户ID
+     * @param peerID 对方ID
+     * @param cursor 分页游标
+     * @param limit  每页条数
+     * @return 消息分页
+     */
+    public CursorPageDTO<Message> getConversation(@Nonnull String userID, @Nonnull String peerID, @Nonnull Cursor cursor, int limit) {
+        val before = cursor == Cursor.FIRST ? MAX_ID : cursor.getId();
+        val pageable = PageRequest.of(0, limit + 1);
+        val rows = new ArrayList<>(messageDao.findBySenderIDAndReceiverIDAndIdLessThanOrderByIdDesc(userID, peerID, before, pageable));
+        if (!userID.equals(peerID)) {
+            rows.addAll(messageDao.findBySenderIDAndReceiverIDAndIdLessThanOrderByIdDesc(peerID, userID, before, pageable));
+        }
+        rows.sort(Comparator.comparing(Message::getId).reversed());
+
+        // 对方读到的位置决定我发出的消息是否已读，反之亦然
+        val peerReadUpTo = readUpTo(peerID, userID);
+        val myReadUpTo = readUpTo(userID, peerID);
+        rows.forEach(message -> {
+            val readUpTo = message.getReceiverID().equals(peerID) ? peerReadUpTo : myReadUpTo;
+            message.setRead(readUpTo != null && message.getId().compareTo(readUpTo) <= 0);
+        });
+
+        val page = rows.size() > limit + 1 ? rows.subList(0, limit + 1) : rows;
+        return CursorPageDTO.of(page, limit, message -> new Cursor(message.getSendTime(), message.getId()));
+    }
+
+    /**
+     * 把 peerID 发给 userID、不晚于 upTo 的消息标为已读
+     * upTo 是用户实际看到的最新一条消息的ID，标记已读之后才到达的消息仍然是未读
+     *
+     * @param userID 当前用户ID
+     * @param peerID 对方ID
+     * @param upTo   已读到的消息ID
+     * @return 该会话剩余的未读数
+     */
+    public long markRead(@Nonnull String userID, @Nonnull String peerID, @Nonnull String upTo) {
+        val unread = redisTemplate.execute(READ_SCRIPT,
+                List.of(UNREAD_KEY_PREFIX + userID, READ_KEY_PREFIX + userID, unreadIDsKey(userID, peerID)),
+                peerID, upTo);
+        return unread == null ? 0 : unread;
+    }
+
+    /**
+     * 获取用户的未读消息数
+     *
+     * @param userID 用户ID
+     * @return 发送者ID -> 未读数，没有未读消息的会话不出现
+     */
+    public Map<String, Long> getUnreadCounts(@Nonnull String userID) {
+        val entries = redisTemplate.<String, String>opsForHash().entries(UNREAD_KEY_PREFIX + userID);
+        val counts = new HashMap<String, Long>(entries.size() * 2);
+        entries.forEach((senderID, count) -> counts.put(senderID, Long.parseLong(count)));
+        return counts;
+    }
+
+    /**
+     * 用户在 Redis 中的频道，推送给该用户的消息都发布到这里
+     */
+    public static String channel(@Nonnull String userID) {
+        return CHANNEL_PREFIX + userID;
+    }
+
+    /**
+     * 解析频道中发布的消息
+     */
+    public Message fromJson(@Nonnull String json) throws JsonProcessingException {
+        return objectMapper.readValue(json, Message.class);
+    }
+
+    /**
+     * 把发件箱中的消息批量写入数据库
+     * 先处理长时间未确认的消息，再读取新消息，直到发件箱为空
+     */
+    @Scheduled(fixedDelayString = "${akari.chat.persist-interval-ms:200}")
+    @PreDestroy
+    public void persist() {
+        try {
+            List<MapRecord<String, Object, Object>> records;
+            do {
+                records = claimStale();
+                persistBatch(records);
+            } while (records.size() >= persistBatchSize);
+            // 上次写入失败、已取出但未确认的消息
+            persistBatch(read(ReadOffset.from("0")));
+            do {
+                records = read(ReadOffset.lastConsumed());
+                persistBatch(records);
+            } while (records.size() >= persistBatchSize);
+        } catch (Exception e) {
+            // 未确认的消息留在发件箱中，下一轮重试
+            log.warn("聊天消息写入数据库失败", e);
+        }
+    }
+
+    private List<MapRecord<String, Object, Object>> read(ReadOffset offset) {
+        val records = redisTemplate.opsForStream().read(consumer,
+                StreamReadOptions.empty().count(persistBatchSize),
+                StreamOffset.create(OUTBOX_KEY, offset));
+        return records == null ? List.of() : records;
+    }
+
+    private List<MapRecord<String, Object, Object>> claimStale() {
+        val pending = redisTemplate.opsForStream().pending(OUTBOX_KEY, OUTBOX_GROUP, Range.unbounded(), persistBatchSize);
+        val stale = pending.stream()
+                .filter(message -> !message.getConsumerName().equals(nodeID))
+                .filter(message -> message.getElapsedTimeSinceLastDelivery().compareTo(claimIdle) >= 0)
+                .map(PendingMessage::getId)
+                .toArray(RecordId[]::new);
+        if (stale.length == 0) {
+            return List.of();
+        }
+        return redisTemplate.opsForStream().claim(OUTBOX_KEY, OUTBOX_GROUP, nodeID, claimIdle, stale);
+    }
+
+    private void persistBatch(List<MapRecord<String, Object, Object>> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        val messages = new ArrayList<Message>(records.size());
+        for (val record : records) {
+            try {
+                messages.add(fromJson((String) record.getValue().get(OUTBOX_FIELD)));
+            } catch (JsonProcessingException | RuntimeException e) {
+                // 无法解析的记录重试也不会成功，直接丢弃
+                log.error("丢弃无法解析的聊天消息: recordID={}", record.getId(), e);
+            }
+        }
+        messageDao.appendAll(messages);
+
+        val ids = records.stream().map(MapRecord::getId).toArray(RecordId[]::new);
+        redisTemplate.opsForStream().acknowledge(OUTBOX_KEY, OUTBOX_GROUP, ids);
+        redisTemplate.opsForStream().delete(OUTBOX_KEY, ids);
+    }
+
+    private static String unreadIDsKey(String userID, String peerID) {
+        return UNREAD_IDS_KEY_PREFIX + userID + ":" + peerID;
+    }
+
+    private String readUpTo(String userID, String peerID) {
+        return redisTemplate.<String, String>opsForHash().get(READ_KEY_PREFIX + userID, peerID);
+    }
+
+    private String toJson(Message message) {
+        try {
+            return objectMapper.writeValueAsString(message);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("消息序列化失败", e);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.github.nanoyou.akariyumetabackend.service;
 
+import com.github.nanoyou.akariyumetabackend.common.cache.TwoLevelCache;
 import com.github.nanoyou.akariyumetabackend.dao.CourseDao;
 import com.github.nanoyou.akariyumetabackend.entity.task.Course;
 import jakarta.annotation.Nonnull;
@@ -13,14 +14,17 @@ import java.util.Optional;
 public class CourseService {
 
     private final CourseDao courseDao;
+    private final TwoLevelCache<Course> courseCache;
 
     @Autowired
-    private CourseService(CourseDao courseDao) {
+    private CourseService(CourseDao courseDao, TwoLevelCache<Course> courseCache) {
         this.courseDao = courseDao;
+        this.courseCache = courseCache;
     }
 
     public Optional<Course> addCourse(@Nonnull Course course) {
         courseDao.saveAndFlush(course);
+        courseCache.invalidate(course.getTaskID());
 
         return Optional.of(Course.builder()
                 .taskID(course.getTaskID())
@@ -36,7 +40,14 @@ public class CourseService {
      * @apiNote Task和Course是一一对应的, 具有相同的ID
      */
     public Optional<Course> getCourse(@Nonnull String courseID) {
-        return courseDao.findById(courseID);
+        return courseCache.get(courseID, courseDao::findById);
+    }
+
+    /**
+     * 只从本地缓存中取课程，未命中时返回空
+     */
+    public Optional<Course> getCachedCourse(@Nonnull String courseID) {
+        return courseCache.getLocal(courseID);
     }
 
 
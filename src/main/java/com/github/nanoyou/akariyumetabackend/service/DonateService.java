@@ -0,0 +1,360 @@
+package com.github.nanoyou.akariyumetabackend.service;
+
+import com.github.nanoyou.akariyumetabackend.common.enumeration.DonationTotalKind;
+import com.github.nanoyou.akariyumetabackend.common.exception.NoSuchDonationTargetException;
+import com.github.nanoyou.akariyumetabackend.common.id.UuidV7;
+import com.github.nanoyou.akariyumetabackend.dao.*;
+import com.github.nanoyou.akariyumetabackend.entity.donate.DonateGoods;
+import com.github.nanoyou.akariyumetabackend.entity.donate.DonateMoney;
+import com.github.nanoyou.akariyumetabackend.entity.donate.DonationTotal;
+import com.github.nanoyou.akariyumetabackend.entity.donate.GoodsInfo;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * 捐助服务
+ * 捐款和捐物先进入有界队列，由一个写线程每次取出一批，在一个事务中追加流水并增量更新汇总，
+ * 募捐高峰时大量捐助合并成少量事务；队列满时直接拒绝。调用方拿到的结果在事务提交之后才完成。
+ * 同一捐助人的同一幂等键只记一次账，重复提交得到第一次记账的流水。
+ */
+@Slf4j
+@Service
+public class DonateService {
+
+    private final DonateMoneyDao donateMoneyDao;
+    private final DonateGoodsDao donateGoodsDao;
+    private final DonationTotalDao donationTotalDao;
+    private final GoodsInfoDao goodsInfoDao;
+    private final UserDao userDao;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final BlockingQueue<Pending<?>> queue;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    @Autowired
+    private DonateService(DonateMoneyDao donateMoneyDao,
+                          DonateGoodsDao donateGoodsDao,
+                          DonationTotalDao donationTotalDao,
+                          GoodsInfoDao goodsInfoDao,
+                          UserDao userDao,
+                          PlatformTransactionManager transactionManager,
+                          @Value("${akari.donate.batch-size:200}") int batchSize,
+                          @Value("${akari.donate.queue-size:10000}") int queueSize) {
+        this.donateMoneyDao = donateMoneyDao;
+        this.donateGoodsDao = donateGoodsDao;
+        this.donationTotalDao = donationTotalDao;
+        this.goodsInfoDao = goodsInfoDao;
+        this.userDao = userDao;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = Math.max(1, batchSize);
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.writer = new Thread(this::runWriter, "donate-writer");
+    }
+
+    /**
+     * 等待记账的一笔捐助
+     */
+    private static class Pending<T> {
+        private final T donation;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        private Pending(T donation) {
+            this.donation = donation;
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * 停止接收新的捐助，等待队列中已有的捐助记账完成
+     * 写线程结束后仍留在队列中的捐助（等待超时或写线程被中断）以 RejectedExecutionException 失败，调用方不会一直等待
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+        val leftover = new ArrayList<Pending<?>>();
+        queue.drainTo(leftover);
+        for (val pending : leftover) {
+            pending.result.completeExceptionally(new RejectedExecutionException("捐助服务正在关闭"));
+        }
+        if (!leftover.isEmpty()) {
+            log.warn("关闭时有 {} 笔捐助未记账", leftover.size());
+        }
+    }
+
+    /**
+     * 捐款
+     *
+     * @param donatorID      捐助人ID
+     * @param doneeID        受赠人ID
+     * @param amount         金额，以分为单位
+     * @param wishes         留言祝福
+     * @param idempotencyKey 幂等键，为空时不做重复检查
+     * @return 记账后的流水；重复提交时为第一次记账的流水；
+     * 受赠人不存在时以 NoSuchDonationTargetException 失败，队列已满时以 RejectedExecutionException 失败
+     */
+    public CompletableFuture<DonateMoney> donateMoney(@Nonnull String donatorID, @Nonnull String doneeID, long amount,
+                                                      @Nullable String wishes, @Nullable String idempotencyKey) {
+        val id = UuidV7.nextString();
+        return submit(DonateMoney.builder()
+                .id(id)
+                .amount(amount)
+                .createdTime(LocalDateTime.now())
+                .donatorID(donatorID)
+                .doneeID(doneeID)
+                .wishes(wishes)
+                .idempotencyKey(idempotencyKey == null ? id : idempotencyKey)
+                .build());
+    }
+
+    /**
+     * 捐物
+     *
+     * @param donatorID      捐助人ID
+     * @param goodsID        物品ID
+     * @param amount         数量
+     * @param wishes         留言祝福
+     * @param idempotencyKey 幂等键，为空时不做重复检查
+     * @return 记账后的流水，总钱数按物品单价计算；重复提交时为第一次记账的流水；
+     * 物品不存在时以 NoSuchDonationTargetException 失败，总钱数溢出时以 ArithmeticException 失败，
+     * 队列已满时以 RejectedExecutionException 失败
+     */
+    public CompletableFuture<DonateGoods> donateGoods(@Nonnull String donatorID, @Nonnull String goodsID, long amount,
+                                                      @Nullable String wishes, @Nullable String idempotencyKey) {
+        val id = UuidV7.nextString();
+        return submit(DonateGoods.builder()
+                .id(id)
+                .amount(amount)
+                .createdTime(LocalDateTime.now())
+                .donatorID(donatorID)
+                .goodsID(goodsID)
+                .wishes(wishes)
+                .idempotencyKey(idempotencyKey == null ? id : idempotencyKey)
+                .build());
+    }
+
+    public List<GoodsInfo> getAllGoods() {
+        return goodsInfoDao.findAll();
+    }
+
+    public GoodsInfo addGoods(@Nonnull GoodsInfo goods) {
+        return goodsInfoDao.save(goods);
+    }
+
+    /**
+     * @param kind    汇总维度
+     * @param ownerID 受赠人ID、捐助人ID或物品ID
+     * @return 累计捐助，没有捐助记录时为空
+     */
+    public Optional<DonationTotal> getTotal(@Nonnull DonationTotalKind kind, @Nonnull String ownerID) {
+        return donationTotalDao.findById(new DonationTotal.Key(kind, ownerID));
+    }
+
+    /**
+     * @param kind  汇总维度
+     * @param limit 条数
+     * @return 累计钱数最多的若干条
+     */
+    public List<DonationTotal> getLeaderboard(@Nonnull DonationTotalKind kind, int limit) {
+        return donationTotalDao.findByKindOrderByTotalMoneyDesc(kind, PageRequest.of(0, limit));
+    }
+
+    private <T> CompletableFuture<T> submit(T donation) {
+        if (!running) {
+            return CompletableFuture.failedFuture(new RejectedExecutionException("捐助服务正在关闭"));
+        }
+        val pending = new Pending<>(donation);
+        if (!queue.offer(pending)) {
+            return CompletableFuture.failedFuture(new RejectedExecutionException("捐助队列已满"));
+        }
+        // 检查 running 之后、放入队列之前开始关闭时，写线程可能已经退出；能取回说明还没有被记账或被 shutdown 取走
+        if (!running && queue.remove(pending)) {
+            return CompletableFuture.failedFuture(new RejectedExecutionException("捐助服务正在关闭"));
+        }
+        return pending.result;
+    }
+
+    private void runWriter() {
+        val batch = new ArrayList<Pending<?>>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                val first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * 在一个事务中记一批账，事务提交后再完成各笔捐助的结果
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void write(List<Pending<?>> batch) {
+        Map<Pending<?>, Object> results = null;
+        RuntimeException failure = null;
+        // 另一个节点同时写入了相同的幂等键时整批回滚，重新去重后再试一次
+        for (int attempt = 0; attempt < 2 && results == null; attempt++) {
+            try {
+                results = transactionTemplate.execute(status -> writeBatch(batch));
+                failure = null;
+            } catch (DuplicateKeyException e) {
+                failure = e;
+            } catch (RuntimeException e) {
+                failure = e;
+                break;
+            }
+        }
+        if (failure != null) {
+            log.warn("捐助记账失败: {} 笔", batch.size(), failure);
+            for (val pending : batch) {
+                pending.result.completeExceptionally(failure);
+            }
+            return;
+        }
+        for (val pending : batch) {
+            val result = results.get(pending);
+            if (result instanceof Throwable e) {
+                pending.result.completeExceptionally(e);
+            } else {
+                ((CompletableFuture) pending.result).complete(result);
+            }
+        }
+    }
+
+    /**
+     * @return 每笔捐助的结果：记账后的流水，或校验失败的异常
+     */
+    private Map<Pending<?>, Object> writeBatch(List<Pending<?>> batch) {
+        val results = new IdentityHashMap<Pending<?>, Object>(batch.size());
+        val totals = new HashMap<DonationTotal.Key, DonationTotal>();
+
+        // 受赠人和物品在这里整批校验，请求线程不访问数据库，不会在等待记账时占住连接
+        val doneeIDs = new HashSet<String>();
+        val goodsIDs = new HashSet<String>();
+        for (val pending : batch) {
+            if (pending.donation instanceof DonateMoney donation) {
+                doneeIDs.add(donation.getDoneeID());
+            } else if (pending.donation instanceof DonateGoods donation) {
+                goodsIDs.add(donation.getGoodsID());
+            }
+        }
+        val donees = new HashSet<String>();
+        userDao.findAllById(doneeIDs).forEach(user -> donees.add(user.getId()));
+        val unitPrices = new HashMap<String, Long>();
+        goodsInfoDao.findAllById(goodsIDs).forEach(goods -> unitPrices.put(goods.getId(), goods.getUnitPrice()));
+
+        // 批内按 (捐助人, 幂等键) 去重，重复的几笔共用第一笔的结果
+        val money = new LinkedHashMap<String, DonateMoney>();
+        val goods = new LinkedHashMap<String, DonateGoods>();
+        for (val pending : batch) {
+            if (pending.donation instanceof DonateMoney donation) {
+                if (!donees.contains(donation.getDoneeID())) {
+                    results.put(pending, new NoSuchDonationTargetException(donation.getDoneeID()));
+                    continue;
+                }
+                money.putIfAbsent(key(donation.getDonatorID(), donation.getIdempotencyKey()), donation);
+            } else if (pending.donation instanceof DonateGoods donation) {
+                val unitPrice = unitPrices.get(donation.getGoodsID());
+                if (unitPrice == null) {
+                    results.put(pending, new NoSuchDonationTargetException(donation.getGoodsID()));
+                    continue;
+                }
+                try {
+                    donation.setTotalMoney(Math.multiplyExact(donation.getAmount(), unitPrice));
+                } catch (ArithmeticException e) {
+                    results.put(pending, e);
+                    continue;
+                }
+                goods.putIfAbsent(key(donation.getDonatorID(), donation.getIdempotencyKey()), donation);
+            }
+        }
+
+        for (val existing : donateMoneyDao.findExisting(List.copyOf(money.values()))) {
+            money.put(key(existing.getDonatorID(), existing.getIdempotencyKey()), existing);
+        }
+        val newMoney = new ArrayList<DonateMoney>();
+        for (val pending : batch) {
+            if (pending.donation instanceof DonateMoney donation && !results.containsKey(pending)) {
+                val recorded = money.get(key(donation.getDonatorID(), donation.getIdempotencyKey()));
+                if (recorded == donation) {
+                    newMoney.add(donation);
+                    addTotal(totals, DonationTotalKind.DONEE, donation.getDoneeID(), donation.getAmount(), 0);
+                    addTotal(totals, DonationTotalKind.DONOR, donation.getDonatorID(), donation.getAmount(), 0);
+                }
+                results.put(pending, recorded);
+            }
+        }
+
+        for (val existing : donateGoodsDao.findExisting(List.copyOf(goods.values()))) {
+            goods.put(key(existing.getDonatorID(), existing.getIdempotencyKey()), existing);
+        }
+        val newGoods = new ArrayList<DonateGoods>();
+        for (val pending : batch) {
+            if (pending.donation instanceof DonateGoods donation && !results.containsKey(pending)) {
+                val recorded = goods.get(key(donation.getDonatorID(), donation.getIdempotencyKey()));
+                if (recorded == donation) {
+                    newGoods.add(donation);
+                    addTotal(totals, DonationTotalKind.DONOR, donation.getDonatorID(), donation.getTotalMoney(), 0);
+                    addTotal(totals, DonationTotalKind.GOODS, donation.getGoodsID(), donation.getTotalMoney(), donation.getAmount());
+                }
+                results.put(pending, recorded);
+            }
+        }
+
+        donateMoneyDao.appendAll(newMoney);
+        donateGoodsDao.appendAll(newGoods);
+        donationTotalDao.increaseAll(List.copyOf(totals.values()));
+        return results;
+    }
+
+    /**
+     * 在本批的汇总增量上记一笔捐助
+     */
+    private static void addTotal(Map<DonationTotal.Key, DonationTotal> totals, DonationTotalKind kind, String ownerID,
+                                 long money, long amount) {
+        val total = totals.computeIfAbsent(new DonationTotal.Key(kind, ownerID), key -> DonationTotal.builder()
+                .kind(kind)
+                .ownerID(ownerID)
+                .totalMoney(0L)
+                .totalAmount(0L)
+                .donationCount(0L)
+                .build());
+        total.setTotalMoney(total.getTotalMoney() + money);
+        total.setTotalAmount(total.getTotalAmount() + amount);
+        total.setDonationCount(total.getDonationCount() + 1);
+    }
+
+    private static String key(String donatorID, String idempotencyKey) {
+        return donatorID + "\n" + idempotencyKey;
+    }
+}
@@ -1,5 +1,6 @@
 package com.github.nanoyou.akariyumetabackend.service;
 
+import com.github.nanoyou.akariyumetabackend.common.id.CompactUuid;
 import com.github.nanoyou.akariyumetabackend.dao.CommentDao;
 import com.github.nanoyou.akariyumetabackend.dto.dynamic.CommentDTO;
 import com.github.nanoyou.akariyumetabackend.dto.dynamic.DynamicDTO;
@@ -8,13 +9,14 @@ import com.github.nanoyou.akariyumetabackend.entity.dynamic.Comment;
 import jakarta.annotation.Nonnull;
 import lombok.val;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 @Service
 public class DynamicService {
@@ -34,14 +36,12 @@ public class DynamicService {
         return Optional.ofNullable(commentDao.saveAndFlush(comment));
     }
 
-    public List<Comment> getDynamicsByCommenterID(@Nonnull String commenterID) {
-        return commentDao.findByCommenterID(commenterID);
-    }
-
     public List<Comment> getDynamicsByFollowerID(@Nonnull String commenterID) {
-        return subscriptionService.getFolloweeIDs(commenterID).stream()
-                .flatMap(followeeID -> commentDao.findByCommenterID(followeeID).stream())
-                .collect(Collectors.toList());
+        val followeeIDs = subscriptionService.getFolloweeIDs(commenterID);
+        if (followeeIDs.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(commentDao.findByCommenterIDInAndReplyToIsNull(followeeIDs, Pageable.unpaged()));
     }
 
     @Deprecated
@@ -62,29 +62,53 @@ public class DynamicService {
         );
     }
 
+    /**
+     * 加载以 commentID 为根的评论树
+     * 整棵子树和所有节点的点赞数各只查询一次，再在内存中按 replyTo 组装
+     *
+     * @param commentID 根评论ID
+     * @return 评论树，根评论不存在时返回 null
+     */
     public DynamicTreeDTO getDynamicTree(@Nonnull String commentID) {
-        DynamicTreeDTO node = null;
+        val rootID = CompactUuid.toBytes(commentID);
+        if (rootID == null) {
+            return null;
+        }
+        val comments = commentDao.findSubtree(rootID);
+        if (comments.isEmpty()) {
+            return null;
+        }
 
-        val commentOpt = commentDao.findById(commentID);
-        if (commentOpt.isEmpty()) {
-            return node;
+        val likeCounts = likeService.getLikeCounts(
+                comments.stream().map(Comment::getId).toList()
+        );
+
+        val nodes = new HashMap<String, DynamicTreeDTO>(comments.size() * 2);
+        for (Comment comment : comments) {
+            nodes.put(comment.getId(), DynamicTreeDTO.builder()
+                    .id(comment.getId())
+                    .commenterID(comment.getCommenterID())
+                    .content(comment.getContent())
+                    .replyTo(comment.getReplyTo())
+                    .createTime(comment.getCreateTime())
+                    .likes(likeCounts.getOrDefault(comment.getId(), 0))
+                    .children(new ArrayList<>())
+                    .build());
         }
-        val comment = commentOpt.get();
-        val likeCount = likeService.getLikeCountByCommentID(comment.getId());
-        node = DynamicTreeDTO.builder()
-                .id(comment.getId())
-                .commenterID(comment.getCommenterID())
-                .content(comment.getContent())
-                .replyTo(comment.getReplyTo())
-                .createTime(comment.getCreateTime())
-                .likes(likeCount)
-                .children(new ArrayList<>())
-                .build();
-        val byReplyTo = commentDao.findByReplyTo(comment.getId());
-        for (Comment comment1 : byReplyTo) {
-            node.getChildren().add(this.getDynamicTree(comment1.getId()));
+
+        // 挂载子节点，根节点的 replyTo 不在子树内；从数据库读出的ID是小写的规范形式
+        val canonicalID = CompactUuid.toString(rootID);
+        DynamicTreeDTO root = nodes.get(canonicalID);
+        for (Comment comment : comments) {
+            if (comment.getId().equals(canonicalID)) {
+                continue;
+            }
+            val parent = nodes.get(comment.getReplyTo());
+            if (parent != null) {
+                parent.getChildren().add(nodes.get(comment.getId()));
+            }
         }
-        return node;
+        return root;
     }
 
     public Optional<DynamicDTO> reply(@Nonnull String content, @Nonnull String replyTo, @Nonnull String whoReply) {
@@ -106,6 +130,10 @@ public class DynamicService {
         );
     }
 
+    public Optional<Comment> getComment(@Nonnull String id) {
+        return commentDao.findById(id);
+    }
+
     public boolean existByID(@Nonnull String id) {
         return commentDao.existsById(id);
     }
@@ -0,0 +1,109 @@
+package com.github.nanoyou.akariyumetabackend.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.nanoyou.akariyumetabackend.dao.CommentDao;
+import com.github.nanoyou.akariyumetabackend.dao.TaskDao;
+import com.github.nanoyou.akariyumetabackend.dao.TaskRecordDao;
+import jakarta.annotation.Nonnull;
+import jakarta.persistence.EntityManager;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.stream.Stream;
+
+/**
+ * 数据导出
+ * 以 NDJSON（每行一个 JSON 对象）格式边读边写，数据库端按批读取，
+ * 写出的实体定期从持久化上下文中清除，导出占用的内存与数据量无关。
+ */
+@Service
+public class ExportService {
+
+    /**
+     * 每写出这么多行清空一次持久化上下文并刷新输出
+     */
+    private static final int CHUNK = 500;
+
+    private final TaskDao taskDao;
+    private final TaskRecordDao taskRecordDao;
+    private final CommentDao commentDao;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter writer;
+
+    // @Transactional 需要 CGLIB 代理，构造器不能是 private
+    @Autowired
+    ExportService(TaskDao taskDao, TaskRecordDao taskRecordDao, CommentDao commentDao,
+                  EntityManager entityManager, ObjectMapper objectMapper) {
+        this.taskDao = taskDao;
+        this.taskRecordDao = taskRecordDao;
+        this.commentDao = commentDao;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * 导出所有任务及其课程
+     *
+     * @param out 输出流，不会被关闭
+     * @return 导出的行数
+     */
+    @Transactional(readOnly = true)
+    public long exportTaskCourses(@Nonnull OutputStream out) throws IOException {
+        try (val rows = taskDao.streamTaskCourses()) {
+            return write(rows, out);
+        }
+    }
+
+    /**
+     * 导出所有任务记录
+     *
+     * @param out 输出流，不会被关闭
+     * @return 导出的行数
+     */
+    @Transactional(readOnly = true)
+    public long exportTaskRecords(@Nonnull OutputStream out) throws IOException {
+        try (val rows = taskRecordDao.streamAll()) {
+            return write(rows, out);
+        }
+    }
+
+    /**
+     * 导出所有评论（包括动态）
+     *
+     * @param out 输出流，不会被关闭
+     * @return 导出的行数
+     */
+    @Transactional(readOnly = true)
+    public long exportComments(@Nonnull OutputStream out) throws IOException {
+        try (val rows = commentDao.streamAll()) {
+            return write(rows, out);
+        }
+    }
+
+    private long write(@Nonnull Stream<?> rows, @Nonnull OutputStream out) throws IOException {
+        long count = 0;
+        try (val generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            val iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                writer.writeValue(generator, iterator.next());
+                generator.writeRaw('\n');
+                if (++count % CHUNK == 0) {
+                    entityManager.clear();
+                    generator.flush();
+                }
+            }
+        }
+        return count;
+    }
+}
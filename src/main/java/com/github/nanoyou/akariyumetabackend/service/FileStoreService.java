@@ -0,0 +1,233 @@
+package com.github.nanoyou.akariyumetabackend.service;
+
+import com.github.nanoyou.akariyumetabackend.common.exception.FileTooLargeException;
+import com.github.nanoyou.akariyumetabackend.common.exception.UnsupportedFileTypeException;
+import com.github.nanoyou.akariyumetabackend.entity.filestore.FileItem;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * 内容寻址的本地文件存储
+ * 文件以内容的 SHA-256 命名，存放在 {store-dir}/ab/cd/abcd... 下，MIME 类型写在同名的 .type 文件中。
+ * 上传时边读边计算哈希边写入临时文件，完成后原子地改名为最终路径；内容相同的文件只保存一份。
+ */
+@Slf4j
+@Service
+public class FileStoreService {
+
+    private static final Pattern ID_PATTERN = Pattern.compile("[0-9a-f]{64}");
+    private static final String TYPE_SUFFIX = ".type";
+    private static final String TMP_DIR = "tmp";
+    /**
+     * 识别文件类型需要的头部字节数
+     */
+    private static final int HEADER_BYTES = 12;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Value("${akari.file.store-dir:data/files}")
+    private Path storeDir;
+    /**
+     * 单个文件的大小上限
+     */
+    @Value("${akari.file.max-size:10MB}")
+    private DataSize maxSize;
+
+    /**
+     * 创建存储目录，清理上次进程退出时遗留的临时文件
+     */
+    @PostConstruct
+    public void init() throws IOException {
+        Files.createDirectories(storeDir.resolve(TMP_DIR));
+        try (val files = Files.list(storeDir.resolve(TMP_DIR))) {
+            for (Path file : files.toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * @return 单个文件的大小上限（字节）
+     */
+    public long getMaxSize() {
+        return maxSize.toBytes();
+    }
+
+    /**
+     * 把输入流中的文件保存到存储中，不在内存中保留整个文件
+     *
+     * @param in 文件内容，由调用方关闭
+     * @return 保存后的文件
+     * @throws UnsupportedFileTypeException 不是支持的图片格式
+     * @throws FileTooLargeException        超过大小上限
+     */
+    public FileItem store(@Nonnull InputStream in) throws IOException {
+        val header = in.readNBytes(HEADER_BYTES);
+        val mimeType = detectMimeType(header);
+        if (mimeType == null) {
+            throw new UnsupportedFileTypeException();
+        }
+
+        val digest = sha256();
+        val tmp = createTempFile();
+        long size = 0;
+        try (val out = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            val buffer = new byte[BUFFER_SIZE];
+            System.arraycopy(header, 0, buffer, 0, header.length);
+            int n = header.length;
+            do {
+                size += n;
+                if (size > maxSize.toBytes()) {
+                    throw new FileTooLargeException(maxSize.toBytes());
+                }
+                digest.update(buffer, 0, n);
+                val chunk = ByteBuffer.wrap(buffer, 0, n);
+                while (chunk.hasRemaining()) {
+                    out.write(chunk);
+                }
+                n = in.read(buffer);
+            } while (n >= 0);
+            out.force(false);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+
+        val id = HexFormat.of().formatHex(digest.digest());
+        val target = blobPath(id);
+        if (Files.exists(target)) {
+            Files.delete(tmp);
+            log.debug("文件已存在，跳过写入: id={}", id);
+        } else {
+            Files.createDirectories(target.getParent());
+            // 先写类型再改名，能看到文件时一定能读到类型
+            Files.writeString(typePath(id), mimeType, StandardCharsets.US_ASCII);
+            moveIntoPlace(tmp, target);
+        }
+        return FileItem.builder()
+                .id(id)
+                .mimeType(mimeType)
+                .size(size)
+                .build();
+    }
+
+    /**
+     * 查找文件
+     *
+     * @param id 文件ID
+     * @return 文件，ID 格式错误或文件不存在时为空
+     */
+    public Optional<FileItem> find(@Nonnull String id) {
+        if (!ID_PATTERN.matcher(id).matches()) {
+            return Optional.empty();
+        }
+        try {
+            val size = Files.size(blobPath(id));
+            val mimeType = Files.readString(typePath(id), StandardCharsets.US_ASCII).trim();
+            return Optional.of(FileItem.builder()
+                    .id(id)
+                    .mimeType(mimeType)
+                    .size(size)
+                    .build());
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * @param id 文件ID，必须已通过 {@link #find(String)} 校验
+     * @return 文件在磁盘上的路径
+     */
+    public Path blobPath(@Nonnull String id) {
+        return storeDir.resolve(id.substring(0, 2)).resolve(id.substring(2, 4)).resolve(id);
+    }
+
+    /**
+     * @param id     文件ID，必须已通过 {@link #find(String)} 校验
+     * @param suffix 后缀，如 .type
+     * @return 与文件放在同一目录、以文件ID加后缀命名的附属文件路径
+     */
+    public Path siblingPath(@Nonnull String id, @Nonnull String suffix) {
+        val blob = blobPath(id);
+        return blob.resolveSibling(blob.getFileName() + suffix);
+    }
+
+    /**
+     * 在存储的临时目录中创建文件，写完后用 {@link #moveIntoPlace(Path, Path)} 放到最终位置
+     */
+    public Path createTempFile() throws IOException {
+        return Files.createTempFile(storeDir.resolve(TMP_DIR), "upload-", ".part");
+    }
+
+    /**
+     * 把临时文件原子地改名为目标文件，读者要么看不到目标，要么看到完整的内容
+     */
+    public void moveIntoPlace(@Nonnull Path tmp, @Nonnull Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Path typePath(String id) {
+        return siblingPath(id, TYPE_SUFFIX);
+    }
+
+    /**
+     * 按文件头的魔数识别图片格式，不信任客户端声明的类型
+     */
+    static String detectMimeType(byte[] header) {
+        if (startsWith(header, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) {
+            return "image/png";
+        }
+        if (startsWith(header, 0xFF, 0xD8, 0xFF)) {
+            return "image/jpeg";
+        }
+        if (startsWith(header, 'G', 'I', 'F', '8')) {
+            return "image/gif";
+        }
+        if (startsWith(header, 'R', 'I', 'F', 'F') && header.length >= 12
+                && Arrays.equals(header, 8, 12, "WEBP".getBytes(StandardCharsets.US_ASCII), 0, 4)) {
+            return "image/webp";
+        }
+        return null;
+    }
+
+    private static boolean startsWith(byte[] header, int... magic) {
+        if (header.length < magic.length) {
+            return false;
+        }
+        for (int i = 0; i < magic.length; i++) {
+            if ((header[i] & 0xFF) != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package com.github.nanoyou.akariyumetabackend.service;
+
+import com.github.nanoyou.akariyumetabackend.entity.filestore.FileItem;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 图片缩略图服务
+ * 上传的图片在后台按配置的几种宽度缩小，结果作为原图的附属文件保存在原图旁边：
+ * {hash}.w480.jpg 等为缩略图，{hash}.variants 记录已生成的宽度，存在即表示该图已处理完。
+ * 生成在一个有界的线程池中进行，线程数按 CPU 核数设置，队列满时拒绝新任务，由调用方决定如何退让。
+ */
+@Slf4j
+@Service
+public class ImageVariantService {
+
+    private static final String VARIANTS_SUFFIX = ".variants";
+
+    private final FileStoreService fileStoreService;
+    /**
+     * 缩略图宽度，从小到大
+     */
+    private final int[] widths;
+    private final long maxPixels;
+    private final float jpegQuality;
+    private final ThreadPoolExecutor workers;
+    /**
+     * 已排队或正在生成的文件，避免同一张图重复提交
+     */
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    private ImageVariantService(FileStoreService fileStoreService,
+                                @Value("${akari.image.variant-widths:160,480,1080}") int[] widths,
+                                @Value("${akari.image.max-pixels:40000000}") long maxPixels,
+                                @Value("${akari.image.jpeg-quality:0.8}") float jpegQuality,
+                                @Value("${akari.image.variant-threads:0}") int threads,
+                                @Value("${akari.image.variant-queue-size:64}") int queueSize) {
+        this.fileStoreService = fileStoreService;
+        this.widths = Arrays.stream(widths).filter(width -> width > 0).sorted().distinct().toArray();
+        this.maxPixels = maxPixels;
+        this.jpegQuality = jpegQuality;
+        val poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        val threadCount = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                runnable -> {
+                    val thread = new Thread(runnable, "image-variant-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * 一个缩略图
+     */
+    @Data
+    @AllArgsConstructor
+    public static class Variant {
+        private int width;
+        private String mimeType;
+        private Path path;
+    }
+
+    /**
+     * @return 队列是否已满，满时新提交的任务会被拒绝
+     */
+    public boolean isSaturated() {
+        return workers.getQueue().remainingCapacity() == 0;
+    }
+
+    /**
+     * 提交缩略图生成任务，已生成或已在队列中时什么也不做
+     *
+     * @param fileItem 原图
+     * @return 任务是否已接受；队列已满时返回 false
+     */
+    public boolean submit(@Nonnull FileItem fileItem) {
+        val id = fileItem.getId();
+        if (Files.exists(fileStoreService.siblingPath(id, VARIANTS_SUFFIX)) || !pending.add(id)) {
+            return true;
+        }
+        try {
+            workers.execute(() -> {
+                try {
+                    generate(id);
+                } finally {
+                    pending.remove(id);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            pending.remove(id);
+            return false;
+        }
+    }
+
+    /**
+     * 查找不窄于请求宽度的最小缩略图
+     *
+     * @param fileItem 原图
+     * @param width    需要的宽度
+     * @return 缩略图；还没生成、格式不支持或所有缩略图都比请求的窄（此时原图更合适）时为空
+     */
+    public Optional<Variant> find(@Nonnull FileItem fileItem, int width) {
+        final String variants;
+        try {
+            variants = Files.readString(fileStoreService.siblingPath(fileItem.getId(), VARIANTS_SUFFIX), StandardCharsets.US_ASCII);
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+        for (val entry : variants.trim().split(",")) {
+            val colon = entry.indexOf(':');
+            if (colon < 0) {
+                continue;
+            }
+            val variantWidth = Integer.parseInt(entry.substring(0, colon));
+            val format = entry.substring(colon + 1);
+            if (variantWidth >= width) {
+                return Optional.of(new Variant(variantWidth, "image/" + ("jpg".equals(format) ? "jpeg" : format),
+                        variantPath(fileItem.getId(), variantWidth, format)));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * @return 原图是否已处理完（可能没有生成任何缩略图）
+     */
+    public boolean isProcessed(@Nonnull FileItem fileItem) {
+        return Files.exists(fileStoreService.siblingPath(fileItem.getId(), VARIANTS_SUFFIX));
+    }
+
+    private void generate(String id) {
+        val entries = new ArrayList<String>();
+        try {
+            val image = decode(id);
+            if (image != null) {
+                // 有透明通道的图（PNG、GIF）保存为 PNG，其余保存为 JPEG
+                val format = image.getColorModel().hasAlpha() ? "png" : "jpg";
+                BufferedImage current = image;
+                // 从大到小依次缩小，每次以上一个结果为输入
+                for (int i = widths.length - 1; i >= 0; i--) {
+                    if (widths[i] >= image.getWidth()) {
+                        continue;
+                    }
+                    current = scale(current, widths[i]);
+                    write(current, format, variantPath(id, widths[i], format));
+                    entries.add(0, widths[i] + ":" + format);
+                }
+            }
+        } catch (NoSuchFileException e) {
+            return;
+        } catch (IOException | RuntimeException e) {
+            // 解码失败的图不再重试，只提供原图
+            log.warn("生成缩略图失败: id={}", id, e);
+            entries.clear();
+        }
+        try {
+            val tmp = fileStoreService.createTempFile();
+            Files.writeString(tmp, String.join(",", entries), StandardCharsets.US_ASCII);
+            fileStoreService.moveIntoPlace(tmp, fileStoreService.siblingPath(id, VARIANTS_SUFFIX));
+        } catch (IOException e) {
+            log.warn("保存缩略图列表失败: id={}", id, e);
+        }
+    }
+
+    /**
+     * 解码原图，只解码到最大缩略图宽度的两倍左右，不把大图完整读入内存
+     *
+     * @return 图片；格式不支持或像素数超过上限时为 null
+     */
+    private BufferedImage decode(String id) throws IOException {
+        try (val in = ImageIO.createImageInputStream(fileStoreService.blobPath(id).toFile())) {
+            if (in == null) {
+                throw new NoSuchFileException(id);
+            }
+            val readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            val reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                val width = reader.getWidth(0);
+                val height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    log.warn("图片像素过多，不生成缩略图: id={}, {}x{}", id, width, height);
+                    return null;
+                }
+                val largest = widths.length == 0 ? width : widths[widths.length - 1];
+                val subsampling = Math.max(1, width / (largest * 2));
+                val param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * 缩小到指定宽度，先逐次减半再做最后一次双线性插值，避免一次缩小太多产生锯齿
+     */
+    private static BufferedImage scale(BufferedImage source, int width) {
+        BufferedImage current = source;
+        while (current.getWidth() / 2 >= width) {
+            current = resize(current, current.getWidth() / 2);
+        }
+        return current.getWidth() == width ? current : resize(current, width);
+    }
+
+    private static BufferedImage resize(BufferedImage source, int width) {
+        val height = Math.max(1, Math.round((float) source.getHeight() * width / source.getWidth()));
+        val type = source.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        val target = new BufferedImage(width, height, type);
+        val graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private void write(BufferedImage image, String format, Path target) throws IOException {
+        val tmp = fileStoreService.createTempFile();
+        try {
+            if ("jpg".equals(format)) {
+                val writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+                try (val out = ImageIO.createImageOutputStream(tmp.toFile())) {
+                    val param = writer.getDefaultWriteParam();
+                    param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                    param.setCompressionQuality(jpegQuality);
+                    writer.setOutput(out);
+                    writer.write(null, new IIOImage(image, null, null), param);
+                } finally {
+                    writer.dispose();
+                }
+            } else {
+                ImageIO.write(image, format, tmp.toFile());
+            }
+            fileStoreService.moveIntoPlace(tmp, target);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+    }
+
+    private Path variantPath(String id, int width, String format) {
+        return fileStoreService.siblingPath(id, ".w" + width + "." + format);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+}
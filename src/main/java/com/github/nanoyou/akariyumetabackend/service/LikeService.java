@@ -1,19 +1,257 @@
 package com.github.nanoyou.akariyumetabackend.service;
 
+import com.github.nanoyou.akariyumetabackend.common.id.CompactUuid;
+import com.github.nanoyou.akariyumetabackend.dao.LikeCountDao;
 import com.github.nanoyou.akariyumetabackend.dao.LikeDao;
+import com.github.nanoyou.akariyumetabackend.entity.dynamic.Like;
+import com.github.nanoyou.akariyumetabackend.entity.dynamic.LikeCount;
 import jakarta.annotation.Nonnull;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 点赞服务
+ * 点赞数保存在 LikeCount 计数表中，点赞和取消点赞产生的增量先在内存中按评论合并，
+ * 再由定时任务批量写回数据库，热门评论的大量点赞只会变成少量的 UPDATE。
+ * 增量在点赞所在的事务提交后才计入，回滚的点赞不影响点赞数。
+ * 节点宕机会丢失尚未写回的增量，由定期的对账按 Like 表修正。
+ * 对账只由持有 Redis 租约的一个节点进行，每次只检查上次对账以来有新点赞或写回过增量的评论。
+ */
+@Slf4j
 @Service
 public class LikeService {
 
+    /**
+     * 对账租约的键，值为持有者的节点标识
+     */
+    public static final String RECONCILE_LEASE_KEY = "like:reconcile-lease";
+    /**
+     * 查找有变化的评论时把上次对账的时间再往前推这么久，容忍应用与数据库之间的时钟偏差
+     */
+    private static final Duration WATERMARK_GRACE = Duration.ofMinutes(5);
+
+    /**
+     * 仍由自己持有时续期
+     * KEYS[1]: 租约的键
+     * ARGV: 节点标识, 有效期（毫秒）
+     */
+    private static final RedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+                return redis.call('PEXPIRE', KEYS[1], ARGV[2])
+            end
+            return 0
+            """, Long.class);
+
     private final LikeDao likeDao;
+    private final LikeCountDao likeCountDao;
+    private final StringRedisTemplate redisTemplate;
+    /**
+     * 本节点的标识，作为对账租约的值
+     */
+    private final String origin = UUID.randomUUID().toString();
+
+    /**
+     * 尚未写回数据库的点赞数增量，评论ID -> 增量
+     */
+    private final ConcurrentHashMap<String, Long> pendingDeltas = new ConcurrentHashMap<>();
+    /**
+     * 上一次对账发现的偏差，评论ID -> Like 表中的点赞数减去计数表中的点赞数，只在对账的线程中访问
+     */
+    private Map<String, Long> lastDrifts = new HashMap<>();
+    /**
+     * 上一次对账开始的时间，之后有变化的评论需要检查；没有持有租约时为 null，只在对账的线程中访问
+     */
+    private LocalDateTime watermark;
+
+    @Value("${akari.like.reconcile-interval-ms:3600000}")
+    private long reconcileIntervalMillis;
 
-    private LikeService(LikeDao likeDao) {
+    // @Transactional 需要 CGLIB 代理，构造器不能是 private
+    LikeService(LikeDao likeDao, LikeCountDao likeCountDao, StringRedisTemplate redisTemplate) {
         this.likeDao = likeDao;
+        this.likeCountDao = likeCountDao;
+        this.redisTemplate = redisTemplate;
+    }
+
+    /**
+     * 点赞
+     *
+     * @param commentID 被点赞的评论ID
+     * @param likerID   发起点赞的人的ID
+     * @param likedID   被点赞的人的ID
+     * @return 是否新增了点赞，已经点过赞时返回 false
+     */
+    @Transactional
+    public boolean like(@Nonnull String commentID, @Nonnull String likerID, @Nonnull String likedID) {
+        val key = new Like._LikeCombinedPrimaryKey(commentID, likerID);
+        if (likeDao.existsById(key)) {
+            return false;
+        }
+        likeDao.save(Like.builder()
+                .likeCombinedPrimaryKey(key)
+                .likedID(likedID)
+                .build());
+        addDeltaAfterCommit(commentID, 1L);
+        return true;
+    }
+
+    /**
+     * 取消点赞
+     *
+     * @param commentID 被点赞的评论ID
+     * @param likerID   发起点赞的人的ID
+     * @return 是否取消了点赞，没有点过赞时返回 false
+     */
+    @Transactional
+    public boolean unlike(@Nonnull String commentID, @Nonnull String likerID) {
+        val key = new Like._LikeCombinedPrimaryKey(commentID, likerID);
+        if (!likeDao.existsById(key)) {
+            return false;
+        }
+        likeDao.deleteById(key);
+        addDeltaAfterCommit(commentID, -1L);
+        return true;
+    }
+
+    /**
+     * 事务提交后再计入增量，没有事务时立即计入
+     */
+    private void addDeltaAfterCommit(String commentID, long delta) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            pendingDeltas.merge(commentID, delta, Long::sum);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                pendingDeltas.merge(commentID, delta, Long::sum);
+            }
+        });
     }
 
     public int getLikeCountByCommentID(@Nonnull String commentID) {
-        return likeDao.findByCommentID(commentID).size();
+        val stored = likeCountDao.findById(commentID).map(LikeCount::getLikeCount).orElse(0L);
+        return (int) (stored + pendingDeltas.getOrDefault(commentID, 0L));
+    }
+
+    /**
+     * 批量获取评论的点赞数，只发起一次主键查询
+     *
+     * @param commentIDs 评论ID集合
+     * @return 评论ID到点赞数的映射，包含所有传入的ID，没有点赞的为 0
+     */
+    public Map<String, Integer> getLikeCounts(@Nonnull Collection<String> commentIDs) {
+        val likeCounts = new HashMap<String, Integer>(commentIDs.size() * 2);
+        if (commentIDs.isEmpty()) {
+            return likeCounts;
+        }
+        commentIDs.forEach(id -> likeCounts.put(id, pendingDeltas.getOrDefault(id, 0L).intValue()));
+        for (LikeCount likeCount : likeCountDao.findAllById(commentIDs)) {
+            likeCounts.merge(likeCount.getCommentID(), likeCount.getLikeCount().intValue(), Integer::sum);
+        }
+        return likeCounts;
+    }
+
+    /**
+     * 把合并后的点赞数增量写回计数表
+     */
+    @Scheduled(fixedDelayString = "${akari.like.flush-interval-ms:1000}")
+    @PreDestroy
+    public void flush() {
+        for (String commentID : pendingDeltas.keySet()) {
+            val delta = pendingDeltas.remove(commentID);
+            val key = CompactUuid.toBytes(commentID);
+            if (delta == null || delta == 0 || key == null) {
+                continue;
+            }
+            try {
+                likeCountDao.increase(key, delta);
+            } catch (Exception e) {
+                // 写回失败时把增量放回缓冲区，等待下一轮
+                log.warn("点赞数写回失败: commentID={}, delta={}", commentID, delta, e);
+                pendingDeltas.merge(commentID, delta, Long::sum);
+            }
+        }
+    }
+
+    /**
+     * 按 Like 表修正计数表
+     * 写回中途的增量也会表现为偏差，只有连续两次对账偏差相同的评论才修正，修正时同样以增量写入，不覆盖并发的点赞。
+     * 每个节点都有自己的缓冲区，修正只能由一个节点计入，否则会被重复写回，因此只有持有租约的节点对账。
+     * 只检查上次对账以来有新点赞或写回过增量的评论，以及上次发现偏差的评论。
+     * 宕机时丢失的取消点赞不会留下记录，要等这条评论之后再有变化时才会被修正。
+     */
+    @Scheduled(fixedDelayString = "${akari.like.reconcile-interval-ms:3600000}",
+            initialDelayString = "${akari.like.reconcile-interval-ms:3600000}")
+    public void reconcile() {
+        val startedAt = LocalDateTime.now();
+        if (!holdLease()) {
+            if (watermark != null) {
+                log.info("失去点赞对账的租约");
+            }
+            watermark = null;
+            lastDrifts = new HashMap<>();
+            return;
+        }
+        if (watermark == null) {
+            // 上一个持有者可能在租约过期前宕机，从它最后一次可能对账的时间开始检查
+            watermark = startedAt.minus(Duration.ofMillis(reconcileIntervalMillis * 3));
+        }
+        final Map<String, Long> drifts;
+        try {
+            val candidates = new HashSet<>(likeCountDao.findTouchedSince(watermark.minus(WATERMARK_GRACE)));
+            candidates.addAll(lastDrifts.keySet());
+            drifts = likeCountDao.findDrifts(candidates);
+        } catch (Exception e) {
+            log.warn("点赞数对账失败", e);
+            return;
+        }
+        watermark = startedAt;
+        val previous = lastDrifts;
+        lastDrifts = new HashMap<>();
+        drifts.forEach((commentID, drift) -> {
+            if (!drift.equals(previous.get(commentID))) {
+                lastDrifts.put(commentID, drift);
+                return;
+            }
+            log.info("修正点赞数: commentID={}, delta={}", commentID, drift);
+            pendingDeltas.merge(commentID, drift, Long::sum);
+        });
+    }
+
+    /**
+     * 抢占或续期对账租约，有效期为两个对账间隔，持有者宕机后由其他节点接替
+     */
+    private boolean holdLease() {
+        try {
+            val ttl = Duration.ofMillis(reconcileIntervalMillis * 2);
+            if (Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(RECONCILE_LEASE_KEY, origin, ttl))) {
+                return true;
+            }
+            return Long.valueOf(1).equals(redisTemplate.execute(RENEW_SCRIPT, List.of(RECONCILE_LEASE_KEY), origin, String.valueOf(ttl.toMillis())));
+        } catch (RuntimeException e) {
+            log.warn("点赞对账的租约续期失败", e);
+            return false;
+        }
     }
 }
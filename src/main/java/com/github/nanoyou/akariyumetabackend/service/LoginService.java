@@ -1,41 +1,136 @@
 package com.github.nanoyou.akariyumetabackend.service;
 
+import com.github.nanoyou.akariyumetabackend.common.exception.LoginThrottledException;
 import com.github.nanoyou.akariyumetabackend.dao.UserDao;
 import com.github.nanoyou.akariyumetabackend.dto.user.LoginDTO;
 import com.github.nanoyou.akariyumetabackend.dto.user.UserDTO;
+import jakarta.annotation.Nonnull;
 import jakarta.validation.constraints.NotNull;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
+@Slf4j
 @Service
 public class LoginService {
+
+    private static final String ATTEMPT_KEY_PREFIX = "login:attempts:";
+    /**
+     * 计数加一，第一次计数时设置窗口的过期时间，两步在一个脚本中完成，不会留下没有过期时间的计数
+     * KEYS[1]: 计数的键
+     * ARGV: 窗口（毫秒）
+     */
+    private static final RedisScript<Long> ATTEMPT_SCRIPT = new DefaultRedisScript<>("""
+            local attempts = redis.call('INCR', KEYS[1])
+            if attempts == 1 then
+                redis.call('PEXPIRE', KEYS[1], ARGV[1])
+            end
+            return attempts
+            """, Long.class);
+
     private final UserDao userDao;
+    private final PasswordService passwordService;
+    private final StringRedisTemplate redisTemplate;
+
+    /**
+     * 时间窗口内允许的最大登录尝试次数
+     */
+    @Value("${akari.login.max-attempts:5}")
+    private long maxAttempts;
+    /**
+     * 登录尝试次数的统计窗口
+     */
+    @Value("${akari.login.attempt-window:5m}")
+    private Duration attemptWindow;
 
     @Autowired
-    private LoginService(UserDao userDao) {
+    private LoginService(UserDao userDao, PasswordService passwordService, StringRedisTemplate redisTemplate) {
         this.userDao = userDao;
+        this.passwordService = passwordService;
+        this.redisTemplate = redisTemplate;
     }
 
-    public Optional<UserDTO> login(@NotNull LoginDTO loginUserDTO) {
+    /**
+     * 登录
+     * 通过唯一索引按用户名查找用户，密码在校验线程池中比对，不占用请求线程的 CPU。
+     *
+     * @param loginUserDTO 用户名和密码
+     * @return 登录成功时为用户信息；尝试过于频繁时以 LoginThrottledException 失败，
+     * 校验线程池已满时以 RejectedExecutionException 失败
+     */
+    public CompletableFuture<Optional<UserDTO>> login(@NotNull LoginDTO loginUserDTO) {
+        val username = loginUserDTO.getUsername();
+        val password = loginUserDTO.getPassword();
+        if (username == null || password == null) {
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
+
+        if (!tryAttempt(username)) {
+            return CompletableFuture.failedFuture(new LoginThrottledException(username));
+        }
 
-        var loginUser = userDao.findByUsernameAndPassword(loginUserDTO.getUsername(), loginUserDTO.getPassword());
+        val loginUser = userDao.findByUsername(username);
+        if (loginUser.isEmpty()) {
+            return passwordService.verifyAbsentAsync(password).thenApply(matched -> Optional.empty());
+        }
+        val user = loginUser.get();
 
-        return loginUser.map(
-                user -> UserDTO.builder()
-                        .id(user.getId())
-                        .username(user.getUsername())
-                        .nickname(user.getNickname())
-                        .introduction(user.getIntroduction())
-                        .usageDuration(user.getUsageDuration())
-                        .role(user.getRole().value)
-                        .gender(user.getGender().value)
-                        .avatarURL(user.getAvatarURL())
-                        .build()
+        return passwordService.verifyAsync(password, user.getPassword()).thenApply(matched -> {
+            if (!matched) {
+                return Optional.empty();
+            }
+            resetAttempts(username);
+            // 旧的明文密码在登录成功时升级为哈希，此时已在校验线程中
+            if (passwordService.needsUpgrade(user.getPassword())) {
+                user.setPassword(passwordService.hash(password));
+                userDao.save(user);
+            }
+            return Optional.of(UserDTO.builder()
+                    .id(user.getId())
+                    .username(user.getUsername())
+                    .nickname(user.getNickname())
+                    .introduction(user.getIntroduction())
+                    .usageDuration(user.getUsageDuration())
+                    .role(user.getRole().value)
+                    .gender(user.getGender().value)
+                    .avatarURL(user.getAvatarURL())
+                    .build());
+        });
 
-        );
+    }
+
+    /**
+     * 记录一次登录尝试
+     *
+     * @return 是否允许本次尝试；Redis 不可用时放行
+     */
+    private boolean tryAttempt(@Nonnull String username) {
+        val key = ATTEMPT_KEY_PREFIX + username;
+        try {
+            val attempts = redisTemplate.execute(ATTEMPT_SCRIPT, List.of(key), String.valueOf(attemptWindow.toMillis()));
+            return attempts == null || attempts <= maxAttempts;
+        } catch (Exception e) {
+            log.warn("登录限流计数失败: username={}", username, e);
+            return true;
+        }
+    }
 
+    private void resetAttempts(@Nonnull String username) {
+        try {
+            redisTemplate.delete(ATTEMPT_KEY_PREFIX + username);
+        } catch (Exception e) {
+            log.warn("重置登录限流计数失败: username={}", username, e);
+        }
     }
 
 }
@@ -0,0 +1,169 @@
+package com.github.nanoyou.akariyumetabackend.service;
+
+import com.github.nanoyou.akariyumetabackend.common.exception.LookupTimeoutException;
+import com.github.nanoyou.akariyumetabackend.common.execution.DatabaseExecutor;
+import jakarta.annotation.Nonnull;
+import lombok.val;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 一组并行执行、共享截止时间的查询
+ * <ul>
+ *     <li>fork 的查询在数据库线程池中立即开始执行，本地缓存已命中的值不经过线程池</li>
+ *     <li>任意一个查询失败或到达截止时间，其余查询被取消，已开始的查询所在线程被中断，等待方得到第一个失败</li>
+ *     <li>离开 try-with-resources 时取消所有未完成的查询</li>
+ * </ul>
+ * 查询在其他线程中执行，不参与调用方的事务；fork 的查询内部不能再打开新的 LookupScope。
+ */
+public final class LookupScope implements AutoCloseable {
+
+    private final DatabaseExecutor databaseExecutor;
+    private final Duration timeout;
+    private final long deadline;
+
+    private final List<CompletableFuture<?>> futures = new CopyOnWriteArrayList<>();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private volatile boolean cancelled;
+
+    LookupScope(@Nonnull DatabaseExecutor databaseExecutor, @Nonnull Duration timeout) {
+        this.databaseExecutor = databaseExecutor;
+        this.timeout = timeout;
+        this.deadline = System.nanoTime() + timeout.toNanos();
+    }
+
+    /**
+     * 开始一个查询
+     *
+     * @param task 查询
+     * @return 查询结果的句柄
+     */
+    public <T> Lookup<T> fork(@Nonnull Callable<T> task) {
+        val future = databaseExecutor.submit(() -> {
+            if (cancelled) {
+                throw new CancellationException("查询已取消");
+            }
+            return task.call();
+        });
+        future.whenComplete((result, e) -> {
+            if (e != null && !(e instanceof CancellationException)) {
+                fail(e);
+            }
+        });
+        futures.add(future);
+        return new Lookup<>(future);
+    }
+
+    /**
+     * 本地缓存已命中时直接使用缓存中的值，未命中时才开始查询
+     *
+     * @param cached 从本地缓存取得的值
+     * @param task   未命中时的查询
+     * @return 查询结果的句柄
+     */
+    public <T> Lookup<Optional<T>> forkUnlessCached(@Nonnull Optional<T> cached, @Nonnull Callable<Optional<T>> task) {
+        if (cached.isPresent()) {
+            return new Lookup<>(CompletableFuture.completedFuture(cached));
+        }
+        return fork(task);
+    }
+
+    /**
+     * 等待所有查询完成
+     *
+     * @throws LookupTimeoutException 到达截止时间
+     */
+    public void join() {
+        try {
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(remaining(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            cancel();
+            throw new LookupTimeoutException(timeout);
+        } catch (InterruptedException e) {
+            cancel();
+            Thread.currentThread().interrupt();
+            throw new CancellationException("等待查询时被中断");
+        } catch (ExecutionException | CancellationException e) {
+            // 失败原因记录在 failure 中
+        }
+        throwIfFailed();
+    }
+
+    @Override
+    public void close() {
+        if (futures.stream().anyMatch(f -> !f.isDone())) {
+            cancel();
+        }
+    }
+
+    private void fail(@Nonnull Throwable e) {
+        if (failure.compareAndSet(null, e)) {
+            cancel();
+        }
+    }
+
+    private void cancel() {
+        cancelled = true;
+        futures.forEach(f -> f.cancel(true));
+    }
+
+    private long remaining() {
+        return Math.max(0, deadline - System.nanoTime());
+    }
+
+    private void throwIfFailed() {
+        val e = failure.get();
+        if (e instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        }
+        if (e instanceof Error error) {
+            throw error;
+        }
+        if (e != null) {
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * 一个查询的结果
+     */
+    public final class Lookup<T> {
+
+        private final CompletableFuture<T> future;
+
+        private Lookup(@Nonnull CompletableFuture<T> future) {
+            this.future = future;
+        }
+
+        /**
+         * 等待这个查询完成，不必等待同一组的其他查询
+         *
+         * @return 查询结果
+         * @throws LookupTimeoutException 到达截止时间
+         */
+        public T get() {
+            try {
+                return future.get(remaining(), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                cancel();
+                throw new LookupTimeoutException(timeout);
+            } catch (InterruptedException e) {
+                cancel();
+                Thread.currentThread().interrupt();
+                throw new CancellationException("等待查询时被中断");
+            } catch (ExecutionException e) {
+                fail(e.getCause());
+                throwIfFailed();
+                throw new CompletionException(e.getCause());
+            } catch (CancellationException e) {
+                // 因为其他查询失败而被取消时，抛出那个失败
+                throwIfFailed();
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.github.nanoyou.akariyumetabackend.service;
+
+import com.github.nanoyou.akariyumetabackend.common.execution.DatabaseExecutor;
+import jakarta.annotation.Nonnull;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+
+/**
+ * 并行查询
+ * 把互不依赖的查询同时发出，总耗时取决于最慢的一个而不是所有查询之和。
+ * 本地缓存能直接给出结果的查询用 forkUnlessCached，命中时不占用数据库线程池。
+ * <pre>
+ * try (val scope = lookupService.open()) {
+ *     val course = scope.forkUnlessCached(courseService.getCachedCourse(taskID), () -> courseService.getCourse(taskID));
+ *     val task = scope.fork(() -> taskService.getTask(taskID));
+ *     scope.join();
+ *     ...
+ * }
+ * </pre>
+ */
+@Service
+public class LookupService {
+
+    private final DatabaseExecutor databaseExecutor;
+    private final Duration timeout;
+
+    @Autowired
+    private LookupService(DatabaseExecutor databaseExecutor,
+                          @Value("${akari.lookup.timeout:3s}") Duration timeout) {
+        this.databaseExecutor = databaseExecutor;
+        this.timeout = timeout;
+    }
+
+    /**
+     * 打开一组使用默认截止时间的并行查询
+     */
+    public LookupScope open() {
+        return open(timeout);
+    }
+
+    /**
+     * 打开一组并行查询
+     *
+     * @param timeout 从现在开始计算的截止时间
+     */
+    public LookupScope open(@Nonnull Duration timeout) {
+        return new LookupScope(databaseExecutor, timeout);
+    }
+}
@@ -0,0 +1,108 @@
+package com.github.nanoyou.akariyumetabackend.service;
+
+import cn.hutool.crypto.digest.BCrypt;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.PreDestroy;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 密码服务
+ * 使用 BCrypt 保存密码。校验在一个有界的线程池中进行，线程数按 CPU 核数设置，
+ * 队列满时直接拒绝，登录高峰不会占满请求线程和 CPU。
+ */
+@Service
+public class PasswordService {
+
+    private static final String BCRYPT_PREFIX = "$2";
+
+    private final int cost;
+    private final ThreadPoolExecutor verifier;
+    /**
+     * 用户不存在时比对的哈希，与真实的密码哈希强度相同
+     */
+    private final String absentHash;
+
+    @Autowired
+    private PasswordService(@Value("${akari.login.bcrypt-cost:10}") int cost,
+                            @Value("${akari.login.verify-threads:0}") int threads,
+                            @Value("${akari.login.verify-queue-size:256}") int queueSize) {
+        this.cost = cost;
+        val poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        val threadCount = new AtomicInteger();
+        this.verifier = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                runnable -> {
+                    val thread = new Thread(runnable, "password-verifier-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.absentHash = hash(UUID.randomUUID().toString());
+    }
+
+    /**
+     * 计算密码的 BCrypt 哈希
+     *
+     * @param rawPassword 明文密码
+     * @return 哈希值
+     */
+    public String hash(@Nonnull String rawPassword) {
+        return BCrypt.hashpw(rawPassword, BCrypt.gensalt(cost));
+    }
+
+    /**
+     * 在校验线程池中比对密码
+     *
+     * @param rawPassword    明文密码
+     * @param storedPassword 数据库中保存的密码
+     * @return 是否匹配；线程池已满时以 RejectedExecutionException 失败
+     */
+    public CompletableFuture<Boolean> verifyAsync(@Nonnull String rawPassword, @Nonnull String storedPassword) {
+        try {
+            return CompletableFuture.supplyAsync(() -> verify(rawPassword, storedPassword), verifier);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * 用户不存在时同样在校验线程池中做一次 BCrypt 比对，响应时间不暴露用户名是否存在
+     *
+     * @param rawPassword 明文密码
+     * @return 总是不匹配；线程池已满时以 RejectedExecutionException 失败
+     */
+    public CompletableFuture<Boolean> verifyAbsentAsync(@Nonnull String rawPassword) {
+        return verifyAsync(rawPassword, absentHash).thenApply(matched -> false);
+    }
+
+    /**
+     * 保存的密码是否为旧的明文格式，需要升级为哈希
+     */
+    public boolean needsUpgrade(@Nonnull String storedPassword) {
+        return !storedPassword.startsWith(BCRYPT_PREFIX);
+    }
+
+    private boolean verify(@Nonnull String rawPassword, @Nonnull String storedPassword) {
+        if (needsUpgrade(storedPassword)) {
+            // 兼容升级前以明文保存的密码，使用常量时间比较
+            return MessageDigest.isEqual(
+                    rawPassword.getBytes(StandardCharsets.UTF_8),
+                    storedPassword.getBytes(StandardCharsets.UTF_8));
+        }
+        return BCrypt.checkpw(rawPassword, storedPassword);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        verifier.shutdown();
+    }
+}
@@ -0,0 +1,421 @@
+package com.github.nanoyou.akariyumetabackend.service;
+
+import com.github.nanoyou.akariyumetabackend.common.enumeration.PointsTotalKind;
+import com.github.nanoyou.akariyumetabackend.common.enumeration.TaskCategory;
+import com.github.nanoyou.akariyumetabackend.dao.PointsLedgerDao;
+import com.github.nanoyou.akariyumetabackend.dao.PointsTotalDao;
+import com.github.nanoyou.akariyumetabackend.dto.points.PointsRankDTO;
+import com.github.nanoyou.akariyumetabackend.entity.points.PointsLedger;
+import com.github.nanoyou.akariyumetabackend.entity.points.PointsTotal;
+import jakarta.annotation.Nonnull;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.RedisZSetCommands;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.IsoFields;
+import java.time.temporal.TemporalAdjusters;
+import java.util.*;
+
+/**
+ * 积分
+ * 儿童完成任务时按任务的奖励积分记一条流水，同一事务中增量维护总积分（余额）、每个类别和每周的汇总，
+ * 提交后把新的汇总值写入 Redis 有序集合作为排行榜，前 N 名和名次的查询都是 O(log n)。
+ * 排行榜写入的是汇总的绝对值且只增不减（ZADD GT），重复写入、乱序写入和重建同时进行都不会出错；
+ * 每周的排行榜按周换一个键，到期后由 Redis 删除，不需要定时清理。
+ * Redis 写入失败时排行榜落后于汇总，可以用 {@link #rebuildLeaderboards()} 从流水重建。
+ */
+@Slf4j
+@Service
+public class PointsService {
+
+    /**
+     * 排行榜键的前缀，后接维度和周期，如 points:leaderboard:week:2026-W42
+     */
+    public static final String LEADERBOARD_KEY_PREFIX = "points:leaderboard:";
+    /**
+     * 重建时先写入的临时键的后缀，写完后改名替换
+     */
+    private static final String REBUILD_SUFFIX = ":rebuild";
+    /**
+     * 重建时每次写入 Redis 的儿童数
+     */
+    private static final int REBUILD_BATCH_SIZE = 1000;
+    private static final RedisZSetCommands.ZAddArgs ONLY_GREATER = RedisZSetCommands.ZAddArgs.empty().gt();
+
+    /**
+     * 一个事务中收到的完成事件，提交前一次写入流水和汇总，提交后写入排行榜
+     */
+    private class Pending implements TransactionSynchronization {
+        private final LinkedHashMap<PointsLedger.Key, PointsLedger> entries = new LinkedHashMap<>();
+        private List<PointsTotal> totals = List.of();
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            totals = record(List.copyOf(entries.values()));
+        }
+
+        @Override
+        public void afterCommit() {
+            publish(totals);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResource(PointsService.this);
+        }
+    }
+
+    private final PointsLedgerDao pointsLedgerDao;
+    private final PointsTotalDao pointsTotalDao;
+    private final EntityManager entityManager;
+    private final TransactionTemplate readOnlyTransaction;
+    private final StringRedisTemplate redisTemplate;
+
+    /**
+     * 上一周的排行榜在本周结束后还保留多久
+     */
+    @Value("${akari.points.week-retention:7d}")
+    private Duration weekRetention;
+    /**
+     * 重建时从开始时间之前多久开始补读流水，覆盖提交晚于记账时间的写入和节点间的时钟误差
+     */
+    @Value("${akari.points.catch-up-margin:1m}")
+    private Duration catchUpMargin;
+
+    @Autowired
+    private PointsService(PointsLedgerDao pointsLedgerDao, PointsTotalDao pointsTotalDao,
+                          EntityManager entityManager, PlatformTransactionManager transactionManager,
+                          StringRedisTemplate redisTemplate) {
+        this.pointsLedgerDao = pointsLedgerDao;
+        this.pointsTotalDao = pointsTotalDao;
+        this.entityManager = entityManager;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.redisTemplate = redisTemplate;
+    }
+
+    /**
+     * 任务完成时记账，与任务记录在同一事务中提交
+     * 同一儿童的同一任务已经记过账时忽略；两个节点同时记同一笔账时后提交的一方主键冲突，整个事务回滚后重试
+     *
+     * @throws IllegalStateException 不在事务中发布
+     */
+    @EventListener
+    public void onTaskCompleted(@Nonnull TaskProgressService.TaskCompleted event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("积分只能在写入任务记录的事务中记账");
+        }
+        var pending = (Pending) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new Pending();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        pending.entries.putIfAbsent(new PointsLedger.Key(event.childID(), event.taskID()), PointsLedger.builder()
+                .childID(event.childID())
+                .taskID(event.taskID())
+                .points(event.bonus())
+                .category(event.category())
+                .createdTime(LocalDateTime.now())
+                .build());
+    }
+
+    /**
+     * @return 儿童的总积分
+     */
+    public long getBalance(@Nonnull String childID) {
+        return pointsTotalDao.findById(new PointsTotal.Key(PointsTotalKind.ALL, "", childID))
+                .map(PointsTotal::getPoints)
+                .orElse(0L);
+    }
+
+    /**
+     * 排行榜前若干名
+     *
+     * @param kind   维度
+     * @param period {@link #normalizePeriod} 规范化后的周期
+     * @param limit  条数
+     * @return 按积分倒序，积分相同时按儿童ID倒序
+     */
+    public List<PointsRankDTO> getLeaderboard(@Nonnull PointsTotalKind kind, @Nonnull String period, int limit) {
+        val tuples = redisTemplate.opsForZSet().reverseRangeWithScores(leaderboardKey(kind, period), 0, limit - 1);
+        val ranks = new ArrayList<PointsRankDTO>();
+        if (tuples != null) {
+            for (val tuple : tuples) {
+                ranks.add(PointsRankDTO.builder()
+                        .rank((long) ranks.size() + 1)
+                        .childID(tuple.getValue())
+                        .points(tuple.getScore() == null ? 0 : tuple.getScore().longValue())
+                        .build());
+            }
+        }
+        return ranks;
+    }
+
+    /**
+     * @param kind   维度
+     * @param period {@link #normalizePeriod} 规范化后的周期
+     * @return 儿童在排行榜上的名次，不在榜上时为空
+     */
+    public Optional<PointsRankDTO> getRank(@Nonnull PointsTotalKind kind, @Nonnull String period, @Nonnull String childID) {
+        val key = leaderboardKey(kind, period);
+        val results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            val stringConnection = (StringRedisConnection) connection;
+            stringConnection.zRevRank(key, childID);
+            stringConnection.zScore(key, childID);
+            return null;
+        });
+        if (results.get(0) == null || results.get(1) == null) {
+            return Optional.empty();
+        }
+        return Optional.of(PointsRankDTO.builder()
+                .rank((Long) results.get(0) + 1)
+                .childID(childID)
+                .points(((Double) results.get(1)).longValue())
+                .build());
+    }
+
+    /**
+     * 检查并规范化排行榜的周期
+     *
+     * @param period 按类别时为类别名称，不区分大小写；按周时为 ISO 周，如 2026-W42，为空时是本周；总积分时忽略
+     * @return 规范化后的周期
+     * @throws IllegalArgumentException 无法识别的类别或周
+     */
+    public String normalizePeriod(@Nonnull PointsTotalKind kind, String period) {
+        return switch (kind) {
+            case ALL -> "";
+            case CATEGORY -> {
+                if (period == null) {
+                    throw new IllegalArgumentException("按类别的排行榜需要指定类别");
+                }
+                try {
+                    yield TaskCategory.valueOf(period.toUpperCase(Locale.ROOT)).name();
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("无法识别的任务类别: " + period);
+                }
+            }
+            case WEEK -> {
+                if (period == null) {
+                    yield weekOf(LocalDate.now());
+                }
+                try {
+                    yield weekOf(LocalDate.parse(period.toUpperCase(Locale.ROOT) + "-1", DateTimeFormatter.ISO_WEEK_DATE));
+                } catch (DateTimeParseException e) {
+                    throw new IllegalArgumentException("周的格式应为 2026-W42: " + period);
+                }
+            }
+        };
+    }
+
+    /**
+     * 从流水重建所有排行榜
+     * 按儿童顺序流式读取流水，在临时键中写好后改名替换原来的键，读取方不会看到写了一半的排行榜；
+     * 没有流水的排行榜删除，已经过了保留期的周不再重建。
+     * 重建期间提交的记账可能写到了被替换掉的旧键上，替换后按记账时间补读这些儿童的流水。
+     * 同一时间只应在一个节点上执行。
+     *
+     * @return 重建的儿童数
+     */
+    public synchronized long rebuildLeaderboards() {
+        val startTime = LocalDateTime.now();
+        val rebuilt = new HashSet<String>();
+        val children = readOnlyTransaction.execute(status -> {
+            long count = 0;
+            String childID = null;
+            val sums = new HashMap<PointsTotal.Key, Long>();
+            try (val entries = pointsLedgerDao.streamAll()) {
+                val iterator = entries.iterator();
+                while (iterator.hasNext()) {
+                    val entry = iterator.next();
+                    if (!entry.getChildID().equals(childID)) {
+                        // 同一儿童的流水相邻，只在儿童之间分批
+                        if (sums.size() >= REBUILD_BATCH_SIZE) {
+                            writeRebuild(sums, rebuilt);
+                            sums.clear();
+                            entityManager.clear();
+                        }
+                        childID = entry.getChildID();
+                        count++;
+                    }
+                    addSums(sums, entry);
+                }
+            }
+            writeRebuild(sums, rebuilt);
+            return count;
+        });
+
+        val liveKeys = new ArrayList<String>();
+        liveKeys.add(leaderboardKey(PointsTotalKind.ALL, ""));
+        for (val category : TaskCategory.values()) {
+            liveKeys.add(leaderboardKey(PointsTotalKind.CATEGORY, category.name()));
+        }
+        for (val week : retainedWeeks()) {
+            liveKeys.add(leaderboardKey(PointsTotalKind.WEEK, week));
+        }
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            val stringConnection = (StringRedisConnection) connection;
+            for (val key : liveKeys) {
+                if (rebuilt.contains(key)) {
+                    stringConnection.rename(key + REBUILD_SUFFIX, key);
+                } else {
+                    stringConnection.del(key);
+                }
+            }
+            for (val week : retainedWeeks()) {
+                stringConnection.pExpireAt(leaderboardKey(PointsTotalKind.WEEK, week), weekExpiry(week));
+            }
+            return null;
+        });
+
+        val changed = pointsLedgerDao.findChildIDsCreatedSince(startTime.minus(catchUpMargin));
+        for (int i = 0; i < changed.size(); i += REBUILD_BATCH_SIZE) {
+            val sums = new HashMap<PointsTotal.Key, Long>();
+            pointsLedgerDao.findByChildIDIn(changed.subList(i, Math.min(i + REBUILD_BATCH_SIZE, changed.size())))
+                    .forEach(entry -> addSums(sums, entry));
+            publish(sums.entrySet().stream()
+                    .map(sum -> new PointsTotal(sum.getKey().getKind(), sum.getKey().getPeriod(), sum.getKey().getChildID(), sum.getValue()))
+                    .toList());
+        }
+        log.info("积分排行榜重建完成: {} 个儿童, {} 个排行榜, 补读 {} 个儿童", children, rebuilt.size(), changed.size());
+        return children == null ? 0 : children;
+    }
+
+    /**
+     * 在提交前调用：去掉已经记过账的，追加流水并增加汇总
+     *
+     * @return 增加后的汇总值
+     */
+    private List<PointsTotal> record(List<PointsLedger> entries) {
+        val existing = new HashSet<>(pointsLedgerDao.findExisting(entries));
+        val fresh = entries.stream()
+                .filter(entry -> !existing.contains(new PointsLedger.Key(entry.getChildID(), entry.getTaskID())))
+                .toList();
+        if (fresh.isEmpty()) {
+            return List.of();
+        }
+        pointsLedgerDao.appendAll(fresh);
+
+        val deltas = new HashMap<PointsTotal.Key, Long>();
+        fresh.forEach(entry -> addSums(deltas, entry));
+        pointsTotalDao.increaseAll(deltas.entrySet().stream()
+                .map(delta -> new PointsTotal(delta.getKey().getKind(), delta.getKey().getPeriod(), delta.getKey().getChildID(), delta.getValue()))
+                .toList());
+        return pointsTotalDao.findAll(List.copyOf(deltas.keySet()));
+    }
+
+    /**
+     * 把汇总值写入排行榜，只会让积分变大；失败时只记录日志，由重建补上
+     */
+    private void publish(List<PointsTotal> totals) {
+        if (totals.isEmpty()) {
+            return;
+        }
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                val stringConnection = (StringRedisConnection) connection;
+                val weeks = new HashSet<String>();
+                for (val total : totals) {
+                    stringConnection.zAdd(leaderboardKey(total.getKind(), total.getPeriod()), total.getPoints(), total.getChildID(), ONLY_GREATER);
+                    if (total.getKind() == PointsTotalKind.WEEK) {
+                        weeks.add(total.getPeriod());
+                    }
+                }
+                for (val week : weeks) {
+                    stringConnection.pExpireAt(leaderboardKey(PointsTotalKind.WEEK, week), weekExpiry(week));
+                }
+                return null;
+            });
+        } catch (RuntimeException e) {
+            log.warn("更新积分排行榜失败: {} 条，可从流水重建", totals.size(), e);
+        }
+    }
+
+    /**
+     * 把一批儿童的积分写入重建用的临时键，第一次写入某个临时键前先删除上次重建留下的
+     */
+    private void writeRebuild(Map<PointsTotal.Key, Long> sums, Set<String> rebuilt) {
+        if (sums.isEmpty()) {
+            return;
+        }
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            val stringConnection = (StringRedisConnection) connection;
+            sums.forEach((key, points) -> {
+                val liveKey = leaderboardKey(key.getKind(), key.getPeriod());
+                if (rebuilt.add(liveKey)) {
+                    stringConnection.del(liveKey + REBUILD_SUFFIX);
+                }
+                stringConnection.zAdd(liveKey + REBUILD_SUFFIX, points, key.getChildID());
+            });
+            return null;
+        });
+    }
+
+    /**
+     * 把一条流水的积分加到总积分、类别和记账所在周的汇总上，没有积分的流水不计入，已过保留期的周不计入
+     */
+    private void addSums(Map<PointsTotal.Key, Long> sums, PointsLedger entry) {
+        if (entry.getPoints() == null || entry.getPoints() <= 0) {
+            return;
+        }
+        val points = (long) entry.getPoints();
+        sums.merge(new PointsTotal.Key(PointsTotalKind.ALL, "", entry.getChildID()), points, Long::sum);
+        if (entry.getCategory() != null) {
+            sums.merge(new PointsTotal.Key(PointsTotalKind.CATEGORY, entry.getCategory().name(), entry.getChildID()), points, Long::sum);
+        }
+        val week = weekOf(entry.getCreatedTime().toLocalDate());
+        if (weekExpiry(week) > System.currentTimeMillis()) {
+            sums.merge(new PointsTotal.Key(PointsTotalKind.WEEK, week, entry.getChildID()), points, Long::sum);
+        }
+    }
+
+    /**
+     * @return 尚未过保留期的周，从本周开始往前
+     */
+    private List<String> retainedWeeks() {
+        val weeks = new ArrayList<String>();
+        var date = LocalDate.now();
+        while (weekExpiry(weekOf(date)) > System.currentTimeMillis()) {
+            weeks.add(weekOf(date));
+            date = date.minusWeeks(1);
+        }
+        return weeks;
+    }
+
+    /**
+     * @return 每周排行榜的过期时间（毫秒）：这一周结束之后再保留 weekRetention
+     */
+    private long weekExpiry(String week) {
+        val monday = LocalDate.parse(week + "-1", DateTimeFormatter.ISO_WEEK_DATE);
+        return monday.plusWeeks(1).atStartOfDay(ZoneId.systemDefault()).plus(weekRetention).toInstant().toEpochMilli();
+    }
+
+    private static String weekOf(LocalDate date) {
+        val monday = date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        return String.format("%d-W%02d", monday.get(IsoFields.WEEK_BASED_YEAR), monday.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR));
+    }
+
+    private static String leaderboardKey(PointsTotalKind kind, String period) {
+        val key = LEADERBOARD_KEY_PREFIX + kind.name().toLowerCase(Locale.ROOT);
+        return period.isEmpty() ? key : key + ":" + period;
+    }
+}
@@ -13,13 +13,17 @@ import java.util.List;
 public class RegisterService {
 
     private final UserDao userDao;
+    private final PasswordService passwordService;
 
     @Autowired
-    private RegisterService(UserDao userDao) {
+    private RegisterService(UserDao userDao, PasswordService passwordService) {
         this.userDao = userDao;
+        this.passwordService = passwordService;
     }
 
     public UserDTO register(@NonNull User registerUser) {
+        // 密码只保存哈希
+        registerUser.setPassword(passwordService.hash(registerUser.getPassword()));
         // 注册的用户被添加进数据库
         userDao.save(registerUser);
         // TODO: 存储tags
@@ -29,4 +29,28 @@ public class SubscriptionService {
 
         ).toList();
     }
+
+    /**
+     * 根据被关注者 ID 获取关注了他的粉丝的 ID 列表
+     *
+     * @param followeeID 被关注者 ID
+     * @return 粉丝的 ID 列表
+     */
+    public List<String> getFollowerIDs(@Nonnull String followeeID) {
+        return subscriptionDao.findByCombinedPrimaryKeyFolloweeID(followeeID).stream().map(
+                subscription ->
+                        subscription.getCombinedPrimaryKey().getFollowerID()
+
+        ).toList();
+    }
+
+    /**
+     * 获取粉丝数
+     *
+     * @param followeeID 被关注者 ID
+     * @return 粉丝数
+     */
+    public long getFollowerCount(@Nonnull String followeeID) {
+        return subscriptionDao.countByCombinedPrimaryKeyFolloweeID(followeeID);
+    }
 }
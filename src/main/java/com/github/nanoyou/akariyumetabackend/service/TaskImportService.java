@@ -0,0 +1,198 @@
+package com.github.nanoyou.akariyumetabackend.service;
+
+import com.github.nanoyou.akariyumetabackend.common.enumeration.TaskStatus;
+import com.github.nanoyou.akariyumetabackend.dto.task.TaskCourseUploadDTO;
+import com.github.nanoyou.akariyumetabackend.dto.task.TaskImportResultDTO;
+import com.github.nanoyou.akariyumetabackend.entity.task.Course;
+import com.github.nanoyou.akariyumetabackend.entity.task.Task;
+import jakarta.annotation.Nonnull;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * 学习任务批量导入
+ * 有效的行按 JDBC 批大小分块，每块在一个事务中 persist 后一次 flush，
+ * 配合 hibernate.order_inserts 和 MySQL 的 rewriteBatchedStatements，每块只有两条多行 INSERT。
+ * 某一块写入失败时逐行重试这一块，只有出错的行失败，其余行照常导入。
+ */
+@Slf4j
+@Service
+public class TaskImportService {
+
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskSearchService taskSearchService;
+    private final TaskStatusService taskStatusService;
+    private final int batchSize;
+
+    @Autowired
+    private TaskImportService(EntityManager entityManager,
+                              PlatformTransactionManager transactionManager,
+                              TaskSearchService taskSearchService,
+                              TaskStatusService taskStatusService,
+                              @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}") int batchSize) {
+        this.entityManager = entityManager;
+        this.taskSearchService = taskSearchService;
+        this.taskStatusService = taskStatusService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * 批量导入学习任务及其课程
+     *
+     * @param uploaderID 任务发布人ID
+     * @param rows       待导入的行
+     * @return 导入结果，包含每一行的任务ID或失败原因
+     */
+    public TaskImportResultDTO importTaskCourses(@Nonnull String uploaderID, @Nonnull List<TaskCourseUploadDTO> rows) {
+        val now = LocalDateTime.now();
+        val taskIDs = new ArrayList<String>(Collections.nCopies(rows.size(), null));
+        val failures = new ArrayList<TaskImportResultDTO.RowFailure>();
+
+        val valid = new ArrayList<Integer>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            val reason = validate(rows.get(i));
+            if (reason == null) {
+                valid.add(i);
+            } else {
+                failures.add(new TaskImportResultDTO.RowFailure(i, reason));
+            }
+        }
+
+        val imported = new ArrayList<Task>(valid.size());
+        for (int from = 0; from < valid.size(); from += batchSize) {
+            val chunk = valid.subList(from, Math.min(from + batchSize, valid.size()));
+            try {
+                val tasks = insert(uploaderID, rows, chunk, now);
+                for (int j = 0; j < chunk.size(); j++) {
+                    taskIDs.set(chunk.get(j), tasks.get(j).getId());
+                }
+                imported.addAll(tasks);
+            } catch (RuntimeException chunkFailure) {
+                log.warn("批量导入第 {} 到 {} 行失败，逐行重试", chunk.get(0), chunk.get(chunk.size() - 1), chunkFailure);
+                for (val index : chunk) {
+                    try {
+                        val tasks = insert(uploaderID, rows, List.of(index), now);
+                        taskIDs.set(index, tasks.get(0).getId());
+                        imported.addAll(tasks);
+                    } catch (RuntimeException e) {
+                        log.warn("导入第 {} 行失败", index, e);
+                        failures.add(new TaskImportResultDTO.RowFailure(index, reasonOf(e)));
+                    }
+                }
+            }
+        }
+        // 全部写入后一次加入搜索索引和状态切换，只通知其他节点一次
+        taskSearchService.index(imported);
+        taskStatusService.schedule(imported);
+
+        failures.sort(Comparator.comparingInt(TaskImportResultDTO.RowFailure::getIndex));
+        return TaskImportResultDTO.builder()
+                .total(rows.size())
+                .succeeded(rows.size() - failures.size())
+                .taskIDs(taskIDs)
+                .failures(failures)
+                .build();
+    }
+
+    /**
+     * 在一个事务中写入若干行，返回与 indexes 顺序一致的任务
+     * 新生成的ID不会在缓存中，不需要失效两级缓存
+     */
+    private List<Task> insert(@Nonnull String uploaderID, @Nonnull List<TaskCourseUploadDTO> rows, @Nonnull List<Integer> indexes, @Nonnull LocalDateTime now) {
+        return transactionTemplate.execute(status -> {
+            val tasks = new ArrayList<Task>(indexes.size());
+            for (val index : indexes) {
+                val row = rows.get(index);
+                val task = Task.builder()
+                        .taskName(row.getTaskName())
+                        .taskUploaderID(uploaderID)
+                        .createdTime(now)
+                        .startTime(row.getStartTime())
+                        .endTime(row.getEndTime())
+                        .status(statusAt(row, now))
+                        .description(row.getDescription())
+                        .category(row.getCategory())
+                        .bonus(row.getBonus())
+                        .build();
+                // UUID 在 persist 时生成，课程与任务共用同一个ID
+                entityManager.persist(task);
+                entityManager.persist(Course.builder()
+                        .taskID(task.getId())
+                        .watchedCount(0)
+                        .videoURL(row.getVideoURL())
+                        .videoDuration(row.getVideoDuration())
+                        .build());
+                tasks.add(task);
+            }
+            entityManager.flush();
+            entityManager.clear();
+            return tasks;
+        });
+    }
+
+    private static String validate(TaskCourseUploadDTO row) {
+        if (row == null) {
+            return "行为空";
+        }
+        if (!StringUtils.hasText(row.getTaskName())) {
+            return "任务名称不能为空";
+        }
+        if (row.getCategory() == null) {
+            return "任务类别不能为空";
+        }
+        if (row.getStartTime() == null || row.getEndTime() == null) {
+            return "任务的开始时间和结束时间不能为空";
+        }
+        if (row.getStartTime().isAfter(row.getEndTime())) {
+            return "课程的结束时间不能在开始时间之前";
+        }
+        if (row.getVideoDuration() == null || row.getVideoDuration() <= 0) {
+            return "视频时长必须为正数";
+        }
+        return null;
+    }
+
+    private static TaskStatus statusAt(TaskCourseUploadDTO row, LocalDateTime now) {
+        if (now.isAfter(row.getEndTime())) {
+            return TaskStatus.FINISHED;
+        }
+        if (now.isAfter(row.getStartTime())) {
+            return TaskStatus.IN_PROGRESS;
+        }
+        return TaskStatus.NOT_STARTED;
+    }
+
+    /**
+     * 把写入失败的异常转换为给用户看的原因，不返回驱动和 SQL 的原始信息
+     */
+    private static String reasonOf(RuntimeException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException && sqlException.getSQLState() != null) {
+                val state = sqlException.getSQLState();
+                if (state.equals("22001")) {
+                    return "内容超出长度限制";
+                }
+                if (state.startsWith("22")) {
+                    return "数值超出范围";
+                }
+                if (state.startsWith("23")) {
+                    return "与已有数据冲突";
+                }
+            }
+        }
+        return "写入失败，请稍后重试";
+    }
+}
@@ -0,0 +1,342 @@
+package com.github.nanoyou.akariyumetabackend.service;
+
+import com.github.nanoyou.akariyumetabackend.common.enumeration.TaskCategory;
+import com.github.nanoyou.akariyumetabackend.common.enumeration.TaskRecordStatus;
+import com.github.nanoyou.akariyumetabackend.dao.TaskRecordDao;
+import com.github.nanoyou.akariyumetabackend.entity.task.Course;
+import com.github.nanoyou.akariyumetabackend.entity.task.Task;
+import com.github.nanoyou.akariyumetabackend.entity.task.TaskRecord;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 学习任务的观看进度
+ * 播放心跳按 (任务, 儿童) 在内存中合并，只有开始观看、进度跨过里程碑和完成这几种变化才需要写入数据库，
+ * 由定时任务每次取出所有有变化的记录，分批在一个事务中写入。大量儿童同时观看时，写入次数与心跳次数无关。
+ * 视频时长取自课程，每次心跳认可的播放位置最多前进距上次心跳经过的时间乘以最大倍速，拖动进度条或伪造位置不能直接完成任务。
+ * 完成时在写入的同一事务中发布 {@link TaskCompleted}，由 {@link PointsService} 按任务的奖励积分记账。
+ * 节点宕机最多丢失一个写入间隔内的进度，客户端继续发送心跳即可补上。
+ */
+@Slf4j
+@Service
+public class TaskProgressService {
+
+    /**
+     * 儿童完成了任务，在写入任务记录的事务中发布，监听者的写入与任务记录一起提交
+     * 同一条任务记录可能由多个节点各发布一次，监听者需要按 (儿童, 任务) 去重
+     *
+     * @param childID       儿童ID
+     * @param taskID        任务ID
+     * @param bonus         任务的奖励积分
+     * @param category      任务类别
+     * @param completedTime 完成时间
+     */
+    public record TaskCompleted(String childID, String taskID, int bonus, TaskCategory category, LocalDateTime completedTime) {
+    }
+
+    /**
+     * 内存中的一条任务记录
+     * 读写都在 synchronized 中进行
+     */
+    private static class Progress {
+        private LocalDateTime startTime;
+        private LocalDateTime endTime;
+        private TaskRecordStatus status;
+        private int progress;
+        /**
+         * 已认可的播放位置，单位: s，只在内存中，读入时按进度换算
+         */
+        private int position;
+        /**
+         * 已写入数据库的进度和状态
+         */
+        private int persistedProgress;
+        private TaskRecordStatus persistedStatus;
+        private boolean dirty;
+        private long lastSeen;
+        /**
+         * 已从内存中移除，拿到它的心跳需要重新查找
+         */
+        private boolean evicted;
+    }
+
+    private final TaskRecordDao taskRecordDao;
+    private final TaskService taskService;
+    private final CourseService courseService;
+    private final TaskSearchService taskSearchService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ConcurrentHashMap<TaskRecord._TaskRecordCombinedPrimaryKey, Progress> records = new ConcurrentHashMap<>();
+    /**
+     * 有变化、等待写入的记录
+     */
+    private final Set<TaskRecord._TaskRecordCombinedPrimaryKey> dirtyKeys = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 进度每跨过这么多个百分点写入一次
+     */
+    @Value("${akari.task-progress.milestone-percent:10}")
+    private int milestonePercent;
+    /**
+     * 进度达到这个百分比即为完成
+     */
+    @Value("${akari.task-progress.complete-percent:95}")
+    private int completePercent;
+    @Value("${akari.task-progress.batch-size:500}")
+    private int batchSize;
+    /**
+     * 这么久没有心跳的记录从内存中移除
+     */
+    @Value("${akari.task-progress.idle-timeout:10m}")
+    private Duration idleTimeout;
+    /**
+     * 允许的最大播放倍速
+     */
+    @Value("${akari.task-progress.max-playback-rate:2.0}")
+    private double maxPlaybackRate;
+    /**
+     * 两次心跳之间最多按这么长的时间计算前进量，暂停后再播放不能一次跳过
+     */
+    @Value("${akari.task-progress.max-heartbeat-gap:30s}")
+    private Duration maxHeartbeatGap;
+
+    @Autowired
+    private TaskProgressService(TaskRecordDao taskRecordDao, TaskService taskService, CourseService courseService,
+                                TaskSearchService taskSearchService, ApplicationEventPublisher eventPublisher,
+                                PlatformTransactionManager transactionManager) {
+        this.taskRecordDao = taskRecordDao;
+        this.taskService = taskService;
+        this.courseService = courseService;
+        this.taskSearchService = taskSearchService;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * 合并一次播放心跳，第一次心跳即开始观看
+     *
+     * @param childID  儿童ID
+     * @param taskID   任务ID
+     * @param position 播放到的位置，单位: s
+     * @return 合并后的任务记录
+     * @throws IllegalArgumentException 播放位置为负数，或课程不存在、没有视频时长
+     */
+    public TaskRecord heartbeat(@Nonnull String childID, @Nonnull String taskID, int position) {
+        if (position < 0) {
+            throw new IllegalArgumentException("播放位置不能为负数");
+        }
+        val duration = courseService.getCourse(taskID).map(Course::getVideoDuration).orElse(null);
+        if (duration == null || duration <= 0) {
+            throw new IllegalArgumentException("课程没有视频时长，无法记录进度");
+        }
+        val key = new TaskRecord._TaskRecordCombinedPrimaryKey(taskID, childID);
+        while (true) {
+            var progress = records.get(key);
+            if (progress == null) {
+                // 查询数据库时不占用 computeIfAbsent 的锁，同时读入的只保留先放入的一个
+                val loaded = load(key);
+                progress = Objects.requireNonNullElse(records.putIfAbsent(key, loaded), loaded);
+            }
+            synchronized (progress) {
+                if (progress.evicted) {
+                    continue;
+                }
+                val now = System.nanoTime();
+                if (progress.position == 0 && progress.progress > 0) {
+                    // 从数据库读入的记录只有百分比，按课程时长换算回播放位置
+                    progress.position = (int) ((long) progress.progress * duration / 100);
+                }
+                val reachable = progress.position + allowedAdvance(now - progress.lastSeen);
+                progress.position = Math.max(progress.position, Math.min(position, reachable));
+                progress.lastSeen = now;
+                merge(progress, (int) Math.min(100, (long) progress.position * 100 / duration));
+                if (progress.dirty) {
+                    dirtyKeys.add(key);
+                }
+                return toRecord(key, progress);
+            }
+        }
+    }
+
+    /**
+     * @param elapsedNanos 距上次心跳经过的时间
+     * @return 播放位置最多可以前进的秒数
+     */
+    private int allowedAdvance(long elapsedNanos) {
+        val elapsed = Math.min(Math.max(elapsedNanos, 0), maxHeartbeatGap.toNanos());
+        return (int) Math.ceil(elapsed * maxPlaybackRate / 1_000_000_000L);
+    }
+
+    /**
+     * @return 儿童在任务上的记录，内存中有时包含尚未写入数据库的进度
+     */
+    public TaskRecord getProgress(@Nonnull String childID, @Nonnull String taskID) {
+        val key = new TaskRecord._TaskRecordCombinedPrimaryKey(taskID, childID);
+        val progress = records.get(key);
+        if (progress == null) {
+            return taskRecordDao.findById(key).orElse(null);
+        }
+        synchronized (progress) {
+            return toRecord(key, progress);
+        }
+    }
+
+    /**
+     * 把有变化的记录分批写入数据库，然后移除长时间没有心跳的记录
+     * 写入失败的一批保留变化，下次重试
+     */
+    @Scheduled(fixedDelayString = "${akari.task-progress.flush-interval-ms:2000}")
+    @PreDestroy
+    public synchronized void flush() {
+        val keys = new ArrayList<TaskRecord._TaskRecordCombinedPrimaryKey>();
+        for (val key : dirtyKeys) {
+            dirtyKeys.remove(key);
+            keys.add(key);
+        }
+        for (int i = 0; i < keys.size(); i += batchSize) {
+            write(keys.subList(i, Math.min(i + batchSize, keys.size())));
+        }
+        evictIdle();
+    }
+
+    private void write(List<TaskRecord._TaskRecordCombinedPrimaryKey> keys) {
+        val rows = new ArrayList<TaskRecord>(keys.size());
+        val completions = new ArrayList<TaskRecord>();
+        for (val key : keys) {
+            val progress = records.get(key);
+            if (progress == null) {
+                continue;
+            }
+            synchronized (progress) {
+                val row = toRecord(key, progress);
+                rows.add(row);
+                if (progress.status == TaskRecordStatus.COMPLETED && progress.persistedStatus != TaskRecordStatus.COMPLETED) {
+                    completions.add(row);
+                }
+                progress.dirty = false;
+            }
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                taskRecordDao.mergeAll(rows);
+                for (val row : completions) {
+                    val taskID = row.getTaskRecordCombinedPrimaryKey().getTaskID();
+                    val task = taskService.getTask(taskID);
+                    val bonus = task.map(Task::getBonus).orElse(null);
+                    eventPublisher.publishEvent(new TaskCompleted(row.getTaskRecordCombinedPrimaryKey().getChildID(), taskID,
+                            bonus == null ? 0 : bonus, task.map(Task::getCategory).orElse(null), row.getEndTime()));
+                }
+            });
+        } catch (RuntimeException e) {
+            log.warn("写入任务进度失败: {} 条，下次重试", rows.size(), e);
+            for (val row : rows) {
+                val key = row.getTaskRecordCombinedPrimaryKey();
+                val progress = records.get(key);
+                if (progress != null) {
+                    synchronized (progress) {
+                        progress.dirty = true;
+                    }
+                    dirtyKeys.add(key);
+                }
+            }
+            return;
+        }
+        for (val row : rows) {
+            val progress = records.get(row.getTaskRecordCombinedPrimaryKey());
+            if (progress != null) {
+                synchronized (progress) {
+                    // 写入期间新到的心跳只会让进度更大，已写入的部分不再重复写
+                    progress.persistedProgress = Math.max(progress.persistedProgress, row.getProgress());
+                    if (progress.persistedStatus != TaskRecordStatus.COMPLETED) {
+                        progress.persistedStatus = row.getStatus();
+                    }
+                }
+            }
+        }
+        taskSearchService.indexRecords(rows);
+        log.debug("写入 {} 条任务进度，其中 {} 条完成", rows.size(), completions.size());
+    }
+
+    private void evictIdle() {
+        val deadline = System.nanoTime() - idleTimeout.toNanos();
+        records.forEach((key, progress) -> {
+            synchronized (progress) {
+                if (!progress.dirty && progress.lastSeen - deadline < 0) {
+                    progress.evicted = true;
+                    records.remove(key, progress);
+                }
+            }
+        });
+    }
+
+    /**
+     * 在 synchronized 中调用，有需要写入的变化时标记为 dirty
+     */
+    private void merge(Progress progress, int percent) {
+        val now = LocalDateTime.now();
+        if (progress.status == null) {
+            progress.status = TaskRecordStatus.UNCOMPLETED;
+            progress.startTime = now;
+            progress.dirty = true;
+        }
+        if (percent <= progress.progress) {
+            return;
+        }
+        progress.progress = percent;
+        if (progress.status != TaskRecordStatus.COMPLETED && percent >= completePercent) {
+            progress.status = TaskRecordStatus.COMPLETED;
+            progress.endTime = now;
+            progress.dirty = true;
+        } else if (percent / milestonePercent > progress.persistedProgress / milestonePercent) {
+            progress.dirty = true;
+        }
+    }
+
+    /**
+     * 从数据库读入已有的记录，没有时从零开始
+     */
+    private Progress load(TaskRecord._TaskRecordCombinedPrimaryKey key) {
+        val progress = new Progress();
+        taskRecordDao.findById(key).ifPresent(record -> {
+            progress.startTime = record.getStartTime();
+            progress.endTime = record.getEndTime();
+            progress.status = record.getStatus();
+            progress.progress = record.getProgress() == null ? 0 : record.getProgress();
+            progress.persistedProgress = progress.progress;
+            progress.persistedStatus = record.getStatus();
+        });
+        progress.lastSeen = System.nanoTime();
+        return progress;
+    }
+
+    private static TaskRecord toRecord(TaskRecord._TaskRecordCombinedPrimaryKey key, Progress progress) {
+        return TaskRecord.builder()
+                .taskRecordCombinedPrimaryKey(key)
+                .startTime(progress.startTime)
+                .endTime(progress.endTime)
+                .status(progress.status)
+                .progress(progress.progress)
+                .build();
+    }
+}
@@ -0,0 +1,445 @@
+package com.github.nanoyou.akariyumetabackend.service;
+
+import com.github.nanoyou.akariyumetabackend.common.enumeration.TaskCategory;
+import com.github.nanoyou.akariyumetabackend.common.enumeration.TaskRecordStatus;
+import com.github.nanoyou.akariyumetabackend.common.enumeration.TaskStatus;
+import com.github.nanoyou.akariyumetabackend.common.exception.LoginRequiredException;
+import com.github.nanoyou.akariyumetabackend.common.search.InvertedIndex;
+import com.github.nanoyou.akariyumetabackend.common.search.NgramTokenizer;
+import com.github.nanoyou.akariyumetabackend.common.search.RoaringBitmap;
+import com.github.nanoyou.akariyumetabackend.common.search.TaskFacets;
+import com.github.nanoyou.akariyumetabackend.dao.TaskDao;
+import com.github.nanoyou.akariyumetabackend.dao.TaskRecordDao;
+import com.github.nanoyou.akariyumetabackend.dto.task.TaskCourseSearchDTO;
+import com.github.nanoyou.akariyumetabackend.entity.task.Task;
+import com.github.nanoyou.akariyumetabackend.entity.task.TaskRecord;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 学习任务搜索
+ * 任务名称和描述建在内存倒排索引中，按 BM25 排序；类别、状态和每个儿童的完成情况见 {@link TaskFacets}，
+ * 筛选时按位与、或，查询不经过 MySQL。
+ * 每个任务对应一个从 0 开始递增的序号，启动时按创建时间顺序从数据库建立索引，之后新增的任务由
+ * {@link #index(Collection)} 增量加入，任务记录的变化由 {@link #indexRecords(Collection)} 更新，
+ * 并通过 Redis 频道通知其他节点更新各自的索引。
+ * 筛选位图定期写入快照文件，重启时读回，任务记录只需从数据库补上快照之后变化的部分。
+ */
+@Slf4j
+@Service
+public class TaskSearchService implements MessageListener {
+
+    /**
+     * 通知其他节点重新索引任务的频道，消息为 "{来源节点}:{任务ID},{任务ID}..."
+     */
+    public static final String INDEX_CHANNEL = "search:task";
+    /**
+     * 通知其他节点更新任务记录状态的频道，消息为 "{来源节点}:{儿童ID},{任务ID},{状态};..."，状态为空表示记录已删除
+     */
+    public static final String RECORD_CHANNEL = "search:task-record";
+
+    /**
+     * 任务名称中的词按出现两次计，名称命中比描述命中得分高
+     */
+    private static final int NAME_WEIGHT = 2;
+    /**
+     * 建立索引时每读这么多个任务清空一次持久化上下文
+     */
+    private static final int BUILD_CLEAR_INTERVAL = 1000;
+
+    private final TaskDao taskDao;
+    private final TaskRecordDao taskRecordDao;
+    private final EntityManager entityManager;
+    private final TransactionTemplate readOnlyTransaction;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    /**
+     * 本节点的标识，用于忽略自己发出的通知
+     */
+    private final String origin = UUID.randomUUID().toString();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    /**
+     * 文档编号即任务序号
+     */
+    private final InvertedIndex index = new InvertedIndex();
+    private TaskFacets facets = new TaskFacets();
+    /**
+     * 读入的快照的写入时间，没有快照时为 null
+     */
+    private LocalDateTime snapshotTime;
+    /**
+     * 启动时的建立索引完成后才写快照，否则快照中缺少任务
+     */
+    private volatile boolean built;
+
+    @Value("${akari.search.snapshot-file:data/search/task-facets.snapshot}")
+    private Path snapshotFile;
+    /**
+     * 从快照写入时间之前这么久开始补读任务记录，覆盖提交晚于记录时间的写入和节点间的时钟误差
+     */
+    @Value("${akari.search.catch-up-margin:10m}")
+    private Duration catchUpMargin;
+
+    @Autowired
+    private TaskSearchService(TaskDao taskDao, TaskRecordDao taskRecordDao, EntityManager entityManager,
+                              PlatformTransactionManager transactionManager,
+                              StringRedisTemplate redisTemplate, RedisMessageListenerContainer listenerContainer) {
+        this.taskDao = taskDao;
+        this.taskRecordDao = taskRecordDao;
+        this.entityManager = entityManager;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+    }
+
+    /**
+     * 读入快照，然后订阅其他节点的通知
+     * 快照无法读取时丢弃，从数据库完整建立
+     */
+    @PostConstruct
+    public void init() {
+        if (Files.exists(snapshotFile)) {
+            try {
+                facets = TaskFacets.readSnapshot(snapshotFile);
+                snapshotTime = LocalDateTime.ofInstant(Files.getLastModifiedTime(snapshotFile).toInstant(), ZoneId.systemDefault());
+                log.info("读入任务筛选快照: {} 个任务, 写入于 {}", facets.size(), snapshotTime);
+            } catch (IOException e) {
+                log.warn("任务筛选快照无法读取，从数据库重新建立", e);
+            }
+        }
+        listenerContainer.addMessageListener(this, List.of(new ChannelTopic(INDEX_CHANNEL), new ChannelTopic(RECORD_CHANNEL)));
+    }
+
+    /**
+     * 启动完成后从数据库建立索引
+     * 任务总是全部读入，同时校正快照中的状态和类别；任务记录有快照时只读快照之后变化的，否则全部读入。
+     * 建立期间到达的搜索只能看到已读入的部分，期间新增的任务和记录照常更新。
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        val start = System.nanoTime();
+        val taskCount = readOnlyTransaction.execute(status -> {
+            int read = 0;
+            try (val tasks = taskDao.streamAllByCreatedTime()) {
+                val iterator = tasks.iterator();
+                while (iterator.hasNext()) {
+                    indexLocal(List.of(iterator.next()));
+                    if (++read % BUILD_CLEAR_INTERVAL == 0) {
+                        entityManager.clear();
+                    }
+                }
+            }
+            return read;
+        });
+        val recordCount = readOnlyTransaction.execute(status -> {
+            int read = 0;
+            try (val records = snapshotTime == null
+                    ? taskRecordDao.streamAll()
+                    : taskRecordDao.streamChangedSince(snapshotTime.minus(catchUpMargin))) {
+                val iterator = records.iterator();
+                while (iterator.hasNext()) {
+                    indexRecordsLocal(List.of(iterator.next()));
+                    if (++read % BUILD_CLEAR_INTERVAL == 0) {
+                        entityManager.clear();
+                    }
+                }
+            }
+            return read;
+        });
+        built = true;
+        log.info("任务搜索索引建立完成: {} 个任务, {} 条任务记录, 耗时 {} ms",
+                taskCount, recordCount, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * 筛选位图有变化时写入快照，关闭时也写一次
+     */
+    @Scheduled(fixedDelayString = "${akari.search.snapshot-interval-ms:300000}")
+    @PreDestroy
+    public synchronized void snapshot() {
+        if (!built) {
+            return;
+        }
+        // 写快照期间不能修改位图，读锁不影响搜索
+        lock.readLock().lock();
+        try {
+            if (facets.isDirty()) {
+                facets.writeSnapshot(snapshotFile);
+            }
+        } catch (IOException e) {
+            log.warn("写入任务筛选快照失败", e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 把新增或修改的任务加入索引，并通知其他节点
+     *
+     * @param tasks 已提交到数据库的任务
+     */
+    public void index(@Nonnull Collection<Task> tasks) {
+        if (tasks.isEmpty()) {
+            return;
+        }
+        indexLocal(tasks);
+        val ids = tasks.stream().map(Task::getId).toList();
+        try {
+            redisTemplate.convertAndSend(INDEX_CHANNEL, origin + ":" + String.join(",", ids));
+        } catch (RuntimeException e) {
+            // 其他节点的索引在重启前缺少这些任务，本节点不受影响
+            log.warn("通知其他节点索引任务失败: {}", ids, e);
+        }
+    }
+
+    /**
+     * 更新儿童的任务记录状态，并通知其他节点
+     *
+     * @param records 已提交到数据库的任务记录
+     */
+    public void indexRecords(@Nonnull Collection<TaskRecord> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        indexRecordsLocal(records);
+        val body = new StringJoiner(";", origin + ":", "");
+        for (val record : records) {
+            val key = record.getTaskRecordCombinedPrimaryKey();
+            body.add(key.getChildID() + "," + key.getTaskID() + "," + (record.getStatus() == null ? "" : record.getStatus().name()));
+        }
+        try {
+            redisTemplate.convertAndSend(RECORD_CHANNEL, body.toString());
+        } catch (RuntimeException e) {
+            log.warn("通知其他节点更新任务记录失败: {} 条", records.size(), e);
+        }
+    }
+
+    /**
+     * 按名称、描述、类别、状态和完成情况搜索任务
+     *
+     * @param searchDTO 搜索条件，search 为空时按创建时间倒序列出符合筛选条件的任务
+     * @param childID   登录的儿童ID，未登录时为 null
+     * @param limit     最多返回的条数
+     * @return 任务ID，按相关度从高到低
+     * @throws IllegalArgumentException 类别或标签无法识别
+     * @throws LoginRequiredException  未登录时按已完成、未完成筛选
+     */
+    public List<String> search(@Nonnull TaskCourseSearchDTO searchDTO, String childID, int limit) {
+        val category = parseCategory(searchDTO.getCategory());
+        val wantedStatuses = EnumSet.noneOf(TaskStatus.class);
+        val wantedRecords = EnumSet.noneOf(TaskRecordStatus.class);
+        parseTags(searchDTO.getTags(), wantedStatuses, wantedRecords);
+        if (!wantedRecords.isEmpty() && childID == null) {
+            throw new LoginRequiredException("按完成情况筛选需要先登录");
+        }
+        val terms = NgramTokenizer.queryTerms(searchDTO.getSearch());
+
+        lock.readLock().lock();
+        try {
+            val filter = facets.filter(category, wantedStatuses, childID, wantedRecords);
+            final int[] hits;
+            if (!terms.isEmpty()) {
+                hits = index.search(terms, filter, limit);
+            } else {
+                // 快照中可能有尚未读入名称和描述的任务，只列出已建立索引的
+                hits = latest(filter == null ? index.live() : RoaringBitmap.and(filter, index.live()), limit);
+            }
+            val result = new ArrayList<String>(hits.length);
+            for (val ordinal : hits) {
+                result.add(facets.taskID(ordinal));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return 已索引的任务数
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return index.live().cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 其他节点新增了任务时从数据库读出后加入本节点的索引，任务记录变化时直接按消息更新
+     */
+    @Override
+    public void onMessage(@Nonnull Message message, byte[] pattern) {
+        val body = new String(message.getBody(), StandardCharsets.UTF_8);
+        val colon = body.indexOf(':');
+        if (colon < 0 || body.substring(0, colon).equals(origin)) {
+            return;
+        }
+        val payload = body.substring(colon + 1);
+        if (RECORD_CHANNEL.equals(new String(message.getChannel(), StandardCharsets.UTF_8))) {
+            indexRecordsLocal(parseRecords(payload));
+            return;
+        }
+        val ids = Arrays.asList(payload.split(","));
+        try {
+            indexLocal(taskDao.findAllById(ids));
+        } catch (RuntimeException e) {
+            log.warn("索引其他节点新增的任务失败: {}", ids, e);
+        }
+    }
+
+    /**
+     * 任务的名称和描述创建后不再修改，已索引的任务只更新状态和类别
+     */
+    private void indexLocal(Collection<Task> tasks) {
+        lock.writeLock().lock();
+        try {
+            for (val task : tasks) {
+                val ordinal = facets.assign(task.getId());
+                facets.setTask(ordinal, task.getStatus(), task.getCategory());
+                if (!index.live().contains(ordinal)) {
+                    add(ordinal, task);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void indexRecordsLocal(Collection<TaskRecord> records) {
+        lock.writeLock().lock();
+        try {
+            for (val record : records) {
+                val key = record.getTaskRecordCombinedPrimaryKey();
+                facets.setRecord(key.getChildID(), facets.assign(key.getTaskID()), record.getStatus());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 在持有写锁时调用
+     */
+    private void add(int ordinal, Task task) {
+        val tfs = new HashMap<String, Integer>();
+        int length = 0;
+        for (int i = 0; i < NAME_WEIGHT; i++) {
+            length += NgramTokenizer.tokenize(task.getTaskName(), term -> tfs.merge(term, 1, Integer::sum));
+        }
+        length += NgramTokenizer.tokenize(task.getDescription(), term -> tfs.merge(term, 1, Integer::sum));
+
+        index.add(ordinal, tfs, length);
+    }
+
+    /**
+     * 任务序号按创建时间递增，从大到小取就是最新的任务
+     */
+    private static int[] latest(RoaringBitmap ordinals, int limit) {
+        val result = new int[Math.min(limit, ordinals.cardinality())];
+        int ordinal = Integer.MAX_VALUE;
+        for (int i = 0; i < result.length; i++) {
+            ordinal = ordinals.previousValue(ordinal);
+            result[i] = ordinal--;
+        }
+        return result;
+    }
+
+    /**
+     * @param payload "{儿童ID},{任务ID},{状态};..."
+     */
+    private static List<TaskRecord> parseRecords(String payload) {
+        val records = new ArrayList<TaskRecord>();
+        for (val item : payload.split(";")) {
+            val fields = item.split(",", -1);
+            if (fields.length != 3) {
+                log.warn("无法识别的任务记录通知: {}", item);
+                continue;
+            }
+            records.add(TaskRecord.builder()
+                    .taskRecordCombinedPrimaryKey(new TaskRecord._TaskRecordCombinedPrimaryKey(fields[1], fields[0]))
+                    .status(fields[2].isEmpty() ? null : TaskRecordStatus.valueOf(fields[2]))
+                    .build());
+        }
+        return records;
+    }
+
+    /**
+     * @param category 类别的英文名或中文名，为空表示不限
+     */
+    private static TaskCategory parseCategory(String category) {
+        if (!StringUtils.hasText(category)) {
+            return null;
+        }
+        for (val candidate : TaskCategory.values()) {
+            if (candidate.name().equalsIgnoreCase(category.trim()) || candidate.value.equals(category.trim())) {
+                return candidate;
+            }
+        }
+        throw new IllegalArgumentException("未知的任务类别: " + category);
+    }
+
+    /**
+     * 把标签分为任务状态和儿童的完成情况，同一类中任一个满足即可，为空表示不限
+     *
+     * @param tags 状态的英文名或中文名；已完成、未完成指当前儿童的任务记录
+     */
+    private static void parseTags(List<String> tags, Set<TaskStatus> statuses, Set<TaskRecordStatus> records) {
+        if (tags == null) {
+            return;
+        }
+        for (val tag : tags) {
+            if (!StringUtils.hasText(tag)) {
+                continue;
+            }
+            switch (tag.trim()) {
+                case "已完成" -> records.add(TaskRecordStatus.COMPLETED);
+                case "未完成" -> records.add(TaskRecordStatus.UNCOMPLETED);
+                default -> statuses.add(parseStatus(tag.trim()));
+            }
+        }
+    }
+
+    private static TaskStatus parseStatus(String tag) {
+        if ("正在进行".equals(tag)) {
+            return TaskStatus.IN_PROGRESS;
+        }
+        for (val status : TaskStatus.values()) {
+            if (status.name().equalsIgnoreCase(tag) || status.value.equals(tag)) {
+                return status;
+            }
+        }
+        throw new IllegalArgumentException("未知的任务标签: " + tag);
+    }
+}
@@ -1,15 +1,21 @@
 package com.github.nanoyou.akariyumetabackend.service;
 
+import com.github.nanoyou.akariyumetabackend.common.cache.TwoLevelCache;
 import com.github.nanoyou.akariyumetabackend.dao.TaskDao;
 import com.github.nanoyou.akariyumetabackend.dao.TaskDynamicDao;
 import com.github.nanoyou.akariyumetabackend.dao.TaskRecordDao;
+import com.github.nanoyou.akariyumetabackend.dto.page.Cursor;
+import com.github.nanoyou.akariyumetabackend.dto.page.CursorPageDTO;
+import com.github.nanoyou.akariyumetabackend.dto.task.TaskCourseDTO;
 import com.github.nanoyou.akariyumetabackend.entity.task.Task;
 import com.github.nanoyou.akariyumetabackend.entity.task.TaskDynamic;
 import jakarta.annotation.Nonnull;
 import lombok.val;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,16 +24,26 @@ public class TaskService {
     private final TaskDao taskDao;
     private final TaskDynamicDao taskDynamicDao;
     private final TaskRecordDao taskRecordDao;
+    private final TwoLevelCache<Task> taskCache;
+    private final TaskSearchService taskSearchService;
+    private final TaskStatusService taskStatusService;
 
     @Autowired
-    private TaskService(TaskDao taskDao, TaskDynamicDao taskDynamicDao, TaskRecordDao taskRecordDao) {
+    private TaskService(TaskDao taskDao, TaskDynamicDao taskDynamicDao, TaskRecordDao taskRecordDao, TwoLevelCache<Task> taskCache,
+                        TaskSearchService taskSearchService, TaskStatusService taskStatusService) {
         this.taskDynamicDao = taskDynamicDao;
         this.taskDao = taskDao;
         this.taskRecordDao = taskRecordDao;
+        this.taskCache = taskCache;
+        this.taskSearchService = taskSearchService;
+        this.taskStatusService = taskStatusService;
     }
 
     public Optional<Task> addTask(@Nonnull Task task) {
         taskDao.save(task);
+        taskCache.invalidate(task.getId());
+        taskSearchService.index(List.of(task));
+        taskStatusService.schedule(List.of(task));
 
         return Optional.of(Task.builder()
                 .id(task.getId())
@@ -44,27 +60,67 @@ public class TaskService {
     }
 
     public Optional<Task> getTask(@Nonnull String taskID) {
-        return taskDao.findById(taskID);
+        return taskCache.get(taskID, taskDao::findById);
+    }
+
+    /**
+     * 只从本地缓存中取任务，未命中时返回空
+     */
+    public Optional<Task> getCachedTask(@Nonnull String taskID) {
+        return taskCache.getLocal(taskID);
     }
 
     public boolean existTask(@Nonnull String taskID) {
-        return taskDao.existsById(taskID);
+        return getTask(taskID).isPresent();
     }
 
     public List<Task> getAllTasks() {
         return taskDao.findAll();
     }
 
-    public List<Task> getMyTasks(@Nonnull String childID) {
-        // 根据 childID 获取任务-儿童关系对
-        val taskRecords = taskRecordDao.findByTaskRecordCombinedPrimaryKeyChildID(childID);
-        // 遍历关系对, 映射为任务列表
-        return taskRecords.stream().map(
-                taskRecord -> taskDao.findById(taskRecord.getTaskRecordCombinedPrimaryKey().getTaskID()).orElseThrow(NullPointerException::new)
-        ).toList();
+    /**
+     * 按创建时间倒序分页查询所有任务及其课程，任务和课程在同一条语句中联表查出
+     *
+     * @param cursor 分页游标
+     * @param limit  每页条数
+     * @return 任务课程分页
+     */
+    public CursorPageDTO<TaskCourseDTO> getTaskCoursePage(@Nonnull Cursor cursor, int limit) {
+        val taskCourses = taskDao.findTaskCoursePage(cursor.getCreateTime(), cursor.getId(), PageRequest.ofSize(limit + 1));
+        return CursorPageDTO.of(taskCourses, limit, TaskService::cursorOf);
+    }
+
+    /**
+     * 按创建时间倒序分页查询儿童的任务及其课程，任务记录、任务和课程在同一条语句中联表查出
+     *
+     * @param childID 儿童ID
+     * @param cursor  分页游标
+     * @param limit   每页条数
+     * @return 任务课程分页
+     */
+    public CursorPageDTO<TaskCourseDTO> getMyTaskCoursePage(@Nonnull String childID, @Nonnull Cursor cursor, int limit) {
+        val taskCourses = taskDao.findTaskCoursePageByChildID(childID, cursor.getCreateTime(), cursor.getId(), PageRequest.ofSize(limit + 1));
+        return CursorPageDTO.of(taskCourses, limit, TaskService::cursorOf);
+    }
+
+    /**
+     * 批量查询任务及其课程
+     *
+     * @param taskIDs 任务ID集合
+     * @return 任务课程列表，顺序不保证与传入的ID一致
+     */
+    public List<TaskCourseDTO> getTaskCourses(@Nonnull Collection<String> taskIDs) {
+        if (taskIDs.isEmpty()) {
+            return List.of();
+        }
+        return taskDao.findTaskCoursesByIDs(taskIDs);
     }
 
     public Optional<TaskDynamic> addTaskDynamic(@Nonnull TaskDynamic taskDynamic) {
         return Optional.ofNullable(taskDynamicDao.saveAndFlush(taskDynamic));
     }
+
+    private static Cursor cursorOf(@Nonnull TaskCourseDTO taskCourse) {
+        return new Cursor(taskCourse.getCreatedTime(), taskCourse.getId());
+    }
 }
@@ -0,0 +1,304 @@
+package com.github.nanoyou.akariyumetabackend.service;
+
+import com.github.nanoyou.akariyumetabackend.common.cache.TwoLevelCache;
+import com.github.nanoyou.akariyumetabackend.common.enumeration.TaskStatus;
+import com.github.nanoyou.akariyumetabackend.common.schedule.TimingWheel;
+import com.github.nanoyou.akariyumetabackend.dao.TaskDao;
+import com.github.nanoyou.akariyumetabackend.entity.task.Task;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * 学习任务状态的定时切换
+ * 任务到开始时间变为进行中，到结束时间变为已结束，读取时直接使用保存的状态，不再按时间计算。
+ * 持有 Redis 租约的一个节点负责切换：定期把即将到来的开始、结束时间读入分层时间轮，到期后按批 UPDATE，
+ * 再使任务缓存失效并更新搜索索引。新建的任务由 {@link #schedule(Collection)} 交给持有租约的节点。
+ * 读入时包括早已过去但状态未更新的任务，它们在取得租约后立即切换，停机期间错过的切换由此补上。
+ * UPDATE 带有切换前的状态条件，租约交接时两个节点短暂同时切换也不会出错。
+ */
+@Slf4j
+@Service
+public class TaskStatusService implements MessageListener {
+
+    /**
+     * 租约的键，值为持有者的节点标识
+     */
+    public static final String LEASE_KEY = "task:status-lease";
+    /**
+     * 把新建的任务交给持有租约的节点的频道，消息为 "{来源节点}:{任务ID},{任务ID}..."
+     */
+    public static final String SCHEDULE_CHANNEL = "task:status-schedule";
+
+    /**
+     * 时间轮每层的格数
+     */
+    private static final int WHEEL_SIZE = 64;
+    /**
+     * 仍由自己持有时续期
+     * KEYS[1]: 租约的键
+     * ARGV: 节点标识, 有效期（毫秒）
+     */
+    private static final RedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+                return redis.call('PEXPIRE', KEYS[1], ARGV[2])
+            end
+            return 0
+            """, Long.class);
+    /**
+     * 仍由自己持有时释放
+     * KEYS[1]: 租约的键
+     * ARGV: 节点标识
+     */
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+                return redis.call('DEL', KEYS[1])
+            end
+            return 0
+            """, Long.class);
+
+    /**
+     * 一次切换
+     *
+     * @param taskID 任务ID
+     * @param status 切换到的状态
+     */
+    private record Transition(String taskID, TaskStatus status) {
+    }
+
+    private final TaskDao taskDao;
+    private final TwoLevelCache<Task> taskCache;
+    private final TaskSearchService taskSearchService;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    /**
+     * 本节点的标识，作为租约的值，也用于忽略自己发出的通知
+     */
+    private final String origin = UUID.randomUUID().toString();
+
+    /**
+     * 以下字段只在 tick 中访问，tick 不会并发执行；持有租约时 wheel 不为 null
+     */
+    private TimingWheel<Transition> wheel;
+    /**
+     * 已放入时间轮、尚未执行的切换，重复读入时跳过
+     */
+    private final HashSet<Transition> scheduled = new HashSet<>();
+    private long nextLoadTime;
+    /**
+     * 其他线程交来的新任务，由定时任务放入时间轮
+     */
+    private final ConcurrentLinkedQueue<Task> incoming = new ConcurrentLinkedQueue<>();
+    private volatile boolean leader;
+
+    @Value("${akari.task-status.tick-ms:1000}")
+    private long tickMillis;
+    @Value("${akari.task-status.lease-ttl:15s}")
+    private Duration leaseTtl;
+    /**
+     * 每次读入多久之内的开始、结束时间，每隔一半的时间读一次
+     */
+    @Value("${akari.task-status.horizon:10m}")
+    private Duration horizon;
+    @Value("${akari.task-status.batch-size:500}")
+    private int batchSize;
+
+    @Autowired
+    private TaskStatusService(TaskDao taskDao, TwoLevelCache<Task> taskCache, TaskSearchService taskSearchService,
+                              StringRedisTemplate redisTemplate, RedisMessageListenerContainer listenerContainer) {
+        this.taskDao = taskDao;
+        this.taskCache = taskCache;
+        this.taskSearchService = taskSearchService;
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(SCHEDULE_CHANNEL));
+    }
+
+    /**
+     * 安排新建任务的状态切换
+     * 本节点持有租约时直接放入时间轮，否则通知持有租约的节点；通知丢失时由下一次定期读入补上
+     *
+     * @param tasks 已提交到数据库的任务
+     */
+    public void schedule(@Nonnull Collection<Task> tasks) {
+        if (tasks.isEmpty()) {
+            return;
+        }
+        if (leader) {
+            incoming.addAll(tasks);
+            return;
+        }
+        val ids = tasks.stream().map(Task::getId).toList();
+        try {
+            redisTemplate.convertAndSend(SCHEDULE_CHANNEL, origin + ":" + String.join(",", ids));
+        } catch (RuntimeException e) {
+            log.warn("通知任务状态切换失败: {} 个任务", ids.size(), e);
+        }
+    }
+
+    /**
+     * 其他节点新建了任务，本节点持有租约时从数据库读出后放入时间轮
+     */
+    @Override
+    public void onMessage(@Nonnull Message message, byte[] pattern) {
+        val body = new String(message.getBody(), StandardCharsets.UTF_8);
+        val colon = body.indexOf(':');
+        if (!leader || colon < 0 || body.substring(0, colon).equals(origin)) {
+            return;
+        }
+        val ids = Arrays.asList(body.substring(colon + 1).split(","));
+        try {
+            incoming.addAll(taskDao.findAllById(ids));
+        } catch (RuntimeException e) {
+            log.warn("读取需要切换状态的任务失败: {}", ids, e);
+        }
+    }
+
+    /**
+     * 续约或抢占租约；持有租约时推进时间轮并执行到期的切换
+     */
+    @Scheduled(fixedDelayString = "${akari.task-status.tick-ms:1000}")
+    public void tick() {
+        if (!holdLease()) {
+            if (wheel != null) {
+                log.info("失去任务状态切换的租约");
+                wheel = null;
+                scheduled.clear();
+                incoming.clear();
+            }
+            leader = false;
+            return;
+        }
+        val now = System.currentTimeMillis();
+        if (wheel == null) {
+            log.info("取得任务状态切换的租约");
+            wheel = new TimingWheel<>(tickMillis, WHEEL_SIZE, now);
+            nextLoadTime = now;
+            leader = true;
+        }
+        if (now >= nextLoadTime) {
+            load(now + horizon.toMillis());
+            nextLoadTime = now + horizon.toMillis() / 2;
+        }
+        Task task;
+        while ((task = incoming.poll()) != null) {
+            add(task);
+        }
+
+        val due = new ArrayList<Transition>();
+        wheel.advance(now, due::add);
+        if (!due.isEmpty()) {
+            apply(due);
+        }
+    }
+
+    @PreDestroy
+    public void release() {
+        if (!leader) {
+            return;
+        }
+        leader = false;
+        try {
+            redisTemplate.execute(RELEASE_SCRIPT, List.of(LEASE_KEY), origin);
+        } catch (RuntimeException e) {
+            log.warn("释放任务状态切换的租约失败，将在 {} 后过期", leaseTtl, e);
+        }
+    }
+
+    private boolean holdLease() {
+        try {
+            val ttl = leaseTtl.toMillis();
+            if (Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(LEASE_KEY, origin, leaseTtl))) {
+                return true;
+            }
+            return Long.valueOf(1).equals(redisTemplate.execute(RENEW_SCRIPT, List.of(LEASE_KEY), origin, String.valueOf(ttl)));
+        } catch (RuntimeException e) {
+            // 无法确认租约时停止切换，Redis 恢复后由某个节点重新取得
+            log.warn("任务状态切换的租约续期失败", e);
+            return false;
+        }
+    }
+
+    /**
+     * 读入开始或结束时间不晚于 until 的未切换任务
+     */
+    private void load(long until) {
+        val untilTime = LocalDateTime.ofInstant(Instant.ofEpochMilli(until), ZoneId.systemDefault());
+        try {
+            taskDao.findStartingBefore(TaskStatus.NOT_STARTED, untilTime).forEach(this::add);
+            taskDao.findEndingBefore(List.of(TaskStatus.NOT_STARTED, TaskStatus.IN_PROGRESS), untilTime).forEach(this::add);
+        } catch (RuntimeException e) {
+            log.warn("读取需要切换状态的任务失败", e);
+        }
+    }
+
+    /**
+     * 按任务当前的状态放入尚未发生的切换
+     */
+    private void add(Task task) {
+        if (task.getStatus() == TaskStatus.NOT_STARTED && task.getStartTime() != null) {
+            add(new Transition(task.getId(), TaskStatus.IN_PROGRESS), task.getStartTime());
+        }
+        if (task.getStatus() != TaskStatus.FINISHED && task.getEndTime() != null) {
+            add(new Transition(task.getId(), TaskStatus.FINISHED), task.getEndTime());
+        }
+    }
+
+    private void add(Transition transition, LocalDateTime time) {
+        if (scheduled.add(transition)) {
+            wheel.add(time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(), transition);
+        }
+    }
+
+    /**
+     * 按目标状态分组，每批任务一条 UPDATE，然后使缓存失效并更新搜索索引
+     * 执行过的切换从已安排的集合中移除，失败的一批下次读入时重新安排
+     */
+    private void apply(List<Transition> due) {
+        // 开始和结束同时到期的任务先变为进行中再变为已结束
+        val started = due.stream().filter(t -> t.status() == TaskStatus.IN_PROGRESS).map(Transition::taskID).toList();
+        val finished = due.stream().filter(t -> t.status() == TaskStatus.FINISHED).map(Transition::taskID).toList();
+        apply(started, List.of(TaskStatus.NOT_STARTED), TaskStatus.IN_PROGRESS);
+        apply(finished, List.of(TaskStatus.NOT_STARTED, TaskStatus.IN_PROGRESS), TaskStatus.FINISHED);
+    }
+
+    private void apply(List<String> ids, List<TaskStatus> from, TaskStatus status) {
+        for (int i = 0; i < ids.size(); i += batchSize) {
+            val batch = ids.subList(i, Math.min(i + batchSize, ids.size()));
+            try {
+                val updated = taskDao.updateStatus(batch, from, status);
+                taskCache.invalidateAll(batch);
+                taskSearchService.index(taskDao.findAllById(batch));
+                log.debug("{} 个任务切换为 {}", updated, status);
+            } catch (RuntimeException e) {
+                log.warn("{} 个任务切换为 {} 失败，下次读入时重试", batch.size(), status, e);
+            }
+            batch.forEach(taskID -> scheduled.remove(new Transition(taskID, status)));
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package com.github.nanoyou.akariyumetabackend.service;
+
+import cn.hutool.core.date.LocalDateTimeUtil;
+import com.github.nanoyou.akariyumetabackend.dao.CommentDao;
+import com.github.nanoyou.akariyumetabackend.dto.page.Cursor;
+import com.github.nanoyou.akariyumetabackend.dto.page.CursorPageDTO;
+import com.github.nanoyou.akariyumetabackend.entity.dynamic.Comment;
+import jakarta.annotation.Nonnull;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.redis.connection.RedisPipelineException;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * 动态时间线服务
+ * 发表动态时把动态ID推送到每个粉丝的 Redis 有序集合（写扩散），查看我的动态时只需读取自己的时间线。
+ * 粉丝数超过阈值的用户不做写扩散，他们的动态在读取时从数据库拉取（读扩散）。
+ * 粉丝数回落到阈值的一半以下后恢复写扩散，并把最近的动态补推到粉丝的时间线。
+ * 每条时间线单独执行脚本，键可以分布在 Redis Cluster 的不同节点上。
+ */
+@Slf4j
+@Service
+public class TimelineService {
+
+    private static final String TIMELINE_KEY_PREFIX = "timeline:";
+    private static final String CELEBRITY_KEY = "timeline:celebrities";
+    /**
+     * 占位成员，保证空时间线也存在，避免每次读取都回源重建
+     */
+    private static final String SENTINEL = "#";
+    /**
+     * 每个管道中推送的时间线数
+     */
+    private static final int PUSH_BATCH = 500;
+
+    /**
+     * 只向已存在的时间线追加，并把时间线截断到最大长度
+     * KEYS[1]: 时间线的键
+     * ARGV: maxLength, score, commentID[, score, commentID ...]
+     */
+    private static final RedisScript<Long> PUSH_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('EXISTS', KEYS[1]) == 0 then
+                return 0
+            end
+            local maxLength = tonumber(ARGV[1])
+            for i = 2, #ARGV, 2 do
+                redis.call('ZADD', KEYS[1], ARGV[i], ARGV[i + 1])
+            end
+            redis.call('ZREMRANGEBYRANK', KEYS[1], 0, -maxLength - 1)
+            return 1
+            """, Long.class);
+
+    /**
+     * 时间线不存在时一次写入占位成员和所有动态并设置过期时间，读取方看到时间线时它已经完整
+     * 已存在时说明同时有其他请求重建过，不再覆盖
+     * KEYS[1]: 时间线的键
+     * ARGV: ttl（毫秒）, score, commentID[, score, commentID ...]
+     */
+    private static final RedisScript<Long> REBUILD_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('EXISTS', KEYS[1]) == 1 then
+                return 0
+            end
+            redis.call('ZADD', KEYS[1], unpack(ARGV, 2))
+            redis.call('PEXPIRE', KEYS[1], ARGV[1])
+            return 1
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final CommentDao commentDao;
+    private final SubscriptionService subscriptionService;
+    private final LookupService lookupService;
+
+    /**
+     * 每条时间线最多保留的动态数
+     */
+    @Value("${akari.timeline.max-length:800}")
+    private int maxLength;
+    /**
+     * 粉丝数超过该值的用户改为读扩散
+     */
+    @Value("${akari.timeline.fan-out-threshold:5000}")
+    private long fanOutThreshold;
+    /**
+     * 时间线的过期时间，过期后下次读取时重建
+     */
+    @Value("${akari.timeline.ttl:7d}")
+    private Duration ttl;
+
+    @Autowired
+    private TimelineService(StringRedisTemplate redisTemplate, CommentDao commentDao, SubscriptionService subscriptionService,
+                            LookupService lookupService) {
+        this.redisTemplate = redisTemplate;
+        this.commentDao = commentDao;
+        this.subscriptionService = subscriptionService;
+        this.lookupService = lookupService;
+    }
+
+    /**
+     * 把新发表的动态推送到作者自己和粉丝的时间线
+     * Redis 不可用时只记录日志，时间线会在过期后从数据库重建
+     *
+     * @param dynamic 新发表的动态（根评论）
+     */
+    public void push(@Nonnull Comment dynamic) {
+        val authorID = dynamic.getCommenterID();
+        try {
+            val targets = new ArrayList<String>();
+            targets.add(timelineKey(authorID));
+            val followerCount = subscriptionService.getFollowerCount(authorID);
+            val celebrity = Boolean.TRUE.equals(redisTemplate.opsForSet().isMember(CELEBRITY_KEY, authorID));
+            if (followerCount > fanOutThreshold) {
+                if (!celebrity) {
+                    redisTemplate.opsForSet().add(CELEBRITY_KEY, authorID);
+                }
+            } else if (celebrity && followerCount > fanOutThreshold / 2) {
+                // 在阈值附近波动时保持读扩散，避免反复补推
+            } else {
+                val followerKeys = subscriptionService.getFollowerIDs(authorID).stream().map(TimelineService::timelineKey).toList();
+                if (celebrity) {
+                    // 先补推再移出，读取时按动态ID去重，期间同时出现在两处也不会重复
+                    pushAll(followerKeys, commentDao.findByCommenterIDInAndReplyToIsNull(List.of(authorID), latest(maxLength)));
+                    redisTemplate.opsForSet().remove(CELEBRITY_KEY, authorID);
+                }
+                targets.addAll(followerKeys);
+            }
+            pushAll(targets, List.of(dynamic));
+        } catch (Exception e) {
+            log.warn("动态推送到时间线失败: dynamicID={}", dynamic.getId(), e);
+        }
+    }
+
+    /**
+     * 把动态推送到已存在的时间线，每个管道推送一批时间线
+     * 管道中的脚本未加载时，这一批逐条执行，由 RedisTemplate 加载脚本
+     */
+    private void pushAll(@Nonnull List<String> keys, @Nonnull List<Comment> dynamics) {
+        if (dynamics.isEmpty()) {
+            return;
+        }
+        val args = new ArrayList<String>(dynamics.size() * 2 + 1);
+        args.add(String.valueOf(maxLength));
+        for (Comment dynamic : dynamics) {
+            args.add(String.valueOf(score(dynamic)));
+            args.add(dynamic.getId());
+        }
+        val serializer = redisTemplate.getStringSerializer();
+        val rawArgs = args.stream().map(serializer::serialize).toArray(byte[][]::new);
+        for (int i = 0; i < keys.size(); i += PUSH_BATCH) {
+            val batch = keys.subList(i, Math.min(i + PUSH_BATCH, keys.size()));
+            try {
+                redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    for (String key : batch) {
+                        val keysAndArgs = new byte[rawArgs.length + 1][];
+                        keysAndArgs[0] = serializer.serialize(key);
+                        System.arraycopy(rawArgs, 0, keysAndArgs, 1, rawArgs.length);
+                        connection.scriptingCommands().evalSha(PUSH_SCRIPT.getSha1(), ReturnType.INTEGER, 1, keysAndArgs);
+                    }
+                    return null;
+                });
+            } catch (RedisPipelineException e) {
+                val argArray = args.toArray();
+                batch.forEach(key -> redisTemplate.execute(PUSH_SCRIPT, List.of(key), argArray));
+            }
+        }
+    }
+
+    /**
+     * 按 (发表时间, ID) 倒序分页获取用户的时间线，包含自己和关注的人发表的动态
+     *
+     * @param userID 用户ID
+     * @param cursor 分页游标
+     * @param limit  每页条数
+     * @return 动态分页
+     */
+    public CursorPageDTO<Comment> getTimeline(@Nonnull String userID, @Nonnull Cursor cursor, int limit) {
+        limit = Math.max(1, Math.min(limit, maxLength));
+        val key = timelineKey(userID);
+        val fetch = PageRequest.ofSize(limit + 1);
+
+        try (val scope = lookupService.open()) {
+            // 关注列表在数据库中查询的同时读取 Redis 中的时间线
+            val followeeLookup = scope.fork(() -> subscriptionService.getFolloweeIDs(userID));
+
+            List<String> dynamicIDs;
+            List<String> celebrities;
+            try {
+                dynamicIDs = readTimeline(key, cursor, limit);
+                celebrities = celebrities(followeeLookup.get());
+                if (dynamicIDs == null) {
+                    rebuild(userID, followeeLookup.get(), celebrities);
+                    dynamicIDs = readTimeline(key, cursor, limit);
+                }
+            } catch (Exception e) {
+                log.warn("读取时间线失败，回退到数据库: userID={}", userID, e);
+                return CursorPageDTO.of(commentDao.findDynamicPageByCommenterIDs(
+                        authors(userID, followeeLookup.get()), cursor.getCreateTime(), cursor.getId(), fetch), limit, TimelineService::cursorOf);
+            }
+
+            // 粉丝数过多的关注对象没有写扩散，读取时拉取，与时间线中动态的查询同时进行
+            val storedIDs = Objects.requireNonNullElse(dynamicIDs, List.<String>of());
+            val storedLookup = scope.fork(() -> commentDao.findAllById(storedIDs));
+            val pulledLookup = celebrities.isEmpty()
+                    ? null
+                    : scope.fork(() -> commentDao.findDynamicPageByCommenterIDs(celebrities, cursor.getCreateTime(), cursor.getId(), fetch));
+            scope.join();
+
+            val pulled = pulledLookup == null ? List.<Comment>of() : pulledLookup.get();
+            // 刚成为或刚不再是读扩散对象的用户，动态可能同时在时间线中和拉取的结果中
+            val seen = new HashSet<String>();
+            val rows = Stream.concat(storedLookup.get().stream(), pulled.stream())
+                    .filter(c -> seen.add(c.getId()))
+                    .filter(c -> cursor.isBefore(c.getCreateTime(), c.getId()))
+                    .sorted(Comparator.comparing(Comment::getCreateTime).thenComparing(Comment::getId).reversed())
+                    .limit(limit + 1)
+                    .toList();
+            return CursorPageDTO.of(rows, limit, TimelineService::cursorOf);
+        }
+    }
+
+    /**
+     * 读取时间线中位于游标之后的动态ID
+     * 分数只精确到毫秒，与游标同一毫秒的动态全部取出，再在内存中按 (发表时间, ID) 精确过滤，
+     * 早于这一毫秒的动态按分数取 limit + 1 条
+     *
+     * @return 动态ID，时间线不存在时返回 null
+     */
+    private List<String> readTimeline(@Nonnull String key, @Nonnull Cursor cursor, int limit) {
+        if (!Boolean.TRUE.equals(redisTemplate.hasKey(key))) {
+            return null;
+        }
+        val ops = redisTemplate.opsForZSet();
+        val ids = new ArrayList<String>();
+        var maxScore = Double.POSITIVE_INFINITY;
+        if (cursor != Cursor.FIRST) {
+            val cursorScore = score(cursor.getCreateTime());
+            ids.addAll(Objects.requireNonNullElse(ops.rangeByScore(key, cursorScore, cursorScore), Set.of()));
+            maxScore = Math.nextDown(cursorScore);
+        }
+        ids.addAll(Objects.requireNonNullElse(ops.reverseRangeByScore(key, Double.NEGATIVE_INFINITY, maxScore, 0, limit + 1), Set.of()));
+        ids.remove(SENTINEL);
+        return ids;
+    }
+
+    /**
+     * 从数据库重建时间线，读扩散的关注对象的动态在读取时拉取，不放入时间线
+     * 占位成员、动态和过期时间由一个脚本写入，并发的读取不会看到只写了一部分的时间线
+     */
+    private void rebuild(@Nonnull String userID, @Nonnull List<String> followeeIDs, @Nonnull List<String> celebrities) {
+        val key = timelineKey(userID);
+        val authors = authors(userID, followeeIDs);
+        authors.removeAll(celebrities);
+        val dynamics = commentDao.findByCommenterIDInAndReplyToIsNull(authors, latest(maxLength));
+        val args = new ArrayList<String>(dynamics.size() * 2 + 3);
+        args.add(String.valueOf(ttl.toMillis()));
+        args.add("0");
+        args.add(SENTINEL);
+        for (Comment dynamic : dynamics) {
+            args.add(String.valueOf(score(dynamic)));
+            args.add(dynamic.getId());
+        }
+        redisTemplate.execute(REBUILD_SCRIPT, List.of(key), args.toArray());
+    }
+
+    private List<String> celebrities(@Nonnull List<String> followeeIDs) {
+        if (followeeIDs.isEmpty()) {
+            return List.of();
+        }
+        val celebrities = redisTemplate.opsForSet().members(CELEBRITY_KEY);
+        if (celebrities == null || celebrities.isEmpty()) {
+            return List.of();
+        }
+        return followeeIDs.stream().filter(celebrities::contains).toList();
+    }
+
+    private static List<String> authors(@Nonnull String userID, @Nonnull List<String> followeeIDs) {
+        val authors = new ArrayList<String>(followeeIDs.size() + 1);
+        authors.add(userID);
+        authors.addAll(followeeIDs);
+        return authors;
+    }
+
+    private static PageRequest latest(int limit) {
+        return PageRequest.of(0, limit, Sort.by(Sort.Direction.DESC, "createTime"));
+    }
+
+    private static double score(@Nonnull Comment dynamic) {
+        return score(dynamic.getCreateTime());
+    }
+
+    private static double score(@Nonnull LocalDateTime createTime) {
+        return LocalDateTimeUtil.toEpochMilli(createTime);
+    }
+
+    private static Cursor cursorOf(@Nonnull Comment dynamic) {
+        return new Cursor(dynamic.getCreateTime(), dynamic.getId());
+    }
+
+    private static String timelineKey(@Nonnull String userID) {
+        return TIMELINE_KEY_PREFIX + userID;
+    }
+}
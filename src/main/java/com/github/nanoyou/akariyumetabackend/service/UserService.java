@@ -0,0 +1,33 @@
+package com.github.nanoyou.akariyumetabackend.service;
+
+import com.github.nanoyou.akariyumetabackend.common.enumeration.Role;
+import com.github.nanoyou.akariyumetabackend.dao.UserDao;
+import jakarta.annotation.Nullable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * 用户身份查询，供只允许特定角色访问的接口使用
+ */
+@Service
+public class UserService {
+
+    private final UserDao userDao;
+
+    @Autowired
+    private UserService(UserDao userDao) {
+        this.userDao = userDao;
+    }
+
+    /**
+     * @param userID 登录用户ID，未登录时为 null
+     * @param role   角色
+     * @return 用户存在且是该角色
+     */
+    public boolean hasRole(@Nullable String userID, Role role) {
+        if (userID == null) {
+            return false;
+        }
+        return userDao.findById(userID).map(user -> user.getRole() == role).orElse(false);
+    }
+}
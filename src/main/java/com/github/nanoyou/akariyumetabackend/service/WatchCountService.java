@@ -0,0 +1,293 @@
+package com.github.nanoyou.akariyumetabackend.service;
+
+import com.github.nanoyou.akariyumetabackend.common.cache.TwoLevelCache;
+import com.github.nanoyou.akariyumetabackend.dao.CourseDao;
+import com.github.nanoyou.akariyumetabackend.entity.task.Course;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 课程观看次数服务
+ * 观看事件只放入无锁队列，由后台定时任务取出后批量追加到本地日志文件、刷盘，再累加到内存中按课程分片的 LongAdder，
+ * 最后由写回任务批量更新数据库，请求线程既不加锁也不做系统调用。
+ * 进程崩溃时最多丢失一个刷盘间隔内的事件，已写入日志的次数在之后的写回中重放。
+ * 日志中的事件与内存中的计数在同一把锁下更新，轮转出的日志与写回的增量一一对应，重放不会重复计数。
+ * 每次写回在一个事务中更新所有课程，失败时整批回滚，保留的日志重放时不会让已写入的课程再计一次。
+ * 同一用户在去重窗口内重复观看同一课程只计一次，由 Redis 中带过期时间的键判断，所有节点共用。
+ */
+@Slf4j
+@Service
+public class WatchCountService {
+
+    private static final String SEEN_KEY_PREFIX = "watch:seen:";
+    private static final String ACTIVE_JOURNAL = "active.journal";
+    private static final String FLUSHING_SUFFIX = ".flushing";
+    /**
+     * 每次写入日志的最大事件数
+     */
+    private static final int DRAIN_BATCH = 8192;
+
+    private final CourseDao courseDao;
+    private final TwoLevelCache<Course> courseCache;
+    private final StringRedisTemplate redisTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * 请求线程放入、尚未写入日志的观看事件
+     */
+    private final ConcurrentLinkedQueue<String> incoming = new ConcurrentLinkedQueue<>();
+    /**
+     * 已写入日志、尚未写回数据库的观看次数，课程ID -> 计数
+     */
+    private final ConcurrentHashMap<String, LongAdder> pendingCounts = new ConcurrentHashMap<>();
+
+    /**
+     * 保护日志文件的追加和轮转，只由后台任务持有
+     */
+    private final ReentrantLock journalLock = new ReentrantLock();
+    private FileChannel journal;
+
+    @Value("${akari.watch.journal-dir:data/watch-journal}")
+    private Path journalDir;
+    /**
+     * 同一用户重复观看同一课程只计一次的时间窗口
+     */
+    @Value("${akari.watch.dedupe-window:30m}")
+    private Duration dedupeWindow;
+
+    @Autowired
+    private WatchCountService(CourseDao courseDao, TwoLevelCache<Course> courseCache, StringRedisTemplate redisTemplate,
+                              PlatformTransactionManager transactionManager) {
+        this.courseDao = courseDao;
+        this.courseCache = courseCache;
+        this.redisTemplate = redisTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * 启动时把上次留下的日志改为待写回日志，由写回任务重放，数据库不可用时不影响启动
+     */
+    @PostConstruct
+    public void init() throws IOException {
+        Files.createDirectories(journalDir);
+        val active = journalDir.resolve(ACTIVE_JOURNAL);
+        if (Files.exists(active)) {
+            Files.move(active, journalDir.resolve(System.currentTimeMillis() + FLUSHING_SUFFIX));
+        }
+        journal = openJournal();
+    }
+
+    /**
+     * 记录一次观看，同一用户在去重窗口内重复观看同一课程时不计数
+     * Redis 不可用时照常计数
+     *
+     * @param userID   观看的用户ID
+     * @param courseID 课程ID（即任务ID）
+     * @return 是否计入了观看次数
+     */
+    public boolean watch(@Nonnull String userID, @Nonnull String courseID) {
+        try {
+            val first = redisTemplate.opsForValue().setIfAbsent(SEEN_KEY_PREFIX + courseID + ":" + userID, "1", dedupeWindow);
+            if (Boolean.FALSE.equals(first)) {
+                return false;
+            }
+        } catch (RuntimeException e) {
+            log.warn("观看去重失败，照常计数: userID={}, courseID={}", userID, courseID, e);
+        }
+        incoming.offer(courseID);
+        return true;
+    }
+
+    /**
+     * 获取尚未写回数据库的观看次数，用于在读取时叠加到数据库中的值上
+     * 不包含尚未写入日志的事件，最多滞后一个刷盘间隔
+     *
+     * @param courseID 课程ID
+     * @return 未写回的观看次数
+     */
+    public long getPendingCount(@Nonnull String courseID) {
+        val counter = pendingCounts.get(courseID);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    /**
+     * 把缓冲的观看次数批量写回数据库，然后使课程缓存失效
+     * 先轮转日志，写回成功后再删除被轮转的日志；写回失败时保留它，下次写回时重放。
+     * 缓存失效之后才从内存中的计数扣除写回的部分，读取时叠加的结果不会因写回而变小。
+     */
+    @Scheduled(fixedDelayString = "${akari.watch.flush-interval-ms:5000}")
+    @PreDestroy
+    public void flush() {
+        replayFailed();
+
+        final Path rotated;
+        final Map<String, Long> deltas;
+        journalLock.lock();
+        try {
+            drain();
+            rotated = rotateJournal();
+            if (rotated == null) {
+                return;
+            }
+            deltas = new HashMap<>();
+            pendingCounts.forEach((courseID, counter) -> {
+                val delta = counter.sum();
+                if (delta != 0) {
+                    deltas.put(courseID, delta);
+                }
+            });
+        } catch (IOException e) {
+            log.warn("观看次数日志轮转失败", e);
+            return;
+        } finally {
+            journalLock.unlock();
+        }
+
+        try {
+            increase(deltas);
+            Files.deleteIfExists(rotated);
+        } catch (Exception e) {
+            log.warn("观看次数写回失败，日志保留在 {}", rotated, e);
+        } finally {
+            deltas.forEach((courseID, delta) -> pendingCounts.get(courseID).add(-delta));
+        }
+    }
+
+    /**
+     * 定期把队列中的事件写入日志并刷到磁盘，多个事件共用一次 write 和 fsync
+     */
+    @Scheduled(fixedDelayString = "${akari.watch.fsync-interval-ms:200}")
+    public void sync() {
+        journalLock.lock();
+        try {
+            drain();
+        } catch (IOException e) {
+            log.warn("观看次数日志写入失败", e);
+        } finally {
+            journalLock.unlock();
+        }
+    }
+
+    /**
+     * 在 journalLock 中调用，取出队列中的事件，每 DRAIN_BATCH 个写入一次日志并计入内存中的计数，最后刷盘
+     * 写入失败的事件仍然计入，只是崩溃时无法重放
+     */
+    private void drain() throws IOException {
+        var written = false;
+        while (!incoming.isEmpty()) {
+            val counts = new HashMap<String, Long>();
+            val buffer = new StringBuilder();
+            String courseID;
+            for (int i = 0; i < DRAIN_BATCH && (courseID = incoming.poll()) != null; i++) {
+                buffer.append(courseID).append('\n');
+                counts.merge(courseID, 1L, Long::sum);
+            }
+            try {
+                val bytes = ByteBuffer.wrap(buffer.toString().getBytes(StandardCharsets.UTF_8));
+                while (bytes.hasRemaining()) {
+                    journal().write(bytes);
+                }
+                written = true;
+            } finally {
+                counts.forEach((id, count) -> pendingCounts.computeIfAbsent(id, key -> new LongAdder()).add(count));
+            }
+        }
+        if (written) {
+            journal().force(false);
+        }
+    }
+
+    /**
+     * 定时任务的线程在写入时被中断会关闭日志文件，下次使用时重新打开
+     */
+    private FileChannel journal() throws IOException {
+        if (!journal.isOpen()) {
+            journal = openJournal();
+        }
+        return journal;
+    }
+
+    /**
+     * 重放启动前和之前写回失败时留下的日志
+     */
+    private void replayFailed() {
+        try (val files = Files.list(journalDir)) {
+            for (Path file : files.filter(f -> f.getFileName().toString().endsWith(FLUSHING_SUFFIX)).toList()) {
+                replay(file);
+            }
+        } catch (Exception e) {
+            log.warn("重放观看次数日志失败", e);
+        }
+    }
+
+    /**
+     * 在 journalLock 中调用，把当前日志改名为待写回日志并打开新的日志文件
+     *
+     * @return 被轮转的日志文件，当前日志为空时不轮转，返回 null
+     */
+    private Path rotateJournal() throws IOException {
+        if (journal().size() == 0) {
+            return null;
+        }
+        journal.force(false);
+        journal.close();
+        val rotated = journalDir.resolve(System.currentTimeMillis() + FLUSHING_SUFFIX);
+        Files.move(journalDir.resolve(ACTIVE_JOURNAL), rotated);
+        journal = openJournal();
+        return rotated;
+    }
+
+    private FileChannel openJournal() throws IOException {
+        return FileChannel.open(journalDir.resolve(ACTIVE_JOURNAL),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * 统计日志中的观看事件并写回数据库
+     */
+    private void replay(@Nonnull Path file) throws IOException {
+        val deltas = new HashMap<String, Long>();
+        try (val lines = Files.lines(file, StandardCharsets.UTF_8)) {
+            lines.filter(line -> !line.isEmpty()).forEach(courseID -> deltas.merge(courseID, 1L, Long::sum));
+        }
+        increase(deltas);
+        Files.delete(file);
+        log.info("已重放观看次数日志 {}，共 {} 个课程", file, deltas.size());
+    }
+
+    /**
+     * 在一个事务中写回数据库，提交后使课程缓存失效
+     */
+    private void increase(@Nonnull Map<String, Long> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> courseDao.increaseWatchedCounts(deltas));
+        courseCache.invalidateAll(deltas.keySet());
+    }
+}
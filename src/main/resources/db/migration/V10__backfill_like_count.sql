@@ -0,0 +1,8 @@
+-- 按 Like 表重新统计点赞数
+-- 计数表在已有点赞之后才加入，之前的点赞没有计入；迁移时应用未运行，没有尚未写回的增量
+
+DELETE FROM like_count;
+INSERT INTO like_count (commentid, like_count)
+SELECT commentid, COUNT(*)
+FROM `like`
+GROUP BY commentid;
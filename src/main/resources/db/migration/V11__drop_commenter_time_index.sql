@@ -0,0 +1,3 @@
+-- 按发表者分页查询全部评论的接口已移除，动态的查询使用 idx_comment_commenter_root_time
+
+DROP INDEX idx_comment_commenter_time ON comment;
@@ -0,0 +1,12 @@
+-- 任务记录的最后修改时间，由 TaskRecordDao.mergeAll 在每次插入和更新时写入
+-- TaskRecordDao.streamChangedSince：搜索服务从快照恢复后按它补读之后变化的记录，不再依赖开启、结束时间
+-- 已有的记录取开启、结束时间中较晚的一个，与原来的补读条件一致
+ALTER TABLE task_record ADD COLUMN updated_time DATETIME(6);
+UPDATE task_record
+SET updated_time = CASE
+                       WHEN end_time IS NULL OR start_time > end_time THEN start_time
+                       ELSE end_time
+    END;
+CREATE INDEX idx_task_record_updated_time ON task_record (updated_time);
+DROP INDEX idx_task_record_start_time ON task_record;
+DROP INDEX idx_task_record_end_time ON task_record;
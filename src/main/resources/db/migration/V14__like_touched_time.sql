@@ -0,0 +1,6 @@
+-- 点赞对账只检查上次对账以来有变化的评论
+-- Like 表记录点赞时间，已有的点赞取迁移时的时间；计数表记录最后一次写回增量的时间，由 LikeCountDao.increase 写入
+ALTER TABLE `like` ADD COLUMN create_time DATETIME(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6);
+CREATE INDEX idx_like_create_time ON `like` (create_time);
+ALTER TABLE like_count ADD COLUMN updated_time DATETIME(6);
+CREATE INDEX idx_like_count_updated_time ON like_count (updated_time);
@@ -0,0 +1,90 @@
+-- 基线：与 JPA 实体一致的表结构
+-- 已经由 ddl-auto=update 建好表的库会跳过已存在的表
+
+CREATE TABLE IF NOT EXISTS comment
+(
+    id          VARCHAR(255) NOT NULL,
+    commenterid VARCHAR(255),
+    content     VARCHAR(255),
+    create_time DATETIME(6),
+    reply_to    VARCHAR(255),
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS `like`
+(
+    commentid VARCHAR(255) NOT NULL,
+    likerid   VARCHAR(255) NOT NULL,
+    likedid   VARCHAR(255),
+    PRIMARY KEY (commentid, likerid)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS like_count
+(
+    commentid  VARCHAR(255) NOT NULL,
+    like_count BIGINT,
+    PRIMARY KEY (commentid)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS subscription
+(
+    followeeid VARCHAR(255) NOT NULL,
+    followerid VARCHAR(255) NOT NULL,
+    PRIMARY KEY (followeeid, followerid)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS course
+(
+    taskid         VARCHAR(255) NOT NULL,
+    watched_count  INTEGER,
+    videourl       VARCHAR(255),
+    video_duration INTEGER,
+    PRIMARY KEY (taskid)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS task
+(
+    id              VARCHAR(255) NOT NULL,
+    task_name       VARCHAR(255),
+    task_uploaderid VARCHAR(255),
+    created_time    DATETIME(6),
+    start_time      DATETIME(6),
+    end_time        DATETIME(6),
+    status          TINYINT,
+    description     VARCHAR(255),
+    category        TINYINT,
+    bonus           INTEGER,
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS task_dynamic
+(
+    dynamicid VARCHAR(255) NOT NULL,
+    taskid    VARCHAR(255) NOT NULL,
+    PRIMARY KEY (dynamicid, taskid)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS task_record
+(
+    childid    VARCHAR(255) NOT NULL,
+    taskid     VARCHAR(255) NOT NULL,
+    start_time DATETIME(6),
+    end_time   DATETIME(6),
+    status     TINYINT,
+    PRIMARY KEY (childid, taskid)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS user
+(
+    id             VARCHAR(255) NOT NULL,
+    username       VARCHAR(255),
+    nickname       VARCHAR(255),
+    role           TINYINT,
+    password       VARCHAR(255),
+    gender         TINYINT,
+    introduction   VARCHAR(255),
+    avatarurl      VARCHAR(255),
+    usage_duration INTEGER,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_user_username UNIQUE (username)
+) ENGINE = InnoDB;
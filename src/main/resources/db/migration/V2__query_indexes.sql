@@ -0,0 +1,14 @@
+-- 为 dao 包中的查询建立索引，索引名与 @UsesIndex 中声明的一致
+
+-- CommentDao.findByCommenterID / findPageByCommenterID
+CREATE INDEX idx_comment_commenter_time ON comment (commenterid, create_time, id);
+-- CommentDao.findByCommenterIDInAndReplyToIsNull / findDynamicPageByCommenterIDs
+CREATE INDEX idx_comment_commenter_root_time ON comment (commenterid, reply_to, create_time, id);
+-- CommentDao.findByReplyTo / findSubtree
+CREATE INDEX idx_comment_reply_to ON comment (reply_to, create_time);
+
+-- SubscriptionDao.findByCombinedPrimaryKeyFollowerID，主键以 followeeid 开头，无法覆盖
+CREATE INDEX idx_subscription_follower ON subscription (followerid, followeeid);
+
+-- TaskDao.findTaskCoursePage
+CREATE INDEX idx_task_created ON task (created_time, id);
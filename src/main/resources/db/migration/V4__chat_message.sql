@@ -0,0 +1,13 @@
+-- 聊天消息，只追加
+-- 主键以 (senderid, receiverid) 开头，同一方向的会话连续存放；id 为 UUIDv7，新消息总是追加在该段末尾
+
+CREATE TABLE IF NOT EXISTS message
+(
+    senderid   VARCHAR(255)  NOT NULL,
+    receiverid VARCHAR(255)  NOT NULL,
+    id         BINARY(16)    NOT NULL,
+    content    VARCHAR(1000),
+    send_time  DATETIME(6),
+    type       TINYINT,
+    PRIMARY KEY (senderid, receiverid, id)
+) ENGINE = InnoDB;
@@ -0,0 +1,53 @@
+-- 捐助流水和汇总
+-- donate_money / donate_goods 只追加，(donatorid, idempotency_key) 唯一，客户端重试不会重复记账
+-- donation_total 在记账的同一事务中增量维护，排行榜按 (kind, total_money) 索引倒序读取
+
+CREATE TABLE IF NOT EXISTS donate_money
+(
+    id              BINARY(16)   NOT NULL,
+    amount          BIGINT,
+    created_time    DATETIME(6),
+    donatorid       VARCHAR(255),
+    doneeid         VARCHAR(255),
+    wishes          VARCHAR(255),
+    idempotency_key VARCHAR(64),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_donate_money_idempotency UNIQUE (donatorid, idempotency_key)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS donate_goods
+(
+    id              BINARY(16)   NOT NULL,
+    amount          BIGINT,
+    created_time    DATETIME(6),
+    donatorid       VARCHAR(255),
+    goodsid         BINARY(16),
+    total_money     BIGINT,
+    wishes          VARCHAR(255),
+    idempotency_key VARCHAR(64),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_donate_goods_idempotency UNIQUE (donatorid, idempotency_key)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS goods_info
+(
+    id          BINARY(16)   NOT NULL,
+    description VARCHAR(255),
+    imageurl    VARCHAR(255),
+    name        VARCHAR(255),
+    unit_price  BIGINT,
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS donation_total
+(
+    kind           TINYINT      NOT NULL,
+    ownerid        VARCHAR(255) NOT NULL,
+    total_money    BIGINT,
+    total_amount   BIGINT,
+    donation_count BIGINT,
+    PRIMARY KEY (kind, ownerid)
+) ENGINE = InnoDB;
+
+-- DonationTotalDao.findByKindOrderByTotalMoneyDesc
+CREATE INDEX idx_donation_total_rank ON donation_total (kind, total_money);
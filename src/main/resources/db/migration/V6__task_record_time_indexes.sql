@@ -0,0 +1,4 @@
+-- 任务记录按开启、结束时间的索引
+-- TaskRecordDao.streamChangedSince：搜索服务从快照恢复后补读之后变化的记录，两个条件分别走索引后合并
+CREATE INDEX idx_task_record_start_time ON task_record (start_time);
+CREATE INDEX idx_task_record_end_time ON task_record (end_time);
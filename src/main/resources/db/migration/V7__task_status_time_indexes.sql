@@ -0,0 +1,4 @@
+-- 学习任务状态定时切换
+-- TaskDao.findStartingBefore / findEndingBefore：按状态和开始、结束时间找出即将或已经需要切换状态的任务
+CREATE INDEX idx_task_status_start ON task (status, start_time);
+CREATE INDEX idx_task_status_end ON task (status, end_time);
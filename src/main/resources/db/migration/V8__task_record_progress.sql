@@ -0,0 +1,2 @@
+-- 任务记录的观看进度（百分比），由 TaskProgressService 按里程碑批量写入
+ALTER TABLE task_record ADD COLUMN progress INT;
@@ -0,0 +1,25 @@
+-- 积分流水和汇总
+-- points_ledger 只追加，主键 (childid, taskid)，同一儿童完成同一任务的奖励只记一次
+-- points_total 在记账的同一事务中增量维护：总积分（即余额）、每个类别、每周各一行，排行榜按它写入 Redis
+
+CREATE TABLE IF NOT EXISTS points_ledger
+(
+    childid      VARCHAR(255) NOT NULL,
+    taskid       VARCHAR(255) NOT NULL,
+    points       INT,
+    category     TINYINT,
+    created_time DATETIME(6),
+    PRIMARY KEY (childid, taskid)
+) ENGINE = InnoDB;
+
+-- PointsLedgerDao.findChildIDsCreatedSince：重建排行榜期间新记账的儿童
+CREATE INDEX idx_points_ledger_created_time ON points_ledger (created_time);
+
+CREATE TABLE IF NOT EXISTS points_total
+(
+    kind    TINYINT      NOT NULL,
+    period  VARCHAR(32)  NOT NULL,
+    childid VARCHAR(255) NOT NULL,
+    points  BIGINT,
+    PRIMARY KEY (kind, period, childid)
+) ENGINE = InnoDB;
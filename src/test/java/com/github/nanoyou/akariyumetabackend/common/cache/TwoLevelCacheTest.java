@@ -0,0 +1,143 @@
+package com.github.nanoyou.akariyumetabackend.common.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.nanoyou.akariyumetabackend.entity.task.Course;
+import lombok.val;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class TwoLevelCacheTest {
+
+    private static final String KEY = "t1";
+    private static final String REDIS_KEY = "cache:course:t1";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private StringRedisTemplate redisTemplate;
+    private ValueOperations<String, String> valueOperations;
+    private TwoLevelCache<Course> cache;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        redisTemplate = mock(StringRedisTemplate.class);
+        valueOperations = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        cache = new TwoLevelCache<>("course", Course.class, course -> course.toBuilder().build(),
+                100, Duration.ofMinutes(10), Duration.ofHours(1), redisTemplate, objectMapper);
+    }
+
+    @Test
+    void loadsOnceAndFillsBothLevels() throws Exception {
+        val loads = new AtomicInteger();
+
+        val first = cache.get(KEY, key -> {
+            loads.incrementAndGet();
+            return Optional.of(course(1));
+        });
+        val second = cache.get(KEY, key -> {
+            loads.incrementAndGet();
+            return Optional.of(course(2));
+        });
+
+        assertEquals(1, loads.get());
+        assertEquals(1, first.orElseThrow().getWatchedCount());
+        assertEquals(1, second.orElseThrow().getWatchedCount());
+        verify(valueOperations).set(REDIS_KEY, objectMapper.writeValueAsString(course(1)), Duration.ofHours(1));
+    }
+
+    @Test
+    void returnsCopies() {
+        cache.get(KEY, key -> Optional.of(course(1))).orElseThrow().setWatchedCount(99);
+
+        val again = cache.get(KEY, key -> Optional.empty()).orElseThrow();
+        assertEquals(1, again.getWatchedCount());
+        assertNotSame(again, cache.getLocal(KEY).orElseThrow());
+    }
+
+    @Test
+    void servesRedisHitWithoutLoading() throws Exception {
+        when(valueOperations.get(REDIS_KEY)).thenReturn(objectMapper.writeValueAsString(course(3)));
+
+        val value = cache.get(KEY, key -> fail("Redis 命中时不应回源"));
+
+        assertEquals(3, value.orElseThrow().getWatchedCount());
+        assertEquals(3, cache.getLocal(KEY).orElseThrow().getWatchedCount());
+    }
+
+    @Test
+    void doesNotBackFillValueLoadedBeforeInvalidation() {
+        // 回源读到旧值之后、回填之前，另一个节点修改了数据并发来失效通知
+        val value = cache.get(KEY, key -> {
+            cache.evictLocal(KEY);
+            return Optional.of(course(1));
+        });
+
+        assertEquals(1, value.orElseThrow().getWatchedCount());
+        assertTrue(cache.getLocal(KEY).isEmpty());
+        verify(valueOperations, never()).set(anyString(), anyString(), any(Duration.class));
+        assertEquals(2, cache.get(KEY, key -> Optional.of(course(2))).orElseThrow().getWatchedCount());
+    }
+
+    @Test
+    void doesNotBackFillRedisValueReadBeforeInvalidation() throws Exception {
+        val stale = objectMapper.writeValueAsString(course(1));
+        when(valueOperations.get(REDIS_KEY)).thenAnswer(invocation -> {
+            cache.invalidateAll(List.of(KEY));
+            return stale;
+        });
+
+        assertEquals(1, cache.get(KEY, key -> Optional.empty()).orElseThrow().getWatchedCount());
+        assertTrue(cache.getLocal(KEY).isEmpty());
+    }
+
+    @Test
+    void doesNotCacheEmptyResult() {
+        val loads = new AtomicInteger();
+
+        cache.get(KEY, key -> {
+            loads.incrementAndGet();
+            return Optional.empty();
+        });
+        cache.get(KEY, key -> {
+            loads.incrementAndGet();
+            return Optional.empty();
+        });
+
+        assertEquals(2, loads.get());
+        verify(valueOperations, never()).set(anyString(), anyString(), any(Duration.class));
+    }
+
+    @Test
+    void fallsBackToLoaderWhenRedisFails() {
+        when(valueOperations.get(REDIS_KEY)).thenThrow(new IllegalStateException("Redis 不可用"));
+
+        assertEquals(1, cache.get(KEY, key -> Optional.of(course(1))).orElseThrow().getWatchedCount());
+        assertEquals(1L, cache.stats().get("redisErrors"));
+    }
+
+    @Test
+    void invalidateRemovesBothLevelsAndNotifiesOtherNodes() {
+        cache.get(KEY, key -> Optional.of(course(1)));
+
+        cache.invalidate(KEY);
+
+        assertTrue(cache.getLocal(KEY).isEmpty());
+        verify(redisTemplate).delete(REDIS_KEY);
+        verify(redisTemplate).convertAndSend(TwoLevelCache.INVALIDATION_CHANNEL, "course:" + KEY);
+    }
+
+    private static Course course(int watchedCount) {
+        return Course.builder().taskID(KEY).videoURL("v").videoDuration(60).watchedCount(watchedCount).build();
+    }
+}
@@ -0,0 +1,19 @@
+package com.github.nanoyou.akariyumetabackend.common.config;
+
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.convert.ConversionService;
+
+/**
+ * 只加载几个 Bean 的测试上下文中没有 Spring Boot 的类型转换，@Value 无法注入 Duration 等类型
+ * 与被测的类一起放入 @SpringJUnitConfig
+ */
+@Configuration
+public class ConversionTestConfig {
+
+    @Bean
+    public static ConversionService conversionService() {
+        return ApplicationConversionService.getSharedInstance();
+    }
+}
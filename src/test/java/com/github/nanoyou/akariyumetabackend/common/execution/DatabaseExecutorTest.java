@@ -0,0 +1,108 @@
+package com.github.nanoyou.akariyumetabackend.common.execution;
+
+import com.github.nanoyou.akariyumetabackend.common.config.ExecutionConfig;
+import lombok.val;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import javax.sql.DataSource;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringJUnitConfig({DatabaseExecutor.class, ExecutionConfig.class})
+@TestPropertySource(properties = {
+        "akari.execution.database-threads=1",
+        "akari.execution.database-queue-size=1",
+        "akari.execution.mode=virtual"
+})
+class DatabaseExecutorTest {
+
+    @MockBean
+    private DataSource dataSource;
+
+    @Autowired
+    private DatabaseExecutor databaseExecutor;
+    @Autowired
+    private ExecutionMode executionMode;
+
+    /**
+     * 占住唯一的数据库线程，测试结束时放开
+     */
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+    }
+
+    @Test
+    void runsOnDatabaseThread() throws Exception {
+        assertFalse(DatabaseExecutor.isDatabaseThread());
+        assertTrue(databaseExecutor.submit(DatabaseExecutor::isDatabaseThread).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void interruptsRunningTaskOnCancel() throws Exception {
+        val started = new CountDownLatch(1);
+        val interrupted = new CountDownLatch(1);
+        val future = databaseExecutor.submit(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return null;
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        future.cancel(true);
+
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        // 中断标记不会带到下一个任务
+        assertFalse(databaseExecutor.submit(() -> Thread.currentThread().isInterrupted()).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void skipsQueuedTaskCancelledBeforeStart() throws Exception {
+        occupyThread();
+        val ran = new AtomicBoolean();
+        val queued = databaseExecutor.submit(() -> ran.getAndSet(true));
+
+        queued.cancel(true);
+        release.countDown();
+
+        databaseExecutor.submit(() -> null).get(5, TimeUnit.SECONDS);
+        assertFalse(ran.get());
+    }
+
+    @Test
+    void failsWhenQueueIsFull() throws Exception {
+        occupyThread();
+        databaseExecutor.submit(() -> null);
+
+        val e = assertThrows(ExecutionException.class, () -> databaseExecutor.submit(() -> null).get(5, TimeUnit.SECONDS));
+        assertInstanceOf(RejectedExecutionException.class, e.getCause());
+    }
+
+    @Test
+    void fallsBackToPlatformThreadsWithoutVirtualThreadSupport() {
+        assertEquals(VirtualThreads.isSupported() ? ExecutionMode.VIRTUAL : ExecutionMode.PLATFORM, executionMode);
+    }
+
+    private void occupyThread() throws InterruptedException {
+        val started = new CountDownLatch(1);
+        databaseExecutor.submit(() -> {
+            started.countDown();
+            release.await();
+            return null;
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+    }
+}
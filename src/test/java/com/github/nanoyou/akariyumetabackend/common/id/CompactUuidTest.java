@@ -0,0 +1,43 @@
+package com.github.nanoyou.akariyumetabackend.common.id;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactUuidTest {
+
+    private static final String ID = "018b3c4e-5f6a-7b8c-9d0e-1f2a3b4c5d6e";
+
+    @Test
+    void roundTripsThroughBytes() {
+        val bytes = CompactUuid.toBytes(ID);
+
+        assertNotNull(bytes);
+        assertEquals(CompactUuid.BYTES, bytes.length);
+        assertEquals((byte) 0x01, bytes[0]);
+        assertEquals((byte) 0x6e, bytes[15]);
+        assertEquals(ID, CompactUuid.toString(bytes));
+    }
+
+    @Test
+    void normalizesToLowerCase() {
+        assertEquals(ID, CompactUuid.toString(CompactUuid.toBytes(ID.toUpperCase())));
+    }
+
+    @Test
+    void rejectsMalformedIDs() {
+        assertNull(CompactUuid.toBytes(null));
+        assertNull(CompactUuid.toBytes(""));
+        assertNull(CompactUuid.toBytes("not-a-uuid"));
+        // UUID.fromString 接受省略前导零的写法，长度不是 36 的一律不接受
+        assertNull(CompactUuid.toBytes("1-2-3-4-5"));
+        assertNull(CompactUuid.toBytes("018b3c4e-5f6a-7b8c-9d0e-1f2a3b4c5d6z"));
+    }
+
+    @Test
+    void rejectsWrongLength() {
+        assertNull(CompactUuid.toString(null));
+        assertThrows(IllegalArgumentException.class, () -> CompactUuid.toString(new byte[15]));
+    }
+}
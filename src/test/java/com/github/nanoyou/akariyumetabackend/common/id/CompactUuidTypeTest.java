@@ -0,0 +1,50 @@
+package com.github.nanoyou.akariyumetabackend.common.id;
+
+import org.hibernate.type.SqlTypes;
+import org.junit.jupiter.api.Test;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+class CompactUuidTypeTest {
+
+    private static final String ID = "018b3c4e-5f6a-7b8c-9d0e-1f2a3b4c5d6e";
+
+    private final CompactUuidType type = new CompactUuidType();
+
+    @Test
+    void bindsSixteenBytes() throws SQLException {
+        PreparedStatement st = mock(PreparedStatement.class);
+
+        type.nullSafeSet(st, ID, 1, null);
+
+        verify(st).setBytes(1, CompactUuid.toBytes(ID));
+    }
+
+    @Test
+    void bindsMalformedIDAsNull() throws SQLException {
+        PreparedStatement st = mock(PreparedStatement.class);
+
+        type.nullSafeSet(st, "not-a-uuid", 2, null);
+        type.nullSafeSet(st, null, 3, null);
+
+        verify(st).setNull(2, SqlTypes.BINARY);
+        verify(st).setNull(3, SqlTypes.BINARY);
+        verify(st, never()).setBytes(anyInt(), any());
+    }
+
+    @Test
+    void readsCanonicalString() throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getBytes(1)).thenReturn(CompactUuid.toBytes(ID.toUpperCase()));
+        when(rs.getBytes(2)).thenReturn(null);
+
+        assertEquals(ID, type.nullSafeGet(rs, 1, null, null));
+        assertNull(type.nullSafeGet(rs, 2, null, null));
+    }
+}
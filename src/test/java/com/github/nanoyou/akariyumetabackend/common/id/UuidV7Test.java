@@ -0,0 +1,61 @@
+package com.github.nanoyou.akariyumetabackend.common.id;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UuidV7Test {
+
+    @Test
+    void setsVersionVariantAndTimestamp() {
+        val before = System.currentTimeMillis();
+        val id = UuidV7.next();
+        val after = System.currentTimeMillis();
+
+        assertEquals(7, id.version());
+        assertEquals(2, id.variant());
+        val millis = id.getMostSignificantBits() >>> 16;
+        // 同一毫秒内计数器用完时会借用下一毫秒
+        assertTrue(millis >= before && millis <= after + 1, millis + " 不在 [" + before + ", " + after + "] 内");
+    }
+
+    @Test
+    void increasesStrictlyInStringAndByteOrder() {
+        // 远多于一毫秒内能生成的数量，覆盖计数器递增和借用下一毫秒
+        val ids = new ArrayList<String>();
+        for (int i = 0; i < 20000; i++) {
+            ids.add(UuidV7.nextString());
+        }
+
+        for (int i = 1; i < ids.size(); i++) {
+            val previous = ids.get(i - 1);
+            val current = ids.get(i);
+            assertTrue(previous.compareTo(current) < 0, previous + " >= " + current);
+            assertTrue(Arrays.compareUnsigned(CompactUuid.toBytes(previous), CompactUuid.toBytes(current)) < 0);
+        }
+    }
+
+    @Test
+    void isUniqueAcrossThreads() {
+        val ids = ConcurrentHashMap.<UUID>newKeySet();
+        IntStream.range(0, 8).parallel().forEach(t -> {
+            for (int i = 0; i < 10000; i++) {
+                ids.add(UuidV7.next());
+            }
+        });
+
+        assertEquals(80000, ids.size());
+        // 计数器部分也不重复，不只依赖随机位区分
+        val prefixes = new HashSet<Long>();
+        ids.forEach(id -> prefixes.add(id.getMostSignificantBits()));
+        assertEquals(80000, prefixes.size());
+    }
+}
@@ -0,0 +1,141 @@
+package com.github.nanoyou.akariyumetabackend.common.schedule;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimingWheelTest {
+
+    private static final long TICK = 10;
+    private static final int WHEEL_SIZE = 4;
+
+    @Test
+    void firesWithinOneTickOfDeadline() {
+        val wheel = new TimingWheel<String>(TICK, WHEEL_SIZE, 0);
+        wheel.add(25, "a");
+
+        assertEquals(List.of(), advance(wheel, 20));
+        assertEquals(List.of(), advance(wheel, 29));
+        assertEquals(List.of("a"), advance(wheel, 30));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void cascadesFromUpperLevels() {
+        val wheel = new TimingWheel<Long>(TICK, WHEEL_SIZE, 0);
+        // 第 0 层一圈 40 毫秒，第 1 层 160 毫秒，第 2 层 640 毫秒，这些条目分别从第 1、2、3 层降下来
+        val deadlines = List.of(45L, 155L, 170L, 639L, 640L, 2_555L);
+        deadlines.forEach(deadline -> wheel.add(deadline, deadline));
+        assertEquals(deadlines.size(), wheel.size());
+
+        val fired = new HashMap<Long, Long>();
+        for (long now = 0; now <= 3_000; now += TICK) {
+            val time = now;
+            wheel.advance(now, deadline -> fired.put(deadline, time));
+        }
+        assertEquals(0, wheel.size());
+        for (val deadline : deadlines) {
+            val at = fired.get(deadline);
+            assertNotNull(at, "未到期: " + deadline);
+            assertTrue(at > deadline, "提前到期: " + deadline + " 在 " + at);
+            assertTrue(at <= deadline + TICK, "晚了超过一格: " + deadline + " 在 " + at);
+        }
+    }
+
+    @Test
+    void cascadesWhenAdvancingManyTicksAtOnce() {
+        val wheel = new TimingWheel<Long>(TICK, WHEEL_SIZE, 0);
+        wheel.add(1_000, 1_000L);
+        wheel.add(5_000, 5_000L);
+
+        assertEquals(List.of(), advance(wheel, 999));
+        assertEquals(List.of(1_000L), advance(wheel, 1_010));
+        // 一次推进跨过多个上层格，降下来的条目在同一次推进中到期
+        assertEquals(List.of(5_000L), advance(wheel, 9_000));
+    }
+
+    @Test
+    void overdueEntriesFireOnNextAdvance() {
+        val wheel = new TimingWheel<String>(TICK, WHEEL_SIZE, 1_000);
+        wheel.add(500, "past");
+        wheel.add(999, "just before");
+        assertEquals(2, wheel.size());
+
+        // 时间没有前进也取出
+        assertEquals(List.of("past", "just before"), advance(wheel, 1_000));
+        assertEquals(0, wheel.size());
+
+        wheel.add(1_000, "current slot");
+        assertEquals(List.of("current slot"), advance(wheel, 1_010));
+    }
+
+    @Test
+    void overdueAfterAdvanceIsNotLost() {
+        val wheel = new TimingWheel<String>(TICK, WHEEL_SIZE, 0);
+        wheel.add(10_000, "far");
+        advance(wheel, 500);
+        wheel.add(100, "late");
+        wheel.add(505, "soon");
+
+        assertEquals(List.of("late"), advance(wheel, 500));
+        assertEquals(List.of("soon"), advance(wheel, 510));
+        assertEquals(1, wheel.size());
+    }
+
+    @Test
+    void emptyWheelJumpsToNow() {
+        val wheel = new TimingWheel<String>(TICK, WHEEL_SIZE, 0);
+        advance(wheel, 1_000_000_000L);
+        wheel.add(1_000_000_015L, "a");
+        assertEquals(List.of(), advance(wheel, 1_000_000_010L));
+        assertEquals(List.of("a"), advance(wheel, 1_000_000_020L));
+    }
+
+    @Test
+    void matchesDeadlinesUnderRandomSchedule() {
+        val random = new Random(7);
+        val wheel = new TimingWheel<long[]>(TICK, 8, 0);
+        val fired = new ArrayList<long[]>();
+        var added = 0;
+        for (long now = 0; now < 200_000; now += random.nextInt(50)) {
+            for (int i = random.nextInt(3); i > 0; i--) {
+                val deadline = now - 100 + random.nextInt(random.nextBoolean() ? 500 : 100_000);
+                // {到期时间, 加入时间, 取出时间}
+                wheel.add(deadline, new long[]{deadline, now, -1});
+                added++;
+            }
+            val time = now;
+            wheel.advance(now, entry -> {
+                entry[2] = time;
+                fired.add(entry);
+            });
+        }
+        for (long now = 200_000; now <= 400_000; now += 1_000) {
+            val time = now;
+            wheel.advance(now, entry -> {
+                entry[2] = time;
+                fired.add(entry);
+            });
+        }
+
+        assertEquals(added, fired.size());
+        assertEquals(0, wheel.size());
+        for (val entry : fired) {
+            // 不早于到期时间；加入时已过期的在下一次推进时取出；最多晚一格加上两次推进的间隔
+            assertTrue(entry[2] > entry[0] || entry[0] < entry[1], "提前到期");
+            assertTrue(entry[2] - Math.max(entry[0], entry[1]) <= TICK + 1_000, "取出过晚");
+        }
+    }
+
+    private static <T> List<T> advance(TimingWheel<T> wheel, long now) {
+        val fired = new ArrayList<T>();
+        wheel.advance(now, fired::add);
+        return fired;
+    }
+}
@@ -0,0 +1,54 @@
+package com.github.nanoyou.akariyumetabackend.common.schema;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.flyway.FlywayAutoConfiguration;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 在内嵌 H2（MySQL 兼容模式）上执行全部 Flyway 脚本后检查 dao 中的查询
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ImportAutoConfiguration(FlywayAutoConfiguration.class)
+@Import(IndexVerifier.class)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:index-verifier;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driverClassName=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=none"
+})
+class IndexVerifierTest {
+
+    @Autowired
+    private IndexVerifier indexVerifier;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void passesOnMigratedSchema() {
+        assertDoesNotThrow(() -> indexVerifier.run(null));
+    }
+
+    @Test
+    void rejectsQueryWhoseIndexIsMissing() {
+        // H2 的 DDL 会自动提交，不随测试事务回滚，测试结束后重建索引
+        jdbcTemplate.execute("DROP INDEX idx_task_record_updated_time ON task_record");
+        try {
+            val e = assertThrows(IllegalStateException.class, () -> indexVerifier.run(null));
+            assertTrue(e.getMessage().contains("TaskRecordDao.streamChangedSince"), e.getMessage());
+        } finally {
+            jdbcTemplate.execute("CREATE INDEX idx_task_record_updated_time ON task_record (updated_time)");
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.github.nanoyou.akariyumetabackend.common.search;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InvertedIndexTest {
+
+    @Test
+    void returnsDocumentsContainingAllTerms() {
+        val index = new InvertedIndex();
+        add(index, 0, "小学数学课程");
+        add(index, 1, "数学作业");
+        add(index, 2, "语文课程");
+
+        assertArrayEquals(new int[]{1, 0}, search(index, "数学", null, 10));
+        assertArrayEquals(new int[]{0}, search(index, "数学课程", null, 10));
+        assertArrayEquals(new int[0], search(index, "物理", null, 10));
+        assertArrayEquals(new int[0], search(index, "", null, 10));
+    }
+
+    @Test
+    void ranksByBm25() {
+        val index = new InvertedIndex();
+        add(index, 0, "种植 种植 种植 水稻");
+        add(index, 1, "种植 水稻");
+        add(index, 2, "种植 水稻 以及 田间 管理 的 许多 其他 知识");
+        add(index, 3, "历史");
+
+        // 词频高的在前，词频相同时短文档在前
+        assertArrayEquals(new int[]{0, 1, 2}, search(index, "种植", null, 10));
+    }
+
+    @Test
+    void breaksTiesByNewestDocument() {
+        val index = new InvertedIndex();
+        for (int doc = 0; doc < 5; doc++) {
+            add(index, doc, "卫生");
+        }
+
+        assertArrayEquals(new int[]{4, 3}, search(index, "卫生", null, 2));
+    }
+
+    @Test
+    void appliesFilter() {
+        val index = new InvertedIndex();
+        for (int doc = 0; doc < 10; doc++) {
+            add(index, doc, "科学实验");
+        }
+        val filter = new RoaringBitmap();
+        filter.add(2);
+        filter.add(7);
+        filter.add(100);
+
+        assertArrayEquals(new int[]{7, 2}, search(index, "科学实验", filter, 10));
+    }
+
+    @Test
+    void acceptsDocumentsOutOfOrder() {
+        val index = new InvertedIndex();
+        add(index, 5, "牧业");
+        add(index, 2, "牧业");
+        add(index, 9, "牧业");
+
+        assertArrayEquals(new int[]{9, 5, 2}, search(index, "牧业", null, 10));
+        assertThrows(IllegalArgumentException.class, () -> add(index, 5, "牧业"));
+    }
+
+    @Test
+    void intersectsLikeBruteForce() {
+        // 常见词和罕见词混合，覆盖顺序合并和跳跃查找两种求交方式
+        val random = new Random(42);
+        val vocabulary = List.of("农", "牧", "语", "科", "卫", "社", "史", "政");
+        val index = new InvertedIndex();
+        val docs = new ArrayList<Set<String>>();
+        for (int doc = 0; doc < 3000; doc++) {
+            val words = new ArrayList<String>();
+            for (val word : vocabulary) {
+                // 第 i 个词出现在约 1/2^i 的文档中
+                if (random.nextInt(1 << vocabulary.indexOf(word)) == 0) {
+                    words.add(word);
+                }
+            }
+            add(index, doc, String.join(" ", words));
+            docs.add(new HashSet<>(words));
+        }
+
+        for (int i = 0; i < vocabulary.size(); i++) {
+            for (int j = i + 1; j < vocabulary.size(); j++) {
+                val query = List.of(vocabulary.get(i), vocabulary.get(j));
+                val expected = IntStream.range(0, docs.size())
+                        .filter(doc -> docs.get(doc).containsAll(query))
+                        .boxed().collect(Collectors.toSet());
+                val actual = Arrays.stream(index.search(query, null, Integer.MAX_VALUE)).boxed().collect(Collectors.toSet());
+                assertEquals(expected, actual, query.toString());
+            }
+        }
+    }
+
+    private static void add(InvertedIndex index, int doc, String text) {
+        val tfs = new HashMap<String, Integer>();
+        val length = NgramTokenizer.tokenize(text, term -> tfs.merge(term, 1, Integer::sum));
+        index.add(doc, tfs, length);
+    }
+
+    private static int[] search(InvertedIndex index, String query, RoaringBitmap filter, int limit) {
+        return index.search(NgramTokenizer.queryTerms(query), filter, limit);
+    }
+}
@@ -0,0 +1,51 @@
+package com.github.nanoyou.akariyumetabackend.common.search;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NgramTokenizerTest {
+
+    @Test
+    void indexesUnigramsBigramsAndWords() {
+        val tokens = new ArrayList<String>();
+
+        val count = NgramTokenizer.tokenize("学习任务 Java21!", tokens::add);
+
+        assertEquals(List.of("学", "学习", "习", "习任", "任", "任务", "务", "java21"), tokens);
+        assertEquals(tokens.size(), count);
+    }
+
+    @Test
+    void queriesLongRunsByBigramsOnly() {
+        assertEquals(List.of("学习", "习任", "任务"), List.copyOf(NgramTokenizer.queryTerms("学习任务")));
+        // 只有一个字的片段用单字
+        assertEquals(List.of("学", "java"), List.copyOf(NgramTokenizer.queryTerms("学 java")));
+        // 重复的词只保留一个
+        assertEquals(List.of("数学"), List.copyOf(NgramTokenizer.queryTerms("数学，数学")));
+    }
+
+    @Test
+    void normalizesWidthAndCase() {
+        assertEquals(List.of("abc123"), List.copyOf(NgramTokenizer.queryTerms("ＡＢＣ１２３")));
+        assertEquals(List.of("あい", "いう"), List.copyOf(NgramTokenizer.queryTerms("あいう")));
+    }
+
+    @Test
+    void truncatesLongWords() {
+        val terms = NgramTokenizer.queryTerms("x".repeat(100));
+
+        assertEquals(List.of("x".repeat(32)), List.copyOf(terms));
+    }
+
+    @Test
+    void acceptsEmptyText() {
+        assertTrue(NgramTokenizer.queryTerms(null).isEmpty());
+        assertTrue(NgramTokenizer.queryTerms(" ，。").isEmpty());
+        assertEquals(0, NgramTokenizer.tokenize("", token -> fail()));
+    }
+}
@@ -0,0 +1,216 @@
+package com.github.nanoyou.akariyumetabackend.common.search;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoaringBitmapTest {
+
+    /**
+     * 只有一个桶时序列化的字节数：桶数、桶号、元素个数，加上容器内容
+     */
+    private static final int ONE_BUCKET_HEADER = Integer.BYTES + Character.BYTES + Integer.BYTES;
+    private static final int BITMAP_BYTES = (1 << 16) / Byte.SIZE;
+
+    @Test
+    void addRemoveContains() {
+        val bitmap = new RoaringBitmap();
+        assertTrue(bitmap.isEmpty());
+        bitmap.add(3);
+        bitmap.add(3);
+        bitmap.add(70_000);
+        assertTrue(bitmap.contains(3));
+        assertTrue(bitmap.contains(70_000));
+        assertFalse(bitmap.contains(4));
+        assertEquals(2, bitmap.cardinality());
+
+        bitmap.remove(70_000);
+        bitmap.remove(5);
+        assertEquals(1, bitmap.cardinality());
+        bitmap.remove(3);
+        assertTrue(bitmap.isEmpty());
+    }
+
+    @Test
+    void arrayContainerBecomesBitmapAfter4096() {
+        val bitmap = new RoaringBitmap();
+        for (int i = 0; i < 4096; i++) {
+            bitmap.add(i * 2);
+        }
+        assertEquals(ONE_BUCKET_HEADER + 4096 * Character.BYTES, bitmap.serializedSize());
+
+        bitmap.add(1);
+        assertEquals(4097, bitmap.cardinality());
+        assertEquals(ONE_BUCKET_HEADER + BITMAP_BYTES, bitmap.serializedSize());
+        assertTrue(bitmap.contains(1));
+        assertTrue(bitmap.contains(8190));
+        assertFalse(bitmap.contains(3));
+
+        // 回到 4096 个及以下时转回数组容器
+        bitmap.remove(1);
+        bitmap.remove(0);
+        assertEquals(4095, bitmap.cardinality());
+        assertEquals(ONE_BUCKET_HEADER + 4095 * Character.BYTES, bitmap.serializedSize());
+        assertFalse(bitmap.contains(0));
+        assertTrue(bitmap.contains(2));
+    }
+
+    @Test
+    void andOrAcrossContainerTypes() {
+        val dense = new RoaringBitmap();
+        val sparse = new RoaringBitmap();
+        val evens = new RoaringBitmap();
+        for (int i = 0; i < 10_000; i++) {
+            dense.add(i);
+            evens.add(i * 2);
+        }
+        for (int i = 0; i < 200_000; i += 1000) {
+            sparse.add(i);
+        }
+
+        assertSameElements(and(set(dense), set(sparse)), RoaringBitmap.and(dense, sparse));
+        assertSameElements(and(set(dense), set(evens)), RoaringBitmap.and(dense, evens));
+        assertSameElements(or(set(dense), set(sparse)), RoaringBitmap.or(dense, sparse));
+        assertSameElements(or(set(sparse), set(evens)), RoaringBitmap.or(sparse, evens));
+
+        // 两个位图容器的交集只剩少量元素时是数组容器
+        val odds = new RoaringBitmap();
+        for (int i = 0; i < 10_000; i++) {
+            odds.add(i * 2 + 1);
+        }
+        odds.add(4);
+        val intersection = RoaringBitmap.and(evens, odds);
+        assertEquals(1, intersection.cardinality());
+        assertEquals(ONE_BUCKET_HEADER + Character.BYTES, intersection.serializedSize());
+
+        // 运算结果与输入互不影响
+        val union = RoaringBitmap.or(dense, sparse);
+        union.remove(5);
+        assertTrue(dense.contains(5));
+    }
+
+    @Test
+    void previousValue() {
+        val bitmap = new RoaringBitmap();
+        assertEquals(-1, bitmap.previousValue(100));
+        bitmap.add(10);
+        bitmap.add(65_535);
+        bitmap.add(200_000);
+
+        assertEquals(-1, bitmap.previousValue(-1));
+        assertEquals(-1, bitmap.previousValue(9));
+        assertEquals(10, bitmap.previousValue(10));
+        assertEquals(10, bitmap.previousValue(65_534));
+        assertEquals(65_535, bitmap.previousValue(65_536));
+        // 所在的桶中没有更小的元素时取前一个桶的最大元素
+        assertEquals(65_535, bitmap.previousValue(199_999));
+        assertEquals(200_000, bitmap.previousValue(Integer.MAX_VALUE));
+
+        for (int i = 131_072; i < 131_072 + 5000; i += 1) {
+            bitmap.add(i);
+        }
+        bitmap.remove(131_072 + 63);
+        assertEquals(131_072 + 62, bitmap.previousValue(131_072 + 63));
+        assertEquals(131_072 + 64, bitmap.previousValue(131_072 + 64));
+        assertEquals(65_535, bitmap.previousValue(131_071));
+    }
+
+    @Test
+    void serializeRoundTrip() {
+        val bitmap = new RoaringBitmap();
+        for (int i = 0; i < 5000; i++) {
+            bitmap.add(i);
+        }
+        for (int i = 100_000; i < 100_100; i++) {
+            bitmap.add(i * 3);
+        }
+        bitmap.add(Integer.MAX_VALUE);
+
+        val copy = roundTrip(bitmap);
+        assertSameElements(set(bitmap), copy);
+        assertEquals(bitmap.serializedSize(), copy.serializedSize());
+
+        // 读回的位图可以继续修改，两种容器都能跨过 4096 转换
+        copy.add(5000);
+        copy.remove(0);
+        for (int i = 0; i < 4000; i++) {
+            copy.add(300_000 + i);
+        }
+        assertTrue(copy.contains(5000));
+        assertFalse(copy.contains(0));
+        assertFalse(bitmap.contains(5000));
+
+        assertTrue(roundTrip(new RoaringBitmap()).isEmpty());
+    }
+
+    @Test
+    void matchesTreeSetUnderRandomOperations() {
+        val random = new Random(42);
+        val bitmap = new RoaringBitmap();
+        val expected = new TreeSet<Integer>();
+        for (int i = 0; i < 200_000; i++) {
+            // 集中在少数几个桶里，让容器反复在数组和位图之间转换
+            val value = random.nextInt(3) << 16 | random.nextInt(12_000);
+            if (random.nextInt(3) == 0) {
+                bitmap.remove(value);
+                expected.remove(value);
+            } else {
+                bitmap.add(value);
+                expected.add(value);
+            }
+        }
+        assertSameElements(expected, bitmap);
+        assertSameElements(expected, roundTrip(bitmap));
+        for (int i = 0; i < 1000; i++) {
+            val from = random.nextInt(4 << 16);
+            val floor = expected.floor(from);
+            assertEquals(floor == null ? -1 : floor, bitmap.previousValue(from));
+        }
+    }
+
+    private static RoaringBitmap roundTrip(RoaringBitmap bitmap) {
+        val buffer = ByteBuffer.allocate(bitmap.serializedSize());
+        bitmap.serialize(buffer);
+        assertFalse(buffer.hasRemaining());
+        buffer.flip();
+        val result = RoaringBitmap.deserialize(buffer);
+        assertFalse(buffer.hasRemaining());
+        return result;
+    }
+
+    /**
+     * 用 previousValue 从大到小取出所有元素
+     */
+    private static TreeSet<Integer> set(RoaringBitmap bitmap) {
+        val values = new TreeSet<Integer>();
+        for (int value = bitmap.previousValue(Integer.MAX_VALUE); value >= 0; value = bitmap.previousValue(value - 1)) {
+            values.add(value);
+        }
+        return values;
+    }
+
+    private static void assertSameElements(TreeSet<Integer> expected, RoaringBitmap actual) {
+        assertEquals(expected.size(), actual.cardinality());
+        assertEquals(expected, set(actual));
+        for (val value : expected) {
+            assertTrue(actual.contains(value));
+        }
+    }
+
+    private static TreeSet<Integer> and(TreeSet<Integer> a, TreeSet<Integer> b) {
+        val result = new TreeSet<>(a);
+        result.retainAll(b);
+        return result;
+    }
+
+    private static TreeSet<Integer> or(TreeSet<Integer> a, TreeSet<Integer> b) {
+        val result = new TreeSet<>(a);
+        result.addAll(b);
+        return result;
+    }
+}
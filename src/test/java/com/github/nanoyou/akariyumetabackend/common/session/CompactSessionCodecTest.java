@@ -0,0 +1,72 @@
+package com.github.nanoyou.akariyumetabackend.common.session;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactSessionCodecTest {
+
+    private static final String ID = "session-id";
+
+    @Test
+    void roundTripsAllSupportedTypes() {
+        val session = new CompactSession(ID, 1_700_000_000_000L, 1_700_000_123_000L, 3600, Map.of(
+                "loginUserID", "018b3c4e-0000-7000-8000-000000000001",
+                "nickname", "小明😀",
+                "loginTime", 1_700_000_000_123L,
+                "attempts", 3,
+                "remember", true
+        ), true);
+
+        val decoded = CompactSessionCodec.decode(ID, CompactSessionCodec.encode(session));
+
+        assertEquals(ID, decoded.getId());
+        assertEquals(1_700_000_000_000L, decoded.getCreationTime());
+        assertEquals(1_700_000_123_000L, decoded.getRefreshedTime());
+        assertEquals(3600, decoded.getMaxInactiveInterval());
+        assertEquals(session.attributes(), decoded.attributes());
+        assertEquals(Long.class, decoded.getAttribute("loginTime").getClass());
+        assertEquals(Integer.class, decoded.getAttribute("attempts").getClass());
+        // 从 Redis 读出的会话不是新会话，也没有未保存的修改
+        assertFalse(decoded.isNew());
+        assertFalse(decoded.isDirty());
+    }
+
+    @Test
+    void loginSessionIsSmall() {
+        val session = new CompactSession(ID, 1L, 1L, 3600, Map.of("loginUserID", "018b3c4e-0000-7000-8000-000000000001"), false);
+
+        assertTrue(CompactSessionCodec.encode(session).length < 80);
+    }
+
+    @Test
+    void roundTripsEmptySession() {
+        val session = new CompactSession(ID, 1L, 2L, 60, Map.of(), false);
+
+        assertTrue(CompactSessionCodec.decode(ID, CompactSessionCodec.encode(session)).attributes().isEmpty());
+    }
+
+    @Test
+    void rejectsUnsupportedAttributeType() {
+        val session = new CompactSession(ID, 1L, 1L, 60, Map.of(), true);
+
+        assertThrows(IllegalArgumentException.class, () -> session.setAttribute("user", new Object()));
+        assertNull(session.getAttribute("user"));
+        assertFalse(session.isDirty());
+    }
+
+    @Test
+    void rejectsUnknownVersionAndTruncatedData() {
+        val encoded = CompactSessionCodec.encode(new CompactSession(ID, 1L, 1L, 60, Map.of("k", "v"), false));
+
+        val wrongVersion = encoded.clone();
+        wrongVersion[0] = 99;
+        assertThrows(IllegalArgumentException.class, () -> CompactSessionCodec.decode(ID, wrongVersion));
+        assertThrows(UncheckedIOException.class, () -> CompactSessionCodec.decode(ID, Arrays.copyOf(encoded, encoded.length - 1)));
+    }
+}
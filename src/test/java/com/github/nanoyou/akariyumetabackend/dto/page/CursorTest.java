@@ -0,0 +1,85 @@
+package com.github.nanoyou.akariyumetabackend.dto.page;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CursorTest {
+
+    @Test
+    void roundTripsThroughEncode() {
+        val cursors = List.of(
+                new Cursor(LocalDateTime.of(2023, 11, 1, 12, 30, 15, 123_456_789), "018b3c4e-0000-7000-8000-000000000001"),
+                // 秒和纳秒为 0 时 LocalDateTime.toString 会省略它们
+                new Cursor(LocalDateTime.of(2023, 11, 1, 12, 0), "id"),
+                // ID 中的逗号不影响解析，只按第一个逗号分隔
+                new Cursor(LocalDateTime.of(2023, 1, 1, 0, 0, 1), "a,b,c")
+        );
+        for (val cursor : cursors) {
+            val encoded = cursor.encode();
+            assertTrue(encoded.matches("[A-Za-z0-9_-]+"), "游标应可直接放在 URL 中: " + encoded);
+            assertEquals(cursor, Cursor.decode(encoded));
+        }
+    }
+
+    @Test
+    void blankCursorIsFirstPage() {
+        assertSame(Cursor.FIRST, Cursor.decode(null));
+        assertSame(Cursor.FIRST, Cursor.decode(""));
+        assertSame(Cursor.FIRST, Cursor.decode("  "));
+    }
+
+    @Test
+    void rejectsMalformedCursor() {
+        assertThrows(IllegalArgumentException.class, () -> Cursor.decode("不是游标"));
+        assertThrows(IllegalArgumentException.class, () -> Cursor.decode(encodeRaw("2023-11-01T12:00")));
+        assertThrows(IllegalArgumentException.class, () -> Cursor.decode(encodeRaw("yesterday,id")));
+    }
+
+    @Test
+    void ordersByTimeThenID() {
+        val t = LocalDateTime.of(2023, 11, 1, 12, 0);
+        val cursor = new Cursor(t, "m");
+
+        assertTrue(cursor.isBefore(t.minusNanos(1), "z"));
+        assertTrue(cursor.isBefore(t, "a"));
+        assertFalse(cursor.isBefore(t, "m"));
+        assertFalse(cursor.isBefore(t, "z"));
+        assertFalse(cursor.isBefore(t.plusNanos(1), "a"));
+        assertTrue(Cursor.FIRST.isBefore(t, "any"));
+    }
+
+    @Test
+    void clampsLimit() {
+        assertEquals(1, Cursor.clampLimit(0));
+        assertEquals(1, Cursor.clampLimit(-5));
+        assertEquals(20, Cursor.clampLimit(20));
+        assertEquals(Cursor.MAX_LIMIT, Cursor.clampLimit(Integer.MAX_VALUE));
+    }
+
+    @Test
+    void pagesByFetchingOneExtraRow() {
+        val t = LocalDateTime.of(2023, 11, 1, 12, 0);
+        val rows = List.of(new Cursor(t, "c"), new Cursor(t, "b"), new Cursor(t, "a"));
+
+        val full = CursorPageDTO.of(rows, 2, c -> c);
+        assertEquals(rows.subList(0, 2), full.getItems());
+        assertTrue(full.isHasMore());
+        assertEquals(new Cursor(t, "b"), Cursor.decode(full.getNextCursor()));
+
+        val last = CursorPageDTO.of(rows, 3, c -> c);
+        assertEquals(rows, last.getItems());
+        assertFalse(last.isHasMore());
+        assertNull(last.getNextCursor());
+    }
+
+    private static String encodeRaw(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,59 @@
+package com.github.nanoyou.akariyumetabackend.dto.task;
+
+import com.github.nanoyou.akariyumetabackend.common.enumeration.TaskCategory;
+import com.github.nanoyou.akariyumetabackend.common.enumeration.TaskStatus;
+import com.github.nanoyou.akariyumetabackend.entity.task.Course;
+import com.github.nanoyou.akariyumetabackend.entity.task.Task;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskCourseDTOTest {
+
+    @Test
+    void copiesTaskAndCourseFields() {
+        val t = LocalDateTime.of(2023, 11, 1, 12, 0);
+        val task = Task.builder()
+                .id("t1")
+                .taskName("认识蔬菜")
+                .taskUploaderID("u1")
+                .createdTime(t)
+                .startTime(t.plusDays(1))
+                .endTime(t.plusDays(2))
+                .status(TaskStatus.IN_PROGRESS)
+                .description("描述")
+                .category(TaskCategory.AGRICULTURE)
+                .bonus(5)
+                .build();
+        val course = Course.builder().taskID("t1").videoURL("https://example.com/v.mp4").videoDuration(600).watchedCount(7).build();
+
+        val dto = new TaskCourseDTO(task, course);
+
+        assertEquals("t1", dto.getId());
+        assertEquals("认识蔬菜", dto.getTaskName());
+        assertEquals("u1", dto.getTaskUploaderID());
+        assertEquals(t, dto.getCreatedTime());
+        assertEquals(t.plusDays(1), dto.getStartTime());
+        assertEquals(t.plusDays(2), dto.getEndTime());
+        assertEquals(TaskStatus.IN_PROGRESS.value, dto.getStatus());
+        assertEquals("描述", dto.getDescription());
+        assertEquals(TaskCategory.AGRICULTURE.value, dto.getCategory());
+        assertEquals(5, dto.getBonus());
+        assertEquals("https://example.com/v.mp4", dto.getVideoURL());
+        assertEquals(600, dto.getVideoDuration());
+        assertEquals(7, dto.getWatchedCount());
+    }
+
+    @Test
+    void toleratesTaskWithoutCategoryOrStatus() {
+        val task = Task.builder().id("t1").createdTime(LocalDateTime.of(2023, 11, 1, 12, 0)).build();
+
+        val dto = new TaskCourseDTO(task, Course.builder().taskID("t1").build());
+
+        assertNull(dto.getCategory());
+        assertNull(dto.getStatus());
+    }
+}
@@ -0,0 +1,112 @@
+package com.github.nanoyou.akariyumetabackend.service;
+
+import com.github.nanoyou.akariyumetabackend.entity.chat.Message;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@SpringJUnitConfig(ChatRelayService.class)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class ChatRelayServiceTest {
+
+    @MockBean
+    private RedisMessageListenerContainer listenerContainer;
+    @MockBean
+    private SimpMessagingTemplate messagingTemplate;
+    @MockBean
+    private ChatService chatService;
+
+    @Autowired
+    private ChatRelayService chatRelayService;
+
+    @Test
+    void subscribesOncePerLocalUser() {
+        connect("u1");
+        connect("u1");
+        connect("u2");
+
+        assertEquals(2, chatRelayService.getLocalUserCount());
+        verify(listenerContainer, times(1)).addMessageListener(chatRelayService, new ChannelTopic(ChatService.channel("u1")));
+        verify(listenerContainer, times(1)).addMessageListener(chatRelayService, new ChannelTopic(ChatService.channel("u2")));
+    }
+
+    @Test
+    void unsubscribesWhenLastSessionDisconnects() {
+        connect("u1");
+        connect("u1");
+
+        disconnect("u1");
+        verify(listenerContainer, never()).removeMessageListener(any(), any(ChannelTopic.class));
+
+        disconnect("u1");
+        verify(listenerContainer).removeMessageListener(chatRelayService, new ChannelTopic(ChatService.channel("u1")));
+        assertEquals(0, chatRelayService.getLocalUserCount());
+
+        // 多余的断开事件不会让计数变成负数
+        disconnect("u1");
+        assertEquals(0, chatRelayService.getLocalUserCount());
+    }
+
+    @Test
+    void ignoresAnonymousSessions() {
+        chatRelayService.onConnected(new SessionConnectedEvent(this, stompMessage(), null));
+
+        assertEquals(0, chatRelayService.getLocalUserCount());
+        verify(listenerContainer, never()).addMessageListener(any(), any(ChannelTopic.class));
+    }
+
+    @Test
+    void forwardsMessageToUserOfChannel() throws Exception {
+        val chatMessage = Message.builder().senderID("u2").receiverID("u1").content("你好").build();
+        when(chatService.fromJson("{}")).thenReturn(chatMessage);
+
+        chatRelayService.onMessage(redisMessage("u1", "{}"), null);
+
+        verify(messagingTemplate).convertAndSendToUser("u1", ChatRelayService.USER_DESTINATION, chatMessage);
+    }
+
+    @Test
+    void dropsUnreadableMessage() throws Exception {
+        when(chatService.fromJson(anyString())).thenThrow(new IllegalArgumentException("格式错误"));
+
+        assertDoesNotThrow(() -> chatRelayService.onMessage(redisMessage("u1", "?"), null));
+        verifyNoInteractions(messagingTemplate);
+    }
+
+    private void connect(String userID) {
+        chatRelayService.onConnected(new SessionConnectedEvent(this, stompMessage(), principal(userID)));
+    }
+
+    private void disconnect(String userID) {
+        chatRelayService.onDisconnect(new SessionDisconnectEvent(this, stompMessage(), "s", null, principal(userID)));
+    }
+
+    private static org.springframework.messaging.Message<byte[]> stompMessage() {
+        return MessageBuilder.withPayload(new byte[0]).build();
+    }
+
+    private static Principal principal(String userID) {
+        return () -> userID;
+    }
+
+    private static DefaultMessage redisMessage(String userID, String body) {
+        return new DefaultMessage(ChatService.channel(userID).getBytes(StandardCharsets.UTF_8), body.getBytes(StandardCharsets.UTF_8));
+    }
+}
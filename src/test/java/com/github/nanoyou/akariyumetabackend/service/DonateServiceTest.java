@@ -0,0 +1,135 @@
+package com.github.nanoyou.akariyumetabackend.service;
+
+import com.github.nanoyou.akariyumetabackend.common.enumeration.DonationTotalKind;
+import com.github.nanoyou.akariyumetabackend.common.exception.NoSuchDonationTargetException;
+import com.github.nanoyou.akariyumetabackend.dao.*;
+import com.github.nanoyou.akariyumetabackend.entity.donate.DonateGoods;
+import com.github.nanoyou.akariyumetabackend.entity.donate.DonateMoney;
+import com.github.nanoyou.akariyumetabackend.entity.donate.DonationTotal;
+import com.github.nanoyou.akariyumetabackend.entity.donate.GoodsInfo;
+import com.github.nanoyou.akariyumetabackend.entity.user.User;
+import lombok.val;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@SpringJUnitConfig(DonateService.class)
+class DonateServiceTest {
+
+    @MockBean
+    private DonateMoneyDao donateMoneyDao;
+    @MockBean
+    private DonateGoodsDao donateGoodsDao;
+    @MockBean
+    private DonationTotalDao donationTotalDao;
+    @MockBean
+    private GoodsInfoDao goodsInfoDao;
+    @MockBean
+    private UserDao userDao;
+    @MockBean
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DonateService donateService;
+
+    /**
+     * 已记账的捐款，按 findExisting 的语义去重
+     */
+    private final List<DonateMoney> ledger = Collections.synchronizedList(new ArrayList<>());
+    /**
+     * 各批汇总增量之和
+     */
+    private final Map<DonationTotal.Key, Long> totals = Collections.synchronizedMap(new HashMap<>());
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+        when(userDao.findAllById(any())).thenAnswer(invocation -> {
+            val users = new ArrayList<User>();
+            for (val id : (Iterable<String>) invocation.getArgument(0)) {
+                if (id.startsWith("child")) {
+                    users.add(User.builder().id(id).build());
+                }
+            }
+            return users;
+        });
+        when(goodsInfoDao.findAllById(any())).thenAnswer(invocation -> {
+            val goods = new ArrayList<GoodsInfo>();
+            for (val id : (Iterable<String>) invocation.getArgument(0)) {
+                if (id.equals("book")) {
+                    goods.add(GoodsInfo.builder().id(id).name("书").unitPrice(2500L).build());
+                } else if (id.equals("gold")) {
+                    goods.add(GoodsInfo.builder().id(id).name("金条").unitPrice(Long.MAX_VALUE / 2).build());
+                }
+            }
+            return goods;
+        });
+        when(donateMoneyDao.findExisting(any())).thenAnswer(invocation -> {
+            List<DonateMoney> candidates = invocation.getArgument(0);
+            return ledger.stream().filter(recorded -> candidates.stream().anyMatch(d ->
+                    d.getDonatorID().equals(recorded.getDonatorID())
+                            && d.getIdempotencyKey().equals(recorded.getIdempotencyKey()))).toList();
+        });
+        doAnswer(invocation -> ledger.addAll(invocation.getArgument(0))).when(donateMoneyDao).appendAll(any());
+        doAnswer(invocation -> {
+            List<DonationTotal> deltas = invocation.getArgument(0);
+            deltas.forEach(delta -> totals.merge(new DonationTotal.Key(delta.getKind(), delta.getOwnerID()), delta.getTotalMoney(), Long::sum));
+            return null;
+        }).when(donationTotalDao).increaseAll(any());
+    }
+
+    @Test
+    void recordsRetriedDonationOnce() throws Exception {
+        val first = donateService.donateMoney("sponsor", "child1", 1000, "加油", "k1");
+        val retry = donateService.donateMoney("sponsor", "child1", 1000, "加油", "k1");
+        val other = donateService.donateMoney("sponsor", "child1", 500, null, null);
+
+        val recorded = first.get(5, TimeUnit.SECONDS);
+        assertEquals(recorded.getId(), retry.get(5, TimeUnit.SECONDS).getId());
+        assertNotEquals(recorded.getId(), other.get(5, TimeUnit.SECONDS).getId());
+        assertEquals(2, ledger.size());
+        assertEquals(1500L, totals.get(new DonationTotal.Key(DonationTotalKind.DONEE, "child1")));
+        assertEquals(1500L, totals.get(new DonationTotal.Key(DonationTotalKind.DONOR, "sponsor")));
+    }
+
+    @Test
+    void failsOnlyDonationsToUnknownTargets() throws Exception {
+        val missingDonee = donateService.donateMoney("sponsor", "nobody", 1000, null, null);
+        val missingGoods = donateService.donateGoods("sponsor", "nothing", 1, null, null);
+        val valid = donateService.donateMoney("sponsor", "child1", 1000, null, null);
+
+        assertInstanceOf(NoSuchDonationTargetException.class, cause(missingDonee));
+        assertInstanceOf(NoSuchDonationTargetException.class, cause(missingGoods));
+        assertEquals(1000L, valid.get(5, TimeUnit.SECONDS).getAmount());
+    }
+
+    @Test
+    void pricesGoodsByUnitPrice() throws Exception {
+        val books = donateService.donateGoods("sponsor", "book", 3, null, null);
+        val overflow = donateService.donateGoods("sponsor", "gold", 3, null, null);
+
+        assertEquals(7500L, books.get(5, TimeUnit.SECONDS).getTotalMoney());
+        assertInstanceOf(ArithmeticException.class, cause(overflow));
+        verify(donateGoodsDao, atLeastOnce()).appendAll(argThat((List<DonateGoods> goods) ->
+                goods.stream().noneMatch(g -> g.getGoodsID().equals("gold"))));
+    }
+
+    private static Throwable cause(CompletableFuture<?> future) {
+        val e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        return e.getCause();
+    }
+}
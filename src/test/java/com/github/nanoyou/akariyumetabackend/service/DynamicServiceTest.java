@@ -0,0 +1,95 @@
+package com.github.nanoyou.akariyumetabackend.service;
+
+import com.github.nanoyou.akariyumetabackend.common.id.CompactUuid;
+import com.github.nanoyou.akariyumetabackend.dao.CommentDao;
+import com.github.nanoyou.akariyumetabackend.dto.dynamic.DynamicTreeDTO;
+import com.github.nanoyou.akariyumetabackend.entity.dynamic.Comment;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@SpringJUnitConfig(DynamicService.class)
+class DynamicServiceTest {
+
+    private static final String ROOT = "018b3c4e-0000-7000-8000-000000000001";
+    private static final String A = "018b3c4e-0000-7000-8000-000000000002";
+    private static final String B = "018b3c4e-0000-7000-8000-000000000003";
+    private static final String A1 = "018b3c4e-0000-7000-8000-000000000004";
+
+    @MockBean
+    private CommentDao commentDao;
+    @MockBean
+    private SubscriptionService subscriptionService;
+    @MockBean
+    private LikeService likeService;
+
+    @Autowired
+    private DynamicService dynamicService;
+
+    @Test
+    void buildsTreeFromFlatSubtree() {
+        val t = LocalDateTime.of(2023, 11, 1, 12, 0);
+        // 子树按创建时间排序，和递归查询的返回顺序一致
+        when(commentDao.findSubtree(any())).thenReturn(List.of(
+                comment(ROOT, null, t),
+                comment(A, ROOT, t.plusMinutes(1)),
+                comment(B, ROOT, t.plusMinutes(2)),
+                comment(A1, A, t.plusMinutes(3))
+        ));
+        when(likeService.getLikeCounts(any())).thenReturn(Map.of(A, 2, A1, 5));
+
+        val root = dynamicService.getDynamicTree(ROOT);
+
+        assertNotNull(root);
+        assertEquals(ROOT, root.getId());
+        assertEquals(0, root.getLikes());
+        assertEquals(List.of(A, B), ids(root.getChildren()));
+        val a = root.getChildren().get(0);
+        assertEquals(2, a.getLikes());
+        assertEquals(List.of(A1), ids(a.getChildren()));
+        assertEquals(5, a.getChildren().get(0).getLikes());
+        assertEquals(List.of(), ids(root.getChildren().get(1).getChildren()));
+        verify(commentDao).findSubtree(CompactUuid.toBytes(ROOT));
+        verify(likeService, times(1)).getLikeCounts(any());
+    }
+
+    @Test
+    void acceptsUpperCaseRootID() {
+        val t = LocalDateTime.of(2023, 11, 1, 12, 0);
+        when(commentDao.findSubtree(any())).thenReturn(List.of(comment(ROOT, null, t), comment(A, ROOT, t)));
+        when(likeService.getLikeCounts(any())).thenReturn(Map.of());
+
+        val root = dynamicService.getDynamicTree(ROOT.toUpperCase());
+
+        assertNotNull(root);
+        assertEquals(List.of(A), ids(root.getChildren()));
+    }
+
+    @Test
+    void returnsNullForMissingOrMalformedRoot() {
+        when(commentDao.findSubtree(any())).thenReturn(List.of());
+
+        assertNull(dynamicService.getDynamicTree(ROOT));
+        assertNull(dynamicService.getDynamicTree("not-a-uuid"));
+        verify(commentDao, times(1)).findSubtree(any());
+        verifyNoInteractions(likeService);
+    }
+
+    private static Comment comment(String id, String replyTo, LocalDateTime createTime) {
+        return Comment.builder().id(id).commenterID("u").content(id).replyTo(replyTo).createTime(createTime).build();
+    }
+
+    private static List<String> ids(List<DynamicTreeDTO> nodes) {
+        return nodes.stream().map(DynamicTreeDTO::getId).toList();
+    }
+}
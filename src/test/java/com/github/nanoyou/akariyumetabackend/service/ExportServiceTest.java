@@ -0,0 +1,84 @@
+package com.github.nanoyou.akariyumetabackend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.nanoyou.akariyumetabackend.common.config.JacksonConfig;
+import com.github.nanoyou.akariyumetabackend.dao.CommentDao;
+import com.github.nanoyou.akariyumetabackend.dao.TaskDao;
+import com.github.nanoyou.akariyumetabackend.dao.TaskRecordDao;
+import com.github.nanoyou.akariyumetabackend.entity.dynamic.Comment;
+import jakarta.persistence.EntityManager;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@SpringJUnitConfig({ExportService.class, JacksonConfig.class})
+class ExportServiceTest {
+
+    @MockBean
+    private TaskDao taskDao;
+    @MockBean
+    private TaskRecordDao taskRecordDao;
+    @MockBean
+    private CommentDao commentDao;
+    @MockBean
+    private EntityManager entityManager;
+
+    @Autowired
+    private ExportService exportService;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void writesOneJsonObjectPerLine() throws IOException {
+        val closed = new AtomicBoolean();
+        val t = LocalDateTime.of(2023, 11, 1, 12, 0);
+        when(commentDao.streamAll()).thenReturn(IntStream.range(0, 1201)
+                .mapToObj(i -> Comment.builder().id("c" + i).commenterID("u").content("第 " + i + " 条\n动态").createTime(t).build())
+                .onClose(() -> closed.set(true)));
+        val out = new ByteArrayOutputStream();
+
+        val count = exportService.exportComments(out);
+
+        assertEquals(1201, count);
+        val lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(1201, lines.length);
+        for (int i = 0; i < lines.length; i++) {
+            val node = objectMapper.readTree(lines[i]);
+            assertEquals("c" + i, node.get("id").asText());
+            assertEquals("第 " + i + " 条\n动态", node.get("content").asText());
+            assertEquals("2023-11-01 12:00:00", node.get("createTime").asText());
+        }
+        // 每 500 行清空一次持久化上下文
+        verify(entityManager, times(2)).clear();
+        assertTrue(closed.get());
+    }
+
+    @Test
+    void leavesOutputOpen() throws IOException {
+        when(taskRecordDao.streamAll()).thenReturn(Stream.empty());
+        val closed = new AtomicBoolean();
+        val out = new ByteArrayOutputStream() {
+            @Override
+            public void close() {
+                closed.set(true);
+            }
+        };
+
+        assertEquals(0, exportService.exportTaskRecords(out));
+        assertEquals(0, out.size());
+        assertFalse(closed.get());
+    }
+}
@@ -0,0 +1,116 @@
+package com.github.nanoyou.akariyumetabackend.service;
+
+import com.github.nanoyou.akariyumetabackend.common.config.ConversionTestConfig;
+import com.github.nanoyou.akariyumetabackend.common.exception.FileTooLargeException;
+import com.github.nanoyou.akariyumetabackend.common.exception.UnsupportedFileTypeException;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringJUnitConfig({FileStoreService.class, ConversionTestConfig.class})
+class FileStoreServiceTest {
+
+    private static final byte[] PNG_MAGIC = {(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A};
+
+    @TempDir
+    static Path storeDir;
+
+    @Autowired
+    private FileStoreService fileStoreService;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("akari.file.store-dir", storeDir::toString);
+        registry.add("akari.file.max-size", () -> "100KB");
+    }
+
+    @Test
+    void storesUnderContentHash() throws Exception {
+        // 比读缓冲区大，覆盖多次读取
+        val content = png(90 * 1024, (byte) 1);
+
+        val item = fileStoreService.store(new ByteArrayInputStream(content));
+
+        assertEquals(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content)), item.getId());
+        assertEquals("image/png", item.getMimeType());
+        assertEquals(content.length, item.getSize());
+        assertArrayEquals(content, Files.readAllBytes(fileStoreService.blobPath(item.getId())));
+        val found = fileStoreService.find(item.getId()).orElseThrow();
+        assertEquals("image/png", found.getMimeType());
+        assertEquals(content.length, found.getSize());
+        assertEquals(0, tempFiles());
+    }
+
+    @Test
+    void keepsOneCopyOfSameContent() throws IOException {
+        val content = png(1024, (byte) 2);
+
+        val first = fileStoreService.store(new ByteArrayInputStream(content));
+        val second = fileStoreService.store(new ByteArrayInputStream(content));
+
+        assertEquals(first.getId(), second.getId());
+        try (val files = Files.list(fileStoreService.blobPath(first.getId()).getParent())) {
+            // 文件和它的 .type
+            assertEquals(2, files.count());
+        }
+        assertEquals(0, tempFiles());
+    }
+
+    @Test
+    void rejectsUnknownType() {
+        val content = "<html></html>".getBytes();
+
+        assertThrows(UnsupportedFileTypeException.class, () -> fileStoreService.store(new ByteArrayInputStream(content)));
+    }
+
+    @Test
+    void rejectsTooLargeFileAndRemovesTempFile() throws IOException {
+        val content = png(100 * 1024 + 1, (byte) 3);
+
+        assertThrows(FileTooLargeException.class, () -> fileStoreService.store(new ByteArrayInputStream(content)));
+        assertEquals(0, tempFiles());
+    }
+
+    @Test
+    void findsNothingForMalformedOrMissingID() {
+        assertTrue(fileStoreService.find("../../etc/passwd").isEmpty());
+        assertTrue(fileStoreService.find("ABC").isEmpty());
+        assertTrue(fileStoreService.find("0".repeat(64)).isEmpty());
+    }
+
+    @Test
+    void detectsTypeFromMagicNumber() {
+        assertEquals("image/jpeg", FileStoreService.detectMimeType(new byte[]{(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, 0}));
+        assertEquals("image/gif", FileStoreService.detectMimeType("GIF89a".getBytes()));
+        assertEquals("image/webp", FileStoreService.detectMimeType("RIFF\0\0\0\0WEBP".getBytes()));
+        assertNull(FileStoreService.detectMimeType("RIFF\0\0\0\0WAVE".getBytes()));
+        assertNull(FileStoreService.detectMimeType(new byte[]{(byte) 0x89, 'P'}));
+    }
+
+    private static byte[] png(int size, byte fill) {
+        val content = new byte[size];
+        Arrays.fill(content, fill);
+        System.arraycopy(PNG_MAGIC, 0, content, 0, PNG_MAGIC.length);
+        return content;
+    }
+
+    private static long tempFiles() throws IOException {
+        try (val files = Files.list(storeDir.resolve("tmp"))) {
+            return files.count();
+        }
+    }
+}
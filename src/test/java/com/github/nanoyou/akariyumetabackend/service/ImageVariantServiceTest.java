@@ -0,0 +1,124 @@
+package com.github.nanoyou.akariyumetabackend.service;
+
+import com.github.nanoyou.akariyumetabackend.common.config.ConversionTestConfig;
+import com.github.nanoyou.akariyumetabackend.entity.filestore.FileItem;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringJUnitConfig({ImageVariantService.class, FileStoreService.class, ConversionTestConfig.class})
+class ImageVariantServiceTest {
+
+    @TempDir
+    static Path storeDir;
+
+    @Autowired
+    private FileStoreService fileStoreService;
+    @Autowired
+    private ImageVariantService imageVariantService;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("akari.file.store-dir", storeDir::toString);
+        registry.add("akari.image.variant-widths", () -> "160,480,1080");
+        registry.add("akari.image.max-pixels", () -> "4000000");
+        registry.add("akari.image.variant-threads", () -> "2");
+    }
+
+    @Test
+    void generatesVariantsNarrowerThanOriginal() throws Exception {
+        val original = store(image(1200, 800, BufferedImage.TYPE_INT_RGB, 0x336699));
+
+        assertTrue(imageVariantService.submit(original));
+        awaitProcessed(original);
+
+        val small = imageVariantService.find(original, 100).orElseThrow();
+        assertEquals(160, small.getWidth());
+        assertEquals("image/jpeg", small.getMimeType());
+        val decoded = ImageIO.read(small.getPath().toFile());
+        assertEquals(160, decoded.getWidth());
+        assertEquals(107, decoded.getHeight());
+        assertEquals(480, imageVariantService.find(original, 161).orElseThrow().getWidth());
+        assertEquals(1080, imageVariantService.find(original, 1080).orElseThrow().getWidth());
+        // 比所有缩略图都宽时用原图
+        assertTrue(imageVariantService.find(original, 1081).isEmpty());
+    }
+
+    @Test
+    void keepsTransparencyAsPng() throws Exception {
+        val original = store(image(500, 500, BufferedImage.TYPE_INT_ARGB, 0x80FF0000));
+
+        imageVariantService.submit(original);
+        awaitProcessed(original);
+
+        val variant = imageVariantService.find(original, 160).orElseThrow();
+        assertEquals("image/png", variant.getMimeType());
+        assertTrue(ImageIO.read(variant.getPath().toFile()).getColorModel().hasAlpha());
+        assertEquals(480, imageVariantService.find(original, 400).orElseThrow().getWidth());
+        assertTrue(imageVariantService.find(original, 481).isEmpty());
+    }
+
+    @Test
+    void marksUndecodableAndOversizedImagesProcessedWithoutVariants() throws Exception {
+        val broken = new ByteArrayOutputStream();
+        broken.write(new byte[]{(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A});
+        broken.write("不是图片".getBytes());
+        val undecodable = fileStoreService.store(new ByteArrayInputStream(broken.toByteArray()));
+        val oversized = store(image(2001, 2000, BufferedImage.TYPE_INT_RGB, 0));
+
+        imageVariantService.submit(undecodable);
+        imageVariantService.submit(oversized);
+        awaitProcessed(undecodable);
+        awaitProcessed(oversized);
+
+        assertTrue(imageVariantService.find(undecodable, 1).isEmpty());
+        assertTrue(imageVariantService.find(oversized, 1).isEmpty());
+        // 已处理的图不会再次提交
+        assertTrue(imageVariantService.submit(oversized));
+    }
+
+    @Test
+    void findsNothingBeforeProcessing() {
+        val missing = FileItem.builder().id("f".repeat(64)).mimeType("image/png").size(1L).build();
+
+        assertFalse(imageVariantService.isProcessed(missing));
+        assertTrue(imageVariantService.find(missing, 160).isEmpty());
+    }
+
+    private FileItem store(BufferedImage image) throws IOException {
+        val out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return fileStoreService.store(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    private static BufferedImage image(int width, int height, int type, int argb) {
+        val image = new BufferedImage(width, height, type);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, argb);
+            }
+        }
+        return image;
+    }
+
+    private void awaitProcessed(FileItem fileItem) throws InterruptedException {
+        val deadline = System.nanoTime() + 10_000_000_000L;
+        while (!imageVariantService.isProcessed(fileItem)) {
+            assertTrue(System.nanoTime() < deadline, "缩略图没有在 10 秒内生成");
+            Thread.sleep(20);
+        }
+    }
+}
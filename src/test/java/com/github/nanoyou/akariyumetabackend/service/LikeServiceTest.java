@@ -0,0 +1,124 @@
+package com.github.nanoyou.akariyumetabackend.service;
+
+import com.github.nanoyou.akariyumetabackend.dao.LikeCountDao;
+import com.github.nanoyou.akariyumetabackend.dao.LikeDao;
+import lombok.val;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@SpringJUnitConfig(LikeService.class)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class LikeServiceTest {
+
+    private static final String COMMENT = "018b3c4e-0000-7000-8000-000000000001";
+    private static final String OTHER = "018b3c4e-0000-7000-8000-000000000002";
+
+    @MockBean
+    private LikeDao likeDao;
+    @MockBean
+    private LikeCountDao likeCountDao;
+    @MockBean
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private LikeService likeService;
+
+    private ValueOperations<String, String> valueOperations;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        valueOperations = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(likeCountDao.findTouchedSince(any())).thenReturn(Set.of());
+    }
+
+    @Test
+    void appliesDriftOnlyAfterTwoIdenticalObservations() {
+        holdLease(true);
+        when(likeCountDao.findTouchedSince(any())).thenReturn(Set.of(COMMENT), Set.of());
+        when(likeCountDao.findDrifts(any())).thenReturn(Map.of(COMMENT, 3L));
+
+        likeService.reconcile();
+        assertEquals(0, likeService.getLikeCountByCommentID(COMMENT));
+
+        // 第二次没有新变化，上次有偏差的评论仍然被检查
+        likeService.reconcile();
+        assertEquals(3, likeService.getLikeCountByCommentID(COMMENT));
+        val candidates = ArgumentCaptor.forClass(Collection.class);
+        verify(likeCountDao, times(2)).findDrifts(candidates.capture());
+        assertEquals(Set.of(COMMENT), new HashSet<>(candidates.getAllValues().get(1)));
+    }
+
+    @Test
+    void ignoresChangingDrift() {
+        holdLease(true);
+        when(likeCountDao.findTouchedSince(any())).thenReturn(Set.of(COMMENT, OTHER));
+        when(likeCountDao.findDrifts(any())).thenReturn(Map.of(COMMENT, 1L, OTHER, 2L), Map.of(COMMENT, 2L, OTHER, 2L));
+
+        likeService.reconcile();
+        likeService.reconcile();
+
+        assertEquals(0, likeService.getLikeCountByCommentID(COMMENT));
+        assertEquals(2, likeService.getLikeCountByCommentID(OTHER));
+    }
+
+    @Test
+    void skipsWithoutLease() {
+        holdLease(false);
+
+        likeService.reconcile();
+
+        verify(likeCountDao, never()).findTouchedSince(any());
+        verify(likeCountDao, never()).findDrifts(any());
+    }
+
+    @Test
+    void forgetsObservationsWhenLeaseIsLost() {
+        holdLease(true);
+        when(likeCountDao.findTouchedSince(any())).thenReturn(Set.of(COMMENT));
+        when(likeCountDao.findDrifts(any())).thenReturn(Map.of(COMMENT, 3L));
+        likeService.reconcile();
+
+        holdLease(false);
+        likeService.reconcile();
+
+        holdLease(true);
+        likeService.reconcile();
+        assertEquals(0, likeService.getLikeCountByCommentID(COMMENT));
+    }
+
+    @Test
+    void scansOnlySinceLastRun() {
+        holdLease(true);
+        val before = LocalDateTime.now();
+        likeService.reconcile();
+        likeService.reconcile();
+
+        val since = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(likeCountDao, times(2)).findTouchedSince(since.capture());
+        // 刚取得租约时回溯三个对账间隔，之后从上次对账开始
+        assertTrue(since.getAllValues().get(0).isBefore(before.minus(Duration.ofHours(3))));
+        assertTrue(since.getAllValues().get(1).isAfter(before.minus(Duration.ofMinutes(6))));
+    }
+
+    private void holdLease(boolean held) {
+        when(valueOperations.setIfAbsent(eq(LikeService.RECONCILE_LEASE_KEY), anyString(), any(Duration.class))).thenReturn(held);
+        when(redisTemplate.execute(any(), anyList(), any(Object[].class))).thenReturn(0L);
+    }
+}
@@ -0,0 +1,123 @@
+package com.github.nanoyou.akariyumetabackend.service;
+
+import com.github.nanoyou.akariyumetabackend.common.config.ConversionTestConfig;
+import com.github.nanoyou.akariyumetabackend.common.enumeration.Gender;
+import com.github.nanoyou.akariyumetabackend.common.enumeration.Role;
+import com.github.nanoyou.akariyumetabackend.common.exception.LoginThrottledException;
+import com.github.nanoyou.akariyumetabackend.dao.UserDao;
+import com.github.nanoyou.akariyumetabackend.dto.user.LoginDTO;
+import com.github.nanoyou.akariyumetabackend.entity.user.User;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@SpringJUnitConfig({LoginService.class, PasswordService.class, ConversionTestConfig.class})
+@TestPropertySource(properties = {"akari.login.bcrypt-cost=4", "akari.login.max-attempts=5"})
+class LoginServiceTest {
+
+    @MockBean
+    private UserDao userDao;
+    @MockBean
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private LoginService loginService;
+    @Autowired
+    private PasswordService passwordService;
+
+    @Test
+    void logsInWithHashedPasswordAndResetsAttempts() throws Exception {
+        attempts(1L);
+        when(userDao.findByUsername("alice")).thenReturn(Optional.of(user(passwordService.hash("secret"))));
+
+        val user = loginService.login(login("alice", "secret")).get();
+
+        assertEquals("u1", user.orElseThrow().getId());
+        assertEquals(Role.CHILD.value, user.get().getRole());
+        verify(redisTemplate).delete("login:attempts:alice");
+        verify(userDao, never()).save(any());
+    }
+
+    @Test
+    void rejectsWrongPasswordWithoutResettingAttempts() throws Exception {
+        attempts(2L);
+        when(userDao.findByUsername("alice")).thenReturn(Optional.of(user(passwordService.hash("secret"))));
+
+        assertTrue(loginService.login(login("alice", "wrong")).get().isEmpty());
+        verify(redisTemplate, never()).delete(anyString());
+    }
+
+    @Test
+    void rejectsUnknownUser() throws Exception {
+        attempts(1L);
+        when(userDao.findByUsername("nobody")).thenReturn(Optional.empty());
+
+        assertTrue(loginService.login(login("nobody", "secret")).get().isEmpty());
+    }
+
+    @Test
+    void upgradesPlaintextPasswordOnSuccess() throws Exception {
+        attempts(1L);
+        when(userDao.findByUsername("alice")).thenReturn(Optional.of(user("secret")));
+
+        assertTrue(loginService.login(login("alice", "secret")).get().isPresent());
+
+        val saved = ArgumentCaptor.forClass(User.class);
+        verify(userDao).save(saved.capture());
+        assertFalse(passwordService.needsUpgrade(saved.getValue().getPassword()));
+        assertTrue(passwordService.verifyAsync("secret", saved.getValue().getPassword()).get());
+    }
+
+    @Test
+    void throttlesAfterTooManyAttempts() {
+        attempts(6L);
+
+        val e = assertThrows(ExecutionException.class, () -> loginService.login(login("alice", "secret")).get());
+        assertInstanceOf(LoginThrottledException.class, e.getCause());
+        verify(userDao, never()).findByUsername(any());
+    }
+
+    @Test
+    void allowsAttemptWhenRedisIsUnavailable() throws Exception {
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenThrow(new IllegalStateException("Redis 不可用"));
+        when(userDao.findByUsername("alice")).thenReturn(Optional.of(user(passwordService.hash("secret"))));
+
+        assertTrue(loginService.login(login("alice", "secret")).get().isPresent());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void attempts(long attempts) {
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(attempts);
+    }
+
+    private static LoginDTO login(String username, String password) {
+        val login = new LoginDTO();
+        login.setUsername(username);
+        login.setPassword(password);
+        return login;
+    }
+
+    private static User user(String password) {
+        return User.builder()
+                .id("u1")
+                .username("alice")
+                .nickname("爱丽丝")
+                .password(password)
+                .role(Role.CHILD)
+                .gender(Gender.SECRET)
+                .build();
+    }
+}
@@ -0,0 +1,116 @@
+package com.github.nanoyou.akariyumetabackend.service;
+
+import com.github.nanoyou.akariyumetabackend.common.config.ConversionTestConfig;
+import com.github.nanoyou.akariyumetabackend.common.exception.LookupTimeoutException;
+import com.github.nanoyou.akariyumetabackend.common.execution.DatabaseExecutor;
+import lombok.val;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringJUnitConfig({LookupService.class, DatabaseExecutor.class, ConversionTestConfig.class})
+@TestPropertySource(properties = {"akari.execution.database-threads=4", "akari.lookup.timeout=2s"})
+class LookupServiceTest {
+
+    @MockBean
+    private DataSource dataSource;
+
+    @Autowired
+    private LookupService lookupService;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+    }
+
+    @Test
+    void runsLookupsInParallel() {
+        // 两个查询互相等待对方开始，串行执行时会超时
+        val barrier = new CountDownLatch(2);
+        try (val scope = lookupService.open()) {
+            val a = scope.fork(() -> meet(barrier, "a"));
+            val b = scope.fork(() -> meet(barrier, "b"));
+            scope.join();
+
+            assertEquals("a", a.get());
+            assertEquals("b", b.get());
+        }
+    }
+
+    @Test
+    void usesCachedValueWithoutQuerying() {
+        val queried = new AtomicBoolean();
+        try (val scope = lookupService.open()) {
+            val cached = scope.forkUnlessCached(Optional.of("cached"), () -> {
+                queried.set(true);
+                return Optional.of("queried");
+            });
+            val missed = scope.forkUnlessCached(Optional.empty(), () -> Optional.of("queried"));
+            scope.join();
+
+            assertEquals(Optional.of("cached"), cached.get());
+            assertEquals(Optional.of("queried"), missed.get());
+            assertFalse(queried.get());
+        }
+    }
+
+    @Test
+    void cancelsOthersOnFirstFailure() throws InterruptedException {
+        val interrupted = new CountDownLatch(1);
+        try (val scope = lookupService.open()) {
+            val slow = scope.fork(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+                return "slow";
+            });
+            scope.fork(() -> {
+                throw new IllegalStateException("查询失败");
+            });
+
+            val e = assertThrows(IllegalStateException.class, scope::join);
+            assertEquals("查询失败", e.getMessage());
+            // 被取消的查询抛出第一个失败，而不是取消
+            assertThrows(IllegalStateException.class, slow::get);
+        }
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void failsAtSharedDeadline() {
+        val start = System.nanoTime();
+        try (val scope = lookupService.open(Duration.ofMillis(200))) {
+            val slow = scope.fork(() -> {
+                release.await();
+                return "slow";
+            });
+
+            assertThrows(LookupTimeoutException.class, slow::get);
+        }
+        assertTrue(System.nanoTime() - start < Duration.ofSeconds(2).toNanos());
+    }
+
+    private static String meet(CountDownLatch barrier, String value) throws InterruptedException {
+        barrier.countDown();
+        if (!barrier.await(1, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("查询没有并行执行");
+        }
+        return value;
+    }
+}
@@ -0,0 +1,200 @@
+package com.github.nanoyou.akariyumetabackend.service;
+
+import com.github.nanoyou.akariyumetabackend.common.config.ConversionTestConfig;
+import com.github.nanoyou.akariyumetabackend.common.enumeration.PointsTotalKind;
+import com.github.nanoyou.akariyumetabackend.common.enumeration.TaskCategory;
+import com.github.nanoyou.akariyumetabackend.dao.PointsLedgerDao;
+import com.github.nanoyou.akariyumetabackend.dao.PointsTotalDao;
+import com.github.nanoyou.akariyumetabackend.dto.points.PointsRankDTO;
+import com.github.nanoyou.akariyumetabackend.entity.points.PointsLedger;
+import com.github.nanoyou.akariyumetabackend.entity.points.PointsTotal;
+import jakarta.persistence.EntityManager;
+import lombok.val;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@SpringJUnitConfig({PointsService.class, PointsServiceTest.TestTransactionManager.class, ConversionTestConfig.class})
+class PointsServiceTest {
+
+    @MockBean
+    private PointsLedgerDao pointsLedgerDao;
+    @MockBean
+    private PointsTotalDao pointsTotalDao;
+    @MockBean
+    private EntityManager entityManager;
+    @MockBean
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private PointsService pointsService;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    @Autowired
+    private TestTransactionManager transactionManager;
+
+    /**
+     * 在内存中模拟的流水、汇总和排行榜
+     */
+    private final Set<PointsLedger.Key> ledger = ConcurrentHashMap.newKeySet();
+    private final Map<PointsTotal.Key, Long> totals = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Double>> leaderboards = new ConcurrentHashMap<>();
+
+    /**
+     * 不连接数据库的事务管理器，照常触发提交前后的回调
+     */
+    static class TestTransactionManager extends AbstractPlatformTransactionManager {
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, org.springframework.transaction.TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        when(pointsLedgerDao.findExisting(anyList())).thenAnswer(invocation -> ((List<PointsLedger>) invocation.getArgument(0)).stream()
+                .map(entry -> new PointsLedger.Key(entry.getChildID(), entry.getTaskID()))
+                .filter(ledger::contains)
+                .toList());
+        doAnswer(invocation -> {
+            ((List<PointsLedger>) invocation.getArgument(0)).forEach(entry -> assertTrue(ledger.add(new PointsLedger.Key(entry.getChildID(), entry.getTaskID()))));
+            return null;
+        }).when(pointsLedgerDao).appendAll(anyList());
+        doAnswer(invocation -> {
+            ((List<PointsTotal>) invocation.getArgument(0)).forEach(delta ->
+                    totals.merge(new PointsTotal.Key(delta.getKind(), delta.getPeriod(), delta.getChildID()), delta.getPoints(), Long::sum));
+            return null;
+        }).when(pointsTotalDao).increaseAll(anyList());
+        when(pointsTotalDao.findAll(anyList())).thenAnswer(invocation -> ((List<PointsTotal.Key>) invocation.getArgument(0)).stream()
+                .filter(totals::containsKey)
+                .map(key -> new PointsTotal(key.getKind(), key.getPeriod(), key.getChildID(), totals.get(key)))
+                .toList());
+        when(pointsTotalDao.findById(any())).thenAnswer(invocation -> Optional.ofNullable(totals.get((PointsTotal.Key) invocation.getArgument(0)))
+                .map(points -> new PointsTotal(PointsTotalKind.ALL, "", "", points)));
+
+        val connection = mock(StringRedisConnection.class);
+        when(connection.zAdd(anyString(), anyDouble(), anyString(), any())).thenAnswer(invocation -> {
+            // ZADD GT：只在新值更大时更新
+            leaderboards.computeIfAbsent(invocation.getArgument(0), key -> new ConcurrentHashMap<>())
+                    .merge(invocation.getArgument(2), invocation.getArgument(1), Math::max);
+            return true;
+        });
+        when(redisTemplate.executePipelined(any(RedisCallback.class))).thenAnswer(invocation -> {
+            ((RedisCallback<?>) invocation.getArgument(0)).doInRedis(connection);
+            return List.of();
+        });
+        val zSetOperations = mock(ZSetOperations.class);
+        when(redisTemplate.opsForZSet()).thenReturn(zSetOperations);
+        when(zSetOperations.reverseRangeWithScores(anyString(), anyLong(), anyLong())).thenAnswer(invocation -> {
+            val board = leaderboards.getOrDefault((String) invocation.getArgument(0), Map.of());
+            val result = new LinkedHashSet<ZSetOperations.TypedTuple<String>>();
+            board.entrySet().stream()
+                    .sorted(Map.Entry.<String, Double>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey(Comparator.reverseOrder())))
+                    .limit((long) invocation.getArgument(2) + 1)
+                    .forEach(entry -> result.add(ZSetOperations.TypedTuple.of(entry.getKey(), entry.getValue())));
+            return result;
+        });
+    }
+
+    @Test
+    void awardsBonusToBalanceAndLeaderboards() {
+        complete("alice", "t1", 30, TaskCategory.SCIENCE);
+        complete("alice", "t2", 20, TaskCategory.HISTORY);
+        complete("bob", "t1", 30, TaskCategory.SCIENCE);
+
+        assertEquals(50, pointsService.getBalance("alice"));
+        assertEquals(30, pointsService.getBalance("bob"));
+        assertEquals(0, pointsService.getBalance("carol"));
+        assertEquals(List.of("alice:50", "bob:30"), ranks(pointsService.getLeaderboard(PointsTotalKind.ALL, "", 10)));
+        // 同分时儿童ID大的在前
+        assertEquals(List.of("bob:30", "alice:30"), ranks(pointsService.getLeaderboard(PointsTotalKind.CATEGORY, "SCIENCE", 10)));
+        assertEquals(List.of("alice:20"), ranks(pointsService.getLeaderboard(PointsTotalKind.CATEGORY, "HISTORY", 10)));
+        val week = pointsService.normalizePeriod(PointsTotalKind.WEEK, null);
+        assertEquals(List.of("alice:50"), ranks(pointsService.getLeaderboard(PointsTotalKind.WEEK, week, 1)));
+    }
+
+    @Test
+    void awardsSameTaskOnlyOnce() {
+        complete("alice", "t1", 30, TaskCategory.SCIENCE);
+        // 另一个节点也发布了同一次完成
+        complete("alice", "t1", 30, TaskCategory.SCIENCE);
+        // 同一事务中重复发布
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            eventPublisher.publishEvent(completed("alice", "t2", 5, TaskCategory.SCIENCE));
+            eventPublisher.publishEvent(completed("alice", "t2", 5, TaskCategory.SCIENCE));
+        });
+
+        assertEquals(35, pointsService.getBalance("alice"));
+        assertEquals(List.of("alice:35"), ranks(pointsService.getLeaderboard(PointsTotalKind.ALL, "", 10)));
+        verify(pointsLedgerDao, times(2)).appendAll(anyList());
+    }
+
+    @Test
+    void ignoresTasksWithoutBonus() {
+        complete("alice", "t1", 0, TaskCategory.SCIENCE);
+
+        assertEquals(0, pointsService.getBalance("alice"));
+        assertTrue(pointsService.getLeaderboard(PointsTotalKind.ALL, "", 10).isEmpty());
+    }
+
+    @Test
+    void requiresTransaction() {
+        assertThrows(IllegalStateException.class, () -> pointsService.onTaskCompleted(completed("alice", "t1", 30, TaskCategory.SCIENCE)));
+    }
+
+    @Test
+    void normalizesPeriods() {
+        assertEquals("", pointsService.normalizePeriod(PointsTotalKind.ALL, "anything"));
+        assertEquals("SCIENCE", pointsService.normalizePeriod(PointsTotalKind.CATEGORY, "science"));
+        assertEquals("2026-W42", pointsService.normalizePeriod(PointsTotalKind.WEEK, "2026-w42"));
+        assertThrows(IllegalArgumentException.class, () -> pointsService.normalizePeriod(PointsTotalKind.CATEGORY, "cooking"));
+        assertThrows(IllegalArgumentException.class, () -> pointsService.normalizePeriod(PointsTotalKind.WEEK, "2026-42"));
+    }
+
+    /**
+     * 与 TaskProgressService 一样，在写入任务记录的事务中发布完成事件
+     */
+    private void complete(String childID, String taskID, int bonus, TaskCategory category) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                eventPublisher.publishEvent(completed(childID, taskID, bonus, category)));
+    }
+
+    private static TaskProgressService.TaskCompleted completed(String childID, String taskID, int bonus, TaskCategory category) {
+        return new TaskProgressService.TaskCompleted(childID, taskID, bonus, category, LocalDateTime.now());
+    }
+
+    private static List<String> ranks(List<PointsRankDTO> ranks) {
+        return ranks.stream().map(rank -> rank.getChildID() + ":" + rank.getPoints()).toList();
+    }
+}
@@ -0,0 +1,167 @@
+package com.github.nanoyou.akariyumetabackend.service;
+
+import com.github.nanoyou.akariyumetabackend.common.enumeration.TaskCategory;
+import com.github.nanoyou.akariyumetabackend.common.enumeration.TaskStatus;
+import com.github.nanoyou.akariyumetabackend.dto.task.TaskCourseUploadDTO;
+import com.github.nanoyou.akariyumetabackend.dto.task.TaskImportResultDTO;
+import com.github.nanoyou.akariyumetabackend.entity.task.Course;
+import com.github.nanoyou.akariyumetabackend.entity.task.Task;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import lombok.val;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@SpringJUnitConfig(TaskImportService.class)
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.jdbc.batch_size=2")
+class TaskImportServiceTest {
+
+    @MockBean
+    private EntityManager entityManager;
+    @MockBean
+    private PlatformTransactionManager transactionManager;
+    @MockBean
+    private TaskSearchService taskSearchService;
+    @MockBean
+    private TaskStatusService taskStatusService;
+
+    @Autowired
+    private TaskImportService taskImportService;
+
+    /**
+     * 上次 flush 之后 persist 的任务名称，flush 时含有 “bad” 的块写入失败
+     */
+    private final List<String> pending = new ArrayList<>();
+    private int nextID;
+
+    @BeforeEach
+    void setUp() {
+        when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+        doAnswer(invocation -> {
+            if (invocation.getArgument(0) instanceof Task task) {
+                task.setId("t" + nextID++);
+                pending.add(task.getTaskName());
+            }
+            return null;
+        }).when(entityManager).persist(any());
+        doAnswer(invocation -> {
+            val failed = pending.stream().anyMatch(name -> name.startsWith("bad"));
+            pending.clear();
+            if (failed) {
+                throw new PersistenceException(new SQLException("Data too long", "22001"));
+            }
+            return null;
+        }).when(entityManager).flush();
+    }
+
+    @Test
+    void importsValidRowsInChunks() {
+        val rows = List.of(row("a"), row("b"), row("c"));
+
+        val result = taskImportService.importTaskCourses("admin", rows);
+
+        assertEquals(3, result.getSucceeded());
+        assertEquals(3, result.getTaskIDs().stream().distinct().count());
+        assertTrue(result.getFailures().isEmpty());
+        // 批大小为 2，三行分两个事务写入
+        verify(transactionManager, times(2)).commit(any());
+        verify(entityManager, times(2)).flush();
+        // 课程与任务共用同一个ID
+        val persisted = ArgumentCaptor.forClass(Object.class);
+        verify(entityManager, times(6)).persist(persisted.capture());
+        val courses = persisted.getAllValues().stream().filter(Course.class::isInstance).map(Course.class::cast).toList();
+        assertEquals(result.getTaskIDs(), courses.stream().map(Course::getTaskID).toList());
+        assertTrue(courses.stream().allMatch(course -> course.getVideoDuration() == 600));
+        verify(taskSearchService, times(1)).index(argThat((Collection<Task> tasks) -> tasks.size() == 3));
+        verify(taskStatusService, times(1)).schedule(argThat((Collection<Task> tasks) -> tasks.size() == 3));
+    }
+
+    @Test
+    void reportsInvalidRowsWithoutWritingThem() {
+        val now = LocalDateTime.now();
+        val reversed = row("reversed", now.plusDays(1), now);
+        val noVideo = row("no-video");
+        noVideo.setVideoDuration(0);
+        val rows = new ArrayList<TaskCourseUploadDTO>();
+        rows.add(row("a"));
+        rows.add(null);
+        rows.add(row(" "));
+        rows.add(reversed);
+        rows.add(noVideo);
+
+        val result = taskImportService.importTaskCourses("admin", rows);
+
+        assertEquals(1, result.getSucceeded());
+        assertEquals(List.of(1, 2, 3, 4), result.getFailures().stream().map(TaskImportResultDTO.RowFailure::getIndex).toList());
+        assertEquals("视频时长必须为正数", result.getFailures().get(3).getReason());
+        assertNull(result.getTaskIDs().get(1));
+        verify(entityManager, times(1)).flush();
+    }
+
+    @Test
+    void retriesFailedChunkRowByRow() {
+        val rows = List.of(row("a"), row("bad"), row("c"));
+
+        val result = taskImportService.importTaskCourses("admin", rows);
+
+        assertEquals(2, result.getSucceeded());
+        assertNotNull(result.getTaskIDs().get(0));
+        assertNull(result.getTaskIDs().get(1));
+        assertNotNull(result.getTaskIDs().get(2));
+        val failure = result.getFailures().get(0);
+        assertEquals(1, failure.getIndex());
+        // 不把驱动的原始信息返回给用户
+        assertEquals("内容超出长度限制", failure.getReason());
+        verify(taskSearchService).index(argThat((Collection<Task> tasks) -> tasks.size() == 2));
+    }
+
+    @Test
+    void derivesStatusFromSchedule() {
+        val now = LocalDateTime.now();
+        val rows = List.of(
+                row("past", now.minusDays(2), now.minusDays(1)),
+                row("current", now.minusDays(1), now.plusDays(1)),
+                row("future", now.plusDays(1), now.plusDays(2)));
+
+        taskImportService.importTaskCourses("admin", rows);
+
+        val persisted = ArgumentCaptor.forClass(Object.class);
+        verify(entityManager, atLeastOnce()).persist(persisted.capture());
+        val statuses = persisted.getAllValues().stream().filter(Task.class::isInstance).map(t -> ((Task) t).getStatus()).toList();
+        assertEquals(List.of(TaskStatus.FINISHED, TaskStatus.IN_PROGRESS, TaskStatus.NOT_STARTED), statuses);
+    }
+
+    private static TaskCourseUploadDTO row(String taskName) {
+        val now = LocalDateTime.now();
+        return row(taskName, now.minusDays(1), now.plusDays(1));
+    }
+
+    private static TaskCourseUploadDTO row(String taskName, LocalDateTime startTime, LocalDateTime endTime) {
+        return TaskCourseUploadDTO.builder()
+                .taskName(taskName)
+                .category(TaskCategory.SCIENCE)
+                .bonus(10)
+                .startTime(startTime)
+                .endTime(endTime)
+                .videoURL("https://example.com/" + taskName + ".mp4")
+                .videoDuration(600)
+                .build();
+    }
+}
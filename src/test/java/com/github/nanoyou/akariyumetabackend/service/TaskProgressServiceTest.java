@@ -0,0 +1,161 @@
+package com.github.nanoyou.akariyumetabackend.service;
+
+import com.github.nanoyou.akariyumetabackend.common.config.ConversionTestConfig;
+import com.github.nanoyou.akariyumetabackend.common.enumeration.TaskCategory;
+import com.github.nanoyou.akariyumetabackend.common.enumeration.TaskRecordStatus;
+import com.github.nanoyou.akariyumetabackend.dao.TaskRecordDao;
+import com.github.nanoyou.akariyumetabackend.entity.task.Course;
+import com.github.nanoyou.akariyumetabackend.entity.task.Task;
+import com.github.nanoyou.akariyumetabackend.entity.task.TaskRecord;
+import lombok.val;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.event.EventListener;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@SpringJUnitConfig({TaskProgressService.class, TaskProgressServiceTest.Completions.class, ConversionTestConfig.class})
+@TestPropertySource(properties = {
+        // 测试中心跳间隔只有几十毫秒，放宽倍速使正常播放的位置都被认可
+        "akari.task-progress.max-playback-rate=10000",
+        "akari.task-progress.complete-percent=95",
+        "akari.task-progress.milestone-percent=10",
+        "akari.task-progress.flush-interval-ms=3600000"
+})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class TaskProgressServiceTest {
+
+    private static final String CHILD = "child";
+    private static final String TASK = "task";
+
+    @MockBean
+    private TaskRecordDao taskRecordDao;
+    @MockBean
+    private TaskService taskService;
+    @MockBean
+    private CourseService courseService;
+    @MockBean
+    private TaskSearchService taskSearchService;
+    @MockBean
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private TaskProgressService taskProgressService;
+    @Autowired
+    private Completions completions;
+
+    /**
+     * 收集发布的完成事件
+     */
+    static class Completions {
+        private final List<TaskProgressService.TaskCompleted> events = new CopyOnWriteArrayList<>();
+
+        @EventListener
+        void on(TaskProgressService.TaskCompleted event) {
+            events.add(event);
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+        when(taskRecordDao.findById(any())).thenReturn(Optional.empty());
+        when(courseService.getCourse(TASK)).thenReturn(Optional.of(Course.builder().taskID(TASK).videoDuration(100).build()));
+        when(taskService.getTask(TASK)).thenReturn(Optional.of(Task.builder().id(TASK).bonus(20).category(TaskCategory.SCIENCE).build()));
+    }
+
+    @Test
+    void completesAfterWatchingToTheEnd() throws InterruptedException {
+        for (val position : new int[]{0, 30, 60}) {
+            heartbeat(position);
+        }
+        taskProgressService.flush();
+        assertTrue(completions.events.isEmpty());
+        assertEquals(TaskRecordStatus.UNCOMPLETED, taskProgressService.getProgress(CHILD, TASK).getStatus());
+
+        val record = heartbeat(96);
+        assertEquals(TaskRecordStatus.COMPLETED, record.getStatus());
+        assertEquals(96, record.getProgress());
+        assertNotNull(record.getEndTime());
+        taskProgressService.flush();
+
+        assertEquals(1, completions.events.size());
+        val event = completions.events.get(0);
+        assertEquals(CHILD, event.childID());
+        assertEquals(TASK, event.taskID());
+        assertEquals(20, event.bonus());
+        assertEquals(TaskCategory.SCIENCE, event.category());
+        val rows = ArgumentCaptor.forClass(List.class);
+        verify(taskRecordDao, times(2)).mergeAll(rows.capture());
+        assertEquals(TaskRecordStatus.COMPLETED, ((TaskRecord) rows.getValue().get(0)).getStatus());
+        verify(taskSearchService, times(2)).indexRecords(any());
+
+        // 完成之后继续播放不会再次发布
+        heartbeat(100);
+        taskProgressService.flush();
+        assertEquals(1, completions.events.size());
+    }
+
+    @Test
+    void writesOnlyAtMilestones() throws InterruptedException {
+        heartbeat(0);
+        heartbeat(30);
+        taskProgressService.flush();
+        heartbeat(35);
+        taskProgressService.flush();
+        verify(taskRecordDao, times(1)).mergeAll(any());
+
+        heartbeat(41);
+        taskProgressService.flush();
+        verify(taskRecordDao, times(2)).mergeAll(any());
+    }
+
+    @Test
+    void retriesCompletionWhenWriteFails() throws InterruptedException {
+        doThrow(new IllegalStateException("数据库不可用")).doNothing().when(taskRecordDao).mergeAll(any());
+        heartbeat(0);
+        heartbeat(96);
+
+        taskProgressService.flush();
+        verify(transactionManager).rollback(any());
+        verify(taskSearchService, never()).indexRecords(any());
+
+        taskProgressService.flush();
+        assertEquals(1, completions.events.size());
+        verify(taskRecordDao, times(2)).mergeAll(any());
+        verify(taskSearchService).indexRecords(any());
+    }
+
+    @Test
+    void rejectsCourseWithoutDuration() {
+        when(courseService.getCourse("no-video")).thenReturn(Optional.of(Course.builder().taskID("no-video").videoDuration(0).build()));
+        when(courseService.getCourse("missing")).thenReturn(Optional.empty());
+
+        assertThrows(IllegalArgumentException.class, () -> taskProgressService.heartbeat(CHILD, "no-video", 10));
+        assertThrows(IllegalArgumentException.class, () -> taskProgressService.heartbeat(CHILD, "missing", 10));
+        assertThrows(IllegalArgumentException.class, () -> taskProgressService.heartbeat(CHILD, TASK, -1));
+    }
+
+    /**
+     * 每次心跳前等待一小段时间，按配置的倍速足够前进到请求的位置
+     * 第一次心跳与读入记录之间几乎没有间隔，只能从头开始播放
+     */
+    private TaskRecord heartbeat(int position) throws InterruptedException {
+        Thread.sleep(20);
+        return taskProgressService.heartbeat(CHILD, TASK, position);
+    }
+}
@@ -0,0 +1,115 @@
+package com.github.nanoyou.akariyumetabackend.service;
+
+import com.github.nanoyou.akariyumetabackend.common.config.ConversionTestConfig;
+import com.github.nanoyou.akariyumetabackend.common.execution.DatabaseExecutor;
+import com.github.nanoyou.akariyumetabackend.dao.CommentDao;
+import com.github.nanoyou.akariyumetabackend.dto.page.Cursor;
+import com.github.nanoyou.akariyumetabackend.entity.dynamic.Comment;
+import lombok.val;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@SpringJUnitConfig({TimelineService.class, LookupService.class, DatabaseExecutor.class, ConversionTestConfig.class})
+@TestPropertySource(properties = {"akari.execution.database-threads=2", "akari.timeline.ttl=1h"})
+class TimelineServiceTest {
+
+    private static final String ME = "me";
+    private static final String FOLLOWEE = "followee";
+
+    @MockBean
+    private StringRedisTemplate redisTemplate;
+    @MockBean
+    private CommentDao commentDao;
+    @MockBean
+    private SubscriptionService subscriptionService;
+    @MockBean
+    private DataSource dataSource;
+
+    @Autowired
+    private TimelineService timelineService;
+
+    private ZSetOperations<String, String> zSetOperations;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        zSetOperations = mock(ZSetOperations.class);
+        val setOperations = mock(SetOperations.class);
+        when(redisTemplate.opsForZSet()).thenReturn(zSetOperations);
+        when(redisTemplate.opsForSet()).thenReturn(setOperations);
+        when(setOperations.members(any())).thenReturn(Set.of());
+        when(subscriptionService.getFolloweeIDs(ME)).thenReturn(List.of(FOLLOWEE));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void rebuildsMissingTimelineInOneScript() {
+        val t = LocalDateTime.of(2023, 11, 1, 12, 0);
+        val newer = dynamic("018b3c4e-0000-7000-8000-000000000002", FOLLOWEE, t.plusMinutes(1));
+        val older = dynamic("018b3c4e-0000-7000-8000-000000000001", ME, t);
+        val key = "timeline:" + ME;
+        when(redisTemplate.hasKey(key)).thenReturn(false, true);
+        when(commentDao.findByCommenterIDInAndReplyToIsNull(any(), any())).thenReturn(List.of(newer, older));
+        when(zSetOperations.reverseRangeByScore(eq(key), anyDouble(), anyDouble(), anyLong(), anyLong()))
+                .thenReturn(new LinkedHashSet<>(List.of(newer.getId(), older.getId(), "#")));
+        when(commentDao.findAllById(any())).thenReturn(List.of(older, newer));
+
+        val page = timelineService.getTimeline(ME, Cursor.FIRST, 10);
+
+        assertEquals(List.of(newer.getId(), older.getId()), page.getItems().stream().map(Comment::getId).toList());
+        // 占位成员、所有动态和过期时间在同一次脚本调用中写入，不再逐条 ZADD 后 EXPIRE
+        val args = ArgumentCaptor.forClass(Object[].class);
+        verify(redisTemplate).execute(any(RedisScript.class), eq(List.of(key)), args.capture());
+        assertArrayEquals(new Object[]{
+                String.valueOf(Duration.ofHours(1).toMillis()),
+                "0", "#",
+                String.valueOf(score(newer)), newer.getId(),
+                String.valueOf(score(older)), older.getId()
+        }, args.getValue());
+        verify(zSetOperations, never()).add(any(), any(), anyDouble());
+        verify(redisTemplate, never()).expire(any(), any(Duration.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void doesNotRebuildExistingTimeline() {
+        when(redisTemplate.hasKey("timeline:" + ME)).thenReturn(true);
+        when(zSetOperations.reverseRangeByScore(any(), anyDouble(), anyDouble(), anyLong(), anyLong())).thenReturn(Set.of("#"));
+        when(commentDao.findAllById(any())).thenReturn(List.of());
+
+        val page = timelineService.getTimeline(ME, Cursor.FIRST, 10);
+
+        assertTrue(page.getItems().isEmpty());
+        verify(redisTemplate, never()).execute(any(RedisScript.class), anyList(), any(Object[].class));
+        verify(commentDao, never()).findByCommenterIDInAndReplyToIsNull(any(), any());
+    }
+
+    private static Comment dynamic(String id, String commenterID, LocalDateTime createTime) {
+        return Comment.builder().id(id).commenterID(commenterID).content(id).createTime(createTime).build();
+    }
+
+    private static double score(Comment dynamic) {
+        return dynamic.getCreateTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,132 @@
+package com.github.nanoyou.akariyumetabackend.service;
+
+import com.github.nanoyou.akariyumetabackend.common.cache.TwoLevelCache;
+import com.github.nanoyou.akariyumetabackend.common.config.ConversionTestConfig;
+import com.github.nanoyou.akariyumetabackend.dao.CourseDao;
+import lombok.val;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@SpringJUnitConfig({WatchCountService.class, ConversionTestConfig.class})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class WatchCountServiceTest {
+
+    private static final String COURSE = "c1";
+
+    @TempDir
+    static Path journalRoot;
+
+    @MockBean
+    private CourseDao courseDao;
+    @MockBean
+    private TwoLevelCache<?> courseCache;
+    @MockBean
+    private StringRedisTemplate redisTemplate;
+    @MockBean
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private WatchCountService watchCountService;
+
+    private ValueOperations<String, String> valueOperations;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        // 每个测试方法重建上下文时换一个目录，不重放其他测试留下的日志
+        registry.add("akari.watch.journal-dir", () -> journalRoot.resolve(String.valueOf(System.nanoTime())).toString());
+        registry.add("akari.watch.dedupe-window", () -> "10m");
+    }
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        valueOperations = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+    }
+
+    @Test
+    void countsEachUserOncePerWindow() {
+        when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(true, false, true);
+
+        assertTrue(watchCountService.watch("u1", COURSE));
+        assertFalse(watchCountService.watch("u1", COURSE));
+        assertTrue(watchCountService.watch("u2", COURSE));
+        watchCountService.sync();
+
+        assertEquals(2, watchCountService.getPendingCount(COURSE));
+        verify(valueOperations, times(2)).setIfAbsent("watch:seen:c1:u1", "1", Duration.ofMinutes(10));
+    }
+
+    @Test
+    void countsWhenDedupeIsUnavailable() {
+        when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenThrow(new IllegalStateException("Redis 不可用"));
+
+        assertTrue(watchCountService.watch("u1", COURSE));
+        watchCountService.sync();
+
+        assertEquals(1, watchCountService.getPendingCount(COURSE));
+    }
+
+    @Test
+    void writesBackInOneTransaction() {
+        when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(true);
+        watchCountService.watch("u1", COURSE);
+        watchCountService.watch("u1", "c2");
+
+        watchCountService.flush();
+
+        verify(transactionManager).getTransaction(any());
+        verify(courseDao).increaseWatchedCounts(Map.of(COURSE, 1L, "c2", 1L));
+        verify(transactionManager).commit(any());
+        verify(courseCache).invalidateAll(argThat(keys -> keys.containsAll(List.of(COURSE, "c2"))));
+        assertEquals(0, watchCountService.getPendingCount(COURSE));
+    }
+
+    @Test
+    void keepsJournalAndReplaysItWhenWriteBackFails() throws IOException {
+        when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(true);
+        doThrow(new IllegalStateException("数据库不可用")).doNothing().when(courseDao).increaseWatchedCounts(any());
+        watchCountService.watch("u1", COURSE);
+        watchCountService.watch("u2", COURSE);
+
+        watchCountService.flush();
+
+        verify(transactionManager).rollback(any());
+        verify(courseCache, never()).invalidateAll(any());
+        assertEquals(1, flushingJournals().size());
+
+        watchCountService.flush();
+
+        verify(courseDao, times(2)).increaseWatchedCounts(Map.of(COURSE, 2L));
+        assertEquals(0, flushingJournals().size());
+    }
+
+    private static List<Path> flushingJournals() throws IOException {
+        try (val files = Files.walk(journalRoot)) {
+            return files.filter(f -> f.getFileName().toString().endsWith(".flushing")).toList();
+        }
+    }
+}